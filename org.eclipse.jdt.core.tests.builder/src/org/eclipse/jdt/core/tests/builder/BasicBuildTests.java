@@ -15,7 +15,10 @@
  *******************************************************************************/
 package org.eclipse.jdt.core.tests.builder;
 
+import java.util.ArrayList;
 import java.util.Hashtable;
+import java.util.List;
+import java.util.function.Consumer;
 
 import junit.framework.*;
 
@@ -29,6 +32,7 @@ import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.compiler.CategorizedProblem;
 import org.eclipse.jdt.core.tests.util.Util;
 import org.eclipse.jdt.internal.core.JavaModelManager;
+import org.eclipse.jdt.internal.core.builder.BuildMetrics;
 
 /**
  * Basic tests of the image builder.
@@ -687,4 +691,212 @@ public class BasicBuildTests extends BuilderTests {
 			org.eclipse.jdt.internal.core.builder.AbstractImageBuilder.MAX_AT_ONCE = save;
 		}
 	}
+	public void testParallelFullBuild() throws JavaModelException {
+		int save = org.eclipse.jdt.internal.core.builder.AbstractImageBuilder.MAX_PARALLEL_COMPILATIONS;
+		try {
+			IPath projectPath = env.addProject("Project");
+			env.addExternalJars(projectPath, Util.getJavaClassLibs());
+
+			// remove old package fragment root so that names don't collide
+			env.removePackageFragmentRoot(projectPath, "");
+
+			IPath root = env.addPackageFragmentRoot(projectPath, "src");
+			env.setOutputFolder(projectPath, "bin");
+
+			env.addClass(root, "a", "A",
+				"package a;\n" +
+				"public class A {\n" +
+				"	public b.B b;\n" +
+				"}"
+			);
+			env.addClass(root, "b", "B",
+				"package b;\n" +
+				"public class B {\n" +
+				"	public a.A a;\n" +
+				"}"
+			);
+			env.addClass(root, "c", "C",
+				"package c;\n" +
+				"public class C {\n" +
+				"	Object o = new d.D();\n" +
+				"}"
+			);
+			env.addClass(root, "d", "D",
+				"package d;\n" +
+				"public class D {\n" +
+				"	Zork z;\n" +
+				"}"
+			);
+			env.addClass(root, "e", "E",
+				"package e;\n" +
+				"public class E {\n" +
+				"	a.A a = new b.B().a;\n" +
+				"}"
+			);
+
+			org.eclipse.jdt.internal.core.builder.AbstractImageBuilder.MAX_PARALLEL_COMPILATIONS = 3;
+
+			// without a previous state all packages of the source folder are compiled together
+			fullBuild(projectPath);
+			expectingProblemsFor(
+				projectPath,
+				"Problem : Zork cannot be resolved to a type [ resource : </Project/src/d/D.java> range : <29,33> category : <40> severity : <2>]"
+			);
+
+			// the references of the previous state split the packages in {a, b, e} and {c, d}
+			fullBuild(projectPath);
+			expectingProblemsFor(
+				projectPath,
+				"Problem : Zork cannot be resolved to a type [ resource : </Project/src/d/D.java> range : <29,33> category : <40> severity : <2>]"
+			);
+			expectingPresenceOf(new IPath[] {
+				projectPath.append("bin/a/A.class"),
+				projectPath.append("bin/b/B.class"),
+				projectPath.append("bin/c/C.class"),
+				projectPath.append("bin/d/D.class"),
+				projectPath.append("bin/e/E.class")
+			});
+
+			env.addClass(root, "d", "D",
+				"package d;\n" +
+				"public class D {\n" +
+				"	e.E e;\n" +
+				"}"
+			);
+			// d.D now references e.E of the other partition, which is awaited rather than compiled twice
+			fullBuild(projectPath);
+			expectingNoProblems();
+			expectingCompiledClasses(new String[] {"a.A", "b.B", "c.C", "d.D", "e.E"});
+		} finally {
+			org.eclipse.jdt.internal.core.builder.AbstractImageBuilder.MAX_PARALLEL_COMPILATIONS = save;
+		}
+	}
+	public void testParallelFullBuildSecondaryType() throws JavaModelException {
+		int save = org.eclipse.jdt.internal.core.builder.AbstractImageBuilder.MAX_PARALLEL_COMPILATIONS;
+		try {
+			IPath projectPath = env.addProject("Project");
+			env.addExternalJars(projectPath, Util.getJavaClassLibs());
+
+			// remove old package fragment root so that names don't collide
+			env.removePackageFragmentRoot(projectPath, "");
+
+			IPath root1 = env.addPackageFragmentRoot(projectPath, "src1");
+			IPath root2 = env.addPackageFragmentRoot(projectPath, "src2");
+			env.setOutputFolder(projectPath, "bin");
+
+			env.addClass(root1, "a", "A",
+				"package a;\n" +
+				"public class A {}\n" +
+				"class S {}"
+			);
+			env.addClass(root2, "b", "B",
+				"package b;\n" +
+				"public class B {\n" +
+				"	a.S s;\n" +
+				"}"
+			);
+
+			org.eclipse.jdt.internal.core.builder.AbstractImageBuilder.MAX_PARALLEL_COMPILATIONS = 2;
+
+			// without a previous state the source folders are compiled apart, so b.B is compiled again once a.S is written
+			fullBuild(projectPath);
+			expectingProblemsFor(
+				projectPath,
+				"Problem : The type a.S is not visible [ resource : </Project/src2/b/B.java> range : <29,32> category : <40> severity : <2>]"
+			);
+
+			env.addClass(root2, "b", "B",
+				"package b;\n" +
+				"public class B {\n" +
+				"}"
+			);
+			fullBuild(projectPath);
+			expectingNoProblems();
+
+			env.addClass(root2, "b", "B",
+				"package b;\n" +
+				"public class B {\n" +
+				"	a.S s;\n" +
+				"}"
+			);
+			// b.B did not reference package a in the previous state, so the secondary type a.S of the other partition is awaited
+			fullBuild(projectPath);
+			expectingProblemsFor(
+				projectPath,
+				"Problem : The type a.S is not visible [ resource : </Project/src2/b/B.java> range : <29,32> category : <40> severity : <2>]"
+			);
+		} finally {
+			org.eclipse.jdt.internal.core.builder.AbstractImageBuilder.MAX_PARALLEL_COMPILATIONS = save;
+		}
+	}
+
+	public void testBuildMetrics() throws JavaModelException {
+		List<BuildMetrics> builds = new ArrayList<>();
+		Consumer<BuildMetrics> listener = builds::add;
+		BuildMetrics.addListener(listener);
+		try {
+			IPath projectPath = env.addProject("Project");
+			env.addExternalJars(projectPath, Util.getJavaClassLibs());
+
+			// remove old package fragment root so that names don't collide
+			env.removePackageFragmentRoot(projectPath, "");
+
+			IPath root = env.addPackageFragmentRoot(projectPath, "src");
+			env.setOutputFolder(projectPath, "bin");
+
+			env.addClass(root, "p", "A",
+				"package p;\n" +
+				"public class A {\n" +
+				"	class M {}\n" +
+				"}"
+			);
+			env.addClass(root, "p", "B",
+				"package p;\n" +
+				"public class B extends A {}"
+			);
+
+			fullBuild(projectPath);
+			expectingNoProblems();
+			assertEquals("Unexpected number of builds", 1, builds.size());
+			BuildMetrics metrics = builds.get(0);
+			assertEquals("Project", metrics.getProjectName());
+			assertEquals(BuildMetrics.FULL_BUILD, metrics.getKind());
+			assertEquals(2, metrics.getCompiledUnits());
+			assertEquals(3, metrics.getWrittenClassFiles());
+			assertEquals(1, metrics.getCompileLoops());
+			assertTrue("Missing line count", metrics.getLineCount() > 0);
+
+			builds.clear();
+			env.addClass(root, "p", "B",
+				"package p;\n" +
+				"public class B extends A { int i; }"
+			);
+			incrementalBuild(projectPath);
+			expectingNoProblems();
+			assertEquals("Unexpected number of builds", 1, builds.size());
+			metrics = builds.get(0);
+			assertEquals(BuildMetrics.INCREMENTAL_BUILD, metrics.getKind());
+			assertFalse(metrics.isIncrementalBuildFailed());
+			assertEquals(1, metrics.getCompiledUnits());
+			assertEquals(1, metrics.getWrittenClassFiles());
+			assertEquals(1, metrics.getCompileLoops());
+			assertTrue("Unexpected JSON: " + metrics.toJson(), metrics.toJson().startsWith("{\"project\":\"Project\",\"kind\":\"incremental\""));
+
+			// the class file of B does not change, so it is not written again
+			builds.clear();
+			env.addClass(root, "p", "B",
+				"package p;\n" +
+				"public class B extends A { int i; } // unchanged class file"
+			);
+			incrementalBuild(projectPath);
+			expectingNoProblems();
+			assertEquals("Unexpected number of builds", 1, builds.size());
+			metrics = builds.get(0);
+			assertEquals(1, metrics.getCompiledUnits());
+			assertEquals(0, metrics.getWrittenClassFiles());
+			assertEquals(1, metrics.getCompileLoops());
+		} finally {
+			BuildMetrics.removeListener(listener);
+		}
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -27,7 +27,7 @@ public class EfficiencyCompilerRequestor implements IDebugRequestor {
 	private ArrayList<ClassFile> classes = new ArrayList<>();
 
 
-	public void acceptDebugResult(CompilationResult result){
+	public synchronized void acceptDebugResult(CompilationResult result){ // also called by the compilers of parallel builds
 		this.compiledFiles.add(new String(result.fileName));
 		ClassFile[] classFiles = result.getClassFiles();
 		Util.sort(classFiles, new Util.Comparer() {
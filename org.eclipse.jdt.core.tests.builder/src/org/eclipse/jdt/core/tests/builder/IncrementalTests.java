@@ -1285,4 +1285,48 @@ public class IncrementalTests extends BuilderTests {
 		env.removeProject(projectPath);
 	}
 
+	public void testLongStructuralCascade() throws JavaModelException {
+		IPath projectPath = env.addProject("Project");
+		env.addExternalJars(projectPath, Util.getJavaClassLibs());
+
+		// remove old package fragment root so that names don't collide
+		env.removePackageFragmentRoot(projectPath, "");
+
+		IPath root = env.addPackageFragmentRoot(projectPath, "src");
+		env.setOutputFolder(projectPath, "bin");
+
+		// each change of a constant is a structural change which reaches only the next class of the chain
+		env.addClass(root, "p", "A0",
+			"package p;\n" +
+			"public class A0 { public static final int X = 1; }\n");
+		for (int i = 1; i < 7; i++) {
+			env.addClass(root, "p", "A" + i,
+				"package p;\n" +
+				"public class A" + i + " { public static final int X = A" + (i - 1) + ".X + 1; }\n");
+		}
+		env.addClass(root, "p", "A7",
+			"package p;\n" +
+			"public class A7 {\n" +
+			"	public static final int X = A6.X + 1;\n" +
+			"	public static void main(String[] args) { System.out.print(X); }\n" +
+			"}\n");
+		env.addClass(root, "q", "B",
+			"package q;\n" +
+			"public class B {}\n");
+
+		fullBuild(projectPath);
+		expectingNoProblems();
+		executeClass(projectPath, "p.A7", "8", "");
+
+		env.addClass(root, "p", "A0",
+			"package p;\n" +
+			"public class A0 { public static final int X = 10; }\n");
+		incrementalBuild(projectPath);
+		expectingNoProblems();
+		// the remaining dependents are compiled at once instead of falling back to a full build
+		expectingCompiledClasses(new String[] { "p.A0", "p.A1", "p.A2", "p.A3", "p.A4", "p.A5", "p.A6", "p.A7" });
+		executeClass(projectPath, "p.A7", "17", "");
+		env.removeProject(projectPath);
+	}
+
 }
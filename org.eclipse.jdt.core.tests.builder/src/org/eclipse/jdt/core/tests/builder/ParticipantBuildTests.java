@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -326,6 +326,65 @@ public class ParticipantBuildTests extends BuilderTests {
 		expectingNoProblems();
 	}
 
+	/*
+	 * Ensures that a class file written into the output folder by an annotation processor during the build
+	 * is found by the next compile loop, even though it was missing when first looked up and no class file
+	 * was compiled into its package since.
+	 */
+	public void testProcessAnnotationWrittenClassFile() throws JavaModelException {
+		IPath libPath = env.addProject("Lib", "1.5"); //$NON-NLS-1$ //$NON-NLS-2$
+		env.addExternalJars(libPath, Util.getJavaClassLibs());
+		env.removePackageFragmentRoot(libPath, ""); //$NON-NLS-1$
+		IPath libRoot = env.addPackageFragmentRoot(libPath, "src"); //$NON-NLS-1$
+		env.setOutputFolder(libPath, "bin"); //$NON-NLS-1$
+		env.addClass(libRoot, "q", "Gen", //$NON-NLS-1$ //$NON-NLS-2$
+			"package q; public class Gen {}\n" //$NON-NLS-1$
+			);
+		fullBuild(libPath);
+		expectingNoProblems();
+
+		IPath projectPath = env.addProject("Project", "1.5"); //$NON-NLS-1$ //$NON-NLS-2$
+		env.addExternalJars(projectPath, Util.getJavaClassLibs());
+		env.removePackageFragmentRoot(projectPath, ""); //$NON-NLS-1$
+		IPath root = env.addPackageFragmentRoot(projectPath, "src"); //$NON-NLS-1$
+		env.setOutputFolder(projectPath, "bin"); //$NON-NLS-1$
+		env.addPackage(root, "q"); // so that q.Gen is looked up as a type of package q, and remembered as missing //$NON-NLS-1$
+		env.addClass(root, "p", "Probe", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p;\n" + //$NON-NLS-1$
+			"@Deprecated\n" + //$NON-NLS-1$
+			"public class Probe { q.Gen g; Other o; }\n" //$NON-NLS-1$
+			);
+
+		// install compilationParticipant
+		new BuildTestParticipant() {
+			public boolean isAnnotationProcessor() {
+				return true;
+			}
+			public void processAnnotations(BuildContext[] files) {
+				// write q/Gen.class into the output folder and generate Other.java, so that Probe is compiled again
+				BuildContext result = files[0];
+				IProject project = result.getFile().getProject();
+				IFile genedType = project.getFile(new Path("src/p/Other.java")); //$NON-NLS-1$
+				if (genedType.exists()) return;
+				try {
+					IFile classFile = project.getFile(new Path("bin/q/Gen.class")); //$NON-NLS-1$
+					IFolder folder = (IFolder) classFile.getParent();
+					if (!folder.exists())
+						folder.create(true, true, null);
+					IFile libClassFile = project.getWorkspace().getRoot().getProject("Lib").getFile(new Path("bin/q/Gen.class")); //$NON-NLS-1$ //$NON-NLS-2$
+					classFile.create(libClassFile.getContents(), true, null);
+					genedType.create(new ByteArrayInputStream("package p; public class Other {}".getBytes()), true, null); //$NON-NLS-1$
+				} catch (CoreException e) {
+					e.printStackTrace();
+				}
+				result.recordAddedGeneratedFiles(new IFile[] {genedType});
+			}
+		};
+
+		fullBuild(projectPath);
+		expectingNoProblems();
+	}
+
 	public void testProcessAnnotationQualifiedReferences() throws JavaModelException {
 		IPath projectPath = env.addProject("Project", "1.5"); //$NON-NLS-1$ //$NON-NLS-2$
 		env.addExternalJars(projectPath, Util.getJavaClassLibs());
@@ -13,8 +13,10 @@
  *******************************************************************************/
 package org.eclipse.jdt.core.tests.model;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Vector;
 
 import org.eclipse.core.resources.IProject;
@@ -26,11 +28,21 @@ import org.eclipse.jdt.core.compiler.CharOperation;
 import org.eclipse.jdt.core.search.*;
 import org.eclipse.jdt.core.tests.model.Semaphore.TimeOutException;
 import org.eclipse.jdt.core.tests.util.Util;
+import org.eclipse.jdt.internal.compiler.env.AccessRuleSet;
 import org.eclipse.jdt.internal.core.JavaElement;
 import org.eclipse.jdt.internal.core.JavaModelManager;
 import org.eclipse.jdt.internal.core.LocalVariable;
+import org.eclipse.jdt.internal.core.index.Index;
 import org.eclipse.jdt.internal.core.search.BasicSearchEngine;
+import org.eclipse.jdt.internal.core.search.IndexQueryRequestor;
+import org.eclipse.jdt.internal.core.search.PatternSearchJob;
+import org.eclipse.jdt.internal.core.search.indexing.IIndexConstants;
+import org.eclipse.jdt.internal.core.search.indexing.IndexAllProject;
 import org.eclipse.jdt.internal.core.search.indexing.IndexManager;
+import org.eclipse.jdt.internal.core.search.indexing.IndexRequest;
+import org.eclipse.jdt.internal.core.search.indexing.SharedIndexCache;
+import org.eclipse.jdt.internal.core.search.indexing.TypeNameCache;
+import org.eclipse.jdt.internal.core.search.matching.MatchLocator;
 import org.eclipse.jdt.internal.core.search.processing.IJob;
 
 import junit.framework.Test;
@@ -244,6 +256,35 @@ public class SearchTests extends ModifyingResourceTests implements IJavaSearchCo
 			JavaModelManager.getIndexManager().enable();
 		}
 	}
+	static class WaitingIndexRequest extends IndexRequest {
+		private static final int MAX_WAIT = 30000; // wait 30s max
+		Semaphore startingSem = new Semaphore();
+		private Semaphore runningSem = new Semaphore();
+		volatile boolean started;
+		WaitingIndexRequest(String containerPath) {
+			super(new Path(containerPath), JavaModelManager.getIndexManager());
+		}
+		public void cancel() {
+		}
+		public void ensureReadyToRun() {
+		}
+		public boolean execute(IProgressMonitor progress) {
+			this.started = true;
+			this.startingSem.release();
+			try {
+				this.runningSem.acquire(MAX_WAIT);
+			} catch (TimeOutException e) {
+				e.printStackTrace();
+			}
+			return true;
+		}
+		public void resume() {
+			this.runningSem.release();
+		}
+		public boolean waitNeeded() {
+			return false;
+		}
+	}
 static {
 	//TESTS_PREFIX = "testSearchPatternValidateMatchRule";
 }
@@ -521,6 +562,741 @@ public void testConcurrentJob() throws CoreException, InterruptedException, IOEx
 		deleteProject("P1");
 	}
 }
+/*
+ * Ensures that index requests for different containers run at the same time when allowed,
+ * while the requests for the same container keep the order of the queue.
+ */
+public void testConcurrentIndexRequests() throws TimeOutException {
+	int maxConcurrentJobs = IndexManager.MAX_CONCURRENT_JOBS;
+	IndexManager indexManager = JavaModelManager.getIndexManager();
+	WaitingIndexRequest first = new WaitingIndexRequest("/P1");
+	WaitingIndexRequest second = new WaitingIndexRequest("/P1");
+	WaitingIndexRequest other = new WaitingIndexRequest("/P2");
+	try {
+		waitUntilIndexesReady();
+		IndexManager.MAX_CONCURRENT_JOBS = 2;
+		indexManager.disable();
+		indexManager.request(first);
+		indexManager.request(second);
+		indexManager.request(other);
+		indexManager.enable();
+
+		first.startingSem.acquire(30000); // wait 30s max
+		other.startingSem.acquire(30000); // must start while the first request is running
+		assertFalse("Second request of /P1 should wait for the first one", second.started);
+		assertEquals("Unexpected awaiting jobs", 3, indexManager.awaitingJobsCount());
+
+		first.resume();
+		second.startingSem.acquire(30000);
+	} finally {
+		first.resume();
+		second.resume();
+		other.resume();
+		IndexManager.MAX_CONCURRENT_JOBS = maxConcurrentJobs;
+	}
+	waitUntilIndexesReady();
+}
+/*
+ * Ensures that querying the indexes of a search concurrently finds the matches of all indexes.
+ */
+public void testConcurrentIndexQueries() throws CoreException {
+	int maxConcurrentQueries = PatternSearchJob.MAX_CONCURRENT_QUERIES;
+	try {
+		createJavaProject("P1", new String[] {""}, new String[] {"JCL_LIB"}, "bin");
+		createFile(
+			"/P1/X.java",
+			"public class X {}"
+		);
+		IJavaProject project = createJavaProject("P2", new String[] {""}, new String[] {"JCL_LIB"}, new String[] {"/P1"}, "bin");
+		createFile(
+			"/P2/Y.java",
+			"public class Y extends X {}"
+		);
+		waitUntilIndexesReady();
+		PatternSearchJob.MAX_CONCURRENT_QUERIES = 3;
+		assertAllTypes(
+			"Unexpected all types",
+			project,
+			"X\n" +
+			"Y\n" +
+			"java.io.Serializable\n" +
+			"java.lang.Class\n" +
+			"java.lang.CloneNotSupportedException\n" +
+			"java.lang.Error\n" +
+			"java.lang.Exception\n" +
+			"java.lang.IllegalMonitorStateException\n" +
+			"java.lang.InterruptedException\n" +
+			"java.lang.Object\n" +
+			"java.lang.RuntimeException\n" +
+			"java.lang.String\n" +
+			"java.lang.Throwable"
+		);
+	} finally {
+		PatternSearchJob.MAX_CONCURRENT_QUERIES = maxConcurrentQueries;
+		deleteProject("P1");
+		deleteProject("P2");
+	}
+}
+/*
+ * Ensures that locating the matches of several projects in parallel reports the same matches
+ * in the same order as locating them sequentially.
+ */
+public void testParallelMatchLocators() throws CoreException {
+	int maxParallelLocators = MatchLocator.MAX_PARALLEL_LOCATORS;
+	try {
+		createJavaProject("P1", new String[] {""}, new String[] {"JCL_LIB"}, "bin");
+		createFile(
+			"/P1/X.java",
+			"public class X {}"
+		);
+		createFile(
+			"/P1/Y.java",
+			"public class Y {\n" +
+			"  X x;\n" +
+			"}"
+		);
+		for (int i = 2; i <= 4; i++) {
+			createJavaProject("P" + i, new String[] {""}, new String[] {"JCL_LIB"}, new String[] {"/P1"}, "bin");
+			createFile(
+				"/P" + i + "/Z.java",
+				"public class Z extends X {\n" +
+				"  X foo(X x) { return x; }\n" +
+				"}"
+			);
+		}
+		waitUntilIndexesReady();
+		SearchPattern pattern = SearchPattern.createPattern("X", IJavaSearchConstants.TYPE, IJavaSearchConstants.REFERENCES, SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE);
+		final StringBuffer sequentialMatches = new StringBuffer();
+		new SearchEngine().search(pattern, new SearchParticipant[] {SearchEngine.getDefaultSearchParticipant()}, SearchEngine.createWorkspaceScope(), new SearchRequestor() {
+			public void acceptSearchMatch(SearchMatch match) {
+				sequentialMatches.append(match.getResource().getFullPath()).append(' ').append(match.getOffset()).append('\n');
+			}
+		}, null);
+		MatchLocator.MAX_PARALLEL_LOCATORS = 3;
+		final StringBuffer parallelMatches = new StringBuffer();
+		new SearchEngine().search(pattern, new SearchParticipant[] {SearchEngine.getDefaultSearchParticipant()}, SearchEngine.createWorkspaceScope(), new SearchRequestor() {
+			public void acceptSearchMatch(SearchMatch match) {
+				parallelMatches.append(match.getResource().getFullPath()).append(' ').append(match.getOffset()).append('\n');
+			}
+		}, null);
+		assertEquals("Unexpected sequential matches", 10, sequentialMatches.toString().split("\n").length);
+		assertEquals("Unexpected parallel matches", sequentialMatches.toString(), parallelMatches.toString());
+	} finally {
+		MatchLocator.MAX_PARALLEL_LOCATORS = maxParallelLocators;
+		deleteProject("P1");
+		deleteProject("P2");
+		deleteProject("P3");
+		deleteProject("P4");
+	}
+}
+/*
+ * Ensures that a search with a match budget reports at most the given number of matches,
+ * and that a search stops once the requestor has enough matches.
+ */
+public void testSearchWithMaxMatches() throws CoreException {
+	try {
+		createJavaProject("P", new String[] {""}, new String[] {"JCL_LIB"}, "bin");
+		createFile(
+			"/P/X.java",
+			"public class X {}"
+		);
+		for (int i = 0; i < 5; i++) {
+			createFile(
+				"/P/Y" + i + ".java",
+				"public class Y" + i + " {\n" +
+				"  X x1;\n" +
+				"  X x2;\n" +
+				"}"
+			);
+		}
+		waitUntilIndexesReady();
+		SearchPattern pattern = SearchPattern.createPattern("X", IJavaSearchConstants.TYPE, IJavaSearchConstants.REFERENCES, SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE);
+		final int[] matches = new int[1];
+		new SearchEngine().search(pattern, new SearchParticipant[] {SearchEngine.getDefaultSearchParticipant()}, SearchEngine.createWorkspaceScope(), new SearchRequestor() {
+			public void acceptSearchMatch(SearchMatch match) {
+				matches[0]++;
+			}
+		}, 3, null);
+		assertEquals("Unexpected matches with a budget", 3, matches[0]);
+
+		matches[0] = 0;
+		new SearchEngine().search(pattern, new SearchParticipant[] {SearchEngine.getDefaultSearchParticipant()}, SearchEngine.createWorkspaceScope(), new SearchRequestor() {
+			public void acceptSearchMatch(SearchMatch match) {
+				matches[0]++;
+			}
+			public boolean hasEnoughMatches() {
+				return matches[0] > 0;
+			}
+		}, null);
+		assertEquals("Unexpected matches once the requestor has enough", 1, matches[0]);
+	} finally {
+		deleteProject("P");
+	}
+}
+/*
+ * Ensures that the document numbers of a word referenced in more than 255 documents
+ * are found once the index is saved to disk.
+ */
+public void testSavedIndexLargeDocumentArray() throws CoreException {
+	try {
+		final IJavaProject project = createJavaProject("P", new String[] {""}, new String[] {"JCL_LIB"}, "bin");
+		final int count = 300;
+		getWorkspace().run(new IWorkspaceRunnable() {
+			public void run(IProgressMonitor monitor) throws CoreException {
+				createFile(
+					"/P/X.java",
+					"public class X {}"
+				);
+				for (int i = 0; i < count; i++) {
+					createFile(
+						"/P/Y" + i + ".java",
+						"public class Y" + i + " extends X {}"
+					);
+				}
+			}
+		}, null);
+		waitUntilIndexesReady();
+		JavaModelManager.getIndexManager().saveIndexes();
+
+		final int[] matches = new int[1];
+		new SearchEngine().search(
+			SearchPattern.createPattern("X", IJavaSearchConstants.TYPE, IJavaSearchConstants.REFERENCES, SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE),
+			new SearchParticipant[] {SearchEngine.getDefaultSearchParticipant()},
+			SearchEngine.createJavaSearchScope(new IJavaElement[] {project}),
+			new SearchRequestor() {
+				public void acceptSearchMatch(SearchMatch match) {
+					matches[0]++;
+				}
+			},
+			null);
+		assertEquals("Unexpected number of references", count, matches[0]);
+	} finally {
+		deleteProject("P");
+	}
+}
+/*
+ * Ensures that the changed and deleted documents which are saved in a segment appended to the index file
+ * hide their previous version when the index file is read again.
+ */
+public void testSavedIndexSegment() throws CoreException, IOException {
+	try {
+		final IJavaProject project = createJavaProject("P", new String[] {""}, new String[] {"JCL_LIB"}, "bin");
+		getWorkspace().run(new IWorkspaceRunnable() {
+			public void run(IProgressMonitor monitor) throws CoreException {
+				for (int i = 0; i < 20; i++) {
+					createFile(
+						"/P/X" + i + ".java",
+						"public class X" + i + " {}"
+					);
+				}
+			}
+		}, null);
+		waitUntilIndexesReady();
+		IndexManager indexManager = JavaModelManager.getIndexManager();
+		indexManager.saveIndexes();
+
+		deleteFile("/P/X1.java");
+		editFile(
+			"/P/X2.java",
+			"public class Y2 {}"
+		);
+		waitUntilIndexesReady();
+		indexManager.saveIndexes();
+
+		Index index = indexManager.getIndex(project.getPath(), true, false);
+		Index savedIndex = new Index(index.getIndexLocation(), index.containerPath, true /*reuse index file*/);
+		String[] documentNames = savedIndex.queryDocumentNames(null);
+		Arrays.sort(documentNames);
+		assertEquals(
+			"Unexpected documents",
+			"[X0.java, X10.java, X11.java, X12.java, X13.java, X14.java, X15.java, X16.java, X17.java, X18.java, X19.java, " +
+			"X2.java, X3.java, X4.java, X5.java, X6.java, X7.java, X8.java, X9.java]",
+			Arrays.toString(documentNames));
+		savedIndex.startQuery();
+		try {
+			assertNull("Unexpected previous type", savedIndex.query(new char[][] {IIndexConstants.TYPE_DECL}, "X2".toCharArray(), SearchPattern.R_PREFIX_MATCH | SearchPattern.R_CASE_SENSITIVE));
+			assertNotNull("Missing changed type", savedIndex.query(new char[][] {IIndexConstants.TYPE_DECL}, "Y2".toCharArray(), SearchPattern.R_PREFIX_MATCH | SearchPattern.R_CASE_SENSITIVE));
+		} finally {
+			savedIndex.stopQuery();
+		}
+	} finally {
+		deleteProject("P");
+	}
+}
+/*
+ * Ensures that a search for the references to a type does not read the saved indexes
+ * which cannot contain the type name.
+ */
+public void testSkippedIndexes() throws CoreException {
+	try {
+		IJavaProject project1 = createJavaProject("P1", new String[] {""}, new String[] {"JCL_LIB"}, "bin");
+		createFile(
+			"/P1/X.java",
+			"public class X {}"
+		);
+		createFile(
+			"/P1/Y.java",
+			"public class Y {\n" +
+			"  X x;\n" +
+			"}"
+		);
+		IJavaProject project2 = createJavaProject("P2", new String[] {""}, new String[] {"JCL_LIB"}, "bin");
+		createFile(
+			"/P2/Z.java",
+			"public class Z {}"
+		);
+		waitUntilIndexesReady();
+		JavaModelManager.getIndexManager().saveIndexes();
+
+		SearchPattern pattern = SearchPattern.createPattern("X", IJavaSearchConstants.TYPE, IJavaSearchConstants.REFERENCES, SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE);
+		PatternSearchJob job = new PatternSearchJob(
+			pattern,
+			SearchEngine.getDefaultSearchParticipant(),
+			SearchEngine.createJavaSearchScope(new IJavaElement[] {project1, project2}),
+			new IndexQueryRequestor() {
+				public boolean acceptIndexMatch(String documentPath, SearchPattern indexRecord, SearchParticipant participant, AccessRuleSet access) {
+					return true;
+				}
+			});
+		job.execute(null);
+		assertEquals("Unexpected skipped indexes", 2, job.getSkippedIndexes()); // the indexes of P2 and of the JCL library
+	} finally {
+		deleteProject("P1");
+		deleteProject("P2");
+	}
+}
+/*
+ * Ensures that the camel case and pattern queries of a large category table, which only match the words
+ * containing the trigrams of the key, answer all the matching words.
+ */
+public void testSavedIndexTrigrams() throws CoreException, IOException {
+	try {
+		final IJavaProject project = createJavaProject("P", new String[] {""}, new String[] {"JCL_LIB"}, "bin");
+		StringBuffer source = new StringBuffer("public class X {\n");
+		for (int i = 0; i < 600; i++) {
+			source.append("  class HashMap" + i + " {}\n");
+			source.append("  class TreeSet" + i + " {}\n");
+		}
+		source.append("}");
+		createFile("/P/X.java", source.toString());
+		waitUntilIndexesReady();
+		IndexManager indexManager = JavaModelManager.getIndexManager();
+		indexManager.saveIndexes();
+
+		Index index = indexManager.getIndex(project.getPath(), true, false);
+		Index savedIndex = new Index(index.getIndexLocation(), index.containerPath, true /*reuse index file*/);
+		for (int i = 0; i < 2; i++) { // the trigrams of the table are computed by the first query and reused by the second one
+			savedIndex.startQuery();
+			try {
+				assertEquals("Unexpected camel case matches", 600, savedIndex.query(new char[][] {IIndexConstants.TYPE_DECL}, "HaMa".toCharArray(), SearchPattern.R_CAMELCASE_MATCH).length);
+				assertEquals("Unexpected pattern matches", 600, savedIndex.query(new char[][] {IIndexConstants.TYPE_DECL}, "*eSe*".toCharArray(), SearchPattern.R_PATTERN_MATCH).length);
+				assertEquals("Unexpected substring matches", 111, savedIndex.query(new char[][] {IIndexConstants.TYPE_DECL}, "*Map5*".toCharArray(), SearchPattern.R_PATTERN_MATCH | SearchPattern.R_CASE_SENSITIVE).length);
+			} finally {
+				savedIndex.stopQuery();
+			}
+		}
+	} finally {
+		deleteProject("P");
+	}
+}
+/*
+ * Ensures that the index of a library is shared, and that it is reused by another project referencing the same library.
+ */
+public void testSharedIndexCache() throws CoreException {
+	IndexManager manager = JavaModelManager.getIndexManager();
+	SharedIndexCache previousCache = manager.sharedIndexCache;
+	File cacheDirectory = new File(getExternalPath(), "sharedIndexCache");
+	try {
+		manager.sharedIndexCache = new SharedIndexCache(cacheDirectory, Long.MAX_VALUE);
+		createJavaProject("P1", new String[] {}, new String[] {"/P1/lib.jar"}, "bin");
+		createFile("/P1/lib.jar", EMPTY_JAR);
+		waitUntilIndexesReady();
+		File[] sharedIndexes = cacheDirectory.listFiles();
+		File sharedIndex = null;
+		for (int i = 0; i < sharedIndexes.length; i++) {
+			if (sharedIndexes[i].getName().endsWith(".index")) {
+				assertNull("Unexpected shared index " + sharedIndexes[i], sharedIndex);
+				sharedIndex = sharedIndexes[i];
+			}
+		}
+		assertNotNull("Index should be shared", sharedIndex);
+
+		createJavaProject("P2", new String[] {}, new String[] {"/P2/lib.jar"}, "bin");
+		createFile("/P2/lib.jar", EMPTY_JAR);
+		waitUntilIndexesReady();
+		File indexFile = manager.computeIndexLocation(new Path("/P2/lib.jar")).getIndexFile();
+		assertEquals("Unexpected index file", sharedIndex.length(), indexFile.length());
+		assertEquals("Unexpected shared indexes", sharedIndexes.length, cacheDirectory.listFiles().length);
+	} finally {
+		manager.sharedIndexCache = previousCache;
+		Util.delete(cacheDirectory);
+		deleteProject("P1");
+		deleteProject("P2");
+	}
+}
+/*
+ * Ensures that the type names kept in memory answer the same types as the indexes,
+ * including the types of the documents changed since the indexes were saved,
+ * and once these changes are appended to the index files.
+ */
+public void testTypeNameCache() throws CoreException {
+	IndexManager manager = JavaModelManager.getIndexManager();
+	TypeNameCache previousCache = manager.typeNameCache;
+	try {
+		manager.typeNameCache = new TypeNameCache(Long.MAX_VALUE);
+		IJavaProject project = createJavaProject("P", new String[] {""}, new String[] {"JCL_LIB"}, "bin");
+		createFolder("/P/p");
+		createFolder("/P/q");
+		createFile(
+			"/P/p/HashMapX.java",
+			"package p;\n" +
+			"public class HashMapX {\n" +
+			"  public interface HashEntry {}\n" +
+			"}"
+		);
+		createFile(
+			"/P/p/HelloMap.java",
+			"package p;\n" +
+			"public class HelloMap {}"
+		);
+		createFile(
+			"/P/q/TreeMap.java",
+			"package q;\n" +
+			"public class TreeMap {}"
+		);
+		createFolder("/P/r");
+		for (int i = 0; i < 8; i++) { // so that the changes below are appended to the index file
+			createFile(
+				"/P/r/X" + i + ".java",
+				"package r;\n" +
+				"public class X" + i + " {}"
+			);
+		}
+		waitUntilIndexesReady();
+		manager.saveIndexes();
+		IJavaSearchScope scope = SearchEngine.createJavaSearchScope(new IJavaElement[] {project});
+		SearchTypeNameRequestor requestor = new SearchTypeNameRequestor();
+		new SearchEngine().searchAllTypeNames(null, SearchPattern.R_EXACT_MATCH, "HM".toCharArray(), SearchPattern.R_CAMELCASE_MATCH, TYPE, scope, requestor, WAIT_UNTIL_READY_TO_SEARCH, null);
+		assertEquals(
+			"Unexpected camel case types",
+			"p.HashMapX\n" +
+			"p.HelloMap",
+			requestor.toString());
+		assertTrue("Type names should be kept in memory", manager.typeNameCache.getMemoryUsage() > 0);
+
+		// changed since saved
+		deleteFile("/P/p/HelloMap.java");
+		createFile(
+			"/P/q/HashMapY.java",
+			"package q;\n" +
+			"public class HashMapY {}"
+		);
+		waitUntilIndexesReady();
+		requestor = new SearchTypeNameRequestor();
+		new SearchEngine().searchAllTypeNames(null, SearchPattern.R_EXACT_MATCH, "hash".toCharArray(), SearchPattern.R_PREFIX_MATCH, TYPE, scope, requestor, WAIT_UNTIL_READY_TO_SEARCH, null);
+		assertEquals(
+			"Unexpected prefix types",
+			"p.HashMapX\n" +
+			"p.HashMapX$HashEntry\n" +
+			"q.HashMapY",
+			requestor.toString());
+		requestor = new SearchTypeNameRequestor();
+		new SearchEngine().searchAllTypeNames(null, SearchPattern.R_EXACT_MATCH, "HM".toCharArray(), SearchPattern.R_CAMELCASE_MATCH, TYPE, scope, requestor, WAIT_UNTIL_READY_TO_SEARCH, null);
+		assertEquals(
+			"Unexpected camel case types once changed",
+			"p.HashMapX\n" +
+			"q.HashMapY",
+			requestor.toString());
+
+		// saved in a segment appended to the index file, whose type names replace the ones of its documents
+		manager.saveIndexes();
+		assertTrue("Changes should be appended to the index file", manager.getIndex(project.getPath(), true, false).getAppendedStamp() != 0);
+		requestor = new SearchTypeNameRequestor();
+		new SearchEngine().searchAllTypeNames(null, SearchPattern.R_EXACT_MATCH, "hash".toCharArray(), SearchPattern.R_PREFIX_MATCH, TYPE, scope, requestor, WAIT_UNTIL_READY_TO_SEARCH, null);
+		assertEquals(
+			"Unexpected prefix types once appended",
+			"p.HashMapX\n" +
+			"p.HashMapX$HashEntry\n" +
+			"q.HashMapY",
+			requestor.toString());
+		requestor = new SearchTypeNameRequestor();
+		new SearchEngine().searchAllTypeNames(null, SearchPattern.R_EXACT_MATCH, "HM".toCharArray(), SearchPattern.R_CAMELCASE_MATCH, TYPE, scope, requestor, WAIT_UNTIL_READY_TO_SEARCH, null);
+		assertEquals(
+			"Unexpected camel case types once appended",
+			"p.HashMapX\n" +
+			"q.HashMapY",
+			requestor.toString());
+	} finally {
+		manager.typeNameCache = previousCache;
+		deleteProject("P");
+	}
+}
+/*
+ * Ensures that the references of the bodies scanned rather than parsed by the indexer are found,
+ * as well as the ones of a body which needs to be parsed.
+ */
+public void testIndexScannedBodies() throws CoreException {
+	try {
+		createJavaProject("P", new String[] {""}, new String[] {"JCL18_LIB"}, "bin", "1.8");
+		createFile(
+			"/P/X.java",
+			"public class X {\n" +
+			"  public int f;\n" +
+			"  public X(String s) {}\n" +
+			"  public void foo(int i, int j) {}\n" +
+			"}"
+		);
+		createFile(
+			"/P/Y.java",
+			"public class Y {\n" +
+			"  void bar() {\n" +
+			"    new X(\"\").foo(1, Math.max(2, 3));\n" +
+			"  }\n" +
+			"}"
+		);
+		createFile(
+			"/P/Z.java",
+			"public class Z {\n" +
+			"  int[] values = new int[1];\n" +
+			"  Z(java.util.List<X> l) {\n" +
+			"    this.values[0] = l.get(0).f;\n" +
+			"  }\n" +
+			"}"
+		);
+		createFile(
+			"/P/W.java",
+			"public class W {\n" +
+			"  Runnable r() {\n" +
+			"    return () -> new X(null).foo(0, 0);\n" +
+			"  }\n" +
+			"}"
+		);
+		waitUntilIndexesReady();
+		assertEquals(
+			"Unexpected method references",
+			"W.java\n" +
+			"Y.java",
+			searchMatchingFiles(SearchPattern.createPattern("foo(int, int)", IJavaSearchConstants.METHOD, IJavaSearchConstants.REFERENCES, SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE), SearchEngine.createWorkspaceScope()));
+		assertEquals(
+			"Unexpected constructor references",
+			"W.java\n" +
+			"Y.java",
+			searchMatchingFiles(SearchPattern.createPattern("X(String)", IJavaSearchConstants.CONSTRUCTOR, IJavaSearchConstants.REFERENCES, SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE), SearchEngine.createWorkspaceScope()));
+		assertEquals(
+			"Unexpected field references",
+			"Z.java",
+			searchMatchingFiles(SearchPattern.createPattern("f", IJavaSearchConstants.FIELD, IJavaSearchConstants.REFERENCES, SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE), SearchEngine.createWorkspaceScope()));
+	} finally {
+		deleteProject("P");
+	}
+}
+/*
+ * Ensures that the source files of a project indexed in parallel are found as when they are indexed
+ * one after the other, including their secondary types and their lambda expressions.
+ */
+public void testParallelSourceIndexing() throws CoreException {
+	int previousIndexers = IndexAllProject.MAX_PARALLEL_INDEXERS;
+	try {
+		IndexAllProject.MAX_PARALLEL_INDEXERS = 4;
+		IJavaProject project = createJavaProject("P", new String[] {""}, new String[] {"JCL18_LIB"}, "bin", "1.8");
+		createFile(
+			"/P/X.java",
+			"public class X {\n" +
+			"  public static void foo() {}\n" +
+			"}\n" +
+			"class Secondary {}"
+		);
+		for (int i = 0; i < 10; i++) {
+			createFile(
+				"/P/Y" + i + ".java",
+				"public class Y" + i + " {\n" +
+				"  void bar() {\n" +
+				"    X.foo();\n" +
+				"  }\n" +
+				"}"
+			);
+		}
+		createFile(
+			"/P/Z.java",
+			"public class Z {\n" +
+			"  Runnable r = () -> X.foo();\n" +
+			"}"
+		);
+		waitUntilIndexesReady();
+		IndexManager manager = JavaModelManager.getIndexManager();
+		manager.removeIndex(project.getPath());
+		manager.indexAll(project.getProject());
+		waitUntilIndexesReady();
+
+		IJavaSearchScope scope = SearchEngine.createJavaSearchScope(new IJavaElement[] {project}, IJavaSearchScope.SOURCES);
+		assertEquals(
+			"Unexpected method references",
+			"Y0.java\n" +
+			"Y1.java\n" +
+			"Y2.java\n" +
+			"Y3.java\n" +
+			"Y4.java\n" +
+			"Y5.java\n" +
+			"Y6.java\n" +
+			"Y7.java\n" +
+			"Y8.java\n" +
+			"Y9.java\n" +
+			"Z.java",
+			searchMatchingFiles(SearchPattern.createPattern("foo()", IJavaSearchConstants.METHOD, IJavaSearchConstants.REFERENCES, SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE), scope));
+		assertEquals(
+			"Unexpected lambda expressions",
+			"Z.java",
+			searchMatchingFiles(SearchPattern.createPattern("run()", IJavaSearchConstants.METHOD, IJavaSearchConstants.DECLARATIONS, SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE), scope));
+		assertNotNull("Secondary type should be found", project.findType("Secondary", new NullProgressMonitor()));
+	} finally {
+		IndexAllProject.MAX_PARALLEL_INDEXERS = previousIndexers;
+		deleteProject("P");
+	}
+}
+/*
+ * Ensures that searching all the annotated elements finds the types, methods and fields annotated in source files,
+ * in working copies and in class files, where the standard annotations are recorded as tag bits and the annotation
+ * names are fully qualified.
+ */
+public void testSearchAllAnnotatedElements() throws CoreException, IOException {
+	ICompilationUnit workingCopy = null;
+	try {
+		IJavaProject project = createJavaProject("P", new String[] {""}, new String[] {"JCL18_LIB"}, "bin", "1.8");
+		createFolder("/P/p/q");
+		createFile(
+			"/P/p/q/Ann.java",
+			"package p.q;\n" +
+			"public @interface Ann {}"
+		);
+		createFolder("/P/r");
+		createFile(
+			"/P/r/Ann.java",
+			"package r;\n" +
+			"public @interface Ann {}"
+		);
+		createFile(
+			"/P/p/X.java",
+			"package p;\n" +
+			"import p.q.Ann;\n" +
+			"@Ann public class X {\n" +
+			"  @Ann int f;\n" +
+			"  @r.Ann void m() {\n" +
+			"    new Object() { @Ann void local() {} };\n" +
+			"  }\n" +
+			"  class Member { @Ann Member() {} }\n" +
+			"}"
+		);
+		createFile(
+			"/P/p/Y.java",
+			"package p;\n" +
+			"public class Y {}"
+		);
+		waitUntilIndexesReady();
+
+		final StringBuffer buffer = new StringBuffer();
+		AnnotatedElementRequestor requestor = new AnnotatedElementRequestor() {
+			@Override
+			public void acceptAnnotatedElement(char[] annotationName, int elementType, char[] elementName, char[] declaringQualification, char[] packageName, String path) {
+				buffer.append(annotationName).append(' ').append(elementType).append(' ');
+				buffer.append(CharOperation.concatNonEmpty(packageName, '.', declaringQualification, '.', elementName)).append('\n');
+			}
+		};
+		IJavaSearchScope scope = SearchEngine.createJavaSearchScope(new IJavaElement[] {project});
+		new SearchEngine().searchAllAnnotatedElements("p.q.Ann".toCharArray(), SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE, scope, requestor, IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, null);
+		String[] lines = buffer.toString().split("\n");
+		Arrays.sort(lines);
+		assertEquals(
+			"Unexpected annotated elements",
+			"p.q.Ann 7 p.X\n" +
+			"p.q.Ann 8 p.X.f\n" +
+			"p.q.Ann 9 p.X.Member.Member",
+			String.join("\n", lines));
+
+		workingCopy = getCompilationUnit("/P/p/Y.java").getWorkingCopy(null);
+		workingCopy.getBuffer().setContents(
+			"package p;\n" +
+			"import p.q.*;\n" +
+			"public class Y {\n" +
+			"  @Ann void n() {}\n" +
+			"}");
+		workingCopy.makeConsistent(null);
+		buffer.setLength(0);
+		new SearchEngine(new ICompilationUnit[] {workingCopy}).searchAllAnnotatedElements("Ann".toCharArray(), SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE, scope, requestor, IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, null);
+		lines = buffer.toString().split("\n");
+		Arrays.sort(lines);
+		assertEquals(
+			"Unexpected annotated elements with a working copy",
+			"Ann 9 p.Y.n\n" +
+			"p.q.Ann 7 p.X\n" +
+			"p.q.Ann 8 p.X.f\n" +
+			"p.q.Ann 9 p.X.Member.Member\n" +
+			"r.Ann 9 p.X.m",
+			String.join("\n", lines));
+
+		addLibrary(project, "lib.jar", null, new String[] {
+			"a/Ann.java",
+			"package a;\n" +
+			"import java.lang.annotation.*;\n" +
+			"@Retention(RetentionPolicy.RUNTIME)\n" +
+			"public @interface Ann {}",
+			"a/B.java",
+			"package a;\n" +
+			"@Ann @Deprecated public class B {\n" +
+			"  @Ann public int f;\n" +
+			"  @Deprecated public void m() {}\n" +
+			"  public class Member { @Ann public void n() {} }\n" +
+			"}"
+		}, "1.8");
+		waitUntilIndexesReady();
+		IJavaSearchScope jarScope = SearchEngine.createJavaSearchScope(new IJavaElement[] {project.getPackageFragmentRoot(project.getProject().getFile("lib.jar"))});
+		buffer.setLength(0);
+		new SearchEngine().searchAllAnnotatedElements("a.Ann".toCharArray(), SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE, jarScope, requestor, IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, null);
+		lines = buffer.toString().split("\n");
+		Arrays.sort(lines);
+		assertEquals(
+			"Unexpected annotated elements in a jar",
+			"a.Ann 7 a.B\n" +
+			"a.Ann 8 a.B.f\n" +
+			"a.Ann 9 a.B.Member.n",
+			String.join("\n", lines));
+
+		// the annotation names of class files are fully qualified, so they only match the exact qualification
+		buffer.setLength(0);
+		new SearchEngine().searchAllAnnotatedElements("x.a.Ann".toCharArray(), SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE, jarScope, requestor, IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, null);
+		assertEquals("Unexpected annotated elements with another qualification in a jar", "", buffer.toString());
+
+		// the standard annotations of class files are recorded as tag bits
+		buffer.setLength(0);
+		new SearchEngine().searchAllAnnotatedElements("java.lang.Deprecated".toCharArray(), SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE, jarScope, requestor, IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, null);
+		new SearchEngine().searchAllAnnotatedElements("java.lang.annotation.Retention".toCharArray(), SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE, jarScope, requestor, IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, null);
+		lines = buffer.toString().split("\n");
+		Arrays.sort(lines);
+		assertEquals(
+			"Unexpected elements annotated with standard annotations in a jar",
+			"java.lang.Deprecated 7 a.B\n" +
+			"java.lang.Deprecated 9 a.B.m\n" +
+			"java.lang.annotation.Retention 7 a.Ann",
+			String.join("\n", lines));
+	} finally {
+		if (workingCopy != null)
+			workingCopy.discardWorkingCopy();
+		deleteProject("P");
+	}
+}
+private String searchMatchingFiles(SearchPattern pattern, IJavaSearchScope scope) throws CoreException {
+	final Vector names = new Vector();
+	new SearchEngine().search(pattern, new SearchParticipant[] {SearchEngine.getDefaultSearchParticipant()}, scope, new SearchRequestor() {
+		public void acceptSearchMatch(SearchMatch match) {
+			String name = match.getResource().getName();
+			if (!names.contains(name)) {
+				names.add(name);
+			}
+		}
+	}, null);
+	String[] sorted = (String[]) names.toArray(new String[names.size()]);
+	Arrays.sort(sorted);
+	return String.join("\n", sorted);
+}
 /*
  * Ensures that passing a null progress monitor with a CANCEL_IF_NOT_READY_TO_SEARCH
  * waiting policy doesn't throw a NullPointerException but an OperationCanceledException.
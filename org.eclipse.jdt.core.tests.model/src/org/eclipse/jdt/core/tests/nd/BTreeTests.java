@@ -122,6 +122,49 @@ public class BTreeTests extends BaseTestCase {
 		}
 	}
 
+	/**
+	 * Bulk inserts sorted records into an empty B-tree, then into the B-tree holding them and a few other records.
+	 */
+	public void testBulkInsert() throws Exception {
+		Random random = new Random(90210);
+		for (int degree = 2; degree <= 12; degree += 5) {
+			init(degree);
+			try {
+				SortedSet<Integer> expected = new TreeSet<>();
+				for (int count : new int[] { 1, 5000, 3 }) {
+					if (count == 3) {
+						// a few records inserted one at a time between the bulk insertions
+						for (int i = 0; i < 50; i++) {
+							Integer value = Integer.valueOf(random.nextInt(Integer.MAX_VALUE));
+							if (expected.add(value)) {
+								this.btree.insert(new BTMockRecord(this.db, value.intValue()).getRecord());
+							}
+						}
+					}
+					SortedSet<Integer> values = new TreeSet<>();
+					while (values.size() < count) {
+						Integer value = Integer.valueOf(random.nextInt(Integer.MAX_VALUE));
+						if (!expected.contains(value)) {
+							values.add(value);
+						}
+					}
+					long[] records = new long[values.size()];
+					int length = 0;
+					for (Integer value : values) {
+						records[length++] = new BTMockRecord(this.db, value.intValue()).getRecord();
+					}
+					this.btree.bulkInsert(records, length);
+					expected.addAll(values);
+
+					assertBTreeMatchesSortedSet("[bulk insert of " + count + "] ", this.btree, expected);
+					assertBTreeInvariantsHold("[bulk insert of " + count + "] ");
+				}
+			} finally {
+				finish();
+			}
+		}
+	}
+
 	/**
 	 * Insert/Delete a random number of records into/from the B-tree
 	 * @param seed the seed for obtaining the deterministic random testing
@@ -21,6 +21,7 @@ import java.util.Random;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.jdt.core.tests.nd.util.BaseTestCase;
 import org.eclipse.jdt.internal.core.nd.Nd;
+import org.eclipse.jdt.internal.core.nd.NdNodeTypeRegistry;
 import org.eclipse.jdt.internal.core.nd.db.BTree;
 import org.eclipse.jdt.internal.core.nd.db.ChunkCache;
 import org.eclipse.jdt.internal.core.nd.db.Database;
@@ -143,6 +144,163 @@ public class DatabaseTest extends BaseTestCase {
 		assertEquals(mem2, mem1);
 	}
 
+	public void testMappedDatabaseFile() throws Exception {
+		File tmp= File.createTempFile("mapped", ".db");
+		boolean mapDatabaseFile = Database.MAP_DATABASE_FILE;
+		try {
+			tmp.delete();
+			Database database = new Database(tmp, ChunkCache.getSharedInstance(), 0, false);
+			database.setExclusiveLock();
+			long[] records = new long[2000];
+			for (int i = 0; i < records.length; i++) {
+				records[i] = database.malloc(16, Database.POOL_MISC);
+				database.putInt(records[i], i);
+				database.putLong(records[i] + Database.INT_SIZE, i * 31L);
+			}
+			database.flush();
+			database.close();
+
+			Database.MAP_DATABASE_FILE = true;
+			database = new Database(tmp, ChunkCache.getSharedInstance(), 0, false);
+			database.setExclusiveLock();
+			assertTrue(database.isMapped());
+			for (int i = 0; i < records.length; i++) {
+				assertEquals(i, database.getInt(records[i]));
+				assertEquals(i * 31L, database.getLong(records[i] + Database.INT_SIZE));
+			}
+			// Writes go to a copy of the mapped chunks until they are flushed
+			for (int i = 0; i < records.length; i += 2) {
+				database.putInt(records[i], -i);
+			}
+			database.flush();
+			database.close();
+
+			Database.MAP_DATABASE_FILE = false;
+			database = new Database(tmp, ChunkCache.getSharedInstance(), 0, false);
+			database.setExclusiveLock();
+			for (int i = 0; i < records.length; i++) {
+				assertEquals(i % 2 == 0 ? -i : i, database.getInt(records[i]));
+				assertEquals(i * 31L, database.getLong(records[i] + Database.INT_SIZE));
+			}
+			database.close();
+		} finally {
+			Database.MAP_DATABASE_FILE = mapDatabaseFile;
+			tmp.delete();
+		}
+	}
+
+	public void testConcurrentReadsWithSegmentedChunkCache() throws Exception {
+		File tmp= File.createTempFile("segmented", ".db");
+		try {
+			tmp.delete();
+			Database database = new Database(tmp, new ChunkCache(), 0, false);
+			database.setExclusiveLock();
+			long[] records = new long[20000];
+			for (int i = 0; i < records.length; i++) {
+				records[i] = database.malloc(40, Database.POOL_MISC);
+				database.putInt(records[i], i);
+				database.putLong(records[i] + Database.INT_SIZE, i * 31L);
+			}
+			database.flush();
+			database.close();
+
+			// A cache of 16 chunks split into 4 segments, so the readers keep evicting the chunks of each other
+			ChunkCache cache = new ChunkCache(16 * Database.CHUNK_SIZE, 4);
+			assertEquals(4, cache.getSegments());
+			assertEquals(16 * Database.CHUNK_SIZE, cache.getMaxSize());
+			Database readOnly = new Database(tmp, cache, 0, true);
+			readOnly.setLocked(true);
+			long reads = readOnly.getCacheHits() + readOnly.getCacheMisses();
+			Throwable[] failures = new Throwable[8];
+			Thread[] readers = new Thread[failures.length];
+			for (int t = 0; t < readers.length; t++) {
+				final int reader = t;
+				readers[t] = new Thread(() -> {
+					try {
+						Random random = new Random(reader);
+						for (int k = 0; k < 20000; k++) {
+							int i = random.nextInt(records.length);
+							assertEquals(i, readOnly.getInt(records[i]));
+							assertEquals(i * 31L, readOnly.getLong(records[i] + Database.INT_SIZE));
+						}
+					} catch (Throwable e) {
+						failures[reader] = e;
+					}
+				});
+				readers[t].start();
+			}
+			for (Thread reader : readers) {
+				reader.join();
+			}
+			for (Throwable failure : failures) {
+				if (failure != null) {
+					throw new AssertionError(failure);
+				}
+			}
+			assertTrue(cache.getEvictions() > 0);
+			assertEquals(16, cache.getMisses() - cache.getEvictions());
+			assertEquals(reads + 2 * 20000 * readers.length, readOnly.getCacheHits() + readOnly.getCacheMisses());
+			readOnly.close();
+		} finally {
+			tmp.delete();
+		}
+	}
+
+	public void testWriteBatch() throws Exception {
+		File tmp = DatabaseTestUtil.getTempDbName(getName());
+		try {
+			Nd batchNd = new Nd(tmp, new ChunkCache(64 * Database.CHUNK_SIZE), new NdNodeTypeRegistry<>(), 0, 100,
+					DatabaseTestUtil.CURRENT_VERSION);
+			Database database = batchNd.getDB();
+			long[] records = new long[8000];
+			int maxDirtyChunks = 0;
+			batchNd.beginWriteBatch();
+			try {
+				for (int i = 0; i < records.length; i += 100) {
+					batchNd.acquireWriteLock(null);
+					try {
+						for (int j = i; j < i + 100; j++) {
+							records[j] = database.malloc(40, Database.POOL_MISC);
+							database.putInt(records[j], j);
+						}
+					} finally {
+						batchNd.releaseWriteLock();
+					}
+					maxDirtyChunks = Math.max(maxDirtyChunks, database.getDirtyChunkCount());
+				}
+			} finally {
+				batchNd.endWriteBatch();
+			}
+			// The write locks of the batch keep more dirty chunks than the quarter of the cache kept otherwise,
+			// but not more than three quarters of it
+			assertTrue(maxDirtyChunks > 16);
+			assertTrue(maxDirtyChunks <= 48);
+
+			// Change every third record and check that the flushed chunks are read back
+			batchNd.acquireWriteLock(null);
+			try {
+				for (int i = 0; i < records.length; i += 3) {
+					database.putInt(records[i], -i);
+				}
+				database.flush();
+			} finally {
+				batchNd.releaseWriteLock();
+			}
+			assertEquals(0, database.getDirtyChunkCount());
+			batchNd.acquireWriteLock(null);
+			database.close();
+
+			database = new Database(tmp, ChunkCache.getSharedInstance(), 0, false);
+			database.setExclusiveLock();
+			for (int i = 0; i < records.length; i++) {
+				assertEquals(i % 3 == 0 ? -i : i, database.getInt(records[i]));
+			}
+			database.close();
+		} finally {
+			tmp.delete();
+		}
+	}
+
 	private static class FindVisitor implements IBTreeVisitor {
 		private Database db;
 		private String key;
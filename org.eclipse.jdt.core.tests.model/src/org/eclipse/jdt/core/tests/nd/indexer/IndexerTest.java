@@ -142,6 +142,37 @@ public class IndexerTest extends AbstractJavaModelTests {
 		}
 	}
 
+	public void testClassFilesDecodedInParallelAreIndexed() throws Exception {
+		createJavaProject(PROJECT_NAME, new String[] {"src"}, new String[] {"JCL18_FULL"}, "bin", "1.8", true);
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		Indexer indexer = new Indexer(index.getNd(), root);
+
+		int maxParallelDecoders = Indexer.MAX_PARALLEL_DECODERS;
+		try {
+			Indexer.MAX_PARALLEL_DECODERS = 4;
+			indexer.rescan(SubMonitor.convert(null));
+		} finally {
+			Indexer.MAX_PARALLEL_DECODERS = maxParallelDecoders;
+		}
+
+		try (IReader reader = IndexerTest.index.getNd().acquireReadLock()) {
+			NdTypeId javaUtilList = IndexerTest.index.findType("Ljava/util/List;".toCharArray());
+			NdTypeId javaUtilArrayList = IndexerTest.index.findType("Ljava/util/ArrayList;".toCharArray());
+			assertNotNull(IndexerTest.index.findType("Ljava/lang/Object;".toCharArray()));
+			assertNotNull(IndexerTest.index.findType("Ljava/lang/String;".toCharArray()));
+
+			boolean found = false;
+			List<NdType> subtypes = javaUtilList.getSubTypes();
+			for (NdType next : subtypes) {
+				if (Objects.equals(next.getTypeId(), javaUtilArrayList)) {
+					found = true;
+				}
+			}
+
+			assertTrue("ArrayList was found as a subtype of List", found);
+		}
+	}
+
 	private void collectAllClassFiles(List<? super IClassFile> result, IParent nextRoot) throws CoreException {
 		for (IJavaElement child : nextRoot.getChildren()) {
 			int type = child.getElementType();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -43,7 +43,8 @@ public class AllPerformanceTests extends junit.framework.TestCase {
 			FullSourceWorkspaceModelTests.class,
 			FullSourceWorkspaceCompletionTests.class,
 			FullSourceWorkspaceFormatterTests.class,
-			RegionPerformanceTests.class
+			RegionPerformanceTests.class,
+			BTreePerformanceTests.class
 		};
 	}
 
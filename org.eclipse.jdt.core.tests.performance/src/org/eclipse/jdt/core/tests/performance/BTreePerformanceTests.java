@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.core.tests.performance;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.eclipse.jdt.core.tests.junit.extension.TestCase;
+import org.eclipse.jdt.internal.core.nd.Nd;
+import org.eclipse.jdt.internal.core.nd.NdNode;
+import org.eclipse.jdt.internal.core.nd.NdNodeTypeRegistry;
+import org.eclipse.jdt.internal.core.nd.db.BTree;
+import org.eclipse.jdt.internal.core.nd.db.ChunkCache;
+import org.eclipse.jdt.internal.core.nd.db.Database;
+import org.eclipse.jdt.internal.core.nd.db.IBTreeComparator;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Compares inserting records one at a time into a b-tree of the Nd database with bulk inserting them,
+ * for the time of the insertions and the size of the resulting database file.
+ */
+public class BTreePerformanceTests extends TestCase {
+
+	private static final int RECORD_COUNT = 50000;
+	private static final int MEASURES_COUNT = 10;
+
+	// compares the int values of the records, then their addresses as the b-tree does not keep duplicates
+	private static final IBTreeComparator COMPARATOR = (nd, record1, record2) -> {
+		Database db = nd.getDB();
+		int result = Integer.compare(db.getInt(record1), db.getInt(record2));
+		return result != 0 ? result : Long.compare(record1, record2);
+	};
+
+	public BTreePerformanceTests(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(BTreePerformanceTests.class);
+	}
+
+	/**
+	 * Performance test for the Nd b-tree: inserts records in random order one at a time into an empty b-tree.
+	 */
+	public void testInsert() throws Exception {
+		measureInsertions(false);
+	}
+
+	/**
+	 * Performance test for the Nd b-tree: sorts records in random order and bulk inserts them into an empty b-tree.
+	 */
+	public void testBulkInsert() throws Exception {
+		measureInsertions(true);
+	}
+
+	private void measureInsertions(boolean bulk) throws Exception {
+		long fileSize = 0;
+		for (int i = 0; i < MEASURES_COUNT; i++) {
+			File file = File.createTempFile("btree", ".db");
+			file.delete();
+			Nd nd = new Nd(file, new ChunkCache(), new NdNodeTypeRegistry<NdNode>(), 0, 100, 10);
+			Database db = nd.getDB();
+			nd.acquireWriteLock(null);
+			try {
+				BTree btree = new BTree(nd, db.malloc(Database.PTR_SIZE, Database.POOL_MISC), COMPARATOR);
+				long[] records = createRecords(db, new Random(90210));
+				long fileSizeBefore = flush(db, file);
+
+				startMeasuring();
+				if (bulk) {
+					Long[] sortedRecords = new Long[records.length];
+					for (int j = 0; j < records.length; j++) {
+						sortedRecords[j] = Long.valueOf(records[j]);
+					}
+					Arrays.sort(sortedRecords, (record1, record2) -> COMPARATOR.compare(nd, record1.longValue(), record2.longValue()));
+					for (int j = 0; j < records.length; j++) {
+						records[j] = sortedRecords[j].longValue();
+					}
+					btree.bulkInsert(records, records.length);
+				} else {
+					for (int j = 0; j < records.length; j++) {
+						btree.insert(records[j]);
+					}
+				}
+				stopMeasuring();
+
+				fileSize = flush(db, file) - fileSizeBefore;
+				assertEquals("Invariants do not hold", "", btree.getInvariantsErrorReport());
+			} finally {
+				nd.releaseWriteLock(0, false);
+				db.close();
+				file.delete();
+			}
+		}
+		System.out.println("	- " + (bulk ? "bulk inserting " : "inserting ") + RECORD_COUNT + " records grew the database file by " + (fileSize / 1024) + "KB");
+
+		// Commit
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	private static long[] createRecords(Database db, Random random) {
+		long[] records = new long[RECORD_COUNT];
+		for (int i = 0; i < RECORD_COUNT; i++) {
+			records[i] = db.malloc(Database.INT_SIZE, Database.POOL_MISC);
+			db.putInt(records[i], random.nextInt());
+		}
+		return records;
+	}
+
+	private static long flush(Database db, File file) {
+		db.flush();
+		return file.length();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -21,10 +21,12 @@ import java.util.List;
 import junit.framework.Test;
 
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
 import org.eclipse.jdt.core.search.*;
 import org.eclipse.jdt.core.tests.model.AbstractJavaModelTests;
 import org.eclipse.jdt.internal.core.search.processing.IJob;
@@ -747,4 +749,60 @@ public class FullSourceWorkspaceSearchTests extends FullSourceWorkspaceTests imp
 		commitMeasurements();
 		assertPerformance();
 	}
+
+	/**
+	 * Performance tests for search: Scope enclosing the paths of all the package fragments of a scope
+	 * built from all the projects of the workspace and their libraries.
+	 */
+	public void testSearchScopeEncloses() throws CoreException {
+		tagAsSummary("Search scope encloses paths", false); // do NOT put in fingerprint
+
+		// Get a path in each package fragment of the workspace
+		IJavaSearchScope scope = SearchEngine.createJavaSearchScope(ALL_PROJECTS);
+		List paths = new ArrayList();
+		for (int i=0; i<ALL_PROJECTS.length; i++) {
+			IPackageFragmentRoot[] roots = ALL_PROJECTS[i].getPackageFragmentRoots();
+			for (int j=0; j<roots.length; j++) {
+				IJavaElement[] packages = roots[j].getChildren();
+				IPath rootPath = roots[j].getPath();
+				for (int k=0; k<packages.length; k++) {
+					if (roots[j].isArchive()) {
+						String rootPathString = rootPath.getDevice() == null ? rootPath.toString() : rootPath.toOSString();
+						String relativePath = packages[k].getElementName().replace('.', '/');
+						paths.add(rootPathString+IJavaSearchScope.JAR_FILE_ENTRY_SEPARATOR+(relativePath.length() == 0 ? "X.class" : relativePath+"/X.class"));
+					} else {
+						paths.add(packages[k].getPath().append("X.java").toString());
+					}
+				}
+			}
+		}
+		String[] pathStrings = (String[]) paths.toArray(new String[paths.size()]);
+
+		// Warm up
+		for (int i=0 ; i<WARMUP_COUNT; i++) {
+			int count = 0;
+			for (int j=0; j<pathStrings.length; j++) {
+				if (scope.encloses(pathStrings[j])) count++;
+			}
+			if (i==0) {
+				System.out.println("	- "+INT_FORMAT.format(count)+" paths enclosed out of "+INT_FORMAT.format(pathStrings.length)+" in "+ALL_PROJECTS.length+" projects.");
+			}
+		}
+
+		// Measures
+		for (int i=0; i<MEASURES_COUNT; i++) {
+			runGc();
+			startMeasuring();
+			for (int j=0; j<ITERATIONS_COUNT; j++) {
+				for (int k=0; k<pathStrings.length; k++) {
+					scope.encloses(pathStrings[k]);
+				}
+			}
+			stopMeasuring();
+		}
+
+		// Commit
+		commitMeasurements();
+		assertPerformance();
+	}
 }
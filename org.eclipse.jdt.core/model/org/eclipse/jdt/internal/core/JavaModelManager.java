@@ -344,6 +344,43 @@ public class JavaModelManager implements ISaveParticipant, IContentTypeChangeLis
 	 */
 	public static final String MAX_COMPILED_UNITS_AT_ONCE = "maxCompiledUnitsAtOnce"; //$NON-NLS-1$
 
+	/**
+	 * Name of the JVM parameter to specify how many independent groups of compilation units can be compiled
+	 * concurrently by a full build. The default value of 1 is represented by <code>AbstractImageBuilder#MAX_PARALLEL_COMPILATIONS</code>.
+	 */
+	public static final String MAX_PARALLEL_COMPILATIONS = "maxParallelCompilations"; //$NON-NLS-1$
+
+	/**
+	 * Name of the JVM parameter to specify how many index requests for different containers can be run
+	 * concurrently by the indexer. The default value of 1 is represented by <code>IndexManager#MAX_CONCURRENT_JOBS</code>.
+	 */
+	public static final String MAX_CONCURRENT_INDEXING_JOBS = "maxConcurrentIndexingJobs"; //$NON-NLS-1$
+
+	/**
+	 * Name of the JVM parameter to specify how many indexes a search can query concurrently.
+	 * The default value of 1 is represented by <code>PatternSearchJob#MAX_CONCURRENT_QUERIES</code>.
+	 */
+	public static final String MAX_CONCURRENT_INDEX_QUERIES = "maxConcurrentIndexQueries"; //$NON-NLS-1$
+
+	/**
+	 * Name of the JVM parameter to specify how many projects a search can locate matches in concurrently.
+	 * The default value of 1 is represented by <code>MatchLocator#MAX_PARALLEL_LOCATORS</code>.
+	 */
+	public static final String MAX_PARALLEL_MATCH_LOCATORS = "maxParallelMatchLocators"; //$NON-NLS-1$
+
+	/**
+	 * Name of the JVM parameter to specify how many class files of an archive the Java index can decode concurrently.
+	 * The default value of 1 is represented by <code>Indexer#MAX_PARALLEL_DECODERS</code>.
+	 */
+	public static final String MAX_PARALLEL_CLASS_FILE_DECODERS = "maxParallelClassFileDecoders"; //$NON-NLS-1$
+
+	/**
+	 * Name of the JVM parameter to specify how many source files of a project can be indexed concurrently.
+	 * The default value of 1 is represented by <code>IndexAllProject#MAX_PARALLEL_INDEXERS</code>. It indexes the
+	 * source files one after the other, so the parallel indexing is unused by default and its speedup is unmeasured.
+	 */
+	public static final String MAX_PARALLEL_SOURCE_INDEXERS = "maxParallelSourceIndexers"; //$NON-NLS-1$
+
 	/**
 	 * Special value used for recognizing ongoing initialization and breaking initialization cycles
 	 */
@@ -384,6 +421,7 @@ public class JavaModelManager implements ISaveParticipant, IContentTypeChangeLis
 	private static final String POST_ACTION_DEBUG = JavaCore.PLUGIN_ID + "/debug/postaction" ; //$NON-NLS-1$
 	private static final String BUILDER_DEBUG = JavaCore.PLUGIN_ID + "/debug/builder" ; //$NON-NLS-1$
 	private static final String BUILDER_STATS_DEBUG = JavaCore.PLUGIN_ID + "/debug/builder/stats" ; //$NON-NLS-1$
+	private static final String BUILDER_METRICS_DEBUG = JavaCore.PLUGIN_ID + "/debug/builder/metrics" ; //$NON-NLS-1$
 	private static final String COMPLETION_DEBUG = JavaCore.PLUGIN_ID + "/debug/completion" ; //$NON-NLS-1$
 	private static final String RESOLUTION_DEBUG = JavaCore.PLUGIN_ID + "/debug/resolution" ; //$NON-NLS-1$
 	private static final String SELECTION_DEBUG = JavaCore.PLUGIN_ID + "/debug/selection" ; //$NON-NLS-1$
@@ -1875,6 +1913,7 @@ public class JavaModelManager implements ISaveParticipant, IContentTypeChangeLis
 				JavaBuilder.DEBUG = debug && options.getBooleanOption(BUILDER_DEBUG, false);
 				Compiler.DEBUG = debug && options.getBooleanOption(COMPILER_DEBUG, false);
 				JavaBuilder.SHOW_STATS = debug && options.getBooleanOption(BUILDER_STATS_DEBUG, false);
+				JavaBuilder.SHOW_METRICS = debug && options.getBooleanOption(BUILDER_METRICS_DEBUG, false);
 				CompletionEngine.DEBUG = debug && options.getBooleanOption(COMPLETION_DEBUG, false);
 				JavaModelManager.CP_RESOLVE_VERBOSE = debug && options.getBooleanOption(CP_RESOLVE_DEBUG, false);
 				JavaModelManager.CP_RESOLVE_VERBOSE_ADVANCED = debug && options.getBooleanOption(CP_RESOLVE_ADVANCED_DEBUG, false);
@@ -22,6 +22,7 @@ import org.eclipse.jdt.internal.compiler.*;
 import org.eclipse.jdt.internal.compiler.Compiler;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
 import org.eclipse.jdt.internal.compiler.env.ICompilationUnit;
+import org.eclipse.jdt.internal.compiler.env.INameEnvironment;
 import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
 import org.eclipse.jdt.internal.compiler.lookup.TypeConstants;
 import org.eclipse.jdt.internal.compiler.problem.*;
@@ -64,6 +65,8 @@ protected Set<SourceFile> filesWithAnnotations = null;
 
 //2000 is best compromise between space used and speed
 public static int MAX_AT_ONCE = Integer.getInteger(JavaModelManager.MAX_COMPILED_UNITS_AT_ONCE, 2000).intValue();
+// 1 disables the concurrent compilation of independent source files during full builds
+public static int MAX_PARALLEL_COMPILATIONS = Integer.getInteger(JavaModelManager.MAX_PARALLEL_COMPILATIONS, 1).intValue();
 public final static String[] JAVA_PROBLEM_MARKER_ATTRIBUTE_NAMES = {
 	IMarker.MESSAGE,
 	IMarker.SEVERITY,
@@ -140,13 +143,16 @@ public void acceptResult(CompilationResult result) {
 	SourceFile compilationUnit = (SourceFile) resultCU; // go directly back to the sourceFile
 	if (!this.workQueue.isCompiled(compilationUnit)) {
 		this.workQueue.finished(compilationUnit);
+		this.javaBuilder.metrics.compiledUnits++;
 
+		long start = System.nanoTime();
 		try {
 			updateProblemsFor(compilationUnit, result); // record compilation problems before potentially adding duplicate errors
 			updateTasksFor(compilationUnit, result); // record tasks
 		} catch (CoreException e) {
 			throw internalException(e);
 		}
+		this.javaBuilder.metrics.markerNanos += System.nanoTime() - start;
 
 		if (result.hasInconsistentToplevelHierarchies)
 			// ensure that this file is always retrieved from source for the rest of the build
@@ -282,6 +288,8 @@ protected void addAllSourceFiles(final LinkedHashSet<SourceFile> sourceFiles) th
 
 protected void cleanUp() {
 	this.nameEnvironment.cleanup();
+	if (this.compiler != null)
+		this.javaBuilder.metrics.addCompilerStats(this.compiler.stats);
 
 	this.javaBuilder = null;
 	this.nameEnvironment = null;
@@ -310,7 +318,12 @@ protected void compile(SourceFile[] units) {
 
 	int unitsLength = units.length;
 	this.compiledAllAtOnce = MAX_AT_ONCE == 0 || unitsLength <= MAX_AT_ONCE;
-	if (this.compiledAllAtOnce) {
+	SourceFile[][] partitions = partitionForParallelCompile(units);
+	if (partitions != null) {
+		if (JavaBuilder.DEBUG)
+			System.out.println("About to compile " + unitsLength + " units in " + partitions.length + " partitions"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		compile(partitions);
+	} else if (this.compiledAllAtOnce) {
 		// do them all now
 		if (JavaBuilder.DEBUG)
 			for (int i = 0; i < unitsLength; i++)
@@ -372,14 +385,7 @@ protected void compile(SourceFile[] units, SourceFile[] additionalUnits, boolean
 		for (int i = 0; i < toAdd; i++)
 			additionalUnits[length + i] = iterator.next();
 	}
-	String[] initialTypeNames = new String[units.length];
-	for (int i = 0, l = units.length; i < l; i++) {
-		char[] moduleName = units[i].getModuleName();
-		initialTypeNames[i] = (moduleName == null)
-				? units[i].initialTypeName
-				: new StringBuilder(60).append(moduleName).append(':').append(units[i].initialTypeName).toString();
-	}
-	this.nameEnvironment.setNames(initialTypeNames, additionalUnits);
+	this.nameEnvironment.setNames(initialTypeNames(units), additionalUnits);
 	this.notifier.checkCancel();
 	try {
 		this.inCompiler = true;
@@ -395,6 +401,19 @@ protected void compile(SourceFile[] units, SourceFile[] additionalUnits, boolean
 	this.notifier.checkCancel();
 }
 
+/* Compile the given partitions of source files concurrently, see ParallelCompilation.
+*/
+protected void compile(SourceFile[][] partitions) {
+	this.notifier.aboutToCompile(partitions[0][0]); // just to change the message
+	this.notifier.checkCancel();
+	try {
+		new ParallelCompilation(this, partitions).compile();
+	} catch (CoreException e) {
+		throw internalException(e);
+	}
+	this.notifier.checkCancel();
+}
+
 protected void copyResource(IResource source, IResource destination) throws CoreException {
 	IPath destPath = destination.getFullPath();
 	try {
@@ -507,6 +526,17 @@ protected void initializeAnnotationProcessorManager(Compiler newCompiler) {
 	newCompiler.annotationProcessorManager = annotationManager;
 }
 
+String[] initialTypeNames(SourceFile[] units) {
+	String[] initialTypeNames = new String[units.length];
+	for (int i = 0, l = units.length; i < l; i++) {
+		char[] moduleName = units[i].getModuleName();
+		initialTypeNames[i] = (moduleName == null)
+				? units[i].initialTypeName
+				: new StringBuilder(60).append(moduleName).append(':').append(units[i].initialTypeName).toString();
+	}
+	return initialTypeNames;
+}
+
 protected RuntimeException internalException(CoreException t) {
 	ImageBuilderInternalException imageBuilderException = new ImageBuilderInternalException(t);
 	if (this.inCompiler)
@@ -527,6 +557,10 @@ protected boolean isExcludedFromProject(IPath childPath) throws JavaModelExcepti
 }
 
 protected Compiler newCompiler() {
+	return newCompiler(this.nameEnvironment, this);
+}
+
+protected Compiler newCompiler(INameEnvironment environment, ICompilerRequestor requestor) {
 	// disable entire javadoc support if not interested in diagnostics
 	Map projectOptions = this.javaBuilder.javaProject.getOptions(true);
 	String option = (String) projectOptions.get(JavaCore.COMPILER_PB_INVALID_JAVADOC);
@@ -548,10 +582,10 @@ protected Compiler newCompiler() {
 	compilerOptions.performMethodsFullRecovery = true;
 	compilerOptions.performStatementsRecovery = true;
 	Compiler newCompiler = new Compiler(
-		this.nameEnvironment,
+		environment,
 		DefaultErrorHandlingPolicies.proceedWithAllProblems(),
 		compilerOptions,
-		this,
+		requestor,
 		ProblemFactory.getProblemFactory(Locale.getDefault()));
 	CompilerOptions options = newCompiler.options;
 	// temporary code to allow the compiler to revert to a single thread
@@ -565,11 +599,22 @@ protected Compiler newCompiler() {
 			&& options.processAnnotations) {
 		// support for Java 6 annotation processors
 		initializeAnnotationProcessorManager(newCompiler);
+		if (newCompiler.annotationProcessorManager != null && environment instanceof NameEnvironment)
+			// processors may write class files through their filer while the compiler looks up types
+			((NameEnvironment) environment).cacheMissingTypes = false;
 	}
 
 	return newCompiler;
 }
 
+protected NameEnvironment newNameEnvironment() throws CoreException {
+	NameEnvironment environment = new NameEnvironment(this.javaBuilder.workspaceRoot, this.javaBuilder.javaProject, null, this.notifier, this.compilationGroup);
+	// same classpath locations, so the lookup caches can be shared
+	environment.missingTypes = this.nameEnvironment.missingTypes;
+	environment.packageLocations = this.nameEnvironment.packageLocations;
+	return environment;
+}
+
 protected CompilationParticipantResult[] notifyParticipants(SourceFile[] unitsAboutToCompile) {
 	CompilationParticipantResult[] results = new CompilationParticipantResult[unitsAboutToCompile.length];
 	for (int i = unitsAboutToCompile.length; --i >= 0;)
@@ -580,6 +625,7 @@ protected CompilationParticipantResult[] notifyParticipants(SourceFile[] unitsAb
 	// and what happens if some participants do not expect to be called with only a few files, after seeing 'all' the files?
 	for (int i = 0, l = this.javaBuilder.participants.length; i < l; i++)
 		this.javaBuilder.participants[i].buildStarting(results, this instanceof BatchImageBuilder);
+	participantsNotified();
 
 	SimpleSet uniqueFiles = null;
 	CompilationParticipantResult[] toAdd = null;
@@ -627,6 +673,13 @@ protected CompilationParticipantResult[] notifyParticipants(SourceFile[] unitsAb
 	return results;
 }
 
+/* Answer the given source files split into partitions which can be compiled concurrently,
+* or null if they must be compiled by this builder's compiler.
+*/
+protected SourceFile[][] partitionForParallelCompile(SourceFile[] units) {
+	return null;
+}
+
 protected abstract void processAnnotationResults(CompilationParticipantResult[] results);
 
 protected void processAnnotations(CompilationParticipantResult[] results) {
@@ -643,6 +696,7 @@ protected void processAnnotations(CompilationParticipantResult[] results) {
 	for (int i = 0, l = this.javaBuilder.participants.length; i < l; i++)
 		if (this.javaBuilder.participants[i].isAnnotationProcessor())
 			this.javaBuilder.participants[i].processAnnotations(results);
+	participantsNotified();
 	processAnnotationResults(results);
 }
 
@@ -866,6 +920,7 @@ protected void updateTasksFor(SourceFile sourceFile, CompilationResult result) t
 }
 
 protected char[] writeClassFile(ClassFile classFile, SourceFile compilationUnit, boolean isTopLevelType) throws CoreException {
+	long start = System.nanoTime();
 	String fileName = new String(classFile.fileName()); // the qualified type name "p1/p2/A"
 	IPath filePath = new Path(fileName);
 	IContainer outputFolder = compilationUnit.sourceLocation.binaryFolder;
@@ -877,14 +932,33 @@ protected char[] writeClassFile(ClassFile classFile, SourceFile compilationUnit,
 
 	IFile file = container.getFile(filePath.addFileExtension(SuffixConstants.EXTENSION_class));
 	writeClassFileContents(classFile, file, fileName, isTopLevelType, compilationUnit);
+	int index = fileName.lastIndexOf('/');
+	outputPackageChanged(index == -1 ? org.eclipse.jdt.internal.compiler.util.Util.EMPTY_STRING : fileName.substring(0, index));
+	this.javaBuilder.metrics.classFileNanos += System.nanoTime() - start;
 	// answer the name of the class file as in Y or Y$M
 	return filePath.lastSegment().toCharArray();
 }
 
+/* Forget the missing types whose class files the compilation participants wrote into the output folders.
+*/
+private void participantsNotified() {
+	this.javaBuilder.nameEnvironment.forgetWrittenTypes();
+	if (this.javaBuilder.testNameEnvironment != null)
+		this.javaBuilder.testNameEnvironment.forgetWrittenTypes();
+}
+
+private void outputPackageChanged(String qualifiedPackageName) {
+	this.javaBuilder.nameEnvironment.outputPackageChanged(qualifiedPackageName);
+	if (this.javaBuilder.testNameEnvironment != null) // also reads the output folders of the main sources
+		this.javaBuilder.testNameEnvironment.outputPackageChanged(qualifiedPackageName);
+}
+
 protected void writeClassFileContents(ClassFile classFile, IFile file, String qualifiedFileName, boolean isTopLevelType, SourceFile compilationUnit) throws CoreException {
 //	InputStream input = new SequenceInputStream(
 //			new ByteArrayInputStream(classFile.header, 0, classFile.headerOffset),
 //			new ByteArrayInputStream(classFile.contents, 0, classFile.contentsOffset));
+	// written as soon as accepted: the build already runs in a single workspace operation, and the units compiled next
+	// or by other partitions may read the class file
 	InputStream input = new ByteArrayInputStream(classFile.getBytes());
 	if (file.exists()) {
 		// Deal with shared output folders... last one wins... no collision cases detected
@@ -899,5 +973,6 @@ protected void writeClassFileContents(ClassFile classFile, IFile file, String qu
 			System.out.println("Writing new class file " + file.getName());//$NON-NLS-1$
 		file.create(input, IResource.FORCE | IResource.DERIVED, null);
 	}
+	this.javaBuilder.metrics.writtenClassFiles++;
 }
 }
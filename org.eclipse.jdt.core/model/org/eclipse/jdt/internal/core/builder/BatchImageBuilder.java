@@ -76,6 +76,7 @@ public void build() {
 
 			this.notifier.setProgressPerCompilationUnit(0.75f / allSourceFiles.length);
 			this.workQueue.addAll(allSourceFiles);
+			this.javaBuilder.metrics.compileLoops++;
 			compile(allSourceFiles);
 
 			if (this.typeLocatorsWithUndefinedTypes != null)
@@ -214,6 +215,13 @@ protected void compile(SourceFile[] units, SourceFile[] additionalUnits, boolean
 	super.compile(units, additionalUnits, compilingFirstGroup);
 }
 
+@Override
+protected void compile(SourceFile[][] partitions) {
+	if (this.secondaryTypes == null)
+		this.secondaryTypes = new ArrayList(7);
+	super.compile(partitions);
+}
+
 protected void copyExtraResourcesBack(ClasspathMultiDirectory sourceLocation, final boolean deletedAll) throws CoreException {
 	// When, if ever, does a builder need to copy resources files (not .java or .class) into the output folder?
 	// If we wipe the output folder at the beginning of the build then all 'extra' resources must be copied to the output folder.
@@ -296,6 +304,10 @@ private void printStats() {
 	System.out.print(", resolve: " + compilerStats.resolveTime + " ms (" + ((int) (compilerStats.resolveTime * 1000.0 / time)) / 10.0 + "%)"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 	System.out.print(", analyze: " + compilerStats.analyzeTime + " ms (" + ((int) (compilerStats.analyzeTime * 1000.0 / time)) / 10.0 + "%)"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 	System.out.println(", generate: " + compilerStats.generateTime + " ms (" + ((int) (compilerStats.generateTime * 1000.0 / time)) / 10.0 + "%)"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	NameEnvironment environment = this.nameEnvironment;
+	if (environment == null) return;
+	System.out.print(">   type lookups: " + environment.typeLookups + ", cached misses: " + environment.cachedMisses); //$NON-NLS-1$ //$NON-NLS-2$
+	System.out.println(", location probes: " + environment.locationProbes + ", skipped: " + environment.skippedProbes); //$NON-NLS-1$ //$NON-NLS-2$
 }
 
 @Override
@@ -307,6 +319,13 @@ protected void processAnnotationResults(CompilationParticipantResult[] results)
 	this.incrementalBuilder.processAnnotationResults(results);
 }
 
+@Override
+protected SourceFile[][] partitionForParallelCompile(SourceFile[] units) {
+	if (MAX_PARALLEL_COMPILATIONS < 2 || this.compiler.annotationProcessorManager != null)
+		return null; // annotation processors expect to see all source files in a single round
+	return ParallelCompilation.partition(units, this.javaBuilder.lastState, MAX_PARALLEL_COMPILATIONS);
+}
+
 protected void rebuildTypesAffectedBySecondaryTypes() {
 	// to compile types that could not find 'missing' secondary types because of multiple
 	// compile groups, we need to incrementally recompile all affected types as if the missing
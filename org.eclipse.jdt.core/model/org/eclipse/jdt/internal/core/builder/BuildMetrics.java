@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.builder;
+
+import java.util.function.Consumer;
+
+import org.eclipse.core.runtime.ListenerList;
+import org.eclipse.jdt.internal.compiler.impl.CompilerStats;
+import org.eclipse.jdt.internal.core.util.Util;
+
+/**
+ * Durations and counters collected by the {@link JavaBuilder} while building one project.
+ * <p>
+ * Listeners added with {@link #addListener(Consumer)} receive the metrics of every build once it is finished,
+ * and the debug option <code>org.eclipse.jdt.core/debug/builder/metrics</code> prints them as JSON.
+ * All durations are in milliseconds. The builder measures its own with {@link System#nanoTime()}, while the parse,
+ * resolve, analyze and generate times come from the {@link CompilerStats} of the compiler.
+ * </p>
+ */
+public class BuildMetrics {
+
+public static final String FULL_BUILD = "full"; //$NON-NLS-1$
+public static final String INCREMENTAL_BUILD = "incremental"; //$NON-NLS-1$
+
+private static final ListenerList<Consumer<BuildMetrics>> listeners = new ListenerList<>();
+
+String projectName;
+String kind; // null if nothing was built
+boolean incrementalBuildFailed;
+long startNanos;
+long endNanos;
+long deltaAnalysisNanos;
+long affectedSetNanos;
+long parseTime;
+long resolveTime;
+long analyzeTime;
+long generateTime;
+long lineCount;
+long classFileNanos;
+long markerNanos;
+long stateRecordNanos;
+int compiledUnits;
+int writtenClassFiles;
+int compileLoops;
+
+BuildMetrics(String projectName) {
+	this.projectName = projectName;
+	this.startNanos = System.nanoTime();
+}
+
+public static void addListener(Consumer<BuildMetrics> listener) {
+	listeners.add(listener);
+}
+
+public static void removeListener(Consumer<BuildMetrics> listener) {
+	listeners.remove(listener);
+}
+
+void addCompilerStats(CompilerStats stats) {
+	this.parseTime += stats.parseTime;
+	this.resolveTime += stats.resolveTime;
+	this.analyzeTime += stats.analyzeTime;
+	this.generateTime += stats.generateTime;
+	this.lineCount += stats.lineCount;
+}
+
+void buildFinished() {
+	this.endNanos = System.nanoTime();
+	for (Consumer<BuildMetrics> listener : listeners) {
+		try {
+			listener.accept(this);
+		} catch (RuntimeException e) {
+			Util.log(e, "Exception while notifying a build metrics listener"); //$NON-NLS-1$
+		}
+	}
+}
+
+/**
+ * Answers the name of the built project.
+ */
+public String getProjectName() {
+	return this.projectName;
+}
+
+/**
+ * Answers {@link #FULL_BUILD} or {@link #INCREMENTAL_BUILD}, or <code>null</code> if nothing had to be built.
+ * A failed incremental build which was followed by a full build answers {@link #FULL_BUILD}.
+ */
+public String getKind() {
+	return this.kind;
+}
+
+/**
+ * Answers whether an incremental build was abandoned in favor of a full build.
+ */
+public boolean isIncrementalBuildFailed() {
+	return this.incrementalBuildFailed;
+}
+
+public long getElapsedTime() {
+	return (this.endNanos - this.startNanos) / 1000000;
+}
+
+/**
+ * Answers the time spent walking the resource deltas to find the changed source and class files.
+ */
+public long getDeltaAnalysisTime() {
+	return this.deltaAnalysisNanos / 1000000;
+}
+
+/**
+ * Answers the time spent finding the source files which depend on changed types.
+ */
+public long getAffectedSetTime() {
+	return this.affectedSetNanos / 1000000;
+}
+
+public long getParseTime() {
+	return this.parseTime;
+}
+
+public long getResolveTime() {
+	return this.resolveTime;
+}
+
+public long getAnalyzeTime() {
+	return this.analyzeTime;
+}
+
+/**
+ * Answers the code generation time of the compiler, which includes the time spent accepting the results,
+ * see {@link #getClassFileTime()} and {@link #getMarkerTime()}.
+ */
+public long getGenerateTime() {
+	return this.generateTime;
+}
+
+public long getLineCount() {
+	return this.lineCount;
+}
+
+/**
+ * Answers the time spent comparing class files against the existing ones and writing them.
+ */
+public long getClassFileTime() {
+	return this.classFileNanos / 1000000;
+}
+
+/**
+ * Answers the time spent updating the problem and task markers of the compiled source files.
+ */
+public long getMarkerTime() {
+	return this.markerNanos / 1000000;
+}
+
+/**
+ * Answers the time spent recording the new built state, including its dependencies on the states of the required projects.
+ * The state itself is written to disk when the workspace is saved.
+ */
+public long getStateRecordTime() {
+	return this.stateRecordNanos / 1000000;
+}
+
+public int getCompiledUnits() {
+	return this.compiledUnits;
+}
+
+/**
+ * Answers the number of class files written, not counting the ones left as they were because they did not change.
+ */
+public int getWrittenClassFiles() {
+	return this.writtenClassFiles;
+}
+
+public int getCompileLoops() {
+	return this.compileLoops;
+}
+
+public String toJson() {
+	StringBuffer buffer = new StringBuffer();
+	buffer.append("{\"project\":\""); //$NON-NLS-1$
+	for (int i = 0, l = this.projectName.length(); i < l; i++) {
+		char c = this.projectName.charAt(i);
+		if (c == '"' || c == '\\')
+			buffer.append('\\');
+		buffer.append(c);
+	}
+	buffer.append("\",\"kind\":"); //$NON-NLS-1$
+	if (this.kind == null)
+		buffer.append("null"); //$NON-NLS-1$
+	else
+		buffer.append('"').append(this.kind).append('"');
+	buffer.append(",\"incrementalBuildFailed\":").append(this.incrementalBuildFailed); //$NON-NLS-1$
+	buffer.append(",\"elapsedTime\":").append(getElapsedTime()); //$NON-NLS-1$
+	buffer.append(",\"deltaAnalysisTime\":").append(getDeltaAnalysisTime()); //$NON-NLS-1$
+	buffer.append(",\"affectedSetTime\":").append(getAffectedSetTime()); //$NON-NLS-1$
+	buffer.append(",\"parseTime\":").append(this.parseTime); //$NON-NLS-1$
+	buffer.append(",\"resolveTime\":").append(this.resolveTime); //$NON-NLS-1$
+	buffer.append(",\"analyzeTime\":").append(this.analyzeTime); //$NON-NLS-1$
+	buffer.append(",\"generateTime\":").append(this.generateTime); //$NON-NLS-1$
+	buffer.append(",\"classFileTime\":").append(getClassFileTime()); //$NON-NLS-1$
+	buffer.append(",\"markerTime\":").append(getMarkerTime()); //$NON-NLS-1$
+	buffer.append(",\"stateRecordTime\":").append(getStateRecordTime()); //$NON-NLS-1$
+	buffer.append(",\"lineCount\":").append(this.lineCount); //$NON-NLS-1$
+	buffer.append(",\"compiledUnits\":").append(this.compiledUnits); //$NON-NLS-1$
+	buffer.append(",\"writtenClassFiles\":").append(this.writtenClassFiles); //$NON-NLS-1$
+	buffer.append(",\"compileLoops\":").append(this.compileLoops); //$NON-NLS-1$
+	buffer.append('}');
+	return buffer.toString();
+}
+
+@Override
+public String toString() {
+	return toJson();
+}
+}
@@ -82,16 +82,22 @@ protected static void addToPackageSet(SimpleSet packageSet, String fileName, boo
  */
 protected SimpleSet findPackageSet() {
 	String zipFileName = this.zipFilename;
-	PackageCacheEntry cacheEntry = (PackageCacheEntry) PackageCache.get(zipFileName);
 	long timestamp = this.lastModified();
 	long fileSize = new File(zipFileName).length();
+	PackageCacheEntry cacheEntry;
+	synchronized (PackageCache) { // name environments of a parallel compilation share the cache
+		cacheEntry = (PackageCacheEntry) PackageCache.get(zipFileName);
+	}
 	if (cacheEntry != null && cacheEntry.lastModified == timestamp && cacheEntry.fileSize == fileSize) {
 		return cacheEntry.packageSet;
 	}
+	// read the jar without holding the lock, the environments reading the same jar at once keep the last package set
 	final SimpleSet packageSet = new SimpleSet(41);
 	packageSet.add(""); //$NON-NLS-1$
 	readJarContent(packageSet);
-	PackageCache.put(zipFileName, new PackageCacheEntry(timestamp, fileSize, packageSet));
+	synchronized (PackageCache) {
+		PackageCache.put(zipFileName, new PackageCacheEntry(timestamp, fileSize, packageSet));
+	}
 	return packageSet;
 }
 protected String readJarContent(final SimpleSet packageSet) {
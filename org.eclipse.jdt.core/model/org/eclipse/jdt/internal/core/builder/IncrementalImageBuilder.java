@@ -50,7 +50,12 @@ protected boolean makeOutputFolderConsistent;
 
 private IncrementalImageBuilder testImageBuilder;
 
+// build statistics, the compile loops are counted by the metrics of the java builder
+int compiledSourceFiles;
+int expandedSourceFiles;
+
 public static int MaxCompileLoop = 5; // perform a full build if it takes more than ? incremental compile loops
+public static int MaxAffectedPercentage = 50; // perform a full build if a long cascade of changes affects more than ?% of the source files
 
 protected IncrementalImageBuilder(JavaBuilder javaBuilder, State buildState, CompilationGroup compilationGroup) {
 	super(javaBuilder, true, buildState, compilationGroup);
@@ -113,6 +118,7 @@ public boolean build(SimpleLookupTable deltas) {
 			addAllSourceFiles(this.sourceFiles);
 			this.notifier.updateProgressDelta(0.25f);
 		} else {
+			long start = System.nanoTime();
 			IResourceDelta sourceDelta = (IResourceDelta) deltas.get(this.javaBuilder.currentProject);
 			if (sourceDelta != null) {
 				if (!findSourceFiles(sourceDelta)) return this.testImageBuilder != null ? this.testImageBuilder.build(deltas) : false;
@@ -134,6 +140,7 @@ public boolean build(SimpleLookupTable deltas) {
 				}
 			}
 			this.notifier.updateProgressDelta(0.10f);
+			this.javaBuilder.metrics.deltaAnalysisNanos += System.nanoTime() - start;
 
 			this.notifier.subTask(Messages.build_analyzingSources);
 			addAffectedSourceFiles();
@@ -157,6 +164,8 @@ public boolean build(SimpleLookupTable deltas) {
 	} catch (CoreException e) {
 		throw internalException(e);
 	} finally {
+		if (JavaBuilder.SHOW_STATS)
+			printStats();
 		cleanUp();
 		if (this.testImageBuilder != null) {
 			this.testImageBuilder.cleanUp();
@@ -167,12 +176,26 @@ public boolean build(SimpleLookupTable deltas) {
 
 private boolean incrementalBuildLoop() throws CoreException {
 	int compileLoop = 0;
+	int maxCompileLoop = MaxCompileLoop;
 	float increment = 0.40f;
 	while (this.sourceFiles.size() > 0) { // added to in acceptResult
-		if (++compileLoop > MaxCompileLoop) {
-			if (JavaBuilder.DEBUG)
-				System.out.println("ABORTING incremental build... exceeded loop count"); //$NON-NLS-1$
-			return false;
+		if (++compileLoop > maxCompileLoop) {
+			// the cascade is still going, so compile everything which can be affected by it at once
+			// and allow one more loop for the dependents of added types, which cannot be known up front
+			if (maxCompileLoop > MaxCompileLoop) {
+				if (JavaBuilder.DEBUG)
+					System.out.println("ABORTING incremental build... exceeded loop count"); //$NON-NLS-1$
+				return false;
+			}
+			long start = System.nanoTime();
+			boolean expanded = addTransitiveDependents();
+			this.javaBuilder.metrics.affectedSetNanos += System.nanoTime() - start;
+			if (!expanded) {
+				if (JavaBuilder.DEBUG)
+					System.out.println("ABORTING incremental build... exceeded loop count"); //$NON-NLS-1$
+				return false;
+			}
+			maxCompileLoop = compileLoop + 1;
 		}
 		this.notifier.checkCancel();
 
@@ -183,6 +206,8 @@ private boolean incrementalBuildLoop() throws CoreException {
 		this.workQueue.addAll(allSourceFiles);
 		this.notifier.setProgressPerCompilationUnit(increment / allSourceFiles.length);
 		increment = increment / 2;
+		this.compiledSourceFiles += allSourceFiles.length;
+		this.javaBuilder.metrics.compileLoops++;
 		compile(allSourceFiles);
 		removeSecondaryTypes();
 		addAffectedSourceFiles();
@@ -190,6 +215,74 @@ private boolean incrementalBuildLoop() throws CoreException {
 	return true;
 }
 
+/*
+ * Adds the source files which depend on the types defined by the source files waiting to be compiled,
+ * and the files which depend on those in turn, according to the references recorded in the new state.
+ * Answers false when the affected source files exceed MaxAffectedPercentage, since a full build is then cheaper.
+ */
+protected boolean addTransitiveDependents() {
+	Map<String, List<String>> typeNamesPerLocator = new HashMap<>();
+	Object[] keyTable = this.newState.typeLocators.keyTable;
+	Object[] valueTable = this.newState.typeLocators.valueTable;
+	for (int i = 0, l = keyTable.length; i < l; i++)
+		if (keyTable[i] != null)
+			typeNamesPerLocator.computeIfAbsent((String) valueTable[i], k -> new ArrayList<>()).add((String) keyTable[i]);
+
+	int maxAffected = this.newState.references.elementSize * MaxAffectedPercentage / 100;
+	Set<String> affectedLocators = new HashSet<>();
+	List<String> changedLocators = new ArrayList<>();
+	for (SourceFile sourceFile : this.sourceFiles)
+		if (affectedLocators.add(sourceFile.typeLocator()))
+			changedLocators.add(sourceFile.typeLocator());
+	keyTable = this.newState.references.keyTable;
+	valueTable = this.newState.references.valueTable;
+	while (!changedLocators.isEmpty()) {
+		Set<String> qualifiedNames = new HashSet<>();
+		Set<String> simpleNames = new HashSet<>();
+		Set<String> rootNames = new HashSet<>();
+		for (String typeLocator : changedLocators) {
+			List<String> typeNames = typeNamesPerLocator.get(typeLocator);
+			if (typeNames != null)
+				for (String typeName : typeNames)
+					addDependentsOf(new Path(typeName), false, qualifiedNames, simpleNames, rootNames);
+		}
+		changedLocators.clear();
+
+		char[][][] internedQualifiedNames = ReferenceCollection.internQualifiedNames(qualifiedNames);
+		if (internedQualifiedNames.length < qualifiedNames.size())
+			internedQualifiedNames = null;
+		char[][] internedSimpleNames = ReferenceCollection.internSimpleNames(simpleNames, true);
+		if (internedSimpleNames.length < simpleNames.size())
+			internedSimpleNames = null;
+		char[][] internedRootNames = ReferenceCollection.internSimpleNames(rootNames, false);
+		for (int i = 0, l = valueTable.length; i < l; i++) {
+			String typeLocator = (String) keyTable[i];
+			if (typeLocator == null || affectedLocators.contains(typeLocator)) continue;
+			ReferenceCollection refs = (ReferenceCollection) valueTable[i];
+			if (refs.includes(internedQualifiedNames, internedSimpleNames, internedRootNames)) {
+				affectedLocators.add(typeLocator);
+				changedLocators.add(typeLocator);
+			}
+		}
+		if (affectedLocators.size() > maxAffected) {
+			if (JavaBuilder.DEBUG)
+				System.out.println("Found more than " + maxAffected + " source files affected by the changes"); //$NON-NLS-1$ //$NON-NLS-2$
+			return false;
+		}
+	}
+
+	int oldSize = this.sourceFiles.size();
+	for (String typeLocator : affectedLocators) {
+		SourceFile sourceFile = findSourceFile(this.javaBuilder.currentProject.getFile(typeLocator), true);
+		if (sourceFile != null)
+			this.sourceFiles.add(sourceFile);
+	}
+	this.expandedSourceFiles += this.sourceFiles.size() - oldSize;
+	if (JavaBuilder.DEBUG)
+		System.out.println("COMPILING " + this.sourceFiles.size() + " source files affected by a long cascade of changes at once"); //$NON-NLS-1$ //$NON-NLS-2$
+	return true;
+}
+
 protected void buildAfterBatchBuild() {
 	// called from a batch builder once all source files have been compiled AND some changes
 	// need to be propagated incrementally (annotations, missing secondary types)
@@ -207,6 +300,8 @@ protected void buildAfterBatchBuild() {
 			resetCollections();
 			this.notifier.setProgressPerCompilationUnit(0.08f / allSourceFiles.length);
 			this.workQueue.addAll(allSourceFiles);
+			this.compiledSourceFiles += allSourceFiles.length;
+			this.javaBuilder.metrics.compileLoops++;
 			compile(allSourceFiles);
 			removeSecondaryTypes();
 			addAffectedSourceFiles();
@@ -220,10 +315,12 @@ protected void buildAfterBatchBuild() {
 
 protected void addAffectedSourceFiles() {
 	if (this.qualifiedStrings.size() == 0 && this.simpleStrings.size() == 0) return;
+	long start = System.nanoTime();
 	if(this.testImageBuilder != null) {
 		this.testImageBuilder.addAffectedSourceFiles(this.qualifiedStrings, this.simpleStrings, this.rootStrings, null);
 	}
 	addAffectedSourceFiles(this.qualifiedStrings, this.simpleStrings, this.rootStrings, null);
+	this.javaBuilder.metrics.affectedSetNanos += System.nanoTime() - start;
 }
 
 protected void addAffectedSourceFiles(Set<String> qualifiedSet, Set<String> simpleSet, Set<String> rootSet, Set<String> affectedTypes) {
@@ -343,6 +440,19 @@ protected void cleanUp() {
 	this.hasStructuralChanges = false;
 }
 
+private void printStats() {
+	int loops = this.javaBuilder.metrics.compileLoops; // includes the loops of the test image builder
+	int compiled = this.compiledSourceFiles;
+	int expanded = this.expandedSourceFiles;
+	if (this.testImageBuilder != null) {
+		compiled += this.testImageBuilder.compiledSourceFiles;
+		expanded += this.testImageBuilder.expandedSourceFiles;
+	}
+	System.out.println(">INCREMENTAL BUILD STATS for: " + this.javaBuilder.javaProject.getElementName()); //$NON-NLS-1$
+	System.out.println(">   compiled " + compiled + " source files in " + loops + " loops, " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		+ expanded + " added as transitive dependents"); //$NON-NLS-1$
+}
+
 @Override
 protected void compile(SourceFile[] units, SourceFile[] additionalUnits, boolean compilingFirstGroup) {
 	if (compilingFirstGroup && additionalUnits != null) {
@@ -887,6 +997,7 @@ protected void writeClassFileContents(ClassFile classfile, IFile file, String qu
 			if (!file.isDerived())
 				file.setDerived(true, null);
 			file.setContents(new ByteArrayInputStream(bytes), true, false, null);
+			this.javaBuilder.metrics.writtenClassFiles++;
 		} else if (JavaBuilder.DEBUG) {
 			System.out.println("Skipped over unchanged class file " + file.getName());//$NON-NLS-1$
 		}
@@ -897,6 +1008,7 @@ protected void writeClassFileContents(ClassFile classfile, IFile file, String qu
 			System.out.println("Writing new class file " + file.getName());//$NON-NLS-1$
 		try {
 			file.create(new ByteArrayInputStream(bytes), IResource.FORCE | IResource.DERIVED, null);
+			this.javaBuilder.metrics.writtenClassFiles++;
 		} catch (CoreException e) {
 			if (e.getStatus().getCode() == IResourceStatus.CASE_VARIANT_EXISTS) {
 				IStatus status = e.getStatus();
@@ -922,6 +1034,7 @@ protected void writeClassFileContents(ClassFile classfile, IFile file, String qu
 						boolean success = false;
 						try {
 							file.create(new ByteArrayInputStream(bytes), IResource.FORCE | IResource.DERIVED, null);
+							this.javaBuilder.metrics.writtenClassFiles++;
 							success = true;
 						} catch (CoreException ignored) {
 							// ignore the second exception
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -39,12 +39,14 @@ NameEnvironment testNameEnvironment;
 SimpleLookupTable binaryLocationsPerProject; // maps a project to its binary resources (output folders, class folders, zip/jar files)
 public State lastState;
 BuildNotifier notifier;
+BuildMetrics metrics;
 char[][] extraResourceFileFilters;
 String[] extraResourceFolderFilters;
 public static final String SOURCE_ID = "JDT"; //$NON-NLS-1$
 
 public static boolean DEBUG = false;
 public static boolean SHOW_STATS = false;
+public static boolean SHOW_METRICS = false;
 
 /**
  * Bug 549457: In case auto-building on a JDT core settings change (e.g. compiler compliance) is not desired,
@@ -198,7 +200,9 @@ protected IProject[] build(int kind, Map ignored, IProgressMonitor monitor) thro
 					buildAll();
 				} else if (this.nameEnvironment.sourceLocations.length > 0 || this.testNameEnvironment.sourceLocations.length > 0) {
 					// if there is no source to compile & no classpath changes then we are done
+					long start = System.nanoTime();
 					SimpleLookupTable deltas = findDeltas();
+					this.metrics.deltaAnalysisNanos += System.nanoTime() - start;
 					if (deltas == null) {
 						if (DEBUG)
 							System.out.println("JavaBuilder: Performing full build since deltas are missing after incremental request"); //$NON-NLS-1$
@@ -255,6 +259,11 @@ protected IProject[] build(int kind, Map ignored, IProgressMonitor monitor) thro
 			// If the build failed, clear the previously built state, forcing a full build next time.
 			clearLastState();
 		this.notifier.done();
+		if (this.metrics != null) {
+			this.metrics.buildFinished();
+			if (SHOW_METRICS)
+				System.out.println(">BUILD METRICS " + this.metrics.toJson()); //$NON-NLS-1$
+		}
 		cleanup();
 	}
 	IProject[] requiredProjects = getRequiredProjects(true);
@@ -266,7 +275,14 @@ protected IProject[] build(int kind, Map ignored, IProgressMonitor monitor) thro
 
 private void buildAll() {
 	this.notifier.checkCancel();
+	this.metrics.kind = BuildMetrics.FULL_BUILD;
 	this.notifier.subTask(Messages.bind(Messages.build_preparingBuild, this.currentProject.getName()));
+	if (this.lastState == null && AbstractImageBuilder.MAX_PARALLEL_COMPILATIONS > 1) {
+		// its references are used to partition the source files, but only if it is in memory: never read it for a full build
+		JavaModelManager.PerProjectInfo info = JavaModelManager.getJavaModelManager().getPerProjectInfo(this.currentProject, false);
+		if (info != null && info.savedState instanceof State)
+			this.lastState = (State) info.savedState;
+	}
 	if (DEBUG && this.lastState != null)
 		System.out.println("JavaBuilder: Clearing last state : " + this.lastState); //$NON-NLS-1$
 	clearLastState();
@@ -284,6 +300,7 @@ private void buildAll() {
 
 private void buildDeltas(SimpleLookupTable deltas) {
 	this.notifier.checkCancel();
+	this.metrics.kind = BuildMetrics.INCREMENTAL_BUILD;
 	this.notifier.subTask(Messages.bind(Messages.build_preparingBuild, this.currentProject.getName()));
 	if (DEBUG && this.lastState != null)
 		System.out.println("JavaBuilder: Clearing last state : " + this.lastState); //$NON-NLS-1$
@@ -294,6 +311,7 @@ private void buildDeltas(SimpleLookupTable deltas) {
 	} else {
 		if (DEBUG)
 			System.out.println("JavaBuilder: Performing full build since incremental build failed"); //$NON-NLS-1$
+		this.metrics.incrementalBuildFailed = true;
 		buildAll();
 	}
 }
@@ -366,6 +384,7 @@ private void cleanup() {
 	this.binaryLocationsPerProject = null;
 	this.lastState = null;
 	this.notifier = null;
+	this.metrics = null;
 	this.extraResourceFileFilters = null;
 	this.extraResourceFolderFilters = null;
 }
@@ -646,6 +665,7 @@ private int initializeBuilder(int kind, boolean forBuild) throws CoreException {
 		builtProjects.add(projectName);
 	}
 
+	this.metrics = new BuildMetrics(this.currentProject.getName());
 	this.binaryLocationsPerProject = new SimpleLookupTable(3);
 	this.nameEnvironment = new NameEnvironment(this.workspaceRoot, this.javaProject, this.binaryLocationsPerProject, this.notifier, CompilationGroup.MAIN);
 	this.testNameEnvironment = new NameEnvironment(this.workspaceRoot, this.javaProject, this.binaryLocationsPerProject, this.notifier, CompilationGroup.TEST);
@@ -806,6 +826,7 @@ private void printLocations(ClasspathLocation[] newLocations, ClasspathLocation[
 }
 
 private void recordNewState(State state) {
+	long start = System.nanoTime();
 	Object[] keyTable = this.binaryLocationsPerProject.keyTable;
 	for (int i = 0, l = keyTable.length; i < l; i++) {
 		IProject prereqProject = (IProject) keyTable[i];
@@ -817,6 +838,7 @@ private void recordNewState(State state) {
 		System.out.println("JavaBuilder: Recording new state : " + state); //$NON-NLS-1$
 	// state.dump();
 	JavaModelManager.getJavaModelManager().setLastBuiltState(this.currentProject, state);
+	this.metrics.stateRecordNanos += System.nanoTime() - start;
 }
 
 /**
@@ -37,6 +37,7 @@ import org.eclipse.jdt.internal.core.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -54,6 +55,20 @@ SimpleLookupTable additionalUnits;
 private CompilationGroup compilationGroup;
 /** Tasks resulting from add-reads or add-exports classpath attributes. */
 ModuleUpdater moduleUpdater;
+/** Names of the types which could not be found in the binary locations, grouped by package name. */
+Map<String, Set<String>> missingTypes = new ConcurrentHashMap<>();
+/** Whether missing types are remembered, which is not the case when annotation processors can write class files while compiling. */
+boolean cacheMissingTypes = true;
+/** For each package name, the indexes of the binary locations which may contain the package. */
+Map<String, BitSet> packageLocations = new ConcurrentHashMap<>();
+/** The worker using this environment to compile a partition of a parallel compilation, null otherwise. */
+ParallelCompilation.Worker parallelWorker;
+
+// build statistics
+int typeLookups;
+int cachedMisses;
+int locationProbes;
+int skippedProbes;
 
 NameEnvironment(IWorkspaceRoot root, JavaProject javaProject, SimpleLookupTable binaryLocationsPerProject, BuildNotifier notifier, CompilationGroup compilationGroup) throws CoreException {
 	this.compilationGroup = compilationGroup;
@@ -497,9 +512,33 @@ private NameEnvironmentAnswer findClass(String qualifiedTypeName, char[] typeNam
 		}
 	}
 
+	if (this.parallelWorker != null) {
+		// the types of the other partitions are read from their class files once they are written
+		SourceFile unit = this.parallelWorker.awaitType(qualifiedTypeName);
+		if (unit != null)
+			return new NameEnvironmentAnswer(unit, null /*no access restriction*/);
+	}
+
 	String qBinaryFileName = qualifiedTypeName + SUFFIX_STRING_class;
 	String qPackageName =  (qualifiedTypeName.length() == typeName.length) ? Util.EMPTY_STRING :
 		qBinaryFileName.substring(0, qBinaryFileName.length() - typeName.length - 7);
+	this.typeLookups++;
+	// misses are remembered for the lookups of the compiler which are repeated the most, see LookupEnvironment.askForType()
+	boolean cacheMiss = this.cacheMissingTypes && (strategy == LookupStrategy.Any || strategy == LookupStrategy.Named);
+	if (cacheMiss) {
+		Set<String> missing = this.missingTypes.get(qPackageName);
+		if (missing != null && missing.contains(moduleQualifiedName)) {
+			this.cachedMisses++;
+			return null;
+		}
+	}
+	NameEnvironmentAnswer answer = findBinaryClass(qualifiedTypeName, typeName, qPackageName, qBinaryFileName, strategy, moduleName);
+	if (answer == null && cacheMiss)
+		this.missingTypes.computeIfAbsent(qPackageName, k -> ConcurrentHashMap.newKeySet()).add(moduleQualifiedName);
+	return answer;
+}
+
+private NameEnvironmentAnswer findBinaryClass(String qualifiedTypeName, char[] typeName, String qPackageName, String qBinaryFileName, LookupStrategy strategy, String moduleName) {
 	char[] binaryFileName = CharOperation.concat(typeName, SUFFIX_class);
 
 	ClasspathLocation[] relevantLocations;
@@ -516,11 +555,18 @@ private NameEnvironmentAnswer findClass(String qualifiedTypeName, char[] typeNam
 	} else {
 		relevantLocations = this.binaryLocations;
 	}
+	BitSet locations = moduleName == null && relevantLocations == this.binaryLocations ? packageLocations(qPackageName) : null;
 	NameEnvironmentAnswer suggestedAnswer = null;
-	for (ClasspathLocation classpathLocation : relevantLocations) {
+	for (int i = 0, l = relevantLocations.length; i < l; i++) {
+		ClasspathLocation classpathLocation = relevantLocations[i];
 		if (!strategy.matches(classpathLocation, ClasspathLocation::hasModule)) {
 			continue;
 		}
+		if (locations != null && !locations.get(i)) {
+			this.skippedProbes++;
+			continue; // the location does not contain the package, so it cannot contain the type
+		}
+		this.locationProbes++;
 		NameEnvironmentAnswer answer = classpathLocation.findClass(binaryFileName, qPackageName, moduleName, qBinaryFileName, false,
 																	this.modulePathEntries != null ? this.modulePathEntries::containsKey : null);
 		if (answer != null) {
@@ -540,6 +586,62 @@ private NameEnvironmentAnswer findClass(String qualifiedTypeName, char[] typeNam
 	return suggestedAnswer;
 }
 
+/**
+ * Answers the indexes of the binary locations which contain the given package, computed once per build.
+ * Output folders are always included since they are written while the build is running.
+ */
+private BitSet packageLocations(String qualifiedPackageName) {
+	BitSet locations = this.packageLocations.get(qualifiedPackageName);
+	if (locations == null) {
+		locations = new BitSet(this.binaryLocations.length);
+		for (int i = 0, l = this.binaryLocations.length; i < l; i++) {
+			ClasspathLocation location = this.binaryLocations[i];
+			if (location.isOutputFolder() || location.isPackage(qualifiedPackageName, null))
+				locations.set(i);
+		}
+		this.packageLocations.put(qualifiedPackageName, locations);
+	}
+	return locations;
+}
+
+/**
+ * Forgets the types which were missing from the given package, since a class file was just written into it.
+ */
+void outputPackageChanged(String qualifiedPackageName) {
+	this.missingTypes.remove(qualifiedPackageName);
+}
+
+/**
+ * Forgets the types which were missing from the packages into which other writers, like compilation participants,
+ * have since written the class file of one of these types.
+ */
+void forgetWrittenTypes() {
+	next : for (Map.Entry<String, Set<String>> entry : this.missingTypes.entrySet()) {
+		for (String moduleQualifiedName : entry.getValue()) {
+			IPath binaryFilePath = new Path(moduleQualifiedName.substring(moduleQualifiedName.indexOf(':') + 1) + SUFFIX_STRING_class);
+			for (int i = 0, l = this.binaryLocations.length; i < l; i++) {
+				ClasspathLocation location = this.binaryLocations[i];
+				if (location instanceof ClasspathDirectory && location.isOutputFolder()
+						&& ((ClasspathDirectory) location).binaryFolder.getFile(binaryFilePath).exists()) {
+					outputPackageChanged(entry.getKey());
+					continue next;
+				}
+			}
+		}
+	}
+}
+
+/**
+ * Forgets the class files listed for the given package in the output folders, since another compiler wrote into it.
+ */
+void outputFolderChanged(String qualifiedPackageName) {
+	for (int i = 0, l = this.binaryLocations.length; i < l; i++) {
+		ClasspathLocation location = this.binaryLocations[i];
+		if (location instanceof ClasspathDirectory && location.isOutputFolder())
+			((ClasspathDirectory) location).directoryCache.removeKey(qualifiedPackageName);
+	}
+}
+
 @Override
 public NameEnvironmentAnswer findType(char[][] compoundName, char[] moduleName) {
 	if (compoundName != null)
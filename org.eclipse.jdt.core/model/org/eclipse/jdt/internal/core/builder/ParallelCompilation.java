@@ -0,0 +1,479 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.builder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.internal.compiler.CompilationResult;
+import org.eclipse.jdt.internal.compiler.Compiler;
+import org.eclipse.jdt.internal.compiler.ICompilerRequestor;
+import org.eclipse.jdt.internal.compiler.impl.CompilerStats;
+import org.eclipse.jdt.internal.compiler.lookup.TypeConstants;
+import org.eclipse.jdt.internal.compiler.problem.AbortCompilation;
+
+/**
+ * Compiles partitions of the source files of a full build concurrently, each partition
+ * with its own {@link Compiler} and {@link NameEnvironment}.
+ * <p>
+ * Compilation results are handed back one at a time to the thread which drives the image builder,
+ * so class files, problem markers and the new state are written exactly as in a sequential compile.
+ * Each source file is compiled by the worker of its partition only. When a compiler looks for a type
+ * defined by a source file of another partition, it waits until the other worker has compiled it and
+ * then reads its class file from the output folder. Secondary types are only known from the last build:
+ * when one is new, or there is no last state, the source files which could not find it are compiled again
+ * once it is written, as in a sequential compile. Only when waiting could deadlock, because the
+ * other worker is itself waiting for this one or has not started yet, is the source file compiled
+ * again, and the duplicate result is ignored by the image builder. Partitions are therefore only
+ * a heuristic to avoid waiting, never a correctness concern.
+ */
+class ParallelCompilation {
+
+private static ExecutorService compilationExecutor; // shared by the builds, created on first use
+
+AbstractImageBuilder imageBuilder;
+SourceFile[][] partitions;
+HashMap<String, SourceFile> sourceFiles; // initial or secondary type name -> source file of any partition
+HashMap<SourceFile, Worker> owners; // source file -> worker of its partition
+
+ArrayList<PendingResult> pendingResults;
+int runningWorkers;
+boolean aborted;
+
+static class PendingResult {
+	CompilationResult result;
+	boolean accepted;
+
+	PendingResult(CompilationResult result) {
+		this.result = result;
+		this.accepted = false;
+	}
+}
+
+/**
+ * Answers the given source files split into at most <code>maxPartitions</code> partitions which
+ * did not reference each other in the last build, or null if the files cannot be usefully partitioned.
+ * <p>
+ * Packages are grouped together when one of their source files referenced the other package according
+ * to the recorded references of <code>lastState</code>. Without a last state, packages are grouped
+ * by source folder. The resulting groups are then distributed over the partitions, largest first.
+ */
+@SuppressWarnings("unchecked")
+static SourceFile[][] partition(SourceFile[] units, State lastState, int maxPartitions) {
+	if (maxPartitions < 2 || units.length < 2) return null;
+
+	LinkedHashMap<String, ArrayList<SourceFile>> unitsPerPackage = new LinkedHashMap<>();
+	for (int i = 0, l = units.length; i < l; i++) {
+		SourceFile unit = units[i];
+		if (CharOperation.equals(unit.getMainTypeName(), TypeConstants.MODULE_INFO_NAME))
+			return null; // every compiler must see the module declaration as a source file
+		String packageName = packageName(unit);
+		ArrayList<SourceFile> packageUnits = unitsPerPackage.get(packageName);
+		if (packageUnits == null)
+			unitsPerPackage.put(packageName, packageUnits = new ArrayList<>());
+		packageUnits.add(unit);
+	}
+	if (unitsPerPackage.size() < 2) return null;
+
+	HashMap<String, String> groups = new HashMap<>(unitsPerPackage.size()); // package name -> parent package in its group
+	for (String packageName : unitsPerPackage.keySet())
+		groups.put(packageName, packageName);
+	if (lastState != null) {
+		for (int i = 0, l = units.length; i < l; i++) {
+			Object refs = lastState.references.get(units[i].typeLocator());
+			if (!(refs instanceof ReferenceCollection)) continue; // new source file, its references are unknown
+
+			ReferenceCollection collection = (ReferenceCollection) refs;
+			String packageName = packageName(units[i]);
+			char[][][] qualifiedNames = collection.qualifiedNameReferences;
+			for (int j = 0, m = qualifiedNames.length; j < m; j++) {
+				String name = new String(CharOperation.concatWith(qualifiedNames[j], '/'));
+				if (groups.containsKey(name))
+					join(groups, packageName, name);
+			}
+			char[][] rootNames = collection.rootReferences; // single segment package names are only kept as root references
+			for (int j = 0, m = rootNames.length; j < m; j++) {
+				String name = new String(rootNames[j]);
+				if (groups.containsKey(name))
+					join(groups, packageName, name);
+			}
+		}
+	} else {
+		HashMap<ClasspathMultiDirectory, String> firstPackages = new HashMap<>();
+		for (int i = 0, l = units.length; i < l; i++) {
+			String packageName = packageName(units[i]);
+			String firstPackage = firstPackages.putIfAbsent(units[i].sourceLocation, packageName);
+			if (firstPackage != null)
+				join(groups, firstPackage, packageName);
+		}
+	}
+
+	LinkedHashMap<String, ArrayList<SourceFile>> unitsPerGroup = new LinkedHashMap<>();
+	for (Map.Entry<String, ArrayList<SourceFile>> entry : unitsPerPackage.entrySet()) {
+		String group = groupOf(groups, entry.getKey());
+		ArrayList<SourceFile> groupUnits = unitsPerGroup.get(group);
+		if (groupUnits == null)
+			unitsPerGroup.put(group, groupUnits = new ArrayList<>());
+		groupUnits.addAll(entry.getValue());
+	}
+	if (unitsPerGroup.size() < 2) return null; // everything depends on everything else
+
+	List<ArrayList<SourceFile>> sortedGroups = new ArrayList<>(unitsPerGroup.values());
+	Collections.sort(sortedGroups, (g1, g2) -> g2.size() - g1.size());
+	int partitionCount = Math.min(maxPartitions, sortedGroups.size());
+	ArrayList<SourceFile>[] partitionUnits = new ArrayList[partitionCount];
+	for (int i = 0; i < partitionCount; i++)
+		partitionUnits[i] = new ArrayList<>();
+	for (ArrayList<SourceFile> group : sortedGroups) {
+		ArrayList<SourceFile> smallest = partitionUnits[0];
+		for (int i = 1; i < partitionCount; i++)
+			if (partitionUnits[i].size() < smallest.size())
+				smallest = partitionUnits[i];
+		smallest.addAll(group);
+	}
+	SourceFile[][] result = new SourceFile[partitionCount][];
+	for (int i = 0; i < partitionCount; i++)
+		result[i] = partitionUnits[i].toArray(new SourceFile[partitionUnits[i].size()]);
+	return result;
+}
+
+private static String groupOf(HashMap<String, String> groups, String packageName) {
+	String parent;
+	while (!(parent = groups.get(packageName)).equals(packageName)) {
+		String grandParent = groups.get(parent);
+		groups.put(packageName, grandParent); // halve the path for the next lookup
+		packageName = grandParent;
+	}
+	return packageName;
+}
+
+private static void join(HashMap<String, String> groups, String packageName1, String packageName2) {
+	String group1 = groupOf(groups, packageName1);
+	String group2 = groupOf(groups, packageName2);
+	if (!group1.equals(group2))
+		groups.put(group2, group1);
+}
+
+static String packageName(SourceFile unit) {
+	String typeName = unit.initialTypeName;
+	int index = typeName.lastIndexOf('/');
+	return index == -1 ? "" : typeName.substring(0, index); //$NON-NLS-1$
+}
+
+ParallelCompilation(AbstractImageBuilder imageBuilder, SourceFile[][] partitions) {
+	this.imageBuilder = imageBuilder;
+	this.partitions = partitions;
+	this.sourceFiles = new HashMap<>();
+	this.owners = new HashMap<>();
+	this.pendingResults = new ArrayList<>();
+	this.runningWorkers = 0;
+	this.aborted = false;
+}
+
+private static synchronized ExecutorService getCompilationExecutor(int threads) {
+	if (compilationExecutor == null) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+			Thread thread = new Thread(runnable, "Java Builder Compilation Task"); //$NON-NLS-1$
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.allowCoreThreadTimeOut(true); // don't keep idle threads between builds
+		compilationExecutor = executor;
+	} else if (((ThreadPoolExecutor) compilationExecutor).getMaximumPoolSize() < threads) {
+		// MAX_PARALLEL_COMPILATIONS was raised since the executor was created
+		((ThreadPoolExecutor) compilationExecutor).setMaximumPoolSize(threads);
+		((ThreadPoolExecutor) compilationExecutor).setCorePoolSize(threads);
+	}
+	return compilationExecutor;
+}
+
+/*
+ * Called from a worker: waits until the image builder thread has accepted the result
+ * since the compiler reuses its class files once the result is accepted.
+ */
+synchronized void accept(CompilationResult result) {
+	if (this.aborted)
+		throw new AbortCompilation(true, null);
+	PendingResult pending = new PendingResult(result);
+	this.pendingResults.add(pending);
+	notifyAll();
+	while (!pending.accepted) {
+		try {
+			wait();
+		} catch (InterruptedException ignore) {
+			// ignore
+		}
+	}
+	if (this.aborted)
+		throw new AbortCompilation(true, null);
+}
+
+/**
+ * Compiles all partitions and accepts their results on the calling thread.
+ * Answers once every worker is finished, rethrowing the first failure of either side.
+ */
+void compile() throws CoreException {
+	Worker[] workers = new Worker[this.partitions.length];
+	Throwable failure = null;
+	long startTime = System.currentTimeMillis();
+	try {
+		// name environments must be created on the builder thread since it may update markers & folders
+		for (int i = 0, l = workers.length; i < l; i++) {
+			workers[i] = new Worker(this.partitions[i]);
+			for (int j = 0, m = this.partitions[i].length; j < m; j++) {
+				SourceFile unit = this.partitions[i][j];
+				this.sourceFiles.put(unit.initialTypeName, unit);
+				this.owners.put(unit, workers[i]);
+			}
+		}
+		State lastState = this.imageBuilder.javaBuilder.lastState;
+		if (lastState != null)
+			addSecondaryTypes(lastState);
+		ExecutorService executor = getCompilationExecutor(AbstractImageBuilder.MAX_PARALLEL_COMPILATIONS);
+		synchronized (this) {
+			for (int i = 0, l = workers.length; i < l; i++) {
+				this.runningWorkers++;
+				executor.execute(workers[i]);
+			}
+			while (this.runningWorkers > 0) { // a worker waiting for its result to be accepted is still running
+				if (this.pendingResults.isEmpty()) {
+					try {
+						wait(); // notified when a worker has a result or is finished
+					} catch (InterruptedException ignore) {
+						// ignore
+					}
+					if (!this.aborted) {
+						try {
+							this.imageBuilder.notifier.checkCancel();
+						} catch (Error | RuntimeException e) { // including OperationCanceledException
+							failure = e;
+							this.aborted = true;
+							notifyAll(); // workers waiting for the types of other partitions give up
+						}
+					}
+					continue;
+				}
+				PendingResult pending = this.pendingResults.remove(0);
+				try {
+					if (!this.aborted)
+						this.imageBuilder.acceptResult(pending.result);
+				} catch (AbortCompilation e) {
+					// the build was cancelled while accepting the result
+					this.aborted = true;
+				} catch (Error | RuntimeException e) {
+					if (failure == null)
+						failure = e;
+					this.aborted = true;
+				} finally {
+					pending.accepted = true;
+					notifyAll(); // also wakes up the workers waiting for the class files of this result
+				}
+			}
+		}
+	} finally {
+		synchronized (this) {
+			this.aborted = true;
+			for (int i = 0, l = this.pendingResults.size(); i < l; i++)
+				this.pendingResults.get(i).accepted = true;
+			this.pendingResults.clear();
+			notifyAll();
+			while (this.runningWorkers > 0) {
+				try {
+					wait();
+				} catch (InterruptedException ignore) {
+					// ignore
+				}
+			}
+		}
+		CompilerStats stats = this.imageBuilder.compiler.stats;
+		NameEnvironment environment = this.imageBuilder.nameEnvironment;
+		for (int i = 0, l = workers.length; i < l; i++) {
+			Worker worker = workers[i];
+			if (worker == null) continue;
+			worker.nameEnvironment.cleanup();
+			CompilerStats workerStats = worker.compiler.stats;
+			stats.lineCount += workerStats.lineCount;
+			stats.parseTime += workerStats.parseTime;
+			stats.resolveTime += workerStats.resolveTime;
+			stats.analyzeTime += workerStats.analyzeTime;
+			stats.generateTime += workerStats.generateTime;
+			environment.typeLookups += worker.nameEnvironment.typeLookups;
+			environment.cachedMisses += worker.nameEnvironment.cachedMisses;
+			environment.locationProbes += worker.nameEnvironment.locationProbes;
+			environment.skippedProbes += worker.nameEnvironment.skippedProbes;
+			if (failure == null)
+				failure = worker.caughtException;
+		}
+		stats.startTime = startTime;
+		stats.endTime = System.currentTimeMillis();
+	}
+	if (failure instanceof Error)
+		throw (Error) failure;
+	if (failure != null)
+		throw (RuntimeException) failure;
+}
+
+/*
+ * Maps the secondary types which the source files of this compile defined in the last build to these source files,
+ * so that they are awaited like main types.
+ */
+private void addSecondaryTypes(State lastState) {
+	HashMap<String, SourceFile> unitsByLocator = new HashMap<>(this.owners.size());
+	for (SourceFile unit : this.owners.keySet())
+		unitsByLocator.put(unit.typeLocator(), unit);
+	Object[] keyTable = lastState.typeLocators.keyTable;
+	Object[] valueTable = lastState.typeLocators.valueTable;
+	for (int i = 0, l = keyTable.length; i < l; i++) {
+		if (keyTable[i] == null) continue;
+		SourceFile unit = unitsByLocator.get(valueTable[i]);
+		if (unit != null)
+			this.sourceFiles.putIfAbsent((String) keyTable[i], unit); // main types are already mapped
+	}
+}
+
+synchronized void workerFinished(Worker worker) {
+	worker.finished = true;
+	this.runningWorkers--;
+	notifyAll();
+}
+
+class Worker implements Runnable, ICompilerRequestor {
+
+	SourceFile[] units;
+	NameEnvironment nameEnvironment;
+	Compiler compiler;
+	Throwable caughtException;
+	// guarded by the parallel compilation
+	boolean started;
+	boolean finished;
+	Worker waitingFor;
+
+	Worker(SourceFile[] units) throws CoreException {
+		this.units = units;
+		this.nameEnvironment = ParallelCompilation.this.imageBuilder.newNameEnvironment();
+		this.nameEnvironment.parallelWorker = this;
+		this.compiler = ParallelCompilation.this.imageBuilder.newCompiler(this.nameEnvironment, this);
+	}
+
+	@Override
+	public void acceptResult(CompilationResult result) {
+		// the other partitions did not see its secondary types, see BatchImageBuilder.rebuildTypesAffectedBySecondaryTypes()
+		result.checkSecondaryTypes = true;
+		accept(result);
+	}
+
+	/*
+	 * Called by the name environment of this worker before it looks for a class file. When the given type is defined
+	 * by a source file of another partition, waits until the worker of that partition has compiled it, and forgets
+	 * the listing of its package in the output folders. Answers the source file if it must be compiled by this worker
+	 * instead because waiting could deadlock, or null to look for the class file.
+	 */
+	SourceFile awaitType(String qualifiedTypeName) {
+		HashMap<String, SourceFile> allSourceFiles = ParallelCompilation.this.sourceFiles;
+		SourceFile unit = allSourceFiles.get(qualifiedTypeName);
+		if (unit == null) {
+			int index = qualifiedTypeName.indexOf('$');
+			if (index > 0)
+				unit = allSourceFiles.get(qualifiedTypeName.substring(0, index));
+			if (unit == null) return null; // not defined by a source file of this build, or a new secondary type
+		}
+		Worker owner = ParallelCompilation.this.owners.get(unit);
+		if (owner == this) return null; // the source files of this partition are initial, additional or compiled units
+
+		synchronized (ParallelCompilation.this) {
+			WorkQueue workQueue = ParallelCompilation.this.imageBuilder.workQueue;
+			while (!workQueue.isCompiled(unit) && !owner.finished) {
+				if (ParallelCompilation.this.aborted)
+					throw new AbortCompilation(true, null);
+				if (!owner.started) return unit; // all threads of the shared executor may be busy
+				for (Worker worker = owner; worker != null; worker = worker.waitingFor)
+					if (worker == this) return unit; // the owner is waiting for this worker
+				this.waitingFor = owner;
+				try {
+					ParallelCompilation.this.wait();
+				} catch (InterruptedException ignore) {
+					// ignore
+				} finally {
+					this.waitingFor = null;
+				}
+			}
+		}
+		this.nameEnvironment.outputFolderChanged(packageName(unit));
+		return null;
+	}
+
+	@Override
+	public void run() {
+		try {
+			synchronized (ParallelCompilation.this) {
+				this.started = true;
+			}
+			int length = this.units.length;
+			int atOnce = AbstractImageBuilder.MAX_AT_ONCE == 0
+				? length
+				: Math.max(1, AbstractImageBuilder.MAX_AT_ONCE / ParallelCompilation.this.partitions.length);
+			for (int start = 0; start < length; start += atOnce) {
+				SourceFile[] toCompile;
+				SourceFile[] additionalUnits;
+				synchronized (ParallelCompilation.this) {
+					if (ParallelCompilation.this.aborted) return;
+
+					// skip source files which were already compiled, their class files are used instead
+					WorkQueue workQueue = ParallelCompilation.this.imageBuilder.workQueue;
+					int end = Math.min(start + atOnce, length);
+					LinkedHashSet<SourceFile> group = new LinkedHashSet<>(end - start);
+					for (int i = start; i < end; i++)
+						if (!workQueue.isCompiled(this.units[i]))
+							group.add(this.units[i]);
+					toCompile = group.toArray(new SourceFile[group.size()]);
+
+					// only the source files of this partition, the types of the other partitions are awaited
+					ArrayList<SourceFile> remaining = new ArrayList<>(length);
+					for (int i = 0; i < length; i++)
+						if (!workQueue.isCompiled(this.units[i]) && !group.contains(this.units[i]))
+							remaining.add(this.units[i]);
+					// as in a sequential compile, these are always compiled again and their duplicate results ignored
+					Iterator<SourceFile> problemSourceFiles = ParallelCompilation.this.imageBuilder.problemSourceFiles.iterator();
+					while (problemSourceFiles.hasNext())
+						remaining.add(problemSourceFiles.next());
+					additionalUnits = remaining.toArray(new SourceFile[remaining.size()]);
+				}
+				if (toCompile.length == 0) continue;
+
+				if (JavaBuilder.DEBUG)
+					for (int i = 0, l = toCompile.length; i < l; i++)
+						System.out.println("About to compile in " + Thread.currentThread().getName() + " : " + toCompile[i].typeLocator()); //$NON-NLS-1$ //$NON-NLS-2$
+				this.nameEnvironment.setNames(ParallelCompilation.this.imageBuilder.initialTypeNames(toCompile), additionalUnits);
+				this.compiler.compile(toCompile);
+			}
+		} catch (Error | RuntimeException e) {
+			this.caughtException = e;
+		} finally {
+			workerFinished(this);
+		}
+	}
+}
+}
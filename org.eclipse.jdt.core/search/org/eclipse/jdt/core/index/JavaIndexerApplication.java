@@ -15,11 +15,22 @@ package org.eclipse.jdt.core.index;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.equinox.app.IApplication;
 import org.eclipse.equinox.app.IApplicationContext;
+import org.eclipse.jdt.internal.core.search.indexing.SharedIndexCache;
 import org.eclipse.osgi.util.NLS;
 
 /**
@@ -30,6 +41,11 @@ import org.eclipse.osgi.util.NLS;
  * eclipse.ini file is located. This makes it harder to use relative paths to point to the files to be jar'd or to
  * the index file that is generated.
  * </p>
+ * <p>
+ * Several jars, directories of jars or files listing jars can be indexed at once into a directory of index files,
+ * by a pool of threads. The index of a jar is then named after the jar, and it is not generated again as long as
+ * the content of the jar doesn't change.
+ * </p>
  * 
  * 
  * @since 3.8
@@ -46,11 +62,18 @@ public class JavaIndexerApplication implements IApplication {
 		public static String CommandLineUsage;
 		public static String CommandLineOnlyOneOutputError;
 		public static String CommandLineOutputTakesArgs;
-		public static String CommandLineOnlyOneJarError;
 		public static String CommandLineJarNotSpecified;
 		public static String CommandLineIndexFileNotSpecified;
 		public static String CaughtException;
 		public static String CommandLineJarFileNotExist;
+		public static String CommandLineThreadsTakesArgs;
+		public static String CommandLineListTakesArgs;
+		public static String CommandLineOutputNotDirectory;
+		public static String CommandLineDuplicateJar;
+		public static String CommandLineIndexed;
+		public static String CommandLineUpToDate;
+		public static String CommandLineFailed;
+		public static String CommandLineSummary;
 
 		static {
 			NLS.initializeMessages(MESSAGES_NAME, Messages.class);
@@ -68,18 +91,31 @@ public class JavaIndexerApplication implements IApplication {
 			return bind(message, new Object[] { binding1, binding2 });
 		}
 
+		public static String bind(String message, Object binding1, Object binding2, Object binding3, Object binding4) {
+			return bind(message, new Object[] { binding1, binding2, binding3, binding4 });
+		}
+
 		public static String bind(String message, Object[] bindings) {
 			return MessageFormat.format(message, bindings);
 		}
 	}
 
 	private String jarToIndex;
-	private String indexFile;
+	private final List<String> jarsToIndex = new ArrayList<>(); // the jars and directories of jars
+	private final List<String> jarLists = new ArrayList<>(); // the files listing jars
+	private boolean severalJars;
+	private String indexFile; // the index file, or the directory of the index files if several jars are indexed
+	private int threads = Runtime.getRuntime().availableProcessors();
 	private boolean verbose = false;
 	private static final String PDE_LAUNCH = "-pdelaunch"; //$NON-NLS-1$
 	private static final String ARG_HELP = "-help"; //$NON-NLS-1$
 	private static final String ARG_VERBOSE = "-verbose"; //$NON-NLS-1$
 	private static final String ARG_OUTPUT = "-output"; //$NON-NLS-1$
+	private static final String ARG_THREADS = "-threads"; //$NON-NLS-1$
+	private static final String ARG_LIST = "-list"; //$NON-NLS-1$
+	private static final String JAR_SUFFIX = ".jar"; //$NON-NLS-1$
+	private static final String INDEX_SUFFIX = ".index"; //$NON-NLS-1$
+	private static final String KEY_SUFFIX = ".key"; //$NON-NLS-1$ // the hash of the content of the indexed jar
 
 	private void displayHelp() {
 		System.out.println(Messages.bind(Messages.CommandLineUsage));
@@ -118,22 +154,161 @@ public class JavaIndexerApplication implements IApplication {
 					return false;
 				}
 				this.indexFile = argsArray[index++];
-			} else {
-				if (this.jarToIndex != null) {
-					displayError(Messages.bind(Messages.CommandLineOnlyOneJarError));
+			} else if (ARG_THREADS.equals(currentArg)) {
+				try {
+					this.threads = Math.max(1, Integer.parseInt(argsArray[index++]));
+				} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+					displayError(Messages.bind(Messages.CommandLineThreadsTakesArgs));
 					return false;
 				}
-				this.jarToIndex = currentArg;
+			} else if (ARG_LIST.equals(currentArg)) {
+				if (index == argCount) {
+					displayError(Messages.bind(Messages.CommandLineListTakesArgs));
+					return false;
+				}
+				this.jarLists.add(argsArray[index++]);
+				this.severalJars = true;
+			} else {
+				if (this.jarToIndex == null) {
+					this.jarToIndex = currentArg;
+				}
+				this.jarsToIndex.add(currentArg);
+				this.severalJars |= this.jarsToIndex.size() > 1 || new File(currentArg).isDirectory();
 			}
 		}
 		return true;
 	}
 
+	/**
+	 * Answers the jars to index, found in the jars, directories and lists of jars of the command line.
+	 */
+	private List<File> collectJars() throws IOException {
+		List<File> jars = new ArrayList<>();
+		for (String path : this.jarsToIndex) {
+			collectJars(new File(path), jars);
+		}
+		for (String list : this.jarLists) {
+			for (String line : Files.readAllLines(new File(list).toPath(), StandardCharsets.UTF_8)) {
+				line = line.trim();
+				if (line.length() > 0) {
+					collectJars(new File(line), jars);
+				}
+			}
+		}
+		return jars;
+	}
+
+	private void collectJars(File file, List<File> jars) {
+		if (file.isDirectory()) {
+			File[] files = file.listFiles();
+			if (files != null) {
+				for (File child : files) {
+					if (child.isDirectory() || child.getName().endsWith(JAR_SUFFIX)) {
+						collectJars(child, jars);
+					}
+				}
+			}
+		} else if (file.exists()) {
+			jars.add(file);
+		} else {
+			System.out.println(Messages.bind(Messages.CommandLineJarFileNotExist, file.getPath()));
+		}
+	}
+
+	/**
+	 * Indexes the given jars into the output directory with a pool of threads, skipping the jars whose index is up to
+	 * date, and reports the time and size of each jar and of all of them.
+	 */
+	private void generateIndexes(List<File> jars, File outputDirectory) throws InterruptedException {
+		long start = System.currentTimeMillis();
+		Map<String, File> indexedJars = new HashMap<>();
+		List<Future<Boolean>> results = new ArrayList<>();
+		AtomicLong indexSize = new AtomicLong();
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(this.threads, Math.max(1, jars.size())));
+		try {
+			for (File jar : jars) {
+				String name = jar.getName();
+				if (name.endsWith(JAR_SUFFIX)) {
+					name = name.substring(0, name.length() - JAR_SUFFIX.length());
+				}
+				File output = new File(outputDirectory, name + INDEX_SUFFIX);
+				File previous = indexedJars.putIfAbsent(output.getName(), jar);
+				if (previous != null) {
+					System.out.println(Messages.bind(Messages.CommandLineDuplicateJar, jar.getPath(), previous.getPath()));
+					continue;
+				}
+				results.add(pool.submit(() -> generateIndex(jar, output, indexSize)));
+			}
+		} finally {
+			pool.shutdown();
+		}
+		int indexed = 0, upToDate = 0, failed = 0;
+		for (Future<Boolean> result : results) {
+			try {
+				if (result.get().booleanValue()) {
+					indexed++;
+				} else {
+					upToDate++;
+				}
+			} catch (ExecutionException e) {
+				failed++;
+			}
+		}
+		System.out.println(Messages.bind(Messages.CommandLineSummary, new Object[] { Integer.valueOf(indexed),
+				Integer.valueOf(upToDate), Long.valueOf(System.currentTimeMillis() - start), Integer.valueOf(failed),
+				Long.valueOf(indexSize.get()) }));
+	}
+
+	/**
+	 * Indexes the given jar into the given index file unless the index is up to date, answers whether it did.
+	 */
+	private Boolean generateIndex(File jar, File output, AtomicLong indexSize) throws IOException {
+		try {
+			long start = System.currentTimeMillis();
+			File keyFile = new File(output.getPath() + KEY_SUFFIX);
+			String key = SharedIndexCache.computeKey(jar);
+			if (output.exists() && keyFile.exists()
+					&& key.equals(new String(Files.readAllBytes(keyFile.toPath()), StandardCharsets.UTF_8))) {
+				indexSize.addAndGet(output.length());
+				if (this.verbose) {
+					System.out.println(Messages.bind(Messages.CommandLineUpToDate, jar.getPath()));
+				}
+				return Boolean.FALSE;
+			}
+			// the key of an index being generated is deleted, so the index is generated again if this one is interrupted
+			Files.deleteIfExists(keyFile.toPath());
+			if (this.verbose) {
+				System.out.println(Messages.bind(Messages.CommandLineProcessing, output.getPath(), jar.getPath()));
+			}
+			JavaIndexer.generateIndexForJar(jar.getPath(), output.getPath());
+			Files.write(keyFile.toPath(), key.getBytes(StandardCharsets.UTF_8));
+			indexSize.addAndGet(output.length());
+			System.out.println(Messages.bind(Messages.CommandLineIndexed, jar.getPath(),
+					Long.valueOf(System.currentTimeMillis() - start), Long.valueOf(jar.length()), Long.valueOf(output.length())));
+			return Boolean.TRUE;
+		} catch (IOException | RuntimeException e) {
+			System.out.println(Messages.bind(Messages.CommandLineFailed, jar.getPath(), e.toString()));
+			throw e;
+		}
+	}
+
 	@Override
 	public Object start(IApplicationContext context) throws Exception {
 		boolean execute = processCommandLine((String[]) context.getArguments().get(IApplicationContext.APPLICATION_ARGS));
 		if (execute) {
-			if (this.jarToIndex != null && this.indexFile != null) {
+			if (this.severalJars && this.indexFile != null) {
+				File outputDirectory = new File(this.indexFile);
+				outputDirectory.mkdirs();
+				if (!outputDirectory.isDirectory()) {
+					System.out.println(Messages.bind(Messages.CommandLineOutputNotDirectory, this.indexFile));
+				} else {
+					try {
+						generateIndexes(collectJars(), outputDirectory);
+					} catch (IOException e) {
+						System.out.println(Messages.bind(Messages.CaughtException, "IOException", e.getLocalizedMessage())); //$NON-NLS-1$
+					}
+				}
+			} else if (this.jarToIndex != null && this.indexFile != null) {
 				File f = new File(this.jarToIndex);
 				if (f.exists()) {
 					if (this.verbose) {
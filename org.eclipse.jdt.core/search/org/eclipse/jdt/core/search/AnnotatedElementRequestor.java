@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.core.search;
+
+/**
+ * An <code>AnnotatedElementRequestor</code> collects search results from a <code>searchAllAnnotatedElements</code>
+ * query to a <code>SearchEngine</code>. Clients must subclass this abstract class and pass an instance to the
+ * <code>SearchEngine.searchAllAnnotatedElements(...)</code> method. Only the annotated top-level types, member types
+ * and their methods and fields are reported. The declarations of local and anonymous types are not reported.
+ * <p>
+ * This class may be subclassed by clients.
+ * </p>
+ * @since 3.19
+ */
+public abstract class AnnotatedElementRequestor {
+	/**
+	 * Accepts an annotated type, method or field.
+	 * <p>
+	 * The default implementation of this method does nothing.
+	 * Subclasses should override.
+	 * </p>
+	 *
+	 * @param annotationName the name of the annotation type. It is the fully qualified name for a binary declaration,
+	 *          but a source declaration only qualifies it as it is written, or with its single type import. For example
+	 *          <code>&#64;Entity</code> is reported as <code>Entity</code> when its type is imported on demand or
+	 *          declared in the same package.
+	 * @param elementType the type of the annotated element, one of {@link org.eclipse.jdt.core.IJavaElement#TYPE},
+	 *          {@link org.eclipse.jdt.core.IJavaElement#METHOD} or {@link org.eclipse.jdt.core.IJavaElement#FIELD}.
+	 *          Constructors are reported as methods named after their type.
+	 * @param elementName the simple name of the annotated element
+	 * @param declaringQualification the dot-separated simple names of the enclosing types of an annotated member type,
+	 *          or of the declaring type of an annotated method or field (for example <code>A.B</code> for a field of
+	 *          the class <code>x.y.A$B</code>). This is an empty array for a top-level type.
+	 * @param packageName the package name as specified in the package declaration (i.e. a dot-separated name)
+	 * @param path the full path to the resource containing the annotated element. If the resource is a .class file
+	 *          or a source file, this is the full path in the workspace to this resource. If the
+	 *          resource is an archive (that is, a .zip or .jar file), the path is composed of 2 paths separated
+	 *		 	 by <code>IJavaSearchScope.JAR_FILE_ENTRY_SEPARATOR</code>:
+	 *			 the first path is the full OS path to the archive (if it is an external archive),
+	 *			 or the workspace relative <code>IPath</code> to the archive (if it is an internal archive),
+	 * 		 the second path is the path to the resource inside the archive.
+	 */
+	public void acceptAnnotatedElement(char[] annotationName, int elementType, char[] elementName, char[] declaringQualification, char[] packageName, String path) {
+		// do nothing
+	}
+}
@@ -670,6 +670,85 @@ public class SearchEngine {
 		this.basicEngine.search(pattern, participants, scope, requestor, monitor);
 	}
 
+	/**
+	 * Searches for at most the given number of matches of a given search pattern.
+	 * <p>
+	 * The search stops as soon as the requestor got <code>maxMatches</code> matches, or as soon as
+	 * its {@link SearchRequestor#hasEnoughMatches()} method returns <code>true</code>: the documents
+	 * which were not searched yet are skipped. The documents which are the cheapest to search, such as
+	 * the working copies and the class files, are searched first, so the reported matches are not
+	 * necessarily the ones which an exhaustive search would report first.
+	 * </p>
+	 *
+	 * @param pattern the pattern to search
+	 * @param participants the participants in the search
+	 * @param scope the search scope
+	 * @param requestor the requestor to report the matches to
+	 * @param maxMatches the maximum number of matches to report
+	 * @param monitor the progress monitor used to report progress
+	 * @exception CoreException if the search failed. Reasons include:
+	 *	<ul>
+	 *		<li>the classpath is incorrectly set</li>
+	 *	</ul>
+	 * @see #search(SearchPattern, SearchParticipant[], IJavaSearchScope, SearchRequestor, IProgressMonitor)
+	 * @since 3.19
+	 */
+	public void search(SearchPattern pattern, SearchParticipant[] participants, IJavaSearchScope scope, SearchRequestor requestor, int maxMatches, IProgressMonitor monitor) throws CoreException {
+		this.basicEngine.search(pattern, participants, scope, requestor, maxMatches, monitor);
+	}
+
+	/**
+	 * Searches for all the types, methods and fields annotated with a given annotation type in the given scope.
+	 * Accepted matches will be returned by {@link AnnotatedElementRequestor#acceptAnnotatedElement}.
+	 * <p>
+	 * The search is answered from the indexes alone, without parsing or resolving the candidate compilation units,
+	 * so the annotation type is matched by its name. A qualified annotation name only excludes the source
+	 * declarations whose annotation reference is qualified, or imported on its own, with another qualification:
+	 * the source declarations annotated with a simple name which is imported on demand, or whose type is in the
+	 * same package, are reported for any qualification. Local and anonymous types and their members are not reported.
+	 * </p>
+	 *
+	 * @param annotationName the simple name of the annotation type, or a prefix, a camel case or a wild-carded
+	 *					string for it, possibly preceded by its dot-separated qualification (for example
+	 *					<code>javax.persistence.Entity</code>). The match rule only applies to the simple name.
+	 *					May be <code>null</code>, then any annotation type is accepted.
+	 * @param annotationMatchRule match rule for the simple name of the annotation type, one of
+	 * <ul>
+	 *		<li>{@link SearchPattern#R_EXACT_MATCH} if the name is the simple name of the annotation type.</li>
+	 *		<li>{@link SearchPattern#R_PREFIX_MATCH} if the name is a prefix of the simple name of the annotation type.</li>
+	 *		<li>{@link SearchPattern#R_PATTERN_MATCH} if the name contains wild-cards.</li>
+	 *		<li>{@link SearchPattern#R_CAMELCASE_MATCH} if the name is a camel case of the simple name of
+	 *			the annotation type.</li>
+	 *		<li>{@link SearchPattern#R_CAMELCASE_SAME_PART_COUNT_MATCH} if the name is a camel case with the
+	 *			same part count of the simple name of the annotation type.</li>
+	 * </ul>
+	 * combined with {@link SearchPattern#R_CASE_SENSITIVE}.
+	 * @param scope the scope to search in
+	 * @param nameRequestor the requestor that collects the results of the search.
+	 * @param waitingPolicy one of
+	 * <ul>
+	 *		<li>{@link IJavaSearchConstants#FORCE_IMMEDIATE_SEARCH} if the search should start immediately</li>
+	 *		<li>{@link IJavaSearchConstants#CANCEL_IF_NOT_READY_TO_SEARCH} if the search should be cancelled if the
+	 *			underlying indexer has not finished indexing the workspace</li>
+	 *		<li>{@link IJavaSearchConstants#WAIT_UNTIL_READY_TO_SEARCH} if the search should wait for the
+	 *			underlying indexer to finish indexing the workspace</li>
+	 * </ul>
+	 * @param progressMonitor the progress monitor to report progress to, or <code>null</code> if no progress
+	 *							monitor is provided
+	 * @exception JavaModelException if the search failed.
+	 *
+	 * @since 3.19
+	 */
+	public void searchAllAnnotatedElements(
+			final char[] annotationName,
+			final int annotationMatchRule,
+			IJavaSearchScope scope,
+			final AnnotatedElementRequestor nameRequestor,
+			int waitingPolicy,
+			IProgressMonitor progressMonitor)  throws JavaModelException {
+		this.basicEngine.searchAllAnnotatedElements(annotationName, annotationMatchRule, scope, nameRequestor, waitingPolicy, progressMonitor);
+	}
+
 	/**
 	 * Searches for all method declarations in the given scope. Accepted matches will be returned by
 	 * {@link MethodNameRequestor#acceptMethod}.
@@ -2388,6 +2388,7 @@ public void findIndexMatches(Index index, IndexQueryRequestor requestor, SearchP
 		index.startQuery();
 		SearchPattern pattern = currentPattern();
 		EntryResult[] entries = pattern.queryIn(index);
+		requestor.acceptIndexQuery(entries == Index.FILTERED_ENTRIES);
 		if (entries == null) return;
 
 		SearchPattern decodedResult = pattern.getBlankPattern();
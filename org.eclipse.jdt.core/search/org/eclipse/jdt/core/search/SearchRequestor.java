@@ -95,4 +95,23 @@ public abstract class SearchRequestor {
 	public void exitParticipant(SearchParticipant participant) {
 		// do nothing
 	}
+
+	/**
+	 * Returns whether this requestor does not need more matches, for example when it only
+	 * checks whether there is any match, or when it only collects the first matches.
+	 * The search engine checks it as the search goes: once it returns <code>true</code>,
+	 * the remaining documents are not searched and no more match is reported, although
+	 * <code>endReporting()</code> is still sent.
+	 * <p>
+	 * The default implementation of this method returns <code>false</code>. Subclasses
+	 * may override.
+	 * </p>
+	 *
+	 * @return whether the search can stop
+	 * @see SearchEngine#search(SearchPattern, SearchParticipant[], IJavaSearchScope, SearchRequestor, int, org.eclipse.core.runtime.IProgressMonitor)
+	 * @since 3.19
+	 */
+	public boolean hasEnoughMatches() {
+		return false;
+	}
 }
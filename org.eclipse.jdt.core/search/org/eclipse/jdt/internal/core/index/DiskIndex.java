@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,6 +14,9 @@
 package org.eclipse.jdt.internal.core.index;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.regex.Pattern;
 
 import org.eclipse.jdt.core.compiler.CharOperation;
@@ -41,6 +44,18 @@ private int cacheUserCount;
 private String[][] cachedChunks; // decompressed chunks of document names
 private HashtableOfObject categoryTables; // category name -> HashtableOfObject(words -> int[] of document #'s) or offset if not read yet
 private char[] cachedCategoryName;
+private HashtableOfObject wordTrigrams; // category name -> WordTrigrams of its table, see getWordTrigrams()
+private boolean compressedPostings; // document numbers are delta and variable-length encoded, see SIGNATURE
+private MappedIndexFile mappedFile = new MappedIndexFile(); // shared by the segments of the file
+
+// an index file is a sequence of segments, each one with its own header: the first segment is written when the whole file
+// is rewritten, each following one holds the documents changed since the previous segment and is appended to the file
+private boolean segmented; // the headers of the segments refer to the previous one
+private int previousHeaderOffset; // offset of the header of the previous segment, or -1 if this is the first segment
+DiskIndex previousSegment;
+private SimpleSet newerDocuments; // names of the documents of the following segments, which hide the ones of this segment
+private boolean[] hiddenDocuments; // whether each document of this segment is one of the newer documents, read once
+private HashtableOfObject wordFilters; // category name -> long[] filter of its words, see WordFilter; null if the file is in a previous version
 
 private static final int DEFAULT_BUFFER_SIZE = 2048;
 private static int BUFFER_READ_SIZE = DEFAULT_BUFFER_SIZE;
@@ -50,10 +65,33 @@ private int bufferIndex, bufferEnd; // used when reading from the file into the
 private int streamEnd; // used when writing data from the streamBuffer to the file
 char separator = Index.DEFAULT_SEPARATOR;
 
-public static final String SIGNATURE= "INDEX VERSION 1.131"; //$NON-NLS-1$
+public static final String SIGNATURE= "INDEX VERSION 1.135"; //$NON-NLS-1$
 private static final char[] SIGNATURE_CHARS = SIGNATURE.toCharArray();
+private static final int HEADER_INFO_OFFSET_POSITION = 2 + SIGNATURE_CHARS.length; // the offset to the header follows the signature
+// index files of the previous versions are still read, and written in the current version when they are next saved
+private static final String UNANNOTATED_SIGNATURE = "INDEX VERSION 1.134"; //$NON-NLS-1$ // no annotated declaration entries
+private static final char[] UNANNOTATED_SIGNATURE_CHARS = UNANNOTATED_SIGNATURE.toCharArray();
+private static final String UNFILTERED_SIGNATURE = "INDEX VERSION 1.133"; //$NON-NLS-1$ // no word filters
+private static final char[] UNFILTERED_SIGNATURE_CHARS = UNFILTERED_SIGNATURE.toCharArray();
+private static final String UNSEGMENTED_SIGNATURE = "INDEX VERSION 1.132"; //$NON-NLS-1$
+private static final char[] UNSEGMENTED_SIGNATURE_CHARS = UNSEGMENTED_SIGNATURE.toCharArray();
+private static final String UNCOMPRESSED_SIGNATURE = "INDEX VERSION 1.131"; //$NON-NLS-1$ // fixed size document numbers
+private static final char[] UNCOMPRESSED_SIGNATURE_CHARS = UNCOMPRESSED_SIGNATURE.toCharArray();
 public static boolean DEBUG = false;
 
+// should index files be memory-mapped while they are queried? not by default on Windows, where a mapped file cannot be deleted
+// or replaced until the mapping is garbage collected
+public static final String MAP_INDEX_FILES_PROPERTY = "jdt.core.mapIndexFiles"; //$NON-NLS-1$
+static boolean MAP_INDEX_FILES = Boolean.parseBoolean(System.getProperty(MAP_INDEX_FILES_PROPERTY, String.valueOf(File.separatorChar != '\\')));
+
+// how many segments can be appended to an index file before it is rewritten? the file is also rewritten once the appended
+// segments hold more than a quarter of the documents of the first one, 0 rewrites the file each time the index is saved
+public static final String MAX_INDEX_SEGMENTS_PROPERTY = "jdt.core.maxIndexSegments"; //$NON-NLS-1$
+public static int MAX_SEGMENTS = Integer.getInteger(MAX_INDEX_SEGMENTS_PROPERTY, 8).intValue();
+
+// the documents deleted from a segment are referenced by this word of this category
+private static final char[] DELETED_DOCUMENTS = "deletedDocuments".toCharArray(); //$NON-NLS-1$
+
 private static final int RE_INDEXED = -1;
 private static final int DELETED = -2;
 
@@ -86,7 +124,126 @@ int[] asArray() {
 }
 }
 
+static class MappedInputStream extends InputStream {
+
+ByteBuffer buffer;
+
+MappedInputStream(ByteBuffer buffer) {
+	this.buffer = buffer;
+}
+@Override
+public int available() {
+	return this.buffer.remaining();
+}
+@Override
+public int read() {
+	return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+}
+@Override
+public int read(byte[] bytes, int offset, int length) {
+	if (length == 0) return 0;
+	int remaining = this.buffer.remaining();
+	if (remaining == 0) return -1;
+	if (length > remaining) length = remaining;
+	this.buffer.get(bytes, offset, length);
+	return length;
+}
+@Override
+public long skip(long n) {
+	if (n <= 0) return 0;
+	int skipped = (int) Math.min(n, this.buffer.remaining());
+	this.buffer.position(this.buffer.position() + skipped);
+	return skipped;
+}
+}
+
+/*
+ * The index file mapped into memory while the index is queried, which is shared by all the segments of the file
+ * so the file is mapped once.
+ */
+static class MappedIndexFile {
+
+private ByteBuffer buffer;
+
+synchronized ByteBuffer getBuffer(File file) throws IOException {
+	if (this.buffer == null) {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+	return this.buffer.duplicate();
+}
+synchronized void release() {
+	this.buffer = null;
+}
+}
+
+/*
+ * The document numbers of a table, which are decoded one after the other from the mapped index file when the table
+ * is stored in it, rather than into an array first. The mapped file is read through a buffer of its own, so the names
+ * of the documents can be read while iterating.
+ */
+static class DocumentNumbers {
 
+final int size;
+private final int[] numbers; // the decoded numbers, or null if they are read from the buffer
+private final ByteBuffer buffer;
+private int index;
+private int documentNumber; // the last number read from the buffer
+
+DocumentNumbers(int[] numbers) {
+	this.size = numbers.length;
+	this.numbers = numbers;
+	this.buffer = null;
+}
+DocumentNumbers(ByteBuffer buffer) {
+	this.numbers = null;
+	this.buffer = buffer;
+	this.size = readVarInt(); // see readStreamDocumentNumbers(InputStream)
+}
+boolean hasNext() {
+	return this.index < this.size;
+}
+int next() {
+	if (this.numbers != null)
+		return this.numbers[this.index++];
+	this.index++;
+	return this.documentNumber += readVarInt(); // each document number is stored as the difference with the previous one
+}
+private int readVarInt() {
+	// see readStreamVarInt(InputStream)
+	int b = this.buffer.get();
+	int val = b & 0x7F;
+	for (int shift = 7; b < 0; shift += 7) {
+		b = this.buffer.get();
+		val |= (b & 0x7F) << shift;
+	}
+	return val;
+}
+}
+
+/*
+ * The numbers of the documents of a word in a previous segment which are not hidden by newer documents, whose names
+ * are read from this segment when the results of the query are, see readDocumentNames(Object).
+ */
+static class SegmentDocuments {
+
+final DiskIndex segment;
+final int[] numbers;
+
+SegmentDocuments(DiskIndex segment, int[] numbers) {
+	this.segment = segment;
+	this.numbers = numbers;
+}
+}
+
+/**
+ * Answers whether index files with the given signature can be reused as they are. The files of the previous
+ * versions can still be read, but they lack the annotated declaration entries, so the saved indexes are rebuilt.
+ */
+public static boolean isCompatibleSignature(String signature) {
+	return SIGNATURE.equals(signature);
+}
 DiskIndex() {
 	this.headerInfoOffset = -1;
 	this.numberOfChunks = -1;
@@ -99,6 +256,7 @@ DiskIndex() {
 	this.cachedCategoryName = null;
 	this.categoryOffsets = null;
 	this.categoryEnds = null;
+	this.previousHeaderOffset = -1;
 }
 DiskIndex(IndexLocation location) throws IOException {
 	this();
@@ -109,52 +267,78 @@ DiskIndex(IndexLocation location) throws IOException {
 }
 SimpleSet addDocumentNames(String substring, MemoryIndex memoryIndex) throws IOException {
 	// must skip over documents which have been added/changed/deleted in the memory index
+	if (this.previousSegment == null)
+		return addDocumentNames(substring, memoryIndex, null);
+
+	// and over the documents which have been changed/deleted in a following segment
+	SimpleSet results = null;
+	for (DiskIndex segment = this; segment != null; segment = segment.previousSegment)
+		results = segment.addDocumentNames(substring, memoryIndex, results);
+	return results;
+}
+private SimpleSet addDocumentNames(String substring, MemoryIndex memoryIndex, SimpleSet results) throws IOException {
 	String[] docNames = readAllDocumentNames();
-	SimpleSet results = new SimpleSet(docNames.length);
-	if (substring == null) {
-		if (memoryIndex == null) {
+	if (results == null)
+		results = new SimpleSet(docNames.length);
+	if (memoryIndex == null && this.newerDocuments == null && this.previousSegment == null) {
+		if (substring == null) {
 			for (int i = 0, l = docNames.length; i < l; i++)
 				results.add(docNames[i]);
 		} else {
-			SimpleLookupTable docsToRefs = memoryIndex.docsToReferences;
-			for (int i = 0, l = docNames.length; i < l; i++) {
-				String docName = docNames[i];
-				if (!docsToRefs.containsKey(docName))
-					results.add(docName);
-			}
-		}
-	} else {
-		if (memoryIndex == null) {
 			for (int i = 0, l = docNames.length; i < l; i++)
 				if (docNames[i].startsWith(substring, 0))
 					results.add(docNames[i]);
-		} else {
-			SimpleLookupTable docsToRefs = memoryIndex.docsToReferences;
-			for (int i = 0, l = docNames.length; i < l; i++) {
-				String docName = docNames[i];
-				if (docName.startsWith(substring, 0) && !docsToRefs.containsKey(docName))
-					results.add(docName);
-			}
+		}
+	} else {
+		SimpleLookupTable docsToRefs = memoryIndex == null ? null : memoryIndex.docsToReferences;
+		SimpleSet deletedDocuments = readDeletedDocuments();
+		for (int i = 0, l = docNames.length; i < l; i++) {
+			String docName = docNames[i];
+			if ((substring == null || docName.startsWith(substring, 0))
+					&& !isHidden(docName, docsToRefs)
+					&& (deletedDocuments == null || !deletedDocuments.includes(docName)))
+				results.add(docName);
 		}
 	}
 	return results;
 }
 private HashtableOfObject addQueryResult(HashtableOfObject results, char[] word, Object docs, MemoryIndex memoryIndex, boolean prevResults) throws IOException {
-	// must skip over documents which have been added/changed/deleted in the memory index
+	// must skip over documents which have been added/changed/deleted in the memory index or in a following segment
 	if (results == null)
 		results = new HashtableOfObject(13);
 	EntryResult result = prevResults ? (EntryResult) results.get(word) : null;
 	if (memoryIndex == null) {
+		// the names of the documents are read when the results are, see readDocumentNames(Object)
+		if (this.newerDocuments != null) {
+			// the documents of a previous segment are filtered by number, and their names read from this segment
+			boolean[] hidden = getHiddenDocuments();
+			DocumentNumbers docNumbers = iterateDocumentNumbers(docs);
+			int[] visible = new int[docNumbers.size];
+			int count = 0;
+			while (docNumbers.hasNext()) {
+				int docNumber = docNumbers.next();
+				if (!hidden[docNumber])
+					visible[count++] = docNumber;
+			}
+			if (count == 0)
+				return results;
+			if (count < visible.length)
+				System.arraycopy(visible, 0, visible = new int[count], 0, count);
+			docs = new SegmentDocuments(this, visible);
+		}
 		if (result == null)
 			results.putUnsafely(word, new EntryResult(word, docs));
 		else
 			result.addDocumentTable(docs);
 	} else {
 		SimpleLookupTable docsToRefs = memoryIndex.docsToReferences;
+		boolean[] hidden = this.newerDocuments == null ? null : getHiddenDocuments();
 		if (result == null) result = new EntryResult(word, null);
-		int[] docNumbers = readDocumentNumbers(docs);
-		for (int i = 0, l = docNumbers.length; i < l; i++) {
-			String docName = readDocumentName(docNumbers[i]);
+		DocumentNumbers docNumbers = iterateDocumentNumbers(docs);
+		while (docNumbers.hasNext()) {
+			int docNumber = docNumbers.next();
+			if (hidden != null && hidden[docNumber]) continue;
+			String docName = readDocumentName(docNumber);
 			if (!docsToRefs.containsKey(docName))
 				result.addDocumentName(docName);
 		}
@@ -165,13 +349,31 @@ private HashtableOfObject addQueryResult(HashtableOfObject results, char[] word,
 }
 HashtableOfObject addQueryResults(char[][] categories, char[] key, int matchRule, MemoryIndex memoryIndex) throws IOException {
 	// assumes sender has called startQuery() & will call stopQuery() when finished
-	if (this.categoryOffsets == null) return null; // file is empty
-
 	HashtableOfObject results = null; // initialized if needed
-	
+	for (DiskIndex segment = this; segment != null; segment = segment.previousSegment)
+		results = segment.addQueryResults(categories, key, matchRule, memoryIndex, results);
+	return results;
+}
+/**
+ * Answers all the entries of the given categories of this segment alone, when it is the last segment of the file.
+ */
+HashtableOfObject addSegmentQueryResults(char[][] categories) throws IOException {
+	// assumes sender has called startQuery() & will call stopQuery() when finished
+	return addQueryResults(categories, null, SearchPattern.R_PATTERN_MATCH, null, null);
+}
+/**
+ * Answers the names of the documents of this segment, including the deleted ones, which hide the entries of the
+ * previous segments.
+ */
+String[] readSegmentDocumentNames() throws IOException {
+	return readAllDocumentNames();
+}
+private HashtableOfObject addQueryResults(char[][] categories, char[] key, int matchRule, MemoryIndex memoryIndex, HashtableOfObject results) throws IOException {
+	if (this.categoryOffsets == null) return results; // file is empty
+
 	// No need to check the results table for duplicates while processing the
 	// first category table or if the first category tables doesn't have any results.
-	boolean prevResults = false;
+	boolean prevResults = results != null;
 	if (key == null) {
 		for (int i = 0, l = categories.length; i < l; i++) {
 			HashtableOfObject wordsToDocNumbers = readCategoryTable(categories[i], true); // cache if key is null since its a definite match
@@ -192,6 +394,7 @@ HashtableOfObject addQueryResults(char[][] categories, char[] key, int matchRule
 		switch (matchRule) {
 			case SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE:
 				for (int i = 0, l = categories.length; i < l; i++) {
+					if (!mightContain(categories[i], key)) continue;
 					HashtableOfObject wordsToDocNumbers = readCategoryTable(categories[i], false);
 					Object value;
 					if (wordsToDocNumbers != null && (value = wordsToDocNumbers.get(key)) != null)
@@ -231,15 +434,27 @@ HashtableOfObject addQueryResults(char[][] categories, char[] key, int matchRule
 				}
 				break;
 			default:
+				long[] keyTrigrams = WordTrigrams.keyTrigrams(key, matchRule);
 				for (int i = 0, l = categories.length; i < l; i++) {
 					HashtableOfObject wordsToDocNumbers = readCategoryTable(categories[i], false);
 					if (wordsToDocNumbers != null) {
 						char[][] words = wordsToDocNumbers.keyTable;
 						Object[] values = wordsToDocNumbers.valueTable;
-						for (int j = 0, m = words.length; j < m; j++) {
-							char[] word = words[j];
-							if (word != null && Index.isMatch(key, word, matchRule))
-								results = addQueryResult(results, word, values[j], memoryIndex, prevResults);
+						WordTrigrams trigrams = keyTrigrams == null ? null : getWordTrigrams(categories[i], wordsToDocNumbers);
+						int[] slots = trigrams == null ? null : trigrams.candidates(keyTrigrams);
+						if (slots != null) {
+							// only match the words which contain the trigrams of the key
+							for (int j = 0, m = slots.length; j < m; j++) {
+								char[] word = words[slots[j]];
+								if (Index.isMatch(key, word, matchRule))
+									results = addQueryResult(results, word, values[slots[j]], memoryIndex, prevResults);
+							}
+						} else {
+							for (int j = 0, m = words.length; j < m; j++) {
+								char[] word = words[j];
+								if (word != null && Index.isMatch(key, word, matchRule))
+									results = addQueryResult(results, word, values[j], memoryIndex, prevResults);
+							}
 						}
 					}
 					prevResults = results != null;
@@ -249,10 +464,52 @@ HashtableOfObject addQueryResults(char[][] categories, char[] key, int matchRule
 
 	return results;
 }
+/**
+ * Answers false if no category of any segment can contain the key, according to the word filters of the categories,
+ * so the index file does not need to be read. Only exact and case sensitive keys can be looked up in the filters.
+ */
+boolean mightContain(char[][] categories, char[] key, int matchRule) {
+	if (key == null || matchRule != (SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE))
+		return true;
+	for (DiskIndex segment = this; segment != null; segment = segment.previousSegment)
+		for (int i = 0, l = categories.length; i < l; i++)
+			if (segment.mightContain(categories[i], key))
+				return true;
+	return false;
+}
+private boolean mightContain(char[] categoryName, char[] key) {
+	if (this.categoryOffsets == null || this.categoryOffsets.get(categoryName) == HashtableOfIntValues.NO_VALUE)
+		return false; // empty file or unknown category
+	if (this.wordFilters == null)
+		return true; // previous version
+	long[] filter = (long[]) this.wordFilters.get(categoryName);
+	return filter == null || WordFilter.mightContain(filter, key);
+}
+/*
+ * Answers the trigrams of the given table of the given category, which are computed once for the following queries
+ * of the category as long as they fit in the memory budget of WordTrigrams, or null if the table is scanned.
+ */
+private synchronized WordTrigrams getWordTrigrams(char[] categoryName, HashtableOfObject wordsToDocNumbers) {
+	if (wordsToDocNumbers.elementSize < WordTrigrams.MIN_WORDS)
+		return null;
+	if (this.wordTrigrams == null)
+		this.wordTrigrams = new HashtableOfObject(3);
+	WordTrigrams trigrams = (WordTrigrams) this.wordTrigrams.get(categoryName);
+	if (trigrams != null && trigrams.tableLength == wordsToDocNumbers.keyTable.length) {
+		if (trigrams.memory > WordTrigrams.MEMORY_BUDGET)
+			return null; // too large to be kept
+		if (WordTrigrams.use(trigrams))
+			return trigrams;
+	}
+	trigrams = new WordTrigrams(wordsToDocNumbers.keyTable);
+	this.wordTrigrams.put(INTERNED_CATEGORY_NAMES.get(categoryName), trigrams);
+	WordTrigrams.keep(trigrams);
+	return trigrams;
+}
 private void cacheDocumentNames() throws IOException {
 	// will need all document names so get them now
 	this.cachedChunks = new String[this.numberOfChunks][];
-	InputStream stream = this.indexLocation.getInputStream();
+	InputStream stream = getInputStream();
 	try {
 		if (this.numberOfChunks > 5) BUFFER_READ_SIZE <<= 1;
 		int offset = this.chunkOffsets[0];
@@ -392,6 +649,17 @@ private void copyQueryResults(HashtableOfObject categoryToWords, int newPosition
 		}
 	}
 }
+/**
+ * Answers a stream on the index file, which reads the memory-mapped file while the index is queried.
+ */
+private InputStream getInputStream() throws IOException {
+	if (MAP_INDEX_FILES && this.cacheUserCount >= 0) {
+		File file = this.indexLocation.getIndexFile();
+		if (file != null) // not an index file inside a jar
+			return new MappedInputStream(this.mappedFile.getBuffer(file));
+	}
+	return this.indexLocation.getInputStream();
+}
 void initialize(boolean reuseExistingFile) throws IOException {
 	if (this.indexLocation.exists()) {
 		if (reuseExistingFile) {
@@ -404,7 +672,16 @@ void initialize(boolean reuseExistingFile) throws IOException {
 			this.bufferEnd = stream.read(this.streamBuffer, 0, 128);
 			try {
 				char[] signature = readStreamChars(stream);
-				if (!CharOperation.equals(signature, SIGNATURE_CHARS)) {
+				if (CharOperation.equals(signature, SIGNATURE_CHARS) || CharOperation.equals(signature, UNANNOTATED_SIGNATURE_CHARS)) {
+					this.compressedPostings = true;
+					this.segmented = true;
+					this.wordFilters = new HashtableOfObject();
+				} else if (CharOperation.equals(signature, UNFILTERED_SIGNATURE_CHARS)) {
+					this.compressedPostings = true;
+					this.segmented = true;
+				} else if (CharOperation.equals(signature, UNSEGMENTED_SIGNATURE_CHARS)) {
+					this.compressedPostings = true;
+				} else if (!CharOperation.equals(signature, UNCOMPRESSED_SIGNATURE_CHARS)) {
 					throw new IOException(Messages.exception_wrongFormat);
 				}
 				this.headerInfoOffset = readStreamInt(stream);
@@ -418,6 +695,8 @@ void initialize(boolean reuseExistingFile) throws IOException {
 				stream.close();
 				this.indexLocation.close();
 			}
+			if (this.previousHeaderOffset > 0)
+				readPreviousSegments();
 			return;
 		}
 		if (!this.indexLocation.delete()) {
@@ -427,6 +706,8 @@ void initialize(boolean reuseExistingFile) throws IOException {
 		}
 	}
 	if (this.indexLocation.createNewFile()) {
+		this.compressedPostings = true;
+		this.segmented = true;
 		FileOutputStream stream = new FileOutputStream(this.indexLocation.getIndexFile(), false);
 		try {
 			this.streamBuffer = new byte[BUFFER_READ_SIZE];
@@ -461,7 +742,28 @@ private void initializeFrom(DiskIndex diskIndex, File newIndexFile) throws IOExc
 	this.categoryOffsets = new HashtableOfIntValues(size);
 	this.categoryEnds = new HashtableOfIntValues(size);
 	this.categoryTables = new HashtableOfObject(size);
+	this.wordFilters = new HashtableOfObject(size);
 	this.separator = diskIndex.separator;
+	this.compressedPostings = true;
+	this.segmented = true;
+}
+/*
+ * Answers whether each document of this segment is hidden by the documents of the following segments, so the postings
+ * of this segment are filtered by document number without reading the names of their documents.
+ */
+private synchronized boolean[] getHiddenDocuments() throws IOException {
+	if (this.hiddenDocuments == null) {
+		String[] docNames = readAllDocumentNames();
+		boolean[] hidden = new boolean[docNames.length];
+		for (int i = 0, l = docNames.length; i < l; i++)
+			hidden[i] = this.newerDocuments.includes(docNames[i]);
+		this.hiddenDocuments = hidden;
+	}
+	return this.hiddenDocuments;
+}
+private boolean isHidden(String documentName, SimpleLookupTable docsToRefs) {
+	return (docsToRefs != null && docsToRefs.containsKey(documentName))
+		|| (this.newerDocuments != null && this.newerDocuments.includes(documentName));
 }
 private void mergeCategories(DiskIndex onDisk, int[] positions, FileOutputStream stream) throws IOException {
 	// at this point, this.categoryTables contains the names -> wordsToDocs added in copyQueryResults()
@@ -526,10 +828,153 @@ private void mergeCategory(char[] categoryName, DiskIndex onDisk, int[] position
 }
 DiskIndex mergeWith(MemoryIndex memoryIndex) throws IOException {
  	// assume write lock is held
-	// compute & write out new docNames
 	if (this.indexLocation == null) {
 		throw new IOException("Pre-built index file not writeable");  //$NON-NLS-1$
 	}
+	if (shouldAppendSegment(memoryIndex))
+		return appendSegment(memoryIndex);
+	if (this.previousSegment == null)
+		return rewriteWith(memoryIndex);
+
+	// rewrite the file from its first segment with the documents of the following segments and of the memory index
+	MemoryIndex changes = new MemoryIndex();
+	DiskIndex firstSegment = this;
+	while (firstSegment.previousSegment != null)
+		firstSegment = firstSegment.previousSegment;
+	addSegmentsTo(changes);
+	Object[] names = memoryIndex.docsToReferences.keyTable;
+	Object[] referenceTables = memoryIndex.docsToReferences.valueTable;
+	for (int i = 0, l = names.length; i < l; i++)
+		if (names[i] != null)
+			changes.docsToReferences.put(names[i], referenceTables[i]);
+	return firstSegment.rewriteWith(changes);
+}
+private void addSegmentsTo(MemoryIndex changes) throws IOException {
+	// must add the documents of the previous segments first, so the ones of this segment replace them
+	if (this.previousSegment == null) return; // the first segment is rewritten with the changes
+	this.previousSegment.addSegmentsTo(changes);
+
+	String[] docNames = readAllDocumentNames();
+	SimpleSet deletedDocuments = readDeletedDocuments();
+	for (int i = 0, l = docNames.length; i < l; i++) {
+		changes.remove(docNames[i]); // forget the previous version of the document, or remember that it was deleted
+		if (deletedDocuments == null || !deletedDocuments.includes(docNames[i]))
+			changes.docsToReferences.put(docNames[i], new HashtableOfObject(3));
+	}
+	char[][] categoryNames = this.categoryOffsets.keyTable;
+	for (int i = 0, l = categoryNames.length; i < l; i++) {
+		char[] categoryName = categoryNames[i];
+		if (categoryName == null || CharOperation.equals(categoryName, DELETED_DOCUMENTS)) continue;
+		HashtableOfObject wordsToDocs = readCategoryTable(categoryName, true);
+		char[][] words = wordsToDocs.keyTable;
+		Object[] docNumbers = wordsToDocs.valueTable;
+		for (int j = 0, m = words.length; j < m; j++) {
+			if (words[j] != null) {
+				int[] numbers = (int[]) docNumbers[j];
+				for (int k = 0, n = numbers.length; k < n; k++)
+					changes.addIndexEntry(categoryName, words[j], docNames[numbers[k]]);
+			}
+		}
+		this.categoryTables.put(categoryName, null); // flush cached table
+	}
+}
+private DiskIndex appendSegment(MemoryIndex memoryIndex) throws IOException {
+	// the documents of the memory index are appended to the file in a new segment, which then becomes the last one
+	// a deleted document is kept in the new segment to hide its previous version, but only referenced as deleted
+	SimpleLookupTable docsToRefs = memoryIndex.docsToReferences;
+	String[] docNames = new String[docsToRefs.elementSize];
+	int count = 0;
+	Object[] names = docsToRefs.keyTable;
+	for (int i = 0, l = names.length; i < l; i++)
+		if (names[i] != null)
+			docNames[count++] = (String) names[i];
+	Util.sort(docNames);
+
+	DiskIndex newSegment = new DiskIndex(this.indexLocation);
+	newSegment.categoryOffsets = new HashtableOfIntValues(this.categoryOffsets.elementSize);
+	newSegment.categoryEnds = new HashtableOfIntValues(this.categoryOffsets.elementSize);
+	newSegment.categoryTables = new HashtableOfObject(this.categoryOffsets.elementSize);
+	newSegment.wordFilters = new HashtableOfObject(this.categoryOffsets.elementSize);
+	newSegment.separator = this.separator;
+	newSegment.compressedPostings = true;
+	newSegment.segmented = true;
+	newSegment.previousHeaderOffset = this.headerInfoOffset;
+	IntList deletedDocuments = null;
+	for (int i = 0; i < count; i++) {
+		HashtableOfObject referenceTable = (HashtableOfObject) docsToRefs.get(docNames[i]);
+		if (referenceTable != null) {
+			newSegment.copyQueryResults(referenceTable, i);
+		} else if (deletedDocuments == null) {
+			deletedDocuments = new IntList(new int[] {i});
+		} else {
+			deletedDocuments.add(i);
+		}
+	}
+	if (deletedDocuments != null) {
+		HashtableOfObject wordsToDocs = new HashtableOfObject(1);
+		wordsToDocs.put(DELETED_DOCUMENTS, deletedDocuments);
+		newSegment.categoryTables.put(DELETED_DOCUMENTS, wordsToDocs);
+	}
+
+	File indexFile = this.indexLocation.getIndexFile();
+	FileOutputStream stream = new FileOutputStream(indexFile, true);
+	int offsetToHeader = -1;
+	try {
+		newSegment.streamBuffer = new byte[BUFFER_WRITE_SIZE];
+		newSegment.bufferIndex = 0;
+		newSegment.streamEnd = (int) indexFile.length();
+		newSegment.writeDocumentNames(docNames, stream);
+		newSegment.writeCategories(stream);
+		offsetToHeader = newSegment.streamEnd;
+		newSegment.writeHeaderInfo(stream);
+	} finally {
+		stream.close();
+		newSegment.streamBuffer = null;
+	}
+	// the new segment is only read once the file header refers to it, any bytes left by a failure before are ignored
+	newSegment.headerInfoOffset = HEADER_INFO_OFFSET_POSITION;
+	newSegment.writeOffsetToHeader(offsetToHeader);
+	newSegment.categoryTables = new HashtableOfObject(3);
+	newSegment.previousSegment = this;
+	newSegment.mappedFile = this.mappedFile;
+	this.mappedFile.release(); // the file was mapped without the new segment
+	for (DiskIndex segment = this; segment != null; segment = segment.previousSegment) {
+		segment.newerDocuments = addDocumentNames(segment.newerDocuments, docNames);
+		segment.hiddenDocuments = null;
+	}
+	return newSegment;
+}
+private static SimpleSet addDocumentNames(SimpleSet documentNames, String[] docNames) {
+	// answers a new set, since the given one can be shared with the previous segments
+	SimpleSet newDocumentNames = new SimpleSet((documentNames == null ? 0 : documentNames.elementSize) + docNames.length);
+	if (documentNames != null) {
+		Object[] values = documentNames.values;
+		for (int i = 0, l = values.length; i < l; i++)
+			if (values[i] != null)
+				newDocumentNames.add(values[i]);
+	}
+	for (int i = 0, l = docNames.length; i < l; i++)
+		newDocumentNames.add(docNames[i]);
+	return newDocumentNames;
+}
+private int documentCount() {
+	return this.numberOfChunks <= 0 ? 0 : (this.numberOfChunks - 1) * CHUNK_SIZE + this.sizeOfLastChunk;
+}
+private boolean shouldAppendSegment(MemoryIndex memoryIndex) {
+	if (this.wordFilters == null || this.headerInfoOffset <= 0 || this.indexLocation.getIndexFile() == null)
+		return false; // previous version, empty file or pre-built index
+
+	int segments = 1;
+	int appendedDocuments = memoryIndex.docsToReferences.elementSize;
+	DiskIndex firstSegment = this;
+	for (; firstSegment.previousSegment != null; firstSegment = firstSegment.previousSegment) {
+		segments++;
+		appendedDocuments += firstSegment.documentCount();
+	}
+	return segments <= MAX_SEGMENTS && appendedDocuments <= firstSegment.documentCount() / 4;
+}
+private DiskIndex rewriteWith(MemoryIndex memoryIndex) throws IOException {
+	// compute & write out new docNames
 	String[] docNames = readAllDocumentNames();
 	int previousLength = docNames.length;
 	int[] positions = new int[previousLength]; // keeps track of the position of each document in the new sorted docNames
@@ -621,7 +1066,7 @@ private synchronized String[] readAllDocumentNames() throws IOException {
 	if (this.numberOfChunks <= 0)
 		return CharOperation.NO_STRINGS;
 
-	InputStream stream = this.indexLocation.getInputStream();
+	InputStream stream = getInputStream();
 	try {
 		int offset = this.chunkOffsets[0];
 		stream.skip(offset);
@@ -661,7 +1106,7 @@ private synchronized HashtableOfObject readCategoryTable(char[] categoryName, bo
 		}
 	}
 
-	InputStream stream = this.indexLocation.getInputStream();
+	InputStream stream = getInputStream();
 	HashtableOfObject categoryTable = null;
 	char[][] matchingWords = null;
 	int count = 0;
@@ -694,17 +1139,33 @@ private synchronized HashtableOfObject readCategoryTable(char[] categoryName, bo
 		int largeArraySize = 256;
 		for (int i = 0; i < size; i++) {
 			char[] word = readStreamChars(stream);
-			int arrayOffset = readStreamInt(stream);
-			// if arrayOffset is:
-			//		<= 0 then the array size == 1 with the value -> -arrayOffset
-			//		> 1 & < 256 then the size of the array is > 1 & < 256, the document array follows immediately
-			//		256 if the array size >= 256 followed by another int which is the offset to the array (written prior to the table)
-			if (arrayOffset <= 0) {
-				categoryTable.putUnsafely(word, new int[] {-arrayOffset}); // store 1 element array by negating documentNumber
-			} else if (arrayOffset < largeArraySize) {
-				categoryTable.putUnsafely(word, readStreamDocumentArray(stream, arrayOffset)); // read in-lined array providing size
+			int arrayOffset = -1;
+			if (this.compressedPostings) {
+				// the size of the array is followed by:
+				//		the document number if the size == 1
+				//		the delta encoded document array if the size is > 1 & < 256
+				//		the offset to the array if the size >= 256 (written prior to the table)
+				int arraySize = readStreamVarInt(stream);
+				if (arraySize == 1)
+					categoryTable.putUnsafely(word, new int[] {readStreamVarInt(stream)});
+				else if (arraySize < largeArraySize)
+					categoryTable.putUnsafely(word, readStreamDocumentDeltas(stream, arraySize));
+				else
+					arrayOffset = readStreamInt(stream);
 			} else {
-				arrayOffset = readStreamInt(stream); // read actual offset
+				int value = readStreamInt(stream);
+				// if value is:
+				//		<= 0 then the array size == 1 with the value -> -value
+				//		> 1 & < 256 then the size of the array is > 1 & < 256, the document array follows immediately
+				//		256 if the array size >= 256 followed by another int which is the offset to the array (written prior to the table)
+				if (value <= 0)
+					categoryTable.putUnsafely(word, new int[] {-value}); // store 1 element array by negating documentNumber
+				else if (value < largeArraySize)
+					categoryTable.putUnsafely(word, readStreamDocumentArray(stream, value)); // read in-lined array providing size
+				else
+					arrayOffset = readStreamInt(stream); // read actual offset
+			}
+			if (arrayOffset >= 0) {
 				if (readDocNumbers) {
 					if (matchingWords == null)
 						matchingWords = new char[size][];
@@ -728,13 +1189,13 @@ private synchronized HashtableOfObject readCategoryTable(char[] categoryName, bo
 	}
 
 	if (matchingWords != null && count > 0) {
-		stream = this.indexLocation.getInputStream();
+		stream = getInputStream();
 		try {
 			stream.skip(firstOffset);
 			this.bufferIndex = 0;
 			this.bufferEnd = stream.read(this.streamBuffer, 0, this.streamBuffer.length);
 			for (int i = 0; i < count; i++) { // each array follows the previous one
-				categoryTable.put(matchingWords[i], readStreamDocumentArray(stream, readStreamInt(stream)));
+				categoryTable.put(matchingWords[i], readStreamDocumentNumbers(stream));
 			}
 		} catch (IOException ioe) {
 			this.streamBuffer = null;
@@ -785,7 +1246,7 @@ synchronized String readDocumentName(int docNumber) throws IOException {
 			throw new IllegalArgumentException();
 		this.streamBuffer = new byte[numberOfBytes];
 		this.bufferIndex = 0;
-		InputStream file = this.indexLocation.getInputStream();
+		InputStream file = getInputStream();
 		try {
 			file.skip(start);
 			if (file.read(this.streamBuffer, 0, numberOfBytes) != numberOfBytes)
@@ -810,25 +1271,94 @@ synchronized String readDocumentName(int docNumber) throws IOException {
 	this.streamBuffer = null;
 	return chunk[docNumber - (chunkNumber * CHUNK_SIZE)];
 }
+/**
+ * Answers the names of the documents of the given table, which is either a table of this segment or the visible
+ * documents of a previous segment.
+ */
+String[] readDocumentNames(Object docs) throws IOException {
+	if (docs instanceof SegmentDocuments) {
+		SegmentDocuments segmentDocuments = (SegmentDocuments) docs;
+		return segmentDocuments.segment.readDocumentNames(segmentDocuments.numbers);
+	}
+	DocumentNumbers numbers = iterateDocumentNumbers(docs);
+	String[] names = new String[numbers.size];
+	for (int i = 0; numbers.hasNext(); i++)
+		names[i] = readDocumentName(numbers.next());
+	return names;
+}
+/*
+ * Answers the document numbers of the given table, which are decoded while iterating if the table is stored in the
+ * mapped index file, see DocumentNumbers.
+ */
+private synchronized DocumentNumbers iterateDocumentNumbers(Object arrayOffset) throws IOException {
+	if (arrayOffset instanceof Integer && this.compressedPostings && MAP_INDEX_FILES && this.cacheUserCount >= 0) {
+		File file = this.indexLocation.getIndexFile();
+		if (file != null) { // not an index file inside a jar
+			ByteBuffer buffer = this.mappedFile.getBuffer(file);
+			buffer.position(((Integer) arrayOffset).intValue());
+			return new DocumentNumbers(buffer);
+		}
+	}
+	return new DocumentNumbers(readDocumentNumbers(arrayOffset));
+}
 synchronized int[] readDocumentNumbers(Object arrayOffset) throws IOException {
 	// arrayOffset is either a cached array of docNumbers or an Integer offset in the file
 	if (arrayOffset instanceof int[])
 		return (int[]) arrayOffset;
 
-	InputStream stream = this.indexLocation.getInputStream();
+	InputStream stream = getInputStream();
 	try {
 		int offset = ((Integer) arrayOffset).intValue();
 		stream.skip(offset);
 		this.streamBuffer = new byte[BUFFER_READ_SIZE];
 		this.bufferIndex = 0;
 		this.bufferEnd = stream.read(this.streamBuffer, 0, this.streamBuffer.length);
-		return readStreamDocumentArray(stream, readStreamInt(stream));
+		return readStreamDocumentNumbers(stream);
 	} finally {
 		stream.close();
 		this.indexLocation.close();
 		this.streamBuffer = null;
 	}
 }
+private SimpleSet readDeletedDocuments() throws IOException {
+	if (!this.segmented || this.categoryOffsets == null) return null;
+	HashtableOfObject wordsToDocs = readCategoryTable(DELETED_DOCUMENTS, false);
+	if (wordsToDocs == null) return null;
+	DocumentNumbers docNumbers = iterateDocumentNumbers(wordsToDocs.get(DELETED_DOCUMENTS));
+	SimpleSet deletedDocuments = new SimpleSet(docNumbers.size);
+	while (docNumbers.hasNext())
+		deletedDocuments.add(readDocumentName(docNumbers.next()));
+	return deletedDocuments;
+}
+private void readPreviousSegments() throws IOException {
+	DiskIndex segment = this;
+	SimpleSet documentNames = null;
+	while (segment.previousHeaderOffset > 0) {
+		documentNames = addDocumentNames(documentNames, segment.readAllDocumentNames());
+		DiskIndex previous = new DiskIndex(this.indexLocation);
+		previous.mappedFile = this.mappedFile;
+		previous.compressedPostings = true;
+		previous.segmented = true;
+		if (this.wordFilters != null)
+			previous.wordFilters = new HashtableOfObject();
+		previous.headerInfoOffset = segment.previousHeaderOffset;
+		InputStream stream = this.indexLocation.getInputStream();
+		try {
+			stream.skip(previous.headerInfoOffset);
+			previous.streamBuffer = new byte[BUFFER_READ_SIZE];
+			previous.bufferIndex = 0;
+			previous.bufferEnd = stream.read(previous.streamBuffer, 0, previous.streamBuffer.length);
+			previous.readHeaderInfo(stream);
+		} finally {
+			stream.close();
+			this.indexLocation.close();
+			previous.streamBuffer = null;
+		}
+		previous.newerDocuments = documentNames;
+		segment.previousSegment = previous;
+		segment = previous;
+	}
+}
 private void readHeaderInfo(InputStream stream) throws IOException {
 
 	// must be same order as writeHeaderInfo()
@@ -864,6 +1394,18 @@ private void readHeaderInfo(InputStream stream) throws IOException {
 		char[] categoryName = INTERNED_CATEGORY_NAMES.get(readStreamChars(stream));
 		offset = readStreamInt(stream);
 		this.categoryOffsets.put(categoryName, offset); // cache offset to category table
+		if (this.wordFilters != null) {
+			int filterLength = readStreamInt(stream);
+			if (filterLength > WordFilter.MAX_LENGTH) {
+				if (DEBUG)
+					System.out.println("Index file is corrupted " + this.indexLocation); //$NON-NLS-1$
+				throw new IOException("Index file is corrupted " + this.indexLocation); //$NON-NLS-1$
+			}
+			long[] filter = new long[filterLength];
+			for (int j = 0; j < filterLength; j++)
+				filter[j] = ((long) readStreamInt(stream) << 32) | (readStreamInt(stream) & 0xFFFFFFFFL);
+			this.wordFilters.put(categoryName, filter);
+		}
 		if (previousCategory != null) {
 			this.categoryEnds.put(previousCategory, offset); // cache end of the category table
 		}
@@ -872,16 +1414,23 @@ private void readHeaderInfo(InputStream stream) throws IOException {
 	if (previousCategory != null) {
 		this.categoryEnds.put(previousCategory, this.headerInfoOffset); // cache end of the category table
 	}
+	if (this.segmented)
+		this.previousHeaderOffset = readStreamInt(stream);
 	this.categoryTables = new HashtableOfObject(3);
 }
 synchronized void startQuery() {
 	this.cacheUserCount++;
+	if (this.previousSegment != null)
+		this.previousSegment.startQuery();
 }
 synchronized void stopQuery() {
+	if (this.previousSegment != null)
+		this.previousSegment.stopQuery();
 	if (--this.cacheUserCount < 0) {
 		// clear cached items
 		this.cacheUserCount = -1;
 		this.cachedChunks = null;
+		this.mappedFile.release();
 		if (this.categoryTables != null) {
 			if (this.cachedCategoryName == null) {
 				this.categoryTables = null;
@@ -1027,6 +1576,19 @@ private int[] readStreamDocumentArray(InputStream stream, int arraySize) throws
 	}
 	return indexes;
 }
+private int[] readStreamDocumentDeltas(InputStream stream, int arraySize) throws IOException {
+	// each document number is stored as the difference with the previous one
+	int[] indexes = new int[arraySize];
+	int documentNumber = 0;
+	for (int i = 0; i < arraySize; i++)
+		indexes[i] = documentNumber += readStreamVarInt(stream);
+	return indexes;
+}
+private int[] readStreamDocumentNumbers(InputStream stream) throws IOException {
+	if (this.compressedPostings)
+		return readStreamDocumentDeltas(stream, readStreamVarInt(stream));
+	return readStreamDocumentArray(stream, readStreamInt(stream));
+}
 private int readStreamInt(InputStream stream) throws IOException {
 	if (this.bufferIndex + 4 >= this.bufferEnd) {
 		readStreamBuffer(stream);
@@ -1036,6 +1598,18 @@ private int readStreamInt(InputStream stream) throws IOException {
 	val += (this.streamBuffer[this.bufferIndex++] & 0xFF) << 8;
 	return val + (this.streamBuffer[this.bufferIndex++] & 0xFF);
 }
+private int readStreamVarInt(InputStream stream) throws IOException {
+	// 7 bits per byte, starting with the lowest ones, the high bit is set on every byte but the last one
+	if (this.bufferIndex + 5 >= this.bufferEnd)
+		readStreamBuffer(stream);
+	int b = this.streamBuffer[this.bufferIndex++];
+	int val = b & 0x7F;
+	for (int shift = 7; b < 0; shift += 7) {
+		b = this.streamBuffer[this.bufferIndex++];
+		val |= (b & 0x7F) << shift;
+	}
+	return val;
+}
 private void writeAllDocumentNames(String[] sortedDocNames, FileOutputStream stream) throws IOException {
 	if (sortedDocNames.length == 0)
 		throw new IllegalArgumentException();
@@ -1049,7 +1623,9 @@ private void writeAllDocumentNames(String[] sortedDocNames, FileOutputStream str
 	writeStreamChars(stream, SIGNATURE_CHARS);
 	this.headerInfoOffset = this.streamEnd;
 	writeStreamInt(stream, -1); // will overwrite with correct value later
-
+	writeDocumentNames(sortedDocNames, stream);
+}
+private void writeDocumentNames(String[] sortedDocNames, FileOutputStream stream) throws IOException {
 	int size = sortedDocNames.length;
 	this.numberOfChunks = (size / CHUNK_SIZE) + 1;
 	this.sizeOfLastChunk = size % CHUNK_SIZE;
@@ -1114,10 +1690,12 @@ private void writeCategoryTable(char[] categoryName, HashtableOfObject wordsToDo
 	// the format of a category table is as follows:
 	// any document number arrays with >= 256 elements are written before the table (the offset to each array is remembered)
 	// then the number of word->int[] pairs in the table is written
-	// for each word -> int[] pair, the word is written followed by:
-	//		an int <= 0 if the array size == 1
-	//		an int > 1 & < 256 for the size of the array if its > 1 & < 256, the document array follows immediately
-	//		256 if the array size >= 256 followed by another int which is the offset to the array (written prior to the table)
+	// for each word -> int[] pair, the word is written followed by the size of the array, then:
+	//		the document number if the array size == 1
+	//		the document array if the size of the array is > 1 & < 256
+	//		an int which is the offset to the array if the array size is >= 256 (written prior to the table)
+	// the sizes and the document numbers are variable-length encoded, and the sorted document numbers are stored
+	// as the difference with the previous one
 
 	int largeArraySize = 256;
 	Object[] values = wordsToDocs.valueTable;
@@ -1136,6 +1714,7 @@ private void writeCategoryTable(char[] categoryName, HashtableOfObject wordsToDo
 
 	this.categoryOffsets.put(categoryName, this.streamEnd); // remember the offset to the start of the table
 	this.categoryTables.put(categoryName, null); // flush cached table
+	this.wordFilters.put(categoryName, WordFilter.create(wordsToDocs.keyTable, values));
 	writeStreamInt(stream, wordsToDocs.elementSize);
 	char[][] words = wordsToDocs.keyTable;
 	for (int i = 0, l = words.length; i < l; i++) {
@@ -1143,62 +1722,23 @@ private void writeCategoryTable(char[] categoryName, HashtableOfObject wordsToDo
 		if (o != null) {
 			writeStreamChars(stream, words[i]);
 			if (o instanceof int[]) {
-				int[] documentNumbers = (int[]) o;
-				if (documentNumbers.length == 1)
-					writeStreamInt(stream, -documentNumbers[0]); // store an array of 1 element by negating the documentNumber (can be zero)
-				else
-					writeDocumentNumbers(documentNumbers, stream);
+				writeDocumentNumbers((int[]) o, stream); // the size of the array identifies a single document or an in-lined array
 			} else {
-				writeStreamInt(stream, largeArraySize); // mark to identify that an offset follows
+				writeStreamVarInt(stream, largeArraySize); // mark to identify that an offset follows
 				writeStreamInt(stream, ((Integer) o).intValue()); // offset in the file of the array of document numbers
 			}
 		}
 	}
 }
 private void writeDocumentNumbers(int[] documentNumbers, FileOutputStream stream) throws IOException {
-	// must store length as a positive int to detect in-lined array of 1 element
 	int length = documentNumbers.length;
-	writeStreamInt(stream, length);
+	writeStreamVarInt(stream, length);
 	Util.sort(documentNumbers);
-	int start = 0;
-	switch (this.documentReferenceSize) {
-		case 1 :
-			while ((this.bufferIndex + length - start) >= BUFFER_WRITE_SIZE) {
-				// when documentNumbers is large, write BUFFER_WRITE_SIZE parts & fall thru to write the last part
-				int bytesLeft = BUFFER_WRITE_SIZE - this.bufferIndex;
-				for (int i=0; i < bytesLeft; i++) {
-					this.streamBuffer[this.bufferIndex++] = (byte) documentNumbers[start++];
-				}
-				stream.write(this.streamBuffer, 0, this.bufferIndex);
-				this.bufferIndex = 0;
-			}
-			while (start < length) {
-				this.streamBuffer[this.bufferIndex++] = (byte) documentNumbers[start++];
-			}
-			this.streamEnd += length;
-			break;
-		case 2 :
-			while ((this.bufferIndex + ((length - start) * 2)) >= BUFFER_WRITE_SIZE) {
-				// when documentNumbers is large, write BUFFER_WRITE_SIZE parts & fall thru to write the last part
-				int shortsLeft = (BUFFER_WRITE_SIZE - this.bufferIndex) / 2;
-				for (int i=0; i < shortsLeft; i++) {
-					this.streamBuffer[this.bufferIndex++] = (byte) (documentNumbers[start] >> 8);
-					this.streamBuffer[this.bufferIndex++] = (byte) documentNumbers[start++];
-				}
-				stream.write(this.streamBuffer, 0, this.bufferIndex);
-				this.bufferIndex = 0;
-			}
-			while (start < length) {
-				this.streamBuffer[this.bufferIndex++] = (byte) (documentNumbers[start] >> 8);
-				this.streamBuffer[this.bufferIndex++] = (byte) documentNumbers[start++];
-			}
-			this.streamEnd += length * 2;
-			break;
-		default :
-			while (start < length) {
-				writeStreamInt(stream, documentNumbers[start++]);
-			}
-			break;
+	int previous = 0;
+	for (int i = 0; i < length; i++) {
+		int documentNumber = documentNumbers[i];
+		writeStreamVarInt(stream, documentNumber - previous);
+		previous = documentNumber;
 	}
 }
 private void writeHeaderInfo(FileOutputStream stream) throws IOException {
@@ -1227,8 +1767,15 @@ private void writeHeaderInfo(FileOutputStream stream) throws IOException {
 		if (categoryNames[i] != null) {
 			writeStreamChars(stream, categoryNames[i]);
 			writeStreamInt(stream, offsets[i]);
+			long[] filter = (long[]) this.wordFilters.get(categoryNames[i]);
+			writeStreamInt(stream, filter.length);
+			for (int j = 0, m = filter.length; j < m; j++) {
+				writeStreamInt(stream, (int) (filter[j] >>> 32));
+				writeStreamInt(stream, (int) filter[j]);
+			}
 		}
 	}
+	writeStreamInt(stream, this.previousHeaderOffset); // -1 for the first segment of the file
 	// ensure buffer is written to the stream
 	if (this.bufferIndex > 0) {
 		stream.write(this.streamBuffer, 0, this.bufferIndex);
@@ -1336,6 +1883,19 @@ private void writeStreamChars(FileOutputStream stream, char[] array, int start,
 	}
 	this.streamEnd += this.bufferIndex - oldIndex;
 }
+private void writeStreamVarInt(FileOutputStream stream, int val) throws IOException {
+	if ((this.bufferIndex + 5) >= BUFFER_WRITE_SIZE)  {
+		stream.write(this.streamBuffer, 0, this.bufferIndex);
+		this.bufferIndex = 0;
+	}
+	int oldIndex = this.bufferIndex;
+	while ((val & ~0x7F) != 0) {
+		this.streamBuffer[this.bufferIndex++] = (byte) ((val & 0x7F) | 0x80);
+		val >>>= 7;
+	}
+	this.streamBuffer[this.bufferIndex++] = (byte) val;
+	this.streamEnd += this.bufferIndex - oldIndex;
+}
 private void writeStreamInt(FileOutputStream stream, int val) throws IOException {
 	if ((this.bufferIndex + 4) >= BUFFER_WRITE_SIZE)  {
 		stream.write(this.streamBuffer, 0, this.bufferIndex);
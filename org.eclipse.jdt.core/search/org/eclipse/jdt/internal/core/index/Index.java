@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,6 +14,7 @@
 package org.eclipse.jdt.internal.core.index;
 
 import java.io.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
 import org.eclipse.jdt.core.compiler.CharOperation;
@@ -42,6 +43,16 @@ static final char JAR_SEPARATOR = IJavaSearchScope.JAR_FILE_ENTRY_SEPARATOR.char
 protected DiskIndex diskIndex;
 protected MemoryIndex memoryIndex;
 
+/**
+ * Answered by query when the word filters of the index do not contain the key, so the index file was not read.
+ */
+public static final EntryResult[] FILTERED_ENTRIES = new EntryResult[0];
+
+// identifies the content of the disk indexes, which changes when the memory index is saved or the index is reset
+private static final AtomicLong SAVED_STAMPS = new AtomicLong();
+private long savedStamp = SAVED_STAMPS.incrementAndGet();
+private long appendedStamp; // the saved stamp before the last segment was appended to the index file, 0 if it was rewritten
+
 /**
  * Mask used on match rule for indexing.
  */
@@ -127,8 +138,31 @@ public long getIndexLastModified() {
 public boolean hasChanged() {
 	return this.memoryIndex.hasChanged();
 }
+/**
+ * Answers a stamp which differs from the previous ones once the saved entries of the index change, so the clients
+ * which keep them know when they must read them again.
+ */
+public long getSavedStamp() {
+	return this.savedStamp;
+}
+/**
+ * Answers the saved stamp the index had before the documents changed since then were appended to its file in a new
+ * segment, or 0 if its saved entries were rewritten instead. The clients which keep the entries of that stamp only
+ * need to read the entries of the new segment, see {@link #queryAppended(char[][])}.
+ */
+public long getAppendedStamp() {
+	return this.appendedStamp;
+}
+/**
+ * Answers whether the given document was added, changed or removed since the index was saved, in which case its
+ * saved entries are hidden.
+ */
+public boolean isChanged(String containerRelativePath) {
+	return this.memoryIndex.hasChanged() && this.memoryIndex.docsToReferences.containsKey(containerRelativePath);
+}
 /**
  * Returns the entries containing the given key in a group of categories, or null if no matches are found.
+ * Returns FILTERED_ENTRIES instead of null when the word filters of the index tell that there are none.
  * The matchRule dictates whether its an exact, prefix or pattern match, as well as case sensitive or insensitive.
  * If the key is null then all entries in specified categories are returned.
  */
@@ -146,9 +180,14 @@ public EntryResult[] query(char[][] categories, char[] key, int matchRule) throw
 	if (this.memoryIndex.hasChanged()) {
 		results = this.diskIndex.addQueryResults(categories, key, rule, this.memoryIndex);
 		results = this.memoryIndex.addQueryResults(categories, key, rule, results);
+	} else if (!this.diskIndex.mightContain(categories, key, rule)) {
+		return FILTERED_ENTRIES;
 	} else {
 		results = this.diskIndex.addQueryResults(categories, key, rule, null);
 	}
+	return toEntryResults(results);
+}
+private static EntryResult[] toEntryResults(HashtableOfObject results) {
 	if (results == null) return null;
 
 	EntryResult[] entryResults = new EntryResult[results.elementSize];
@@ -161,6 +200,34 @@ public EntryResult[] query(char[][] categories, char[] key, int matchRule) throw
 	}
 	return entryResults;
 }
+/**
+ * Returns all the saved entries of the given categories, including the ones of the documents which changed since
+ * the index was saved, or null if there are none.
+ */
+public EntryResult[] querySaved(char[][] categories) throws IOException {
+	return toEntryResults(this.diskIndex.addQueryResults(categories, null, SearchPattern.R_PATTERN_MATCH, null));
+}
+/**
+ * Returns all the entries of the given categories of the segment last appended to the index file, or null if there
+ * are none. Valid only when {@link #getAppendedStamp()} is not 0.
+ */
+public EntryResult[] queryAppended(char[][] categories) throws IOException {
+	return toEntryResults(this.diskIndex.addSegmentQueryResults(categories));
+}
+/**
+ * Returns the names of the documents of the segment last appended to the index file, whose previously saved entries
+ * it replaces, including the deleted documents. Valid only when {@link #getAppendedStamp()} is not 0.
+ */
+public String[] queryAppendedDocumentNames() throws IOException {
+	return this.diskIndex.readSegmentDocumentNames();
+}
+/**
+ * Returns the entries of the documents which changed since the index was saved, or null if there are none.
+ */
+public EntryResult[] queryChanges(char[][] categories, char[] key, int matchRule) {
+	if (!this.memoryIndex.hasChanged()) return null;
+	return toEntryResults(this.memoryIndex.addQueryResults(categories, key, matchRule & MATCH_RULE_INDEX_MASK, null));
+}
 /**
  * Returns the document names that contain the given substring, if null then returns all of them.
  */
@@ -194,14 +261,19 @@ public void reset() throws IOException {
 	this.memoryIndex = new MemoryIndex();
 	this.diskIndex = new DiskIndex(this.diskIndex.indexLocation);
 	this.diskIndex.initialize(false/*do not reuse the index file*/);
+	this.savedStamp = SAVED_STAMPS.incrementAndGet();
+	this.appendedStamp = 0;
 }
 public void save() throws IOException {
 	// must own the write lock of the monitor
 	if (!hasChanged()) return;
 
 	this.diskIndex.separator = this.separator;
+	DiskIndex previousIndex = this.diskIndex;
 	this.diskIndex = this.diskIndex.mergeWith(this.memoryIndex);
 	this.memoryIndex = new MemoryIndex();
+	this.appendedStamp = this.diskIndex.previousSegment == previousIndex ? this.savedStamp : 0;
+	this.savedStamp = SAVED_STAMPS.incrementAndGet();
 }
 public void startQuery() {
 	if (this.diskIndex != null)
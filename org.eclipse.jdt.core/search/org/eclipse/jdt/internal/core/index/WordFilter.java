@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.index;
+
+/**
+ * A Bloom filter of the words of a category table, which is kept in the header of the index file.
+ * <p>
+ * It answers whether a word may be in the table without reading the table: a word which is not in the filter
+ * is not in the table, a word which is in the filter is in the table but for about 2% of them.
+ * </p>
+ */
+class WordFilter {
+
+static final int BITS_PER_WORD = 8;
+static final int HASH_FUNCTIONS = 4;
+static final int MAX_LENGTH = 8192; // 64KB per category, the filters of the largest tables answer more false positives
+
+static long[] create(char[][] words, Object[] values) {
+	int count = 0;
+	for (int i = 0, l = words.length; i < l; i++)
+		if (words[i] != null && values[i] != null)
+			count++;
+	int length = 1;
+	while (length * 64 < count * BITS_PER_WORD && length < MAX_LENGTH)
+		length <<= 1; // a power of 2, so the bit of a hash is found with a mask
+	long[] filter = new long[length];
+	for (int i = 0, l = words.length; i < l; i++)
+		if (words[i] != null && values[i] != null)
+			add(filter, words[i]);
+	return filter;
+}
+static void add(long[] filter, char[] word) {
+	int hash = hash(word);
+	int increment = increment(hash);
+	int mask = filter.length * 64 - 1;
+	for (int i = 0; i < HASH_FUNCTIONS; i++, hash += increment) {
+		int bit = hash & mask;
+		filter[bit >>> 6] |= 1L << bit;
+	}
+}
+static boolean mightContain(long[] filter, char[] word) {
+	int hash = hash(word);
+	int increment = increment(hash);
+	int mask = filter.length * 64 - 1;
+	for (int i = 0; i < HASH_FUNCTIONS; i++, hash += increment) {
+		int bit = hash & mask;
+		if ((filter[bit >>> 6] & (1L << bit)) == 0)
+			return false;
+	}
+	return true;
+}
+private static int hash(char[] word) {
+	int hash = 0;
+	for (int i = 0, l = word.length; i < l; i++)
+		hash = 31 * hash + word[i];
+	return hash;
+}
+private static int increment(int hash) {
+	// the second hash of double hashing, odd so it reaches every bit
+	int increment = hash * 0x9E3779B9;
+	return (increment ^ (increment >>> 16)) | 1;
+}
+}
@@ -0,0 +1,230 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.index;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.eclipse.jdt.core.search.SearchPattern;
+
+/**
+ * The trigrams of the words of a category table, which narrow the words to match against a pattern, camel case or
+ * case insensitive key to the ones containing every trigram of the key.
+ * <p>
+ * Trigrams are case insensitive and refer to the slots of their words in the key table of the category table, so they
+ * are only valid as long as this table is not rehashed. A table read again from the same segment has the same slots,
+ * so the trigrams of a category are kept for its following queries, as long as they fit in the memory budget.
+ * </p>
+ */
+class WordTrigrams {
+
+static final int MIN_WORDS = 1000; // the smaller tables are scanned as fast as their candidates are found
+private static final int[] NO_SLOTS = new int[0];
+
+// how many bytes the kept trigrams of all the indexes can use? the least recently used ones are dropped beyond it
+public static final String MEMORY_BUDGET_PROPERTY = "jdt.core.indexTrigramsMemory"; //$NON-NLS-1$
+static long MEMORY_BUDGET = Long.getLong(MEMORY_BUDGET_PROPERTY, 16 * 1024 * 1024).longValue();
+private static final LinkedHashMap<WordTrigrams, Boolean> KEPT = new LinkedHashMap<>(16, 0.75f, true); // in access order
+private static long keptMemory;
+
+final int tableLength; // the length of the key table whose slots are referenced
+final long memory; // an estimate of the bytes used by the trigrams
+private long[] trigrams; // open addressing table of the trigrams + 1, 0 if the entry is free, null once dropped
+private int[][] slots; // the increasing slots of the words containing the trigram of the same entry
+private int[] sizes; // the number of slots of each entry, while the trigrams are collected
+private int elementSize;
+
+WordTrigrams(char[][] words) {
+	this.tableLength = words.length;
+	this.trigrams = new long[1024];
+	this.slots = new int[1024][];
+	this.sizes = new int[1024];
+	for (int slot = 0, l = words.length; slot < l; slot++) {
+		char[] word = words[slot];
+		if (word == null) continue;
+		for (int i = 0, end = word.length - 2; i < end; i++)
+			add(trigram(word[i], word[i + 1], word[i + 2]), slot);
+	}
+	long bytes = 16 + this.trigrams.length * 12L; // the arrays of trigrams and slots
+	for (int i = 0, l = this.slots.length; i < l; i++) {
+		int[] entry = this.slots[i];
+		if (entry != null && entry.length != this.sizes[i])
+			System.arraycopy(entry, 0, entry = this.slots[i] = new int[this.sizes[i]], 0, this.sizes[i]);
+		if (entry != null)
+			bytes += 16 + entry.length * 4L;
+	}
+	this.sizes = null;
+	this.memory = bytes;
+}
+/**
+ * Keeps the given trigrams for the following queries, dropping the least recently used ones beyond the memory budget.
+ * The trigrams which exceed the budget on their own are dropped at once.
+ */
+static synchronized void keep(WordTrigrams wordTrigrams) {
+	if (wordTrigrams.memory > MEMORY_BUDGET) {
+		wordTrigrams.drop();
+		return;
+	}
+	KEPT.put(wordTrigrams, Boolean.TRUE);
+	keptMemory += wordTrigrams.memory;
+	for (Iterator<WordTrigrams> iterator = KEPT.keySet().iterator(); keptMemory > MEMORY_BUDGET && iterator.hasNext();) {
+		WordTrigrams oldest = iterator.next();
+		iterator.remove();
+		keptMemory -= oldest.memory;
+		oldest.drop();
+	}
+}
+/**
+ * Answers whether the given trigrams are still kept, and makes them the most recently used ones if so.
+ */
+static synchronized boolean use(WordTrigrams wordTrigrams) {
+	return KEPT.get(wordTrigrams) != null;
+}
+private void drop() {
+	// the queries which use the trigrams keep their own references to the arrays
+	this.trigrams = null;
+	this.slots = null;
+}
+/**
+ * Answers the trigrams which any word matching the key must contain, or null if there are none.
+ * <p>
+ * A pattern key is made of the substrings between its wildcards. The parts of a camel case key are substrings
+ * of a matching word since its lowercase characters must match consecutive characters, and only its uppercase or
+ * digit characters can skip the characters of the word. Any other key is a substring of the matching words.
+ * </p>
+ */
+static long[] keyTrigrams(char[] key, int matchRule) {
+	int mode = matchRule & Index.MATCH_RULE_INDEX_MASK & ~SearchPattern.R_CASE_SENSITIVE;
+	if (mode == SearchPattern.R_REGEXP_MATCH)
+		return null;
+	boolean pattern = mode == SearchPattern.R_PATTERN_MATCH;
+	boolean camelCase = mode == SearchPattern.R_CAMELCASE_MATCH || mode == SearchPattern.R_CAMELCASE_SAME_PART_COUNT_MATCH;
+	long[] result = new long[Math.max(key.length - 2, 0)]; // the parts do not overlap
+	int count = 0;
+	for (int start = 0, i = 0, length = key.length; i <= length; i++) {
+		if (i < length) {
+			char c = key[i];
+			if (pattern) {
+				if (c != '*' && c != '?') continue;
+			} else if (!camelCase || i == start
+					|| !(Character.isUpperCase(c) || Character.isDigit(c) || !Character.isJavaIdentifierPart(c))) {
+				continue;
+			}
+		}
+		for (; start < i - 2; start++)
+			result[count++] = trigram(key[start], key[start + 1], key[start + 2]);
+		start = pattern ? i + 1 : i; // a wildcard is not part of the next part, an uppercase character is
+	}
+	if (count == 0)
+		return null;
+	if (count < result.length)
+		System.arraycopy(result, 0, result = new long[count], 0, count);
+	return result;
+}
+private static long trigram(char c1, char c2, char c3) {
+	return ((long) Character.toLowerCase(c1) << 32) | ((long) Character.toLowerCase(c2) << 16) | Character.toLowerCase(c3);
+}
+private static int hash(long trigram) {
+	int hash = (int) (trigram ^ (trigram >>> 29)) * 0x9E3779B9;
+	return hash ^ (hash >>> 16);
+}
+private void add(long trigram, int slot) {
+	int mask = this.trigrams.length - 1;
+	int index = hash(trigram) & mask;
+	long entry;
+	while ((entry = this.trigrams[index]) != 0) {
+		if (entry == trigram + 1) {
+			int size = this.sizes[index];
+			int[] entrySlots = this.slots[index];
+			if (entrySlots[size - 1] == slot) return; // the word contains the trigram several times
+			if (size == entrySlots.length)
+				System.arraycopy(entrySlots, 0, entrySlots = this.slots[index] = new int[size * 2], 0, size);
+			entrySlots[size] = slot;
+			this.sizes[index]++;
+			return;
+		}
+		index = (index + 1) & mask;
+	}
+	this.trigrams[index] = trigram + 1;
+	this.slots[index] = new int[] {slot, 0};
+	this.sizes[index] = 1;
+	if (++this.elementSize * 2 > this.trigrams.length)
+		rehash();
+}
+private static int[] get(long trigram, long[] trigramTable, int[][] slotTable) {
+	int mask = trigramTable.length - 1;
+	int index = hash(trigram) & mask;
+	long entry;
+	while ((entry = trigramTable[index]) != 0) {
+		if (entry == trigram + 1)
+			return slotTable[index];
+		index = (index + 1) & mask;
+	}
+	return null;
+}
+private void rehash() {
+	long[] oldTrigrams = this.trigrams;
+	int[][] oldSlots = this.slots;
+	int[] oldSizes = this.sizes;
+	int length = oldTrigrams.length * 2;
+	this.trigrams = new long[length];
+	this.slots = new int[length][];
+	this.sizes = new int[length];
+	for (int i = 0, l = oldTrigrams.length; i < l; i++) {
+		if (oldTrigrams[i] == 0) continue;
+		int index = hash(oldTrigrams[i] - 1) & (length - 1);
+		while (this.trigrams[index] != 0)
+			index = (index + 1) & (length - 1);
+		this.trigrams[index] = oldTrigrams[i];
+		this.slots[index] = oldSlots[i];
+		this.sizes[index] = oldSizes[i];
+	}
+}
+/**
+ * Answers the increasing slots of the words which contain all the given trigrams, or null if the trigrams were dropped
+ * so all the words must be scanned.
+ */
+int[] candidates(long[] keyTrigrams) {
+	long[] trigramTable = this.trigrams;
+	int[][] slotTable = this.slots;
+	if (trigramTable == null || slotTable == null)
+		return null;
+	int[][] lists = new int[keyTrigrams.length][];
+	int shortest = 0;
+	for (int i = 0, l = keyTrigrams.length; i < l; i++) {
+		if ((lists[i] = get(keyTrigrams[i], trigramTable, slotTable)) == null)
+			return NO_SLOTS;
+		if (lists[i].length < lists[shortest].length)
+			shortest = i;
+	}
+	int[] result = lists[shortest].clone();
+	int count = result.length;
+	for (int i = 0, l = lists.length; i < l && count > 0; i++) {
+		if (i == shortest) continue;
+		int[] list = lists[i];
+		int kept = 0;
+		for (int j = 0, k = 0, m = list.length; j < count; j++) {
+			int slot = result[j];
+			while (k < m && list[k] < slot) k++;
+			if (k == m) break;
+			if (list[k] == slot)
+				result[kept++] = slot;
+		}
+		count = kept;
+	}
+	if (count < result.length)
+		System.arraycopy(result, 0, result = new int[count], 0, count);
+	return result;
+}
+}
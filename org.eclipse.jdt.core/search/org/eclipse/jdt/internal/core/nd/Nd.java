@@ -42,6 +42,11 @@ public final class Nd {
 	 * of the cache is dirty.
 	 */
 	private static final double MAX_DIRTY_CACHE_RATIO = 0.25;
+	/**
+	 * Controls the number of pages that are allowed to be dirty before a flush will occur during a write batch (see
+	 * {@link #beginWriteBatch()}). Bounds the memory held by the dirty pages, which the cache cannot evict.
+	 */
+	private static final double MAX_BATCH_DIRTY_CACHE_RATIO = 0.75;
 	public static boolean sDEBUG_LOCKS= false;
 	public static boolean DEBUG_DUPLICATE_DELETIONS = false;
 
@@ -248,6 +253,7 @@ public final class Nd {
 	//private long lastReadAccess= 0;
 	private long timeWriteLockAcquired;
 	private Thread writeLockOwner;
+	private int writeBatches;
 
 	public IReader acquireReadLock() {
 		try {
@@ -357,6 +363,31 @@ public final class Nd {
 		}
 	}
 
+	/**
+	 * Starts a write batch, which groups the changes made under the following write locks into fewer and larger
+	 * flushes. Until the matching {@link #endWriteBatch()}, releasing a write lock only flushes the database once
+	 * {@link #MAX_BATCH_DIRTY_CACHE_RATIO} of the cache is dirty rather than {@link #MAX_DIRTY_CACHE_RATIO}, so the
+	 * pages changed under several write locks are written once. Write batches may be nested.
+	 */
+	public void beginWriteBatch() {
+		synchronized (this.mutex) {
+			++this.writeBatches;
+		}
+	}
+
+	/**
+	 * Ends a write batch started by {@link #beginWriteBatch()}. The caller should flush the database once the batch
+	 * is complete, otherwise the next write lock released flushes it.
+	 */
+	public void endWriteBatch() {
+		synchronized (this.mutex) {
+			assert this.writeBatches > 0: "No write batch to end"; //$NON-NLS-1$
+			if (this.writeBatches > 0) {
+				--this.writeBatches;
+			}
+		}
+	}
+
 	public final void releaseWriteLock() {
 		releaseWriteLock(0, false);
 	}
@@ -403,10 +434,14 @@ public final class Nd {
 
 	private void releaseWriteLockAndFlush(int establishReadLocks, boolean flush) throws AssertionError {
 		int dirtyPages = this.getDB().getDirtyChunkCount();
+		double maxDirtyCacheRatio;
+		synchronized (this.mutex) {
+			maxDirtyCacheRatio = this.writeBatches > 0 ? MAX_BATCH_DIRTY_CACHE_RATIO : MAX_DIRTY_CACHE_RATIO;
+		}
 
 		// If there are too many dirty pages, force a flush now.
 		int totalCacheSize = (int) (this.db.getCache().getMaxSize() / Database.CHUNK_SIZE);
-		if (dirtyPages > totalCacheSize * MAX_DIRTY_CACHE_RATIO) {
+		if (dirtyPages > totalCacheSize * maxDirtyCacheRatio) {
 			flush = true;
 		}
 
@@ -33,6 +33,8 @@ public class BTree {
 	private static final int DELMODE_NORMAL = 0;
 	private static final int DELMODE_DELETE_MINIMUM = 1;
 	private static final int DELMODE_DELETE_MAXIMUM = 2;
+	// A b-tree is rebuilt by a bulk insertion unless it has this many times more records than the inserted ones.
+	private static final int BULK_INSERT_RATIO = 4;
 
 	public static final int RECORD_SIZE = Database.PTR_SIZE;
 
@@ -294,6 +296,150 @@ public class BTree {
 		return this.db.malloc((2 * this.maxRecords + 1) * Database.INT_SIZE, Database.POOL_BTREE);
 	}
 
+	/**
+	 * Inserts the given records, which must be sorted by the comparator of this b-tree. As with
+	 * {@link #insert(long)}, a record is not inserted if the b-tree already contains a matching record.
+	 * <p>
+	 * If the b-tree is empty, or small compared to the given records, it is rebuilt bottom-up from its records
+	 * merged with the given ones. Its nodes are then allocated and written one after the other and filled up,
+	 * instead of being split as the records are inserted. Otherwise the records are inserted one after the other,
+	 * in order, so consecutive insertions mostly visit the same nodes.
+	 *
+	 * @param sortedRecords the records to insert
+	 * @param length the number of records to insert
+	 * @throws IndexException
+	 */
+	public void bulkInsert(long[] sortedRecords, int length) throws IndexException {
+		if (length == 0) {
+			return;
+		}
+		long root = getRoot();
+		long[] existingRecords = new long[0];
+		int existingLength = 0;
+		if (root != 0) {
+			// Read the existing records, unless there are too many of them to rebuild the b-tree
+			final int maxExisting = length * BULK_INSERT_RATIO;
+			boolean readAll = estimateSize(root) <= 2L * maxExisting;
+			final long[][] records = { new long[Math.min(maxExisting, 1024)] };
+			final int[] count = { 0 };
+			readAll = readAll && accept(new IBTreeVisitor() {
+				@Override
+				public int compare(long record) throws IndexException {
+					return 0;
+				}
+
+				@Override
+				public boolean visit(long record) throws IndexException {
+					if (count[0] == maxExisting) {
+						return false;
+					}
+					if (count[0] == records[0].length) {
+						System.arraycopy(records[0], 0, records[0] = new long[Math.min(maxExisting, count[0] * 2)], 0,
+								count[0]);
+					}
+					records[0][count[0]++] = record;
+					return true;
+				}
+			});
+			if (!readAll) {
+				for (int i = 0; i < length; i++) {
+					insert(sortedRecords[i]);
+				}
+				return;
+			}
+			existingRecords = records[0];
+			existingLength = count[0];
+		}
+
+		// Merge the records, keeping the existing one of matching records
+		long[] merged = new long[existingLength + length];
+		int mergedLength = 0;
+		for (int i = 0, j = 0; i < existingLength || j < length;) {
+			long record;
+			if (j == length) {
+				record = existingRecords[i++];
+			} else if (i == existingLength) {
+				record = sortedRecords[j++];
+			} else {
+				int compare = this.cmp.compare(this.nd, existingRecords[i], sortedRecords[j]);
+				if (compare == 0) {
+					j++;
+				}
+				record = compare <= 0 ? existingRecords[i++] : sortedRecords[j++];
+			}
+			if (mergedLength == 0 || this.cmp.compare(this.nd, merged[mergedLength - 1], record) != 0) {
+				merged[mergedLength++] = record;
+			}
+		}
+
+		if (root != 0) {
+			deallocateChildren(root);
+		}
+		build(merged, mergedLength);
+	}
+
+	/**
+	 * Estimates the number of records of the b-tree from the nodes along its leftmost path.
+	 */
+	private long estimateSize(long root) throws IndexException {
+		long size = 1;
+		long node = root;
+		while (node != 0) {
+			Chunk chunk = this.db.getChunk(node);
+			int records = 0;
+			while (records < this.maxRecords && getRecord(chunk, node, records) != 0) {
+				records++;
+			}
+			node = getChild(chunk, node, 0);
+			size *= node != 0 ? records + 1 : records;
+		}
+		return size;
+	}
+
+	/**
+	 * Builds the b-tree bottom-up from the given sorted records. Each level is made of as few nodes as possible,
+	 * which share the records evenly, so every node but the root has at least {@link #minRecords} records. The
+	 * records separating the nodes of a level are the records of the level above.
+	 */
+	private void build(long[] records, int length) throws IndexException {
+		long[] items = records;
+		int itemCount = length;
+		long[] children = null; // the nodes of the level below, none for the leaves
+		while (true) {
+			int nodeCount = (itemCount + this.maxRecords + 1) / (this.maxRecords + 1);
+			int recordCount = itemCount - (nodeCount - 1);
+			long[] nodes = new long[nodeCount];
+			long[] separators = new long[nodeCount - 1];
+			int nextItem = 0;
+			int nextChild = 0;
+			for (int n = 0; n < nodeCount; n++) {
+				int size = recordCount / nodeCount + (n < recordCount % nodeCount ? 1 : 0);
+				long node = allocateNode();
+				// Fetch the chunk after the allocation, so it is the most recently fetched one and can be written
+				Chunk chunk = this.db.getChunk(node);
+				for (int i = 0; i < size; i++) {
+					putRecord(chunk, node, i, items[nextItem++]);
+				}
+				if (children != null) {
+					for (int i = 0; i <= size; i++) {
+						putChild(chunk, node, i, children[nextChild++]);
+					}
+				}
+				nodes[n] = node;
+				if (n < nodeCount - 1) {
+					separators[n] = items[nextItem++];
+				}
+			}
+			if (nodeCount == 1) {
+				this.db.putRecPtr(this.rootPointer, nodes[0]);
+				return;
+			}
+			items = separators;
+			itemCount = nodeCount - 1;
+			children = nodes;
+		}
+	}
+
 	/**
 	 * Deletes the specified record from the B-tree.
 	 * <p>
@@ -21,9 +21,16 @@ import java.nio.ByteBuffer;
 
 /**
  * Caches the content of a piece of the database.
+ * <p>
+ * The content is a heap buffer, or a read-only slice of the database file when the database maps it. A mapped
+ * chunk is copied to the heap when it is first dirtied, so the file is only written when the chunks are flushed.
+ * </p>
  */
 final class Chunk {
-	final private byte[] fBuffer= new byte[Database.CHUNK_SIZE];
+	/**
+	 * The content of the chunk, which is only accessed at absolute indexes so its position never changes.
+	 */
+	private ByteBuffer fBuffer= ByteBuffer.allocate(Database.CHUNK_SIZE);
 
 	final Database fDatabase;
 	/**
@@ -38,14 +45,15 @@ final class Chunk {
 	boolean fDirty;
 	/**
 	 * True iff this {@link Chunk} was accessed since the last time it was tested for eviction in the
-	 * {@link ChunkCache}. Protected by synchronizing on the {@link ChunkCache} itself.
+	 * {@link ChunkCache}. Set without any lock when the chunk is referenced, and cleared by the segment of the
+	 * {@link ChunkCache} holding the chunk.
 	 */
-	boolean fCacheHitFlag;
+	volatile boolean fCacheHitFlag;
 	/**
-	 * Holds the index into the {@link ChunkCache}'s page table, or -1 if this {@link Chunk} isn't present in the page
-	 * table. Protected by synchronizing on the {@link ChunkCache} itself.
+	 * Holds the index into the page table of its {@link ChunkCache} segment, or -1 if this {@link Chunk} isn't
+	 * present in the page table. Written while synchronizing on the segment, read without any lock.
 	 */
-	int fCacheIndex= -1;
+	volatile int fCacheIndex= -1;
 
 	Chunk(Database db, int sequenceNumber) {
 		this.fDatabase= db;
@@ -70,6 +78,12 @@ final class Chunk {
 				throw new IllegalStateException("CHUNK " + this.fSequenceNumber //$NON-NLS-1$
 						+ " dirtied out of order: Only the most-recently-fetched chunk is allowed to be dirtied"); //$NON-NLS-1$
 			}
+			if (this.fBuffer.isReadOnly()) {
+				ByteBuffer copy = ByteBuffer.allocate(Database.CHUNK_SIZE);
+				copy.put(this.fBuffer.duplicate());
+				copy.clear();
+				this.fBuffer = copy;
+			}
 			this.fDirty = true;
 			this.fDatabase.chunkDirtied(this);
 		}
@@ -77,8 +91,16 @@ final class Chunk {
 
 	void read() throws IndexException {
 		try {
-			final ByteBuffer buf= ByteBuffer.wrap(this.fBuffer);
-			this.fDatabase.read(buf, (long) this.fSequenceNumber * Database.CHUNK_SIZE);
+			final long position = (long) this.fSequenceNumber * Database.CHUNK_SIZE;
+			if (this.fSequenceNumber >= Database.NUM_HEADER_CHUNKS) {
+				// the header chunk is always kept on the heap, since it is written outside of the order of the chunks
+				ByteBuffer mapped = this.fDatabase.map(position);
+				if (mapped != null) {
+					this.fBuffer = mapped;
+					return;
+				}
+			}
+			this.fDatabase.read(this.fBuffer.duplicate(), position);
 		} catch (IOException e) {
 			throw new IndexException(new DBStatus(e));
 		}
@@ -95,8 +117,7 @@ final class Chunk {
 		}
 		boolean wasCanceled = false;
 		try {
-			final ByteBuffer buf= ByteBuffer.wrap(this.fBuffer);
-			wasCanceled = this.fDatabase.write(buf, (long) this.fSequenceNumber * Database.CHUNK_SIZE);
+			wasCanceled = this.fDatabase.write(this.fBuffer.duplicate(), (long) this.fSequenceNumber * Database.CHUNK_SIZE);
 		} catch (IOException e) {
 			throw new IndexException(new DBStatus(e));
 		}
@@ -111,58 +132,55 @@ final class Chunk {
 
 	public void putByte(final long offset, final byte value) {
 		makeDirty();
-		this.fBuffer[recPtrToIndex(offset)]= value;
+		this.fBuffer.put(recPtrToIndex(offset), value);
 		recordWrite(offset, 1);
 	}
 
 	public byte getByte(final long offset) {
-		return this.fBuffer[recPtrToIndex(offset)];
+		return this.fBuffer.get(recPtrToIndex(offset));
 	}
 
 	/**
 	 * Returns a copy of the entire chunk.
 	 */
 	public byte[] getBytes() {
-		final byte[] bytes = new byte[this.fBuffer.length];
-		System.arraycopy(this.fBuffer, 0, bytes, 0, this.fBuffer.length);
+		final byte[] bytes = new byte[Database.CHUNK_SIZE];
+		copyTo(0, bytes, 0, bytes.length);
 		return bytes;
 	}
 
 	public byte[] getBytes(final long offset, final int length) {
 		final byte[] bytes = new byte[length];
-		System.arraycopy(this.fBuffer, recPtrToIndex(offset), bytes, 0, length);
+		copyTo(recPtrToIndex(offset), bytes, 0, length);
 		return bytes;
 	}
 
 	public void putBytes(final long offset, final byte[] bytes) {
 		makeDirty();
-		System.arraycopy(bytes, 0, this.fBuffer, recPtrToIndex(offset), bytes.length);
+		copyFrom(recPtrToIndex(offset), bytes, 0, bytes.length);
 		recordWrite(offset, bytes.length);
 	}
 
 	public void putInt(final long offset, final int value) {
 		makeDirty();
-		int idx= recPtrToIndex(offset);
-		putInt(value, this.fBuffer, idx);
+		this.fBuffer.putInt(recPtrToIndex(offset), value);
 		recordWrite(offset, 4);
 	}
 
-	static final void putInt(final int value, final byte[] buffer, int idx) {
-		buffer[idx]=   (byte) (value >> 24);
-		buffer[++idx]= (byte) (value >> 16);
-		buffer[++idx]= (byte) (value >> 8);
-		buffer[++idx]= (byte) (value);
+	public int getInt(final long offset) {
+		return this.fBuffer.getInt(recPtrToIndex(offset));
 	}
 
-	public int getInt(final long offset) {
-		return getInt(this.fBuffer, recPtrToIndex(offset));
+	private void copyTo(int idx, byte[] data, int dataPos, int len) {
+		final ByteBuffer buf= this.fBuffer.duplicate();
+		buf.position(idx);
+		buf.get(data, dataPos, len);
 	}
 
-	static final int getInt(final byte[] buffer, int idx) {
-		return ((buffer[idx] & 0xff) << 24) |
-				((buffer[++idx] & 0xff) << 16) |
-				((buffer[++idx] & 0xff) <<  8) |
-				((buffer[++idx] & 0xff) <<  0);
+	private void copyFrom(int idx, byte[] data, int dataPos, int len) {
+		final ByteBuffer buf= this.fBuffer.duplicate();
+		buf.position(idx);
+		buf.put(data, dataPos, len);
 	}
 
 	/**
@@ -210,7 +228,7 @@ final class Chunk {
 	public void putFreeRecPtr(final long offset, final long value) {
 		makeDirty();
 		int idx = recPtrToIndex(offset);
-		putInt(compressFreeRecPtr(value), this.fBuffer, idx);
+		this.fBuffer.putInt(idx, compressFreeRecPtr(value));
 		recordWrite(offset, 4);
 	}
 
@@ -221,31 +239,29 @@ final class Chunk {
 
 	public long getFreeRecPtr(final long offset) {
 		final int idx = recPtrToIndex(offset);
-		int value = getInt(this.fBuffer, idx);
+		int value = this.fBuffer.getInt(idx);
 		return expandToFreeRecPtr(value);
 	}
 
 	public void put3ByteUnsignedInt(final long offset, final int value) {
 		makeDirty();
 		int idx= recPtrToIndex(offset);
-		this.fBuffer[idx]= (byte) (value >> 16);
-		this.fBuffer[++idx]= (byte) (value >> 8);
-		this.fBuffer[++idx]= (byte) (value);
+		this.fBuffer.put(idx, (byte) (value >> 16));
+		this.fBuffer.put(++idx, (byte) (value >> 8));
+		this.fBuffer.put(++idx, (byte) (value));
 		recordWrite(offset, 3);
 	}
 
 	public int get3ByteUnsignedInt(final long offset) {
 		int idx= recPtrToIndex(offset);
-		return ((this.fBuffer[idx] & 0xff) << 16) |
-				((this.fBuffer[++idx] & 0xff) <<  8) |
-				((this.fBuffer[++idx] & 0xff) <<  0);
+		return ((this.fBuffer.get(idx) & 0xff) << 16) |
+				((this.fBuffer.get(++idx) & 0xff) <<  8) |
+				((this.fBuffer.get(++idx) & 0xff) <<  0);
 	}
 
 	public void putShort(final long offset, final short value) {
 		makeDirty();
-		int idx= recPtrToIndex(offset);
-		this.fBuffer[idx]= (byte) (value >> 8);
-		this.fBuffer[++idx]= (byte) (value);
+		this.fBuffer.putShort(recPtrToIndex(offset), value);
 		recordWrite(offset, 2);
 	}
 
@@ -254,20 +270,11 @@ final class Chunk {
 	}
 
 	public short getShort(final long offset) {
-		int idx= recPtrToIndex(offset);
-		return (short) (((this.fBuffer[idx] << 8) | (this.fBuffer[++idx] & 0xff)));
+		return this.fBuffer.getShort(recPtrToIndex(offset));
 	}
 
 	public long getLong(final long offset) {
-		int idx= recPtrToIndex(offset);
-		return ((((long) this.fBuffer[idx] & 0xff) << 56) |
-				(((long) this.fBuffer[++idx] & 0xff) << 48) |
-				(((long) this.fBuffer[++idx] & 0xff) << 40) |
-				(((long) this.fBuffer[++idx] & 0xff) << 32) |
-				(((long) this.fBuffer[++idx] & 0xff) << 24) |
-				(((long) this.fBuffer[++idx] & 0xff) << 16) |
-				(((long) this.fBuffer[++idx] & 0xff) <<  8) |
-				(((long) this.fBuffer[++idx] & 0xff) <<  0));
+		return this.fBuffer.getLong(recPtrToIndex(offset));
 	}
 
 	public double getDouble(long offset) {
@@ -280,46 +287,32 @@ final class Chunk {
 
 	public void putLong(final long offset, final long value) {
 		makeDirty();
-		int idx= recPtrToIndex(offset);
-
-		this.fBuffer[idx]=   (byte) (value >> 56);
-		this.fBuffer[++idx]= (byte) (value >> 48);
-		this.fBuffer[++idx]= (byte) (value >> 40);
-		this.fBuffer[++idx]= (byte) (value >> 32);
-		this.fBuffer[++idx]= (byte) (value >> 24);
-		this.fBuffer[++idx]= (byte) (value >> 16);
-		this.fBuffer[++idx]= (byte) (value >> 8);
-		this.fBuffer[++idx]= (byte) (value);
+		this.fBuffer.putLong(recPtrToIndex(offset), value);
 		recordWrite(offset, 8);
 	}
 
 	public void putChar(final long offset, final char value) {
 		makeDirty();
-		int idx= recPtrToIndex(offset);
-		this.fBuffer[idx]= (byte) (value >> 8);
-		this.fBuffer[++idx]= (byte) (value);
+		this.fBuffer.putChar(recPtrToIndex(offset), value);
 		recordWrite(offset, 2);
 	}
 
 	public void putChars(final long offset, char[] chars, int start, int len) {
 		makeDirty();
-		int idx= recPtrToIndex(offset)-1;
+		int idx= recPtrToIndex(offset);
 		final int end= start + len;
-		for (int i = start; i < end; i++) {
-			char value= chars[i];
-			this.fBuffer[++idx]= (byte) (value >> 8);
-			this.fBuffer[++idx]= (byte) (value);
+		for (int i = start; i < end; i++, idx += 2) {
+			this.fBuffer.putChar(idx, chars[i]);
 		}
 		recordWrite(offset, len * 2);
 	}
 
 	public void putCharsAsBytes(final long offset, char[] chars, int start, int len) {
 		makeDirty();
-		int idx= recPtrToIndex(offset)-1;
+		int idx= recPtrToIndex(offset);
 		final int end= start + len;
 		for (int i = start; i < end; i++) {
-			char value= chars[i];
-			this.fBuffer[++idx]= (byte) (value);
+			this.fBuffer.put(idx++, (byte) chars[i]);
 		}
 		recordWrite(offset, len);
 	}
@@ -333,12 +326,11 @@ final class Chunk {
 	}
 
 	public char getChar(final long offset) {
-		int idx= recPtrToIndex(offset);
-		return (char) (((this.fBuffer[idx] << 8) | (this.fBuffer[++idx] & 0xff)));
+		return this.fBuffer.getChar(recPtrToIndex(offset));
 	}
 
 	public void getChars(final long offset, final char[] result, int start, int len) {
-		final ByteBuffer buf= ByteBuffer.wrap(this.fBuffer);
+		final ByteBuffer buf= this.fBuffer.duplicate();
 		buf.position(recPtrToIndex(offset));
 		buf.asCharBuffer().get(result, start, len);
 	}
@@ -346,7 +338,7 @@ final class Chunk {
 	public void getCharsFromBytes(final long offset, final char[] result, int start, int len) {
 		final int pos = recPtrToIndex(offset);
 		for (int i = 0; i < len; i++) {
-			result[start + i] =  (char) (this.fBuffer[pos + i] & 0xff);
+			result[start + i] =  (char) (this.fBuffer.get(pos + i) & 0xff);
 		}
 	}
 
@@ -354,12 +346,12 @@ final class Chunk {
 		makeDirty();
 		int idx = recPtrToIndex(offset);
 		final int end = idx + length;
-		if (end > this.fBuffer.length) {
+		if (end > Database.CHUNK_SIZE) {
 			throw new IndexException("Attempting to clear beyond end of chunk. Chunk = " + this.fSequenceNumber //$NON-NLS-1$
 					+ ", offset = " + offset + ", length = " + length); //$NON-NLS-1$//$NON-NLS-2$
 		}
 		for (; idx < end; idx++) {
-			this.fBuffer[idx] = 0;
+			this.fBuffer.put(idx, (byte) 0);
 		}
 		recordWrite(offset, length);
 	}
@@ -370,8 +362,7 @@ final class Chunk {
 
 	void put(final long offset, final byte[] data, int dataPos, final int len) {
 		makeDirty();
-		int idx = recPtrToIndex(offset);
-		System.arraycopy(data, dataPos, this.fBuffer, idx, len);
+		copyFrom(recPtrToIndex(offset), data, dataPos, len);
 		recordWrite(offset, len);
 	}
 
@@ -380,8 +371,7 @@ final class Chunk {
 	}
 
 	public void get(final long offset, byte[] data, int dataPos, int len) {
-		int idx = recPtrToIndex(offset);
-		System.arraycopy(this.fBuffer, idx, data, dataPos, len);
+		copyTo(recPtrToIndex(offset), data, dataPos, len);
 	}
 
 	/**
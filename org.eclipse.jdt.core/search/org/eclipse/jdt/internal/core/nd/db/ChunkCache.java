@@ -13,16 +13,31 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.core.nd.db;
 
+import java.util.concurrent.atomic.LongAdder;
+
 import org.eclipse.core.runtime.preferences.IEclipsePreferences;
 import org.eclipse.core.runtime.preferences.InstanceScope;
 import org.eclipse.jdt.core.JavaCore;
 
+/**
+ * A cache of the chunks of the databases, which evicts them with the CLOCK algorithm.
+ * <p>
+ * The page table is split into segments, each with its own hand and lock, so the threads reading the databases
+ * in parallel rarely wait for each other. A chunk which is already cached is referenced without any lock.
+ * Evicting a chunk releases it from the chunk table of its database, which synchronizes on the cache, so the
+ * databases never call the cache while they hold this lock.
+ * </p>
+ */
 public final class ChunkCache {
 	private static ChunkCache sSharedInstance;
 
-	private Chunk[] fPageTable;
-	private boolean fTableIsFull;
-	private int fPointer;
+	private static final int MAX_SEGMENTS = 64;
+	private static final int MIN_SEGMENT_LENGTH = 64;
+
+	private final Segment[] fSegments;
+	private final LongAdder fHits = new LongAdder();
+	private final LongAdder fMisses = new LongAdder();
+	private final LongAdder fEvictions = new LongAdder();
 
 	public static final String CHUNK_CACHE_SIZE_MB = "chunkCacheSizeMb"; //$NON-NLS-1$
 	public static final String CHUNK_CACHE_SIZE_PERCENT = "chunkCacheSizePercent"; //$NON-NLS-1$
@@ -62,36 +77,96 @@ public final class ChunkCache {
 	}
 
 	public ChunkCache(long maxSize) {
-		this.fPageTable= new Chunk[computeLength(maxSize)];
+		this(maxSize, computeSegments(computeLength(maxSize)));
+	}
+
+	/**
+	 * Creates a cache of <code>maxSize</code> bytes whose page table is split into the given number of segments.
+	 * Each segment holds at least one chunk.
+	 */
+	public ChunkCache(long maxSize, int segments) {
+		this.fSegments= new Segment[Math.max(1, segments)];
+		int length= computeLength(maxSize);
+		for (int i = 0; i < this.fSegments.length; i++) {
+			this.fSegments[i]= new Segment(computeSegmentLength(length, i));
+		}
+	}
+
+	/**
+	 * Answers the number of segments of a page table with the given length: a power of two close to the number of
+	 * processors, as long as the segments hold enough chunks for the CLOCK algorithm to be meaningful.
+	 */
+	private static int computeSegments(int length) {
+		int segments= Integer.highestOneBit(Math.min(Runtime.getRuntime().availableProcessors() * 2 - 1, MAX_SEGMENTS));
+		while (segments > 1 && length / segments < MIN_SEGMENT_LENGTH) {
+			segments /= 2;
+		}
+		return segments;
+	}
+
+	private int computeSegmentLength(int length, int segment) {
+		int segments= this.fSegments.length;
+		return Math.max(1, length / segments + (segment < length % segments ? 1 : 0));
+	}
+
+	private Segment getSegment(Chunk chunk) {
+		int hash= (chunk.fSequenceNumber + 31 * System.identityHashCode(chunk.fDatabase)) * 0x9E3779B9;
+		return this.fSegments[((hash ^ (hash >>> 16)) & 0x7FFFFFFF) % this.fSegments.length];
 	}
 
-	public synchronized void add(Chunk chunk) {
-		if (chunk.fCacheIndex >= 0) {
+	/**
+	 * Marks the given chunk as referenced if it is in the cache, without any lock, and answers whether it was.
+	 */
+	public boolean hit(Chunk chunk) {
+		if (chunk.fCacheIndex < 0) {
+			return false;
+		}
+		if (!chunk.fCacheHitFlag) {
 			chunk.fCacheHitFlag= true;
+		}
+		this.fHits.increment();
+		return true;
+	}
+
+	/**
+	 * Adds the given chunk to the cache, evicting another chunk of its segment if the segment is full. The caller
+	 * must not synchronize on the cache.
+	 */
+	public void add(Chunk chunk) {
+		if (hit(chunk)) {
 			return;
 		}
-		if (this.fTableIsFull) {
-			evictChunk();
-			chunk.fCacheIndex= this.fPointer;
-			this.fPageTable[this.fPointer]= chunk;
-		} else {
-			chunk.fCacheIndex= this.fPointer;
-			this.fPageTable[this.fPointer]= chunk;
-
-			this.fPointer++;
-			if (this.fPointer == this.fPageTable.length) {
-				this.fPointer= 0;
-				this.fTableIsFull= true;
+		Segment segment= getSegment(chunk);
+		synchronized (segment) {
+			if (chunk.fCacheIndex >= 0) {
+				// added by another thread in the meantime
+				chunk.fCacheHitFlag= true;
+				return;
+			}
+			this.fMisses.increment();
+			if (segment.fTableIsFull) {
+				evictChunk(segment);
+				chunk.fCacheIndex= segment.fPointer;
+				segment.fPageTable[segment.fPointer]= chunk;
+			} else {
+				chunk.fCacheIndex= segment.fPointer;
+				segment.fPageTable[segment.fPointer]= chunk;
+
+				segment.fPointer++;
+				if (segment.fPointer == segment.fPageTable.length) {
+					segment.fPointer= 0;
+					segment.fTableIsFull= true;
+				}
 			}
 		}
 	}
 
 	/**
-	 * Evicts a chunk from the page table and the chunk table.
-	 * After this method returns, {@link #fPointer}  will contain
-	 * the index of the evicted chunk within the page table.
+	 * Evicts a chunk from the page table of the given segment and the chunk table.
+	 * After this method returns, the pointer of the segment will contain
+	 * the index of the evicted chunk within its page table.
 	 */
-	private void evictChunk() {
+	private void evictChunk(Segment segment) {
 		/*
 		 * Use the CLOCK algorithm to determine which chunk to evict.
 		 * i.e., if the chunk in the current slot of the page table has been
@@ -100,41 +175,58 @@ public final class ChunkCache {
 		 * chunk in the current slot.
 		 */
 		while (true) {
-			Chunk chunk = this.fPageTable[this.fPointer];
+			Chunk chunk = segment.fPageTable[segment.fPointer];
 			if (chunk.fCacheHitFlag) {
 				chunk.fCacheHitFlag = false;
-				this.fPointer = (this.fPointer + 1) % this.fPageTable.length;
+				segment.fPointer = (segment.fPointer + 1) % segment.fPageTable.length;
 			} else {
-				chunk.fCacheIndex = -1;
-				chunk.fDatabase.checkIfChunkReleased(chunk);
-				this.fPageTable[this.fPointer] = null;
+				release(chunk);
+				segment.fPageTable[segment.fPointer] = null;
 				return;
 			}
 		}
 	}
 
-	public synchronized void remove(Chunk chunk) {
-		final int idx= chunk.fCacheIndex;
-		if (idx >= 0) {
-			if (this.fTableIsFull) {
-				this.fPointer= this.fPageTable.length-1;
-				this.fTableIsFull= false;
-			} else {
-				this.fPointer--;
+	private void release(Chunk chunk) {
+		chunk.fCacheIndex = -1;
+		chunk.fDatabase.checkIfChunkReleased(chunk);
+		this.fEvictions.increment();
+	}
+
+	/**
+	 * Removes the given chunk from the cache. The caller must not synchronize on the cache.
+	 */
+	public void remove(Chunk chunk) {
+		Segment segment= getSegment(chunk);
+		synchronized (segment) {
+			final int idx= chunk.fCacheIndex;
+			if (idx >= 0) {
+				if (segment.fTableIsFull) {
+					segment.fPointer= segment.fPageTable.length-1;
+					segment.fTableIsFull= false;
+				} else {
+					segment.fPointer--;
+				}
+				chunk.fCacheIndex= -1;
+				final Chunk move= segment.fPageTable[segment.fPointer];
+				segment.fPageTable[idx]= move;
+				move.fCacheIndex= idx;
+				segment.fPageTable[segment.fPointer]= null;
 			}
-			chunk.fCacheIndex= -1;
-			final Chunk move= this.fPageTable[this.fPointer];
-			this.fPageTable[idx]= move;
-			move.fCacheIndex= idx;
-			this.fPageTable[this.fPointer]= null;
 		}
 	}
 
 	/**
 	 * Returns the maximum size of the chunk cache in bytes.
 	 */
-	public synchronized long getMaxSize() {
-		return (long) this.fPageTable.length * Database.CHUNK_SIZE;
+	public long getMaxSize() {
+		long length= 0;
+		for (Segment segment : this.fSegments) {
+			synchronized (segment) {
+				length+= segment.fPageTable.length;
+			}
+		}
+		return length * Database.CHUNK_SIZE;
 	}
 
 	/**
@@ -142,45 +234,99 @@ public final class ChunkCache {
 	 * maximum total memory of <code>maxSize</code>.
 	 * @param maxSize the total size of the chunks in bytes.
 	 */
-	public synchronized void setMaxSize(long maxSize) {
-		final int newLength= computeLength(maxSize);
-		final int oldLength= this.fTableIsFull ? this.fPageTable.length : this.fPointer;
-		if (newLength > oldLength) {
-			Chunk[] newTable= new Chunk[newLength];
-			System.arraycopy(this.fPageTable, 0, newTable, 0, oldLength);
-			this.fTableIsFull= false;
-			this.fPointer= oldLength;
-			this.fPageTable= newTable;
-		} else {
-			for (int i = newLength; i < oldLength; i++) {
-				Chunk chunk = this.fPageTable[i];
-				chunk.fCacheIndex = -1;
-				chunk.fDatabase.checkIfChunkReleased(chunk);
+	public void setMaxSize(long maxSize) {
+		final int length= computeLength(maxSize);
+		for (int i = 0; i < this.fSegments.length; i++) {
+			Segment segment= this.fSegments[i];
+			synchronized (segment) {
+				final int newLength= computeSegmentLength(length, i);
+				final int oldLength= segment.fTableIsFull ? segment.fPageTable.length : segment.fPointer;
+				if (newLength > oldLength) {
+					Chunk[] newTable= new Chunk[newLength];
+					System.arraycopy(segment.fPageTable, 0, newTable, 0, oldLength);
+					segment.fTableIsFull= false;
+					segment.fPointer= oldLength;
+					segment.fPageTable= newTable;
+				} else {
+					for (int j = newLength; j < oldLength; j++) {
+						release(segment.fPageTable[j]);
+					}
+					Chunk[] newTable= new Chunk[newLength];
+					System.arraycopy(segment.fPageTable, 0, newTable, 0, newLength);
+					segment.fTableIsFull= true;
+					segment.fPointer= 0;
+					segment.fPageTable= newTable;
+				}
 			}
-			Chunk[] newTable= new Chunk[newLength];
-			System.arraycopy(this.fPageTable, 0, newTable, 0, newLength);
-			this.fTableIsFull= true;
-			this.fPointer= 0;
-			this.fPageTable= newTable;
 		}
 	}
 
-	private int computeLength(long maxSize) {
+	private static int computeLength(long maxSize) {
 		long maxLength= Math.min(maxSize / Database.CHUNK_SIZE, Integer.MAX_VALUE);
 		return Math.max(1, (int) maxLength);
 	}
 
-	public synchronized void clear() {
-		for (int i = 0; i < this.fPageTable.length; i++) {
-			Chunk chunk = this.fPageTable[i];
-			if (chunk == null) {
-				continue;
+	public void clear() {
+		for (Segment segment : this.fSegments) {
+			synchronized (segment) {
+				for (int i = 0; i < segment.fPageTable.length; i++) {
+					Chunk chunk = segment.fPageTable[i];
+					if (chunk == null) {
+						continue;
+					}
+					release(chunk);
+					segment.fPageTable[i] = null;
+				}
+				segment.fTableIsFull = false;
+				segment.fPointer = 0;
 			}
-			chunk.fCacheIndex = -1;
-			chunk.fDatabase.checkIfChunkReleased(chunk);
-			this.fPageTable[i] = null;
 		}
-		this.fTableIsFull = false;
-		this.fPointer = 0;
+	}
+
+	/**
+	 * Returns the number of segments of the page table.
+	 */
+	public int getSegments() {
+		return this.fSegments.length;
+	}
+
+	/**
+	 * Returns the number of times a chunk was found in the cache.
+	 */
+	public long getHits() {
+		return this.fHits.sum();
+	}
+
+	/**
+	 * Returns the number of chunks added to the cache.
+	 */
+	public long getMisses() {
+		return this.fMisses.sum();
+	}
+
+	/**
+	 * Returns the number of chunks evicted from the cache.
+	 */
+	public long getEvictions() {
+		return this.fEvictions.sum();
+	}
+
+	public void resetCounters() {
+		this.fHits.reset();
+		this.fMisses.reset();
+		this.fEvictions.reset();
+	}
+
+	/**
+	 * A part of the page table with its own CLOCK hand, protected by synchronizing on the segment itself.
+	 */
+	private static final class Segment {
+		Chunk[] fPageTable;
+		boolean fTableIsFull;
+		int fPointer;
+
+		Segment(int length) {
+			this.fPageTable= new Chunk[length];
+		}
 	}
 }
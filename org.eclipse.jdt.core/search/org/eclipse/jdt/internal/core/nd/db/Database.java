@@ -23,6 +23,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.ClosedByInterruptException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
@@ -30,6 +31,7 @@ import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.OperationCanceledException;
@@ -166,7 +168,16 @@ public class Database {
 	 * release the chunk cache mutex.
 	 */
 	private static final int MAX_ITERATIONS_PER_LOCK = 256;
-	private static final int WRITE_BUFFER_SIZE = CHUNK_SIZE * 32;
+	/**
+	 * The maximum size of a single write when the dirty chunks are flushed.
+	 */
+	private static final int WRITE_BUFFER_SIZE = CHUNK_SIZE * 256;
+	/**
+	 * The maximum number of clean chunks between two dirty chunks which are written again along with the dirty
+	 * chunks when they are flushed, so the dirty chunks are written in one sequential write. Writing more of them
+	 * costs more bytes than it saves writes, since the flushes are throttled by the number of bytes written.
+	 */
+	private static final int MAX_FLUSH_GAP_CHUNKS = 1;
 
 	/**
 	 * True iff large chunk self-diagnostics should be enabled.
@@ -175,9 +186,24 @@ public class Database {
 
 	public static boolean DEBUG_PAGE_CACHE;
 
+	/**
+	 * Should the chunks be read from a memory-mapped database file rather than copied to the heap? Not by default,
+	 * since a mapped file cannot be truncated on Windows until the mapping is garbage collected.
+	 */
+	public static final String MAP_DATABASE_FILE_PROPERTY = "jdt.core.nd.mapDatabaseFile"; //$NON-NLS-1$
+	public static boolean MAP_DATABASE_FILE = Boolean.getBoolean(MAP_DATABASE_FILE_PROPERTY);
+	private static final int MAPPED_REGION_SIZE = CHUNK_SIZE * 16 * 1024;
+
 	private final File fLocation;
 	private final boolean fReadOnly;
 	private RandomAccessFile fFile;
+	private final boolean fMapped;
+	/**
+	 * The read-only mappings of the consecutive regions of the file, null if a region isn't mapped yet. Synchronize
+	 * on {@link #fMappedRegionsLock} before accessing.
+	 */
+	private MappedByteBuffer[] fMappedRegions = new MappedByteBuffer[0];
+	private final Object fMappedRegionsLock = new Object();
 	private boolean fExclusiveLock;	 // Necessary for any write operation.
 	private boolean fLocked;		 // Necessary for any operation.
 	private boolean fIsMarkedIncomplete;
@@ -186,7 +212,8 @@ public class Database {
 	private final Chunk fHeaderChunk;
 	/**
 	 * Stores the {@link Chunk} associated with each page number or null if the chunk isn't loaded. Synchronize on
-	 * {@link #fCache} before accessing.
+	 * {@link #fCache} before accessing, except for reading the chunks which are in the cache (see
+	 * {@link #getChunk(long)}). Never call the cache while synchronizing on it.
 	 */
 	Chunk[] fChunks;
 	private int fChunksUsed;
@@ -194,9 +221,10 @@ public class Database {
 
 	private long malloced;
 	private long freed;
-	private long cacheHits;
+	private final LongAdder cacheHits = new LongAdder();
 	private long cacheMisses;
 	private long bytesWritten;
+	private long writeCount;
 	private long totalReadTimeMs;
 
 	private MemoryStats memoryUsage;
@@ -232,6 +260,7 @@ public class Database {
 		try {
 			this.fLocation = location;
 			this.fReadOnly= openReadOnly;
+			this.fMapped= MAP_DATABASE_FILE;
 			this.fCache= cache;
 			openFile();
 
@@ -287,6 +316,63 @@ public class Database {
 		} while (true);
 	}
 
+	/**
+	 * Returns a read-only slice of the mapped file which holds the chunk at the given position, or null if the file
+	 * isn't mapped or doesn't hold the whole chunk yet.
+	 */
+	ByteBuffer map(long position) throws IOException {
+		if (!this.fMapped) {
+			return null;
+		}
+		final int regionIndex = (int) (position / MAPPED_REGION_SIZE);
+		final int offset = (int) (position % MAPPED_REGION_SIZE);
+		MappedByteBuffer region;
+		synchronized (this.fMappedRegionsLock) {
+			MappedByteBuffer[] regions = this.fMappedRegions;
+			region = regionIndex < regions.length ? regions[regionIndex] : null;
+			if (region == null || region.capacity() < offset + CHUNK_SIZE) {
+				// Map the whole region once the file is large enough, otherwise map it again when the file grows
+				final long regionStart = (long) regionIndex * MAPPED_REGION_SIZE;
+				final long size = Math.min(MAPPED_REGION_SIZE, this.fFile.length() - regionStart);
+				if (size < offset + CHUNK_SIZE) {
+					return null;
+				}
+				try {
+					region = this.fFile.getChannel().map(FileChannel.MapMode.READ_ONLY, regionStart, size);
+				} catch (ClosedChannelException e) {
+					return null; // Read the chunk, which reopens the file
+				}
+				if (regionIndex >= regions.length) {
+					MappedByteBuffer[] newRegions = new MappedByteBuffer[regionIndex + 1];
+					System.arraycopy(regions, 0, newRegions, 0, regions.length);
+					regions = newRegions;
+				}
+				regions[regionIndex] = region;
+				this.fMappedRegions = regions;
+			}
+		}
+		ByteBuffer slice = region.duplicate();
+		slice.position(offset);
+		slice.limit(offset + CHUNK_SIZE);
+		return slice.slice();
+	}
+
+	/**
+	 * Forgets the mappings of the file, which must not be read anymore since the file is truncated or closed.
+	 */
+	private void unmapFile() {
+		synchronized (this.fMappedRegionsLock) {
+			this.fMappedRegions = new MappedByteBuffer[0];
+		}
+	}
+
+	/**
+	 * Returns true iff the chunks are read from a memory-mapped database file.
+	 */
+	public boolean isMapped() {
+		return this.fMapped;
+	}
+
 	public ModificationLog getLog() {
 		return this.log;
 	}
@@ -300,6 +386,7 @@ public class Database {
 	 */
 	boolean write(ByteBuffer buf, long position) throws IOException {
 		this.bytesWritten += buf.limit();
+		this.writeCount++;
 		return performUninterruptableWrite(() -> {this.fFile.getChannel().write(buf, position);});
 	}
 
@@ -381,6 +468,7 @@ public class Database {
 		this.fChunks = new Chunk[] {null};
 		this.dirtyChunkSet.clear();
 		this.fChunksUsed = this.fChunks.length;
+		unmapFile();
 		try {
 			wasCanceled = this.fHeaderChunk.flush() || wasCanceled; // Zero out header chunk.
 			wasCanceled = performUninterruptableWrite(() -> {
@@ -413,22 +501,28 @@ public class Database {
 
 	private void removeChunksFromCache() {
 		int scanIndex = NUM_HEADER_CHUNKS;
+		Chunk[] removed = new Chunk[MAX_ITERATIONS_PER_LOCK];
 		while (scanIndex < this.fChunksUsed) {
+			int removedCount = 0;
 			synchronized (this.fCache) {
 				int countMax = Math.min(MAX_ITERATIONS_PER_LOCK, this.fChunksUsed - scanIndex);
 				for (int count = 0; count < countMax; count++) {
 					Chunk chunk = this.fChunks[scanIndex++];
 					if (chunk != null) {
-						this.fCache.remove(chunk);
 						if (DEBUG_PAGE_CACHE) {
 							System.out.println("CHUNK " + chunk.fSequenceNumber //$NON-NLS-1$
 									+ ": removing from vector in removeChunksFromCache - instance " //$NON-NLS-1$
 									+ System.identityHashCode(chunk));
 						}
 						this.fChunks[chunk.fSequenceNumber] = null;
+						removed[removedCount++] = chunk;
 					}
 				}
 			}
+			// The cache synchronizes on itself when it evicts a chunk, so it is called outside of the lock
+			for (int i = 0; i < removedCount; i++) {
+				this.fCache.remove(removed[i]);
+			}
 		}
 	}
 
@@ -448,6 +542,20 @@ public class Database {
 		assert long_index < Integer.MAX_VALUE;
 
 		final int index = (int) long_index;
+		Chunk[] chunks = this.fChunks;
+		if (index < chunks.length) {
+			// A chunk which is in the cache was completely read before it was added, its volatile cache index makes
+			// its content visible, hence it can be used without locking the chunk table.
+			Chunk chunk = chunks[index];
+			if (chunk != null && this.fCache.hit(chunk)) {
+				this.cacheHits.increment();
+				if (this.fMostRecentlyFetchedChunk != chunk) {
+					this.fMostRecentlyFetchedChunk = chunk;
+				}
+				return chunk;
+			}
+		}
+
 		Chunk chunk;
 		synchronized (this.fCache) {
 			assert this.fLocked;
@@ -474,7 +582,7 @@ public class Database {
 				this.cacheMisses++;
 				this.totalReadTimeMs += (readEndMs - readStartMs);
 			} else {
-				this.cacheHits++;
+				this.cacheHits.increment();
 			}
 			Chunk newChunk = this.fChunks[index];
 			if (newChunk != chunk && newChunk != null) {
@@ -493,9 +601,9 @@ public class Database {
 				}
 				this.fChunks[index] = chunk;
 			}
-			this.fCache.add(chunk);
 			this.fMostRecentlyFetchedChunk = chunk;
 		}
+		this.fCache.add(chunk);
 
 		return chunk;
 	}
@@ -1179,11 +1287,13 @@ public class Database {
 
 	private int createNewChunks(int numChunks) throws IndexException {
 		assert this.fExclusiveLock;
+		final int firstChunkIndex;
+		final Chunk lastChunk;
 		synchronized (this.fCache) {
-			final int firstChunkIndex = this.fChunksUsed;
+			firstChunkIndex = this.fChunksUsed;
 			final int lastChunkIndex = firstChunkIndex + numChunks - 1;
 
-			final Chunk lastChunk = new Chunk(this, lastChunkIndex);
+			lastChunk = new Chunk(this, lastChunkIndex);
 
 			if (lastChunkIndex >= this.fChunks.length) {
 				int increment = Math.max(1024, this.fChunks.length / 20);
@@ -1201,25 +1311,25 @@ public class Database {
 			this.fChunks[lastChunkIndex] = lastChunk;
 			this.fMostRecentlyFetchedChunk = lastChunk;
 			lastChunk.makeDirty();
-			this.fCache.add(lastChunk);
-			long result = (long) firstChunkIndex * CHUNK_SIZE;
-
-			/*
-			 * Non-dense pointers are at most 31 bits dense pointers are at most 35 bits Check the sizes here and throw
-			 * an exception if the address is too large. By throwing the IndexException with the special status, the
-			 * indexing operation should be stopped. This is desired since generally, once the max size is exceeded,
-			 * there are lots of errors.
-			 */
-			long endAddress = result + ((long) numChunks * CHUNK_SIZE);
-			if (endAddress > MAX_DB_SIZE) {
-				Object bindings[] = { this.getLocation().getAbsolutePath(), MAX_DB_SIZE };
-				throw new IndexException(new Status(IStatus.ERROR, Package.PLUGIN_ID, Package.STATUS_DATABASE_TOO_LARGE,
-						NLS.bind("Database too large! Address = " + endAddress + ", max size = " + MAX_DB_SIZE, //$NON-NLS-1$ //$NON-NLS-2$
-								bindings), null));
-			}
+		}
+		this.fCache.add(lastChunk);
+		long result = (long) firstChunkIndex * CHUNK_SIZE;
 
-			return firstChunkIndex;
+		/*
+		 * Non-dense pointers are at most 31 bits dense pointers are at most 35 bits Check the sizes here and throw
+		 * an exception if the address is too large. By throwing the IndexException with the special status, the
+		 * indexing operation should be stopped. This is desired since generally, once the max size is exceeded,
+		 * there are lots of errors.
+		 */
+		long endAddress = result + ((long) numChunks * CHUNK_SIZE);
+		if (endAddress > MAX_DB_SIZE) {
+			Object bindings[] = { this.getLocation().getAbsolutePath(), MAX_DB_SIZE };
+			throw new IndexException(new Status(IStatus.ERROR, Package.PLUGIN_ID, Package.STATUS_DATABASE_TOO_LARGE,
+					NLS.bind("Database too large! Address = " + endAddress + ", max size = " + MAX_DB_SIZE, //$NON-NLS-1$ //$NON-NLS-2$
+							bindings), null));
 		}
+
+		return firstChunkIndex;
 	}
 
 	private long getAddressOfFirstBlockPointer(int blockSize) {
@@ -1576,6 +1686,7 @@ public class Database {
 		this.dirtyChunkSet.clear();
 		this.fChunks= new Chunk[] { null };
 		this.fChunksUsed = this.fChunks.length;
+		unmapFile();
 		try {
 			this.fFile.close();
 		} catch (IOException e) {
@@ -1591,15 +1702,19 @@ public class Database {
 	}
 
 	/**
-	 * Called from any thread via the cache, protected by {@link #fCache}.
+	 * Called from any thread via the cache, protected by {@link #fCache}. The chunk may have been removed from the
+	 * chunk table or replaced by another copy in the meantime.
 	 */
 	void checkIfChunkReleased(final Chunk chunk) {
-		if (!chunk.fDirty && chunk.fCacheIndex < 0) {
-			if (DEBUG_PAGE_CACHE) {
-				System.out.println("CHUNK " + chunk.fSequenceNumber //$NON-NLS-1$
-						+ ": removing from vector in releaseChunk - instance " + System.identityHashCode(chunk)); //$NON-NLS-1$
+		synchronized (this.fCache) {
+			if (!chunk.fDirty && chunk.fCacheIndex < 0 && chunk.fSequenceNumber < this.fChunks.length
+					&& this.fChunks[chunk.fSequenceNumber] == chunk) {
+				if (DEBUG_PAGE_CACHE) {
+					System.out.println("CHUNK " + chunk.fSequenceNumber //$NON-NLS-1$
+							+ ": removing from vector in releaseChunk - instance " + System.identityHashCode(chunk)); //$NON-NLS-1$
+				}
+				this.fChunks[chunk.fSequenceNumber]= null;
 			}
-			this.fChunks[chunk.fSequenceNumber]= null;
 		}
 	}
 
@@ -1691,6 +1806,7 @@ public class Database {
 			desiredWriteBytesPerMs = Math.max(desiredWriteBytesPerMs, Database.MIN_BYTES_PER_MILLISECOND);
 			ChunkWriter writer = new ChunkWriter(WRITE_BUFFER_SIZE, desiredWriteBytesPerMs, this::write);
 			try {
+				int previousSequenceNumber = -1;
 				for (Chunk chunk : dirtyChunks) {
 					if (chunk.fDirty) {
 						boolean wasCanceled = false;
@@ -1698,13 +1814,25 @@ public class Database {
 							System.out.println("CHUNK " + chunk.fSequenceNumber + ": flushing - instance " //$NON-NLS-1$//$NON-NLS-2$
 									+ System.identityHashCode(chunk));
 						}
+						byte[][] gapBytes = null;
 						byte[] nextBytes;
 						synchronized (this.fCache) {
+							if (previousSequenceNumber >= 0) {
+								gapBytes = getCleanChunksBetween(previousSequenceNumber, chunk.fSequenceNumber);
+							}
 							nextBytes = chunk.getBytes();
 							chunk.fDirty = false;
 							chunkCleaned(chunk);
 						}
-						wasCanceled = writer.write((long) chunk.fSequenceNumber * Database.CHUNK_SIZE, nextBytes);
+						if (gapBytes != null) {
+							for (int i = 0; i < gapBytes.length; i++) {
+								wasCanceled = writer.write((long) (previousSequenceNumber + 1 + i) * Database.CHUNK_SIZE,
+										gapBytes[i]) || wasCanceled;
+							}
+						}
+						wasCanceled = writer.write((long) chunk.fSequenceNumber * Database.CHUNK_SIZE, nextBytes)
+								|| wasCanceled;
+						previousSequenceNumber = chunk.fSequenceNumber;
 
 						wasInterrupted = wasCanceled || wasInterrupted;
 					}
@@ -1729,6 +1857,27 @@ public class Database {
 		return wasInterrupted;
 	}
 
+	/**
+	 * Returns the content of the clean chunks between the given flushed chunks, or null if there are too many of
+	 * them or if any of them isn't in memory. Writing them again lets the flushed chunks be written in one sequential
+	 * write. Must be called while synchronizing on {@link #fCache}.
+	 */
+	private byte[][] getCleanChunksBetween(int previousSequenceNumber, int nextSequenceNumber) {
+		int gap = nextSequenceNumber - previousSequenceNumber - 1;
+		if (gap <= 0 || gap > MAX_FLUSH_GAP_CHUNKS) {
+			return null;
+		}
+		byte[][] result = new byte[gap][];
+		for (int i = 0; i < gap; i++) {
+			Chunk chunk = this.fChunks[previousSequenceNumber + 1 + i];
+			if (chunk == null || chunk.fDirty) {
+				return null;
+			}
+			result[i] = chunk.getBytes();
+		}
+		return result;
+	}
+
 	private boolean markFileIncomplete() throws IndexException {
 		boolean wasInterrupted = false;
 		if (!this.fIsMarkedIncomplete) {
@@ -1745,9 +1894,10 @@ public class Database {
 	}
 
 	public void resetCacheCounters() {
-		this.cacheHits = 0;
+		this.cacheHits.reset();
 		this.cacheMisses = 0;
 		this.bytesWritten = 0;
+		this.writeCount = 0;
 		this.totalFlushTime = 0;
 		this.pageWritesBytes = 0;
 		this.totalWriteTimeMs = 0;
@@ -1758,6 +1908,13 @@ public class Database {
 		return this.bytesWritten;
 	}
 
+	/**
+	 * Returns the number of writes to the database file.
+	 */
+	public long getWriteCount() {
+		return this.writeCount;
+	}
+
 	public double getAverageReadBytesPerMs() {
 		long reads = this.cacheMisses;
 		long time = this.totalReadTimeMs;
@@ -1781,7 +1938,7 @@ public class Database {
 	}
 
 	public long getCacheHits() {
-		return this.cacheHits;
+		return this.cacheHits.sum();
 	}
 
 	public long getCacheMisses() {
@@ -1804,17 +1961,17 @@ public class Database {
 	 * A Record Pointer is a pointer as returned by Database.malloc().
 	 * This is a pointer to a block + BLOCK_HEADER_SIZE.
 	 */
-	public static void putRecPtr(final long value, byte[] buffer, int idx) {
+	public static void putRecPtr(final long value, ByteBuffer buffer, int idx) {
 		final int denseValue = value == 0 ? 0 : Chunk.compressFreeRecPtr(value - BLOCK_HEADER_SIZE);
-		Chunk.putInt(denseValue, buffer, idx);
+		buffer.putInt(idx, denseValue);
 	}
 
 	/**
 	 * A Record Pointer is a pointer as returned by Database.malloc().
 	 * This is a pointer to a block + BLOCK_HEADER_SIZE.
 	 */
-	public static long getRecPtr(byte[] buffer, final int idx) {
-		int value = Chunk.getInt(buffer, idx);
+	public static long getRecPtr(ByteBuffer buffer, final int idx) {
+		int value = buffer.getInt(idx);
 		long address = Chunk.expandToFreeRecPtr(value);
 		return address != 0 ? (address + BLOCK_HEADER_SIZE) : address;
 	}
@@ -14,7 +14,12 @@
 package org.eclipse.jdt.internal.core.nd.field;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.jdt.internal.core.nd.ITypeFactory;
 import org.eclipse.jdt.internal.core.nd.Nd;
@@ -32,6 +37,7 @@ import org.eclipse.jdt.internal.core.nd.db.IndexException;
  * Declares a field representing a case-insensitive search tree over elements which are a subtype of NdNode.
  */
 public class FieldSearchIndex<T extends NdNode> extends BaseField implements IDestructableField {
+	private final IBTreeComparator comparator;
 	private final ITypeFactory<BTree> btreeFactory;
 	FieldSearchKey<?> searchKey;
 	private final Tag destructTag;
@@ -169,8 +175,18 @@ public class FieldSearchIndex<T extends NdNode> extends BaseField implements IDe
 		protected abstract boolean acceptResult(long address);
 	}
 
+	/**
+	 * The keys of the search indexes of a database whose insertions are deferred.
+	 */
+	private static final class DeferredKeys {
+		final Map<FieldSearchIndex<?>, Set<Long>> keys = new HashMap<>();
+
+		DeferredKeys() {
+		}
+	}
+
 	private FieldSearchIndex(FieldSearchKey<?> searchKey, String structName, int fieldNumber) {
-		this.btreeFactory = BTree.getFactory(new IBTreeComparator() {
+		this.comparator = new IBTreeComparator() {
 			@Override
 			public int compare(Nd nd, long record1, long record2) {
 				IString key1 = FieldSearchIndex.this.searchKey.get(nd, record1);
@@ -183,7 +199,8 @@ public class FieldSearchIndex<T extends NdNode> extends BaseField implements IDe
 
 				return cmp;
 			}
-		});
+		};
+		this.btreeFactory = BTree.getFactory(this.comparator);
 
 		if (searchKey != null) {
 			if (searchKey.searchIndex != null && searchKey.searchIndex != this) {
@@ -219,12 +236,69 @@ public class FieldSearchIndex<T extends NdNode> extends BaseField implements IDe
 		Database db = nd.getDB();
 		db.getLog().start(this.destructTag);
 		try {
+			Set<Long> deferredKeys = getDeferredKeys(nd);
+			if (deferredKeys != null) {
+				deferredKeys.clear();
+			}
 			this.btreeFactory.destruct(nd, address);
 		} finally {
 			db.getLog().end(this.destructTag);
 		}
 	}
 
+	/**
+	 * Defers the insertions of keys into this index of the given database until
+	 * {@link #insertDeferredKeys(Nd, long)} inserts them at once, sorted. The searches don't find the deferred keys
+	 * in the meantime. The caller must hold the write lock.
+	 */
+	public void deferInsertions(Nd nd) {
+		nd.getData(DeferredKeys.class, DeferredKeys::new).keys.putIfAbsent(this, new HashSet<>());
+	}
+
+	/**
+	 * Inserts the keys whose insertions were deferred by {@link #deferInsertions(Nd)}, and stops deferring the
+	 * insertions. The caller must hold the write lock.
+	 */
+	public void insertDeferredKeys(Nd nd, long address) {
+		DeferredKeys deferredKeys = nd.getData(DeferredKeys.class, () -> null);
+		Set<Long> keys = deferredKeys == null ? null : deferredKeys.keys.remove(this);
+		if (keys == null || keys.isEmpty()) {
+			return;
+		}
+		Long[] sortedKeys = keys.toArray(new Long[keys.size()]);
+		Arrays.sort(sortedKeys, (key1, key2) -> this.comparator.compare(nd, key1.longValue(), key2.longValue()));
+		long[] records = new long[sortedKeys.length];
+		for (int i = 0; i < records.length; i++) {
+			records[i] = sortedKeys[i].longValue();
+		}
+		get(nd, address).bulkInsert(records, records.length);
+	}
+
+	private Set<Long> getDeferredKeys(Nd nd) {
+		DeferredKeys deferredKeys = nd.getData(DeferredKeys.class, () -> null);
+		return deferredKeys == null ? null : deferredKeys.keys.get(this);
+	}
+
+	/**
+	 * Defers the insertion of the given key if the insertions into this index are deferred, answers whether it did.
+	 */
+	boolean deferInsertion(Nd nd, long address) {
+		Set<Long> deferredKeys = getDeferredKeys(nd);
+		if (deferredKeys == null) {
+			return false;
+		}
+		deferredKeys.add(Long.valueOf(address));
+		return true;
+	}
+
+	/**
+	 * Answers whether the insertion of the given key was deferred, in which case it is not inserted anymore.
+	 */
+	boolean cancelDeferredInsertion(Nd nd, long address) {
+		Set<Long> deferredKeys = getDeferredKeys(nd);
+		return deferredKeys != null && deferredKeys.remove(Long.valueOf(address));
+	}
+
 	@Override
 	public int getRecordSize() {
 		return this.btreeFactory.getRecordSize();
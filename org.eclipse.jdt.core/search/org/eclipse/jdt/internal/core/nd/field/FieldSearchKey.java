@@ -74,7 +74,9 @@ public class FieldSearchKey<T> extends BaseField implements IDestructableField {
 
 			BTree btree = this.searchIndex.get(nd, Database.DATA_AREA_OFFSET);
 			db.putRecPtr(address + this.offset, db.newString(newString).getRecord());
-			btree.insert(address);
+			if (!this.searchIndex.deferInsertion(nd, address)) {
+				btree.insert(address);
+			}
 		} finally {
 			db.getLog().end(this.putTag);
 		}
@@ -106,7 +108,9 @@ public class FieldSearchKey<T> extends BaseField implements IDestructableField {
 
 		if (isInIndex) {
 			// Remove this entry from the search index
-			this.searchIndex.get(nd, Database.DATA_AREA_OFFSET).delete(address);
+			if (!this.searchIndex.cancelDeferredInsertion(nd, address)) {
+				this.searchIndex.get(nd, Database.DATA_AREA_OFFSET).delete(address);
+			}
 
 			get(nd, address).delete();
 			nd.getDB().putRecPtr(address + this.offset, 0);
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -33,6 +34,12 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
@@ -69,6 +76,7 @@ import org.eclipse.jdt.internal.core.JavaModel;
 import org.eclipse.jdt.internal.core.JavaModelManager;
 import org.eclipse.jdt.internal.core.nd.IReader;
 import org.eclipse.jdt.internal.core.nd.Nd;
+import org.eclipse.jdt.internal.core.nd.db.ChunkCache;
 import org.eclipse.jdt.internal.core.nd.db.Database;
 import org.eclipse.jdt.internal.core.nd.db.IndexException;
 import org.eclipse.jdt.internal.core.nd.java.FileFingerprint;
@@ -97,6 +105,18 @@ public final class Indexer {
 	public static boolean DEBUG_INSERTIONS;
 	public static boolean DEBUG_SELFTEST;
 	public static int DEBUG_LOG_SIZE_MB;
+
+	/**
+	 * How many class files of an archive are decoded at the same time, see
+	 * {@link JavaModelManager#MAX_PARALLEL_CLASS_FILE_DECODERS}.
+	 */
+	public static int MAX_PARALLEL_DECODERS = Integer.getInteger(JavaModelManager.MAX_PARALLEL_CLASS_FILE_DECODERS, 1)
+			.intValue();
+	/**
+	 * How many decoded class files are added to the index each time the write lock is acquired.
+	 */
+	private static final int INSERT_BATCH_SIZE = 32;
+	private static ExecutorService decoderExecutor;
 	
 	// New index is disabled, see bug 544898
 //	private static final String ENABLE_NEW_JAVA_INDEX = "enableNewJavaIndex"; //$NON-NLS-1$
@@ -277,13 +297,20 @@ public final class Indexer {
 				: (double) TOTAL_TICKS_TO_REPORT_DURING_INDEXING / (double) totalSizeToIndex;
 
 		int classesIndexed = 0;
-		SubMonitor loopMonitor = subMonitor.split(94).setWorkRemaining(TOTAL_TICKS_TO_REPORT_DURING_INDEXING);
-		for (IPath next : indexablesWithChanges) {
-			FingerprintTestResult nextFingerprint = fingerprints.get(next);
-			int ticks = (int) (nextFingerprint.getNewFingerprint().getSize() * tickCoefficient);
+		// Write the chunks changed by all the archives together, rather than each time the cache holds enough
+		// dirty chunks
+		this.nd.beginWriteBatch();
+		try {
+			SubMonitor loopMonitor = subMonitor.split(94).setWorkRemaining(TOTAL_TICKS_TO_REPORT_DURING_INDEXING);
+			for (IPath next : indexablesWithChanges) {
+				FingerprintTestResult nextFingerprint = fingerprints.get(next);
+				int ticks = (int) (nextFingerprint.getNewFingerprint().getSize() * tickCoefficient);
 
-			classesIndexed += rescanArchive(currentTimeMs, next, snapshot.get(next),
-					fingerprints.get(next).getNewFingerprint(), loopMonitor.split(ticks));
+				classesIndexed += rescanArchive(currentTimeMs, next, snapshot.get(next),
+						fingerprints.get(next).getNewFingerprint(), loopMonitor.split(ticks));
+			}
+		} finally {
+			this.nd.endWriteBatch();
 		}
 
 		long endIndexingMs = System.currentTimeMillis();
@@ -356,13 +383,17 @@ public final class Indexer {
 			double cacheMissPercent = totalReads == 0 ? 0 : (cacheMisses * 100.0) / totalReads;
 			System.out.println("  Cache misses = " + cacheMisses + " (" //$NON-NLS-1$//$NON-NLS-2$
 					+ percentFormat.format(cacheMissPercent) + "%)"); //$NON-NLS-1$
+			ChunkCache chunkCache = db.getChunkCache();
+			System.out.println("  Chunk cache hits = " + chunkCache.getHits() + ", misses = " + chunkCache.getMisses() //$NON-NLS-1$ //$NON-NLS-2$
+					+ ", evictions = " + chunkCache.getEvictions() + " in " + chunkCache.getSegments() + " segments"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 
 			long bytesRead = db.getBytesRead();
 			long bytesWritten = db.getBytesWritten();
 			double totalTimeMs = endResourceMappingMs - currentTimeMs;
 			long flushTimeMs = db.getCumulativeFlushTimeMs();
 			double flushPercent = totalTimeMs == 0 ? 0 : flushTimeMs * 100.0 / totalTimeMs;
-			System.out.println("  Reads = " + Database.formatByteString(bytesRead) + ", writes = " + Database.formatByteString(bytesWritten)); //$NON-NLS-1$//$NON-NLS-2$
+			System.out.println("  Reads = " + Database.formatByteString(bytesRead) + ", writes = " + Database.formatByteString(bytesWritten) //$NON-NLS-1$//$NON-NLS-2$
+					+ " in " + db.getWriteCount() + " calls"); //$NON-NLS-1$//$NON-NLS-2$
 			double averageReadBytesPerSecond = db.getAverageReadBytesPerMs() * 1000;
 			double averageWriteBytesPerSecond = db.getAverageWriteBytesPerMs() * 1000;
 			if (bytesRead > Database.CHUNK_SIZE * 100) {
@@ -625,6 +656,7 @@ public final class Indexer {
 				resourceFile.setPackageFragmentRoot(rootPathString.toString().toCharArray());
 			}
 			attachWorkspaceFilesToResource(elementsMappingOntoLocation, resourceFile);
+			javaIndex.deferSimpleNameInsertions();
 		} finally {
 			this.nd.releaseWriteLock();
 		}
@@ -633,10 +665,17 @@ public final class Indexer {
 			Package.logInfo("rescanning " + thePath.toString() + ", " + fingerprint); //$NON-NLS-1$ //$NON-NLS-2$
 		}
 		int result = 0;
+		long startMs = System.currentTimeMillis();
 		try {
 			if (fingerprint.fileExists()) {
 				result = addElement(resourceFile, element, subMonitor.split(50));
 			}
+			if (DEBUG_TIMING && result != 0) {
+				long elapsedMs = System.currentTimeMillis() - startMs;
+				System.out.println("  Indexed " + result + " classes from " + pathString + " (" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+						+ Database.formatByteString(fingerprint.getSize()) + ") in " + elapsedMs + "ms, " //$NON-NLS-1$ //$NON-NLS-2$
+						+ (elapsedMs == 0 ? result : result * 1000L / elapsedMs) + " classes/s"); //$NON-NLS-1$
+			}
 		} catch (JavaModelException e) {
 			if (DEBUG) {
 				Package.log("the file " + pathString + " cannot be indexed due to a recoverable error", null); //$NON-NLS-1$ //$NON-NLS-2$
@@ -658,6 +697,14 @@ public final class Indexer {
 			throw e;
 		} catch (FileNotFoundException e) {
 			fingerprint = FileFingerprint.getEmpty();
+		} finally {
+			// Insert the simple names of all the types of the archive at once
+			this.nd.acquireWriteLock(null);
+			try {
+				javaIndex.insertDeferredSimpleNames();
+			} finally {
+				this.nd.releaseWriteLock();
+			}
 		}
 
 		if (DEBUG && !fingerprint.fileExists()) {
@@ -716,6 +763,7 @@ public final class Indexer {
 			IPath location = JavaIndex.getLocationForElement(jarRoot);
 
 			int classesIndexed = 0;
+			ArrayDeque<ClassFileDecoding> decodings = new ArrayDeque<>();
 			try (ZipFile zipFile = new ZipFile(JavaModelManager.getLocalFile(jarRoot.getPath()))) {
 				// Used for the error-handling unit tests
 				if (JavaModelManager.throwIoExceptionsInGetZipFile) {
@@ -775,19 +823,19 @@ public final class Indexer {
 								+ binaryName;
 						BinaryTypeDescriptor descriptor = new BinaryTypeDescriptor(location.toString().toCharArray(),
 								fieldDescriptor, workspacePath.toString().toCharArray(), indexPath.toCharArray());
-						try {
-							byte[] contents = org.eclipse.jdt.internal.compiler.util.Util.getZipEntryByteContent(member,
-									zipFile);
-							ClassFileReader classFileReader = new ClassFileReader(contents, descriptor.indexPath, true);
-							if (addClassToIndex(resourceFile, descriptor.fieldDescriptor, descriptor.indexPath,
-									classFileReader, nextEntry.split(1))) {
-								classesIndexed++;
-							}
-						} catch (CoreException | ClassFormatException exception) {
-							Package.log("Unable to index " + descriptor.toString(), exception); //$NON-NLS-1$
+						ClassFileDecoding decoding = new ClassFileDecoding(zipFile, member, descriptor);
+						if (MAX_PARALLEL_DECODERS > 1) {
+							getDecoderExecutor().execute(decoding);
+						}
+						decodings.add(decoding);
+						if (decodings.size() >= 2 * INSERT_BATCH_SIZE) {
+							classesIndexed += addDecodedClasses(resourceFile, decodings, nextEntry.split(1));
 						}
 					}
 				}
+				while (!decodings.isEmpty()) {
+					classesIndexed += addDecodedClasses(resourceFile, decodings, subMonitor.split(1));
+				}
 			} catch (ZipException e) {
 				Package.log("The zip file " + jarRoot.getPath() + " was corrupt", e);  //$NON-NLS-1$//$NON-NLS-2$
 				// Indicates a corrupt zip file. Treat this like an empty zip file.
@@ -805,6 +853,10 @@ public final class Indexer {
 				throw new JavaModelException(ioException, IJavaModelStatusConstants.IO_EXCEPTION);
 			} catch (CoreException coreException) {
 				throw new JavaModelException(coreException);
+			} finally {
+				for (ClassFileDecoding decoding : decodings) {
+					decoding.cancel(false);
+				}
 			}
 
 			if (DEBUG && classesIndexed == 0) {
@@ -857,35 +909,145 @@ public final class Indexer {
 		}
 
 		if (DEBUG_SELFTEST && indexed) {
-			// When this debug flag is on, we test everything written to the index by reading it back immediately after
-			// indexing and comparing it with the original class file.
-			JavaIndex index = JavaIndex.getIndex(this.nd);
-			try (IReader readLock = this.nd.acquireReadLock()) {
-				NdTypeId typeId = index.findType(fieldDescriptor);
-				NdType targetType = null;
-				if (typeId != null) {
-					List<NdType> implementations = typeId.getTypes();
-					for (NdType nextType : implementations) {
-						NdResourceFile nextResourceFile = nextType.getResourceFile();
-						if (nextResourceFile.equals(resourceFile)) {
-							targetType = nextType;
-							break;
-						}
-					}
+			testIndexedClass(resourceFile, fieldDescriptor, indexPath, binaryType);
+		}
+		return indexed;
+	}
+
+	/**
+	 * Adds the next batch of decoded class files to the index, holding the write lock once. The current thread decodes
+	 * the class files which no other thread started to decode. Returns the number of classes indexed.
+	 */
+	private int addDecodedClasses(NdResourceFile resourceFile, ArrayDeque<ClassFileDecoding> decodings,
+			IProgressMonitor monitor) throws IOException {
+		int count = Math.min(INSERT_BATCH_SIZE, decodings.size());
+		SubMonitor subMonitor = SubMonitor.convert(monitor, count + 1);
+		List<BinaryTypeDescriptor> descriptors = new ArrayList<>(count);
+		List<ClassFileReader> binaryTypes = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			ClassFileDecoding decoding = decodings.poll();
+			decoding.run(); // does nothing if another thread decoded it
+			try {
+				binaryTypes.add(decoding.get());
+				descriptors.add(decoding.descriptor);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				}
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				Package.log("Unable to index " + decoding.descriptor.toString(), cause); //$NON-NLS-1$
+			} catch (InterruptedException e) {
+				throw new OperationCanceledException();
+			}
+		}
+		if (binaryTypes.isEmpty()) {
+			return 0;
+		}
+
+		ClassFileToIndexConverter converter = new ClassFileToIndexConverter(resourceFile);
+		boolean[] indexed = new boolean[binaryTypes.size()];
+		int classesIndexed = 0;
+		this.nd.acquireWriteLock(subMonitor.split(1));
+		try {
+			for (int i = 0; i < indexed.length && resourceFile.isInIndex(); i++) {
+				BinaryTypeDescriptor descriptor = descriptors.get(i);
+				ClassFileReader binaryType = binaryTypes.get(i);
+				if (DEBUG_INSERTIONS) {
+					Package.logInfo("Inserting " + new String(descriptor.fieldDescriptor) + " into " //$NON-NLS-1$//$NON-NLS-2$
+							+ resourceFile.getLocation().getString() + " " + resourceFile.address); //$NON-NLS-1$
 				}
+				try {
+					converter.addType(binaryType, descriptor.fieldDescriptor, subMonitor.split(1));
+					resourceFile.setJdkLevel(binaryType.getVersion());
+					indexed[i] = true;
+					classesIndexed++;
+				} catch (CoreException e) {
+					Package.log("Unable to index " + descriptor.toString(), e); //$NON-NLS-1$
+				}
+			}
+		} finally {
+			this.nd.releaseWriteLock();
+		}
 
-				if (targetType != null) {
-					IndexBinaryType actualType = new IndexBinaryType(TypeRef.create(targetType), indexPath);
-					IndexTester.testType(binaryType, actualType);
-				} else {
-					Package.logInfo(
-							"Could not find class in index immediately after indexing it: " + new String(indexPath)); //$NON-NLS-1$
+		if (DEBUG_SELFTEST) {
+			for (int i = 0; i < indexed.length; i++) {
+				if (indexed[i]) {
+					BinaryTypeDescriptor descriptor = descriptors.get(i);
+					testIndexedClass(resourceFile, descriptor.fieldDescriptor, descriptor.indexPath, binaryTypes.get(i));
 				}
-			} catch (RuntimeException e) {
-				Package.log("Error during indexing: " + new String(indexPath), e); //$NON-NLS-1$
 			}
 		}
-		return indexed;
+		return classesIndexed;
+	}
+
+	private static synchronized ExecutorService getDecoderExecutor() {
+		if (decoderExecutor == null) {
+			int threads = Math.max(1, MAX_PARALLEL_DECODERS - 1);
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<>(), runnable -> {
+						Thread thread = new Thread(runnable, "Java index class file decoder"); //$NON-NLS-1$
+						thread.setDaemon(true);
+						return thread;
+					});
+			executor.allowCoreThreadTimeOut(true); // don't keep idle threads between rescans
+			decoderExecutor = executor;
+		}
+		return decoderExecutor;
+	}
+
+	/**
+	 * Reads and decodes a class file of an archive, without any lock. The indexer thread runs the decodings which no
+	 * thread of the decoder pool started yet, and adds the decoded class files to the index in their order in the
+	 * archive.
+	 */
+	private static final class ClassFileDecoding extends FutureTask<ClassFileReader> {
+		final BinaryTypeDescriptor descriptor;
+
+		ClassFileDecoding(ZipFile zipFile, ZipEntry member, BinaryTypeDescriptor descriptor) {
+			super(() -> new ClassFileReader(
+					org.eclipse.jdt.internal.compiler.util.Util.getZipEntryByteContent(member, zipFile),
+					descriptor.indexPath, true));
+			this.descriptor = descriptor;
+		}
+	}
+
+	/**
+	 * Tests everything written to the index for the given class by reading it back and comparing it with the
+	 * original class file.
+	 */
+	private void testIndexedClass(NdResourceFile resourceFile, char[] fieldDescriptor, char[] indexPath,
+			ClassFileReader binaryType) {
+		JavaIndex index = JavaIndex.getIndex(this.nd);
+		try (IReader readLock = this.nd.acquireReadLock()) {
+			NdTypeId typeId = index.findType(fieldDescriptor);
+			NdType targetType = null;
+			if (typeId != null) {
+				List<NdType> implementations = typeId.getTypes();
+				for (NdType nextType : implementations) {
+					NdResourceFile nextResourceFile = nextType.getResourceFile();
+					if (nextResourceFile.equals(resourceFile)) {
+						targetType = nextType;
+						break;
+					}
+				}
+			}
+
+			if (targetType != null) {
+				IndexBinaryType actualType = new IndexBinaryType(TypeRef.create(targetType), indexPath);
+				IndexTester.testType(binaryType, actualType);
+			} else {
+				Package.logInfo(
+						"Could not find class in index immediately after indexing it: " + new String(indexPath)); //$NON-NLS-1$
+			}
+		} catch (RuntimeException e) {
+			Package.log("Error during indexing: " + new String(indexPath), e); //$NON-NLS-1$
+		}
 	}
 
 	/**
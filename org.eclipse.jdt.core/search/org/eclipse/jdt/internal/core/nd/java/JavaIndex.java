@@ -148,6 +148,18 @@ public class JavaIndex {
 		return SIMPLE_INDEX.findAll(this.nd, this.address, searchCriteria, count);
 	}
 
+	/**
+	 * Defers the insertions of simple names until {@link #insertDeferredSimpleNames()}, which inserts the simple names
+	 * of the many types of an archive at once. {@link #findTypesBySimpleName(char[])} doesn't find them in the meantime.
+	 */
+	public void deferSimpleNameInsertions() {
+		SIMPLE_INDEX.deferInsertions(this.nd);
+	}
+
+	public void insertDeferredSimpleNames() {
+		SIMPLE_INDEX.insertDeferredKeys(this.nd, this.address);
+	}
+
 	public boolean visitFieldDescriptorsStartingWith(char[] fieldDescriptorPrefix, FieldSearchIndex.Visitor<NdTypeId> visitor) {
 		SearchCriteria searchCriteria = SearchCriteria.create(fieldDescriptorPrefix).prefix(true);
 		return TYPES.visitAll(this.nd, this.address, searchCriteria, visitor);
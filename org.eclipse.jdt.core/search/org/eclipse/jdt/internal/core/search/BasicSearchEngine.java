@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,6 +14,7 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.core.search;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.regex.Pattern;
 
@@ -33,6 +34,7 @@ import org.eclipse.jdt.internal.compiler.parser.Parser;
 import org.eclipse.jdt.internal.compiler.problem.DefaultProblemFactory;
 import org.eclipse.jdt.internal.compiler.problem.ProblemReporter;
 import org.eclipse.jdt.internal.core.*;
+import org.eclipse.jdt.internal.core.index.Index;
 import org.eclipse.jdt.internal.core.search.indexing.*;
 import org.eclipse.jdt.internal.core.search.matching.*;
 import org.eclipse.jdt.internal.core.util.Messages;
@@ -223,6 +225,7 @@ public class BasicSearchEngine {
 			IndexManager indexManager = JavaModelManager.getIndexManager();
 			requestor.beginReporting();
 			for (int i = 0; i < length; i++) {
+				if (requestor.hasEnoughMatches()) break;
 				SubMonitor iterationMonitor = loopMonitor.split(1).setWorkRemaining(100);
 
 				SearchParticipant participant = participants[i];
@@ -239,7 +242,7 @@ public class BasicSearchEngine {
 					// locate index matches if any (note that all search matches could have been issued during index querying)
 					iterationMonitor.subTask(Messages.bind(Messages.engine_searching_matching, new String[] {participant.getDescription()}));
 					String[] indexMatchPaths = pathCollector.getPaths();
-					if (indexMatchPaths != null) {
+					if (indexMatchPaths != null && !requestor.hasEnoughMatches()) {
 						pathCollector = null; // release
 						int indexMatchLength = indexMatchPaths.length;
 						SearchDocument[] indexMatches = new SearchDocument[indexMatchLength];
@@ -594,7 +597,172 @@ public class BasicSearchEngine {
 		}
 		findMatches(pattern, participants, scope, requestor, monitor);
 	}
+
+	/**
+	 * Searches for at most the given number of matches of a given search pattern.
+	 * @see SearchEngine#search(SearchPattern, SearchParticipant[], IJavaSearchScope, SearchRequestor, int, IProgressMonitor)
+	 * 	for detailed comment
+	 */
+	public void search(SearchPattern pattern, SearchParticipant[] participants, IJavaSearchScope scope, SearchRequestor requestor, int maxMatches, IProgressMonitor monitor) throws CoreException {
+		if (VERBOSE) {
+			Util.verbose("BasicSearchEngine.search(SearchPattern, SearchParticipant[], IJavaSearchScope, SearchRequestor, int, IProgressMonitor)"); //$NON-NLS-1$
+		}
+		findMatches(pattern, participants, scope, new LimitedSearchRequestor(requestor, maxMatches), monitor);
+	}
 	
+	/**
+	 * Searches for all the types, methods and fields annotated with a given annotation type in the given scope.
+	 *
+	 * @see SearchEngine#searchAllAnnotatedElements(char[], int, IJavaSearchScope, AnnotatedElementRequestor, int, IProgressMonitor)
+	 * 	for detailed comment
+	 */
+	public void searchAllAnnotatedElements(
+		final char[] annotationName,
+		final int annotationMatchRule,
+		IJavaSearchScope scope,
+		final AnnotatedElementRequestor nameRequestor,
+		int waitingPolicy,
+		IProgressMonitor progressMonitor)  throws JavaModelException {
+
+		// Validate match rule first
+		final int validatedMatchRule = SearchPattern.validateMatchRule(annotationName == null ? null : new String (annotationName), annotationMatchRule);
+
+		// Debug
+		if (VERBOSE) {
+			Util.verbose("BasicSearchEngine.searchAllAnnotatedElements(char[], int, IJavaSearchScope, AnnotatedElementRequestor, int, IProgressMonitor)"); //$NON-NLS-1$
+			Util.verbose("	- annotation name: "+(annotationName==null?"null":new String(annotationName))); //$NON-NLS-1$ //$NON-NLS-2$
+			Util.verbose("	- match rule: "+getMatchRuleString(annotationMatchRule)); //$NON-NLS-1$
+			if (validatedMatchRule != annotationMatchRule) {
+				Util.verbose("	- validated match rule: "+getMatchRuleString(validatedMatchRule)); //$NON-NLS-1$
+			}
+			Util.verbose("	- scope: "+scope); //$NON-NLS-1$
+		}
+		if (validatedMatchRule == -1) return; // invalid match rule => return no results
+
+		// Create pattern
+		IndexManager indexManager = JavaModelManager.getIndexManager();
+		final AnnotatedDeclarationPattern pattern = new AnnotatedDeclarationPattern(annotationName, validatedMatchRule);
+
+		// Get working copy path(s)
+		final HashSet workingCopyPaths = new HashSet();
+		ICompilationUnit[] copies = getWorkingCopies();
+		final int copiesLength = copies == null ? 0 : copies.length;
+		for (int i = 0; i < copiesLength; i++) {
+			workingCopyPaths.add(copies[i].getPath().toString());
+		}
+
+		// Index requestor
+		IndexQueryRequestor searchRequestor = new IndexQueryRequestor(){
+			@Override
+			public boolean acceptIndexMatch(String documentPath, SearchPattern indexRecord, SearchParticipant participant, AccessRuleSet access) {
+				if (copiesLength > 0 && workingCopyPaths.contains(documentPath)) {
+					return true; // filter out working copies
+				}
+				AnnotatedDeclarationPattern record = (AnnotatedDeclarationPattern) indexRecord;
+				nameRequestor.acceptAnnotatedElement(
+						record.getAnnotationName(),
+						record.getElementType(),
+						record.elementName,
+						record.declaringQualification,
+						record.packageName,
+						documentPath);
+				return true;
+			}
+		};
+
+		SubMonitor subMonitor = SubMonitor.convert(progressMonitor, Messages.engine_searching, 1000);
+		// add annotated elements from indexes
+		indexManager.performConcurrentJob(
+			new PatternSearchJob(
+				pattern,
+				getDefaultSearchParticipant(), // Java search only
+				scope,
+				searchRequestor),
+			waitingPolicy,
+			subMonitor.split(Math.max(1000-copiesLength, 0)));
+
+		// add annotated elements from working copies
+		for (int i = 0; i < copiesLength; i++) {
+			SubMonitor iterationMonitor = subMonitor.split(1);
+			ICompilationUnit workingCopy = copies[i];
+			if (scope instanceof HierarchyScope) {
+				if (!((HierarchyScope)scope).encloses(workingCopy, iterationMonitor)) continue;
+			} else {
+				if (!scope.encloses(workingCopy)) continue;
+			}
+			reportAnnotatedElements(pattern, workingCopy, nameRequestor);
+		}
+	}
+
+	/*
+	 * Reports the annotated elements of the structure of a working copy, qualifying their annotation names as the
+	 * source indexer does.
+	 */
+	private void reportAnnotatedElements(AnnotatedDeclarationPattern pattern, ICompilationUnit workingCopy, AnnotatedElementRequestor nameRequestor) throws JavaModelException {
+		HashMap importedTypes = new HashMap();
+		IImportDeclaration[] imports = workingCopy.getImports();
+		for (int i = 0, length = imports.length; i < length; i++) {
+			IImportDeclaration importDeclaration = imports[i];
+			String importName = importDeclaration.getElementName();
+			int lastDot = importName.lastIndexOf('.');
+			if (lastDot > 0 && !importDeclaration.isOnDemand() && !Flags.isStatic(importDeclaration.getFlags())) {
+				importedTypes.put(importName.substring(lastDot + 1), importName.substring(0, lastDot));
+			}
+		}
+		IPackageDeclaration[] packageDeclarations = workingCopy.getPackageDeclarations();
+		char[] packageName = packageDeclarations.length == 0 ? CharOperation.NO_CHAR : packageDeclarations[0].getElementName().toCharArray();
+		String path = workingCopy.getPath().toString();
+		AnnotatedDeclarationPattern record = (AnnotatedDeclarationPattern) pattern.getBlankPattern();
+
+		IType[] allTypes = workingCopy.getAllTypes();
+		for (int i = 0, length = allTypes.length; i < length; i++) {
+			IType type = allTypes[i];
+			IJavaElement parent = type.getParent();
+			char[] enclosingTypeName = parent instanceof IType ? ((IType) parent).getTypeQualifiedName('.').toCharArray() : CharOperation.NO_CHAR;
+			IAnnotatable[] elements = new IAnnotatable[] { type };
+			reportAnnotatedElements(pattern, record, AnnotatedDeclarationPattern.TYPE_KIND, elements, enclosingTypeName, packageName, importedTypes, path, nameRequestor);
+			char[] typeQualifiedName = type.getTypeQualifiedName('.').toCharArray();
+			reportAnnotatedElements(pattern, record, AnnotatedDeclarationPattern.METHOD_KIND, type.getMethods(), typeQualifiedName, packageName, importedTypes, path, nameRequestor);
+			reportAnnotatedElements(pattern, record, AnnotatedDeclarationPattern.FIELD_KIND, type.getFields(), typeQualifiedName, packageName, importedTypes, path, nameRequestor);
+		}
+	}
+
+	private void reportAnnotatedElements(
+			AnnotatedDeclarationPattern pattern,
+			AnnotatedDeclarationPattern record,
+			char elementKind,
+			IAnnotatable[] elements,
+			char[] declaringQualification,
+			char[] packageName,
+			HashMap importedTypes,
+			String path,
+			AnnotatedElementRequestor nameRequestor) throws JavaModelException {
+		for (int i = 0, length = elements.length; i < length; i++) {
+			IAnnotation[] annotations = elements[i].getAnnotations();
+			if (annotations.length == 0) continue;
+			char[] elementName = ((IJavaElement) elements[i]).getElementName().toCharArray();
+			for (int j = 0, annotationsLength = annotations.length; j < annotationsLength; j++) {
+				String annotationName = annotations[j].getElementName();
+				int firstDot = annotationName.indexOf('.');
+				String qualification = (String) importedTypes.get(firstDot == -1 ? annotationName : annotationName.substring(0, firstDot));
+				if (qualification != null) {
+					annotationName = qualification + '.' + annotationName;
+				}
+				// decode the entry the source indexer would have recorded to match it as an index entry
+				record.decodeIndexKey(AnnotatedDeclarationPattern.createIndexKey(annotationName.toCharArray(), elementKind, elementName, declaringQualification, packageName));
+				if (pattern.matchesDecodedKey(record)) {
+					nameRequestor.acceptAnnotatedElement(
+							record.getAnnotationName(),
+							record.getElementType(),
+							record.elementName,
+							record.declaringQualification,
+							record.packageName,
+							path);
+				}
+			}
+		}
+	}
+
 	public void searchAllConstructorDeclarations(
 		final char[] packageName,
 		final char[] typeName,
@@ -1847,13 +2015,25 @@ public class BasicSearchEngine {
 			};
 	
 			SubMonitor subMonitor = SubMonitor.convert(progressMonitor, Messages.engine_searching, 1000);
-			// add type names from indexes
+			// add type names from indexes, through the type names kept in memory if enabled
+			final TypeNameCache typeNameCache = indexManager.typeNameCache;
 			indexManager.performConcurrentJob(
-				new PatternSearchJob(
-					pattern,
-					getDefaultSearchParticipant(), // Java search only
-					scope,
-					searchRequestor),
+				typeNameCache == null
+					? new PatternSearchJob(
+						pattern,
+						getDefaultSearchParticipant(), // Java search only
+						scope,
+						searchRequestor)
+					: new PatternSearchJob(
+						pattern,
+						getDefaultSearchParticipant(), // Java search only
+						scope,
+						searchRequestor) {
+						@Override
+						protected void findIndexMatches(Index index, IndexQueryRequestor indexRequestor, IProgressMonitor monitor) throws IOException {
+							typeNameCache.findIndexMatches((TypeDeclarationPattern) this.pattern, index, indexRequestor, this.participant, this.scope, monitor);
+						}
+					},
 				waitingPolicy,
 				subMonitor.split(Math.max(1000-copiesLength, 0)));
 	
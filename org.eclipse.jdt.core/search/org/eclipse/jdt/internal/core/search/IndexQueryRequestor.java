@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -25,4 +25,9 @@ public abstract class IndexQueryRequestor {
 	// answer false if requesting cancel
 	public abstract boolean acceptIndexMatch(String documentPath, SearchPattern indexRecord, SearchParticipant participant, AccessRuleSet access);
 
+	// notified of each query of an index, filtered is true if the word filters of the index answered it without reading the index
+	public void acceptIndexQuery(boolean filtered) {
+		// do nothing by default
+	}
+
 }
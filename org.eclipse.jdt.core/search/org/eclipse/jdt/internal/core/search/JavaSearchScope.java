@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,6 +14,7 @@
 package org.eclipse.jdt.internal.core.search;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 
@@ -69,6 +70,163 @@ public class JavaSearchScope extends AbstractJavaSearchScope {
 
 	private final boolean excludeTestCode;
 
+	/* The tries of the paths of this scope, built lazily on the first lookup and dropped when a path is added
+	    (see #getPathLookup())
+	*/
+	private volatile PathLookup pathLookup;
+
+	/*
+	 * A node of a trie of paths, with one forward slash separated segment of a path per level.
+	 */
+	private static final class PathNode {
+		final String segment;
+		final int hash;
+		int index = -1; // the index of a path that encloses this node and all its descendants
+		int packageIndex = -1; // the index of a package path that encloses this node and its direct children
+		PathNode[] children; // open addressing on the hash of the segments
+		int childrenCount;
+
+		PathNode(String segment) {
+			this.segment = segment;
+			this.hash = segment == null ? 0 : segment.hashCode();
+		}
+
+		/*
+		 * Returns the same hash as String#hashCode() for the given segment of the given path.
+		 */
+		static int hash(String path, int start, int end) {
+			int h = 0;
+			for (int i = start; i < end; i++)
+				h = 31 * h + path.charAt(i);
+			return h;
+		}
+
+		/*
+		 * Returns whichever of the two given indexes comes first when probing the table of paths from the given start,
+		 * so that the tries answer the same index as the sequential lookups.
+		 */
+		static int first(int index1, int index2, int start, int length) {
+			if (index1 == -1) return index2;
+			if (index2 == -1) return index1;
+			return (index1 - start + length) % length <= (index2 - start + length) % length ? index1 : index2;
+		}
+
+		PathNode child(String path, int start, int end) {
+			if (this.children == null) return null;
+			int segmentHash = hash(path, start, end);
+			int segmentLength = end - start;
+			int length = this.children.length;
+			int i = (segmentHash & 0x7FFFFFFF) % length;
+			PathNode child;
+			while ((child = this.children[i]) != null) {
+				if (child.hash == segmentHash && child.segment.length() == segmentLength && child.segment.regionMatches(0, path, start, segmentLength))
+					return child;
+				if (++i == length) {
+					i = 0;
+				}
+			}
+			return null;
+		}
+
+		PathNode addChild(String path, int start, int end) {
+			PathNode child = child(path, start, end);
+			if (child != null) return child;
+			if (this.children == null) {
+				this.children = new PathNode[3];
+			} else if ((this.childrenCount + 1) * 2 > this.children.length) {
+				PathNode[] oldChildren = this.children;
+				this.children = new PathNode[oldChildren.length * 2 + 1];
+				for (int i = 0, length = oldChildren.length; i < length; i++) {
+					if (oldChildren[i] != null)
+						put(oldChildren[i]);
+				}
+			}
+			child = new PathNode(path.substring(start, end));
+			put(child);
+			this.childrenCount++;
+			return child;
+		}
+
+		private void put(PathNode child) {
+			int length = this.children.length;
+			int i = (child.hash & 0x7FFFFFFF) % length;
+			while (this.children[i] != null) {
+				if (++i == length) {
+					i = 0;
+				}
+			}
+			this.children[i] = child;
+		}
+
+		/*
+		 * Adds the given normalized path below this node.
+		 * An empty path has no segment and is enclosing everything below this node, even for a package.
+		 */
+		void add(String path, int pathIndex, boolean isPackage, int start, int length) {
+			PathNode node = this;
+			int pathLength = path.length();
+			int segmentStart = pathLength == 0 ? 1 : 0;
+			while (segmentStart <= pathLength) {
+				int segmentEnd = path.indexOf('/', segmentStart);
+				if (segmentEnd == -1) segmentEnd = pathLength;
+				node = node.addChild(path, segmentStart, segmentEnd);
+				segmentStart = segmentEnd + 1;
+			}
+			if (isPackage && pathLength > 0) {
+				node.packageIndex = first(node.packageIndex, pathIndex, start, length);
+			} else {
+				node.index = first(node.index, pathIndex, start, length);
+			}
+		}
+
+		/*
+		 * Returns the index of the path below this node that encloses the given normalized path or -1 if not found.
+		 * When several paths enclose it, returns the one that comes first when probing the table of paths from the given start.
+		 */
+		int indexOf(String path, int start, int length) {
+			PathNode parent = null;
+			PathNode node = this;
+			int result = -1;
+			int pathLength = path.length();
+			int segmentStart = pathLength == 0 ? 1 : 0;
+			while (true) {
+				result = first(result, node.index, start, length);
+				if (segmentStart > pathLength) {
+					// the path is the one of the node, or a direct child of its parent
+					result = first(result, node.packageIndex, start, length);
+					if (parent != null)
+						result = first(result, parent.packageIndex, start, length);
+					return result;
+				}
+				int segmentEnd = path.indexOf('/', segmentStart);
+				if (segmentEnd == -1) segmentEnd = pathLength;
+				PathNode child = node.child(path, segmentStart, segmentEnd);
+				if (child == null) {
+					if (segmentEnd == pathLength) // a direct child of the node
+						result = first(result, node.packageIndex, start, length);
+					return result;
+				}
+				parent = node;
+				node = child;
+				segmentStart = segmentEnd + 1;
+			}
+		}
+	}
+
+	/*
+	 * The tries of the paths of this scope: one over the full paths of the resources in the workspace,
+	 * and one over the relative paths per container path.
+	 */
+	private static final class PathLookup {
+		final PathNode fullPaths = new PathNode(null);
+		final HashMap<String, PathNode> relativePaths = new HashMap<>();
+		final int length;
+
+		PathLookup(int length) {
+			this.length = length;
+		}
+	}
+
 public JavaSearchScope(boolean excludeTestCode) {
 	this(5, excludeTestCode);
 }
@@ -321,6 +479,7 @@ private void add(String projectPath, String relativePath, String containerPath,
 	this.relativePaths[index] = relativePath;
 	this.containerPaths[index] = containerPath;
 	this.isPkgPath[index] = isPackage;
+	this.pathLookup = null;
 	if (this.pathRestrictions != null)
 		this.pathRestrictions[index] = access;
 	else if (access != null) {
@@ -367,16 +526,8 @@ public boolean encloses(String resourcePathString) {
  */
 private int indexOf(String fullPath) {
 	// cannot guess the index of the container path
-	// fallback to sequentially looking at all known paths
-	for (int i = 0, length = this.relativePaths.length; i < length; i++) {
-		String currentRelativePath = this.relativePaths[i];
-		if (currentRelativePath == null) continue;
-		String currentContainerPath = this.containerPaths[i];
-		String currentFullPath = currentRelativePath.length() == 0 ? currentContainerPath : (currentContainerPath + '/' + currentRelativePath);
-		if (encloses(currentFullPath, fullPath, i))
-			return i;
-	}
-	return -1;
+	// walk down the trie of all known full paths
+	return getPathLookup().fullPaths.indexOf(normalize(fullPath), 0, this.containerPaths.length);
 }
 
 /**
@@ -394,55 +545,39 @@ private int indexOf(String fullPath) {
  *   4. (empty)
  */
 private int indexOf(String containerPath, String relativePath) {
-	// use the hash to get faster comparison
-	int length = this.containerPaths.length,
-		index = (containerPath.hashCode()& 0x7FFFFFFF) % length;
-	String currentContainerPath;
-	while ((currentContainerPath = this.containerPaths[index]) != null) {
-		if (currentContainerPath.equals(containerPath)) {
-			String currentRelativePath = this.relativePaths[index];
-			if (encloses(currentRelativePath, relativePath, index))
-				return index;
-		}
-		if (++index == length) {
-			index = 0;
-		}
-	}
-	return -1;
+	PathNode node = getPathLookup().relativePaths.get(containerPath);
+	if (node == null)
+		return -1;
+	// answer the first enclosing path when probing from the hash of the container path
+	int length = this.containerPaths.length;
+	return node.indexOf(normalize(relativePath), (containerPath.hashCode()& 0x7FFFFFFF) % length, length);
 }
 
 /*
- * Returns whether the enclosing path encloses the given path (or is equal to it)
+ * Returns the tries of the paths of this scope, so that finding the path enclosing a given path
+ * only depends on the depth of the given path rather than on the number of paths in this scope.
  */
-private boolean encloses(String enclosingPath, String path, int index) {
-	// normalize given path as it can come from outside
-	path = normalize(path);
-
-	int pathLength = path.length();
-	int enclosingLength = enclosingPath.length();
-	if (pathLength < enclosingLength) {
-		return false;
-	}
-	if (enclosingLength == 0) {
-		return true;
-	}
-	if (pathLength == enclosingLength) {
-		return path.equals(enclosingPath);
-	}
-	if (!this.isPkgPath[index]) {
-		return path.startsWith(enclosingPath)
-			&& path.charAt(enclosingLength) == '/';
-	} else {
-		// if looking at a package, this scope encloses the given path
-		// if the given path is a direct child of the folder
-		// or if the given path path is the folder path (see bug 13919 Declaration for package not found if scope is not project)
-		if (path.startsWith(enclosingPath)
-			&& ((enclosingPath.length() == path.lastIndexOf('/'))
-				|| (enclosingPath.length() == path.length()))) {
-			return true;
+private PathLookup getPathLookup() {
+	PathLookup lookup = this.pathLookup;
+	int length = this.containerPaths.length;
+	if (lookup == null || lookup.length != length) {
+		lookup = new PathLookup(length);
+		for (int i = 0; i < length; i++) {
+			String currentRelativePath = this.relativePaths[i];
+			if (currentRelativePath == null) continue;
+			String currentContainerPath = this.containerPaths[i];
+			String currentFullPath = currentRelativePath.length() == 0 ? currentContainerPath : (currentContainerPath + '/' + currentRelativePath);
+			lookup.fullPaths.add(currentFullPath, i, this.isPkgPath[i], 0, length);
+			PathNode relativePathsNode = lookup.relativePaths.get(currentContainerPath);
+			if (relativePathsNode == null) {
+				relativePathsNode = new PathNode(null);
+				lookup.relativePaths.put(currentContainerPath, relativePathsNode);
+			}
+			relativePathsNode.add(currentRelativePath, i, this.isPkgPath[i], (currentContainerPath.hashCode()& 0x7FFFFFFF) % length, length);
 		}
+		this.pathLookup = lookup;
 	}
-	return false;
+	return lookup;
 }
 
 @Override
@@ -521,6 +656,7 @@ protected void initialize(int size) {
 	this.projectIndexes = new int[extraRoom];
 	this.isPkgPath = new boolean[extraRoom];
 	this.pathRestrictions = null; // null to optimize case where no access rules are used
+	this.pathLookup = null;
 
 	this.enclosingProjectsAndJars = new IPath[0];
 }
@@ -634,6 +770,7 @@ private void rehash() {
 	this.isPkgPath = newScope.isPkgPath;
 	this.pathRestrictions = newScope.pathRestrictions;
 	this.threshold = newScope.threshold;
+	this.pathLookup = null;
 }
 
 @Override
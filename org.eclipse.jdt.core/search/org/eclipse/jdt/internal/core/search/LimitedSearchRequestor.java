@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.search;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jdt.core.search.SearchMatch;
+import org.eclipse.jdt.core.search.SearchParticipant;
+import org.eclipse.jdt.core.search.SearchRequestor;
+
+/**
+ * Reports at most a given number of matches to a client requestor, and stops the search once they are reported
+ * or once the client requestor has enough matches.
+ */
+public class LimitedSearchRequestor extends SearchRequestor {
+
+	private final SearchRequestor requestor;
+	private final int maxMatches;
+	private int matches;
+
+	public LimitedSearchRequestor(SearchRequestor requestor, int maxMatches) {
+		this.requestor = requestor;
+		this.maxMatches = maxMatches;
+	}
+
+	@Override
+	public void acceptSearchMatch(SearchMatch match) throws CoreException {
+		if (hasEnoughMatches()) return;
+		this.matches++;
+		this.requestor.acceptSearchMatch(match);
+	}
+
+	@Override
+	public void beginReporting() {
+		this.requestor.beginReporting();
+	}
+
+	@Override
+	public void endReporting() {
+		this.requestor.endReporting();
+	}
+
+	@Override
+	public void enterParticipant(SearchParticipant participant) {
+		this.requestor.enterParticipant(participant);
+	}
+
+	@Override
+	public void exitParticipant(SearchParticipant participant) {
+		this.requestor.exitParticipant(participant);
+	}
+
+	@Override
+	public boolean hasEnoughMatches() {
+		return this.matches >= this.maxMatches || this.requestor.hasEnoughMatches();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,12 +14,24 @@
 package org.eclipse.jdt.internal.core.search;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.jdt.core.search.*;
+import org.eclipse.jdt.internal.compiler.env.AccessRuleSet;
 import org.eclipse.jdt.internal.core.JavaModelManager;
 import org.eclipse.jdt.internal.core.index.FileIndexLocation;
 import org.eclipse.jdt.internal.core.index.Index;
@@ -32,12 +44,19 @@ import org.eclipse.jdt.internal.core.util.Util;
 
 public class PatternSearchJob implements IJob {
 
+/**
+ * How many indexes one search can query at the same time, see {@link JavaModelManager#MAX_CONCURRENT_INDEX_QUERIES}.
+ */
+public static int MAX_CONCURRENT_QUERIES = Integer.getInteger(JavaModelManager.MAX_CONCURRENT_INDEX_QUERIES, 1).intValue();
+private static ExecutorService queryExecutor;
+
 protected SearchPattern pattern;
 protected IJavaSearchScope scope;
 protected SearchParticipant participant;
 protected IndexQueryRequestor requestor;
 protected boolean areIndexesReady;
 protected long executionTime = 0;
+protected int skippedIndexes = 0; // indexes whose word filters did not contain the keys of the queries
 
 public PatternSearchJob(SearchPattern pattern, SearchParticipant participant, IJavaSearchScope scope, IndexQueryRequestor requestor) {
 	this.pattern = pattern;
@@ -64,15 +83,22 @@ public boolean execute(IProgressMonitor progressMonitor) {
 
 	boolean isComplete = COMPLETE;
 	this.executionTime = 0;
+	this.skippedIndexes = 0;
 	Index[] indexes = getIndexes(subMonitor.split(1));
 	try {
 		int max = indexes.length;
 		SubMonitor loopMonitor = subMonitor.split(2).setWorkRemaining(max);
-		for (int i = 0; i < max; i++) {
-			isComplete &= search(indexes[i], loopMonitor.split(1));
+		if (max > 1 && MAX_CONCURRENT_QUERIES > 1 && canSearchConcurrently()) {
+			isComplete = searchConcurrently(indexes, loopMonitor);
+		} else {
+			for (int i = 0; i < max; i++) {
+				isComplete &= search(indexes[i], loopMonitor.split(1));
+			}
 		}
-		if (JobManager.VERBOSE)
+		if (JobManager.VERBOSE) {
 			Util.verbose("-> execution time: " + this.executionTime + "ms - " + this);//$NON-NLS-1$//$NON-NLS-2$
+			Util.verbose("-> skipped indexes: " + this.skippedIndexes + "/" + max + " - " + this);//$NON-NLS-1$//$NON-NLS-2$//$NON-NLS-3$
+		}
 		return isComplete;
 	} finally {
 		SubMonitor.done(progressMonitor);
@@ -98,6 +124,101 @@ public Index[] getIndexes(IProgressMonitor progressMonitor) {
 	return indexes;
 }
 
+/**
+ * Returns whether the indexes can be queried by several threads, which requires that neither the pattern
+ * nor the scope change while the index entries are matched.
+ */
+protected boolean canSearchConcurrently() {
+	return this.participant instanceof JavaSearchParticipant
+		&& (this.scope instanceof JavaSearchScope || this.scope instanceof JavaWorkspaceScope)
+		&& MatchLocator.canFindIndexMatchesConcurrently(this.pattern);
+}
+private static synchronized ExecutorService getQueryExecutor() {
+	if (queryExecutor == null) {
+		int threads = Math.max(1, MAX_CONCURRENT_QUERIES - 1);
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+			Thread thread = new Thread(runnable, "Java search index query"); //$NON-NLS-1$
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.allowCoreThreadTimeOut(true); // don't keep idle threads between searches
+		queryExecutor = executor;
+	}
+	return queryExecutor;
+}
+/**
+ * Queries the given indexes with the current thread and with up to MAX_CONCURRENT_QUERIES - 1 threads of a shared pool.
+ * Index matches are passed to the requestor one at a time. The first failure or a cancellation stops all the threads,
+ * and this method returns only once none of them uses the requestor any longer.
+ */
+protected boolean searchConcurrently(final Index[] indexes, SubMonitor loopMonitor) {
+	final AtomicInteger nextIndex = new AtomicInteger();
+	final AtomicInteger searchedIndexes = new AtomicInteger();
+	final AtomicBoolean stopped = new AtomicBoolean();
+	final IProgressMonitor queryMonitor = new NullProgressMonitor() {
+		@Override
+		public boolean isCanceled() {
+			return stopped.get() || loopMonitor.isCanceled();
+		}
+	};
+	IndexQueryRequestor originalRequestor = this.requestor;
+	if (originalRequestor != null)
+		this.requestor = new SynchronizedRequestor(originalRequestor);
+	ArrayList<Future<Boolean>> queries = new ArrayList<>();
+	Throwable failure = null;
+	boolean isComplete = COMPLETE;
+	try {
+		ExecutorService executor = getQueryExecutor();
+		for (int i = 1, max = Math.min(MAX_CONCURRENT_QUERIES, indexes.length); i < max; i++)
+			queries.add(executor.submit(() -> searchIndexes(indexes, nextIndex, searchedIndexes, queryMonitor, null)));
+		try {
+			isComplete = searchIndexes(indexes, nextIndex, searchedIndexes, queryMonitor, loopMonitor);
+		} catch (RuntimeException | Error e) {
+			failure = e;
+		}
+		if (failure != null)
+			stopped.set(true);
+		for (Future<Boolean> query : queries) {
+			query.cancel(false); // all indexes are taken, so the queries which have not started yet have nothing to do
+			try {
+				isComplete &= query.get().booleanValue();
+			} catch (CancellationException e) {
+				// did not start
+			} catch (ExecutionException e) {
+				stopped.set(true);
+				// prefer the original failure to the cancellations it caused
+				if (failure == null || failure instanceof OperationCanceledException)
+					failure = e.getCause();
+			} catch (InterruptedException e) {
+				stopped.set(true);
+				if (failure == null)
+					failure = new OperationCanceledException();
+			}
+		}
+	} finally {
+		this.requestor = originalRequestor;
+	}
+	if (failure instanceof RuntimeException)
+		throw (RuntimeException) failure;
+	if (failure instanceof Error)
+		throw (Error) failure;
+	if (failure != null)
+		throw new RuntimeException(failure);
+	return isComplete;
+}
+boolean searchIndexes(Index[] indexes, AtomicInteger nextIndex, AtomicInteger searchedIndexes, IProgressMonitor queryMonitor, SubMonitor loopMonitor) {
+	boolean isComplete = COMPLETE;
+	int reported = 0;
+	for (int i; (i = nextIndex.getAndIncrement()) < indexes.length;) {
+		isComplete &= search(indexes[i], queryMonitor);
+		int searched = searchedIndexes.incrementAndGet();
+		if (loopMonitor != null) {
+			loopMonitor.worked(searched - reported);
+			reported = searched;
+		}
+	}
+	return isComplete;
+}
 @Override
 public boolean waitNeeded() {
 	return true;
@@ -114,8 +235,13 @@ public boolean search(Index index, IProgressMonitor progressMonitor) {
 	try {
 		monitor.enterRead(); // ask permission to read
 		long start = System.currentTimeMillis();
-		MatchLocator.findIndexMatches(this.pattern, index, this.requestor, this.participant, this.scope, progressMonitor);
-		this.executionTime += System.currentTimeMillis() - start;
+		QueryCountingRequestor countingRequestor = new QueryCountingRequestor(this.requestor);
+		findIndexMatches(index, countingRequestor, progressMonitor);
+		synchronized (this) {
+			this.executionTime += System.currentTimeMillis() - start;
+			if (countingRequestor.queries > 0 && countingRequestor.filteredQueries == countingRequestor.queries)
+				this.skippedIndexes++;
+		}
 		return COMPLETE;
 	} catch (IOException e) {
 		if (e instanceof java.io.EOFException)
@@ -125,8 +251,58 @@ public boolean search(Index index, IProgressMonitor progressMonitor) {
 		monitor.exitRead(); // finished reading
 	}
 }
+/**
+ * Reports the matches of the given index to the given requestor, the sender owns the read lock of the index.
+ */
+protected void findIndexMatches(Index index, IndexQueryRequestor indexRequestor, IProgressMonitor progressMonitor) throws IOException {
+	MatchLocator.findIndexMatches(this.pattern, index, indexRequestor, this.participant, this.scope, progressMonitor);
+}
+/**
+ * Answers how many indexes the last execution did not read, because their word filters did not contain
+ * the keys of the pattern.
+ */
+public int getSkippedIndexes() {
+	return this.skippedIndexes;
+}
 @Override
 public String toString() {
 	return "searching " + this.pattern.toString(); //$NON-NLS-1$
 }
+/**
+ * Passes the index matches found by the threads of a concurrent search one at a time.
+ */
+static class SynchronizedRequestor extends IndexQueryRequestor {
+	final IndexQueryRequestor requestor;
+	SynchronizedRequestor(IndexQueryRequestor requestor) {
+		this.requestor = requestor;
+	}
+	@Override
+	public boolean acceptIndexMatch(String documentPath, SearchPattern indexRecord, SearchParticipant participant, AccessRuleSet access) {
+		synchronized (this.requestor) {
+			return this.requestor.acceptIndexMatch(documentPath, indexRecord, participant, access);
+		}
+	}
+}
+/**
+ * Counts the queries of the search of one index, and how many of them the word filters of the index answered.
+ */
+static class QueryCountingRequestor extends IndexQueryRequestor {
+	final IndexQueryRequestor requestor;
+	int queries;
+	int filteredQueries;
+	QueryCountingRequestor(IndexQueryRequestor requestor) {
+		this.requestor = requestor;
+	}
+	@Override
+	public boolean acceptIndexMatch(String documentPath, SearchPattern indexRecord, SearchParticipant participant, AccessRuleSet access) {
+		return this.requestor.acceptIndexMatch(documentPath, indexRecord, participant, access);
+	}
+	@Override
+	public void acceptIndexQuery(boolean filtered) {
+		this.queries++;
+		if (filtered)
+			this.filteredQueries++;
+		this.requestor.acceptIndexQuery(filtered);
+	}
+}
 }
@@ -44,8 +44,10 @@ public Index[] getIndexes(IProgressMonitor progressMonitor) {
 @Override
 public boolean search(Index index, IProgressMonitor progressMonitor) {
 	if (index == null) return COMPLETE;
-	if (this.indexes.addIfNotIncluded(index) == index)
-		index.startQuery();
+	synchronized (this.indexes) { // indexes may be searched concurrently
+		if (this.indexes.addIfNotIncluded(index) == index)
+			index.startQuery();
+	}
 	return super.search(index, progressMonitor);
 }
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,6 +13,8 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.core.search.indexing;
 
+import java.util.ArrayList;
+
 import org.eclipse.jdt.core.Signature;
 import org.eclipse.jdt.core.compiler.CharOperation;
 import org.eclipse.jdt.core.search.SearchDocument;
@@ -24,9 +26,16 @@ public abstract class AbstractIndexer implements IIndexConstants {
 
 	SearchDocument document;
 
+	// the entries and the secondary types of a document indexed by another thread than the indexer thread, see #bufferIndexEntries()
+	private ArrayList<char[]> bufferedEntries; // the category and the key of each entry
+	private ArrayList<char[]> bufferedSecondaryTypes; // the package and the simple name of each type
+
 	public AbstractIndexer(SearchDocument document) {
 		this.document = document;
 	}
+	public void addAnnotatedDeclaration(char[] annotationName, char elementKind, char[] elementName, char[] declaringQualification, char[] packageName) {
+		addIndexEntry(ANNOTATED_DECL, AnnotatedDeclarationPattern.createIndexKey(annotationName, elementKind, elementName, declaringQualification, packageName));
+	}
 	public void addAnnotationTypeDeclaration(int modifiers, char[] packageName, char[] name, char[][] enclosingTypeNames, boolean secondary) {
 		addTypeDeclaration(modifiers, packageName, name, enclosingTypeNames, secondary);
 
@@ -147,7 +156,12 @@ public abstract class AbstractIndexer implements IIndexConstants {
 		addNameReference(fieldName);
 	}
 	protected void addIndexEntry(char[] category, char[] key) {
-		this.document.addIndexEntry(category, key);
+		if (this.bufferedEntries != null) {
+			this.bufferedEntries.add(category);
+			this.bufferedEntries.add(key);
+		} else {
+			this.document.addIndexEntry(category, key);
+		}
 	}
 	public void addInterfaceDeclaration(int modifiers, char[] packageName, char[] name, char[][] enclosingTypeNames, char[][] superinterfaces, char[][] typeParameterSignatures, boolean secondary) {
 		addTypeDeclaration(modifiers, packageName, name, enclosingTypeNames, secondary);
@@ -231,14 +245,44 @@ public abstract class AbstractIndexer implements IIndexConstants {
 	}
 	protected void addTypeDeclaration(int modifiers, char[] packageName, char[] name, char[][] enclosingTypeNames, boolean secondary) {
 		char[] indexKey = TypeDeclarationPattern.createIndexKey(modifiers, name, packageName, enclosingTypeNames, secondary);
-		if (secondary)
-			JavaModelManager.getJavaModelManager().secondaryTypeAdding(
-				this.document.getPath(),
-				name == null ? CharOperation.NO_CHAR : name,
-				packageName == null ? CharOperation.NO_CHAR : packageName);
+		if (secondary) {
+			if (this.bufferedSecondaryTypes != null) {
+				this.bufferedSecondaryTypes.add(packageName == null ? CharOperation.NO_CHAR : packageName);
+				this.bufferedSecondaryTypes.add(name == null ? CharOperation.NO_CHAR : name);
+			} else {
+				JavaModelManager.getJavaModelManager().secondaryTypeAdding(
+					this.document.getPath(),
+					name == null ? CharOperation.NO_CHAR : name,
+					packageName == null ? CharOperation.NO_CHAR : packageName);
+			}
+		}
 
 		addIndexEntry(TYPE_DECL, indexKey);
 	}
+	/**
+	 * Keeps the index entries and the secondary types of the document in memory until {@link #flushIndexEntries()},
+	 * so that the document can be indexed by another thread while the indexer thread owns the index.
+	 */
+	public void bufferIndexEntries() {
+		this.bufferedEntries = new ArrayList<>();
+		this.bufferedSecondaryTypes = new ArrayList<>();
+	}
+	/**
+	 * Adds the index entries kept in memory to the document, whose index must be set, and registers its secondary types.
+	 * Further entries are added to the document directly.
+	 */
+	public void flushIndexEntries() {
+		ArrayList<char[]> entries = this.bufferedEntries;
+		ArrayList<char[]> secondaryTypes = this.bufferedSecondaryTypes;
+		if (entries == null)
+			return;
+		this.bufferedEntries = null;
+		this.bufferedSecondaryTypes = null;
+		for (int i = 0, size = secondaryTypes.size(); i < size; i += 2)
+			JavaModelManager.getJavaModelManager().secondaryTypeAdding(this.document.getPath(), secondaryTypes.get(i + 1), secondaryTypes.get(i));
+		for (int i = 0, size = entries.size(); i < size; i += 2)
+			this.document.addIndexEntry(entries.get(i), entries.get(i + 1));
+	}
 	public void addTypeReference(char[] typeName) {
 		addNameReference(CharOperation.lastSegment(typeName, '.'));
 	}
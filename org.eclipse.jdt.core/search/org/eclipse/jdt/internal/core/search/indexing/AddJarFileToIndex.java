@@ -106,6 +106,10 @@ class AddJarFileToIndex extends BinaryContainer {
 				return true;
 			}
 
+			// reuse the index of a library with the same content if it was shared by another workspace
+			SharedIndexCache sharedIndexCache = this.forceIndexUpdate ? null : this.manager.sharedIndexCache;
+			String sharedIndexKey = sharedIndexCache == null ? null : fetchSharedIndex(sharedIndexCache);
+
 			index = this.manager.getIndexForUpdate(this.containerPath, true, /*reuse index file*/ true /*create if none*/);
 			if (index == null) {
 				if (JobManager.VERBOSE)
@@ -265,6 +269,8 @@ class AddJarFileToIndex extends BinaryContainer {
 				}
 				else {
 					this.manager.saveIndex(index);
+					if (sharedIndexCache != null)
+						publishSharedIndex(sharedIndexCache, sharedIndexKey, index);
 				}
 				if (JobManager.VERBOSE)
 					org.eclipse.jdt.internal.core.util.Util.verbose("-> done indexing of " //$NON-NLS-1$
@@ -288,6 +294,47 @@ class AddJarFileToIndex extends BinaryContainer {
 		}
 		return true;
 	}
+	/*
+	 * Copies the shared index of the library to the index file if it does not exist yet, and answers the key of the library
+	 * or null if the index file existed. The copied index is checked against the entries of the library as a saved index is.
+	 */
+	private String fetchSharedIndex(SharedIndexCache sharedIndexCache) {
+		File indexFile = this.manager.computeIndexLocation(this.containerPath).getIndexFile();
+		if (indexFile == null || indexFile.exists())
+			return null;
+		File libraryFile = getLibraryFile();
+		if (libraryFile == null)
+			return null;
+		try {
+			String key = SharedIndexCache.computeKey(libraryFile);
+			if (sharedIndexCache.copyTo(key, indexFile) && JobManager.VERBOSE)
+				org.eclipse.jdt.internal.core.util.Util.verbose("-> reusing shared index " + key + " for " + this.containerPath); //$NON-NLS-1$ //$NON-NLS-2$
+			return key;
+		} catch (IOException e) {
+			return null; // index the library
+		}
+	}
+	private void publishSharedIndex(SharedIndexCache sharedIndexCache, String key, Index index) {
+		IndexLocation indexLocation = index.getIndexLocation();
+		File indexFile = indexLocation == null ? null : indexLocation.getIndexFile();
+		if (indexFile == null || !indexFile.exists())
+			return;
+		if (key == null) {
+			File libraryFile = getLibraryFile();
+			if (libraryFile == null)
+				return;
+			try {
+				key = SharedIndexCache.computeKey(libraryFile);
+			} catch (IOException e) {
+				return;
+			}
+		}
+		sharedIndexCache.publish(key, indexFile);
+	}
+	private File getLibraryFile() {
+		IPath location = this.resource == null ? this.containerPath : this.resource.getLocation();
+		return location == null ? null : location.toFile();
+	}
 	@Override
 	public String getJobFamily() {
 		if (this.resource != null)
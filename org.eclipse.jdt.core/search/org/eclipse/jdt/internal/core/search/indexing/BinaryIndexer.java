@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -37,6 +37,7 @@ import org.eclipse.jdt.internal.compiler.env.IModule.IService;
 import org.eclipse.jdt.internal.compiler.lookup.TagBits;
 import org.eclipse.jdt.internal.compiler.lookup.TypeConstants;
 import org.eclipse.jdt.internal.compiler.util.SuffixConstants;
+import org.eclipse.jdt.internal.core.search.matching.AnnotatedDeclarationPattern;
 import org.eclipse.jdt.internal.core.util.Util;
 
 public class BinaryIndexer extends AbstractIndexer implements SuffixConstants {
@@ -51,6 +52,26 @@ public class BinaryIndexer extends AbstractIndexer implements SuffixConstants {
 	private static final char[] VOID = "void".toCharArray(); //$NON-NLS-1$
 	private static final char[] INIT = "<init>".toCharArray(); //$NON-NLS-1$
 
+	// the standard annotations which the class file reader only records in the tag bits, and their qualified names
+	private static final long[] STANDARD_ANNOTATION_TAG_BITS = {
+		TagBits.AnnotationTargetMASK,
+		TagBits.AnnotationRetentionMASK,
+		TagBits.AnnotationDeprecated,
+		TagBits.AnnotationDocumented,
+		TagBits.AnnotationInherited,
+		TagBits.AnnotationSafeVarargs,
+		TagBits.AnnotationPolymorphicSignature
+	};
+	private static final char[][] STANDARD_ANNOTATION_NAMES = {
+		CharOperation.concatWith(TypeConstants.JAVA_LANG_ANNOTATION_TARGET, '.'),
+		CharOperation.concatWith(TypeConstants.JAVA_LANG_ANNOTATION_RETENTION, '.'),
+		CharOperation.concatWith(TypeConstants.JAVA_LANG_DEPRECATED, '.'),
+		CharOperation.concatWith(TypeConstants.JAVA_LANG_ANNOTATION_DOCUMENTED, '.'),
+		CharOperation.concatWith(TypeConstants.JAVA_LANG_ANNOTATION_INHERITED, '.'),
+		CharOperation.concatWith(TypeConstants.JAVA_LANG_SAFEVARARGS, '.'),
+		CharOperation.replaceOnCopy(CharOperation.concatWith(TypeConstants.JAVA_LANG_INVOKE_METHODHANDLE_$_POLYMORPHICSIGNATURE, '.'), '$', '.')
+	};
+
 	public BinaryIndexer(SearchDocument document) {
 		super(document);
 	}
@@ -185,6 +206,21 @@ public class BinaryIndexer extends AbstractIndexer implements SuffixConstants {
 			}
 		}
 	}
+	private void addBinaryAnnotatedDeclarations(IBinaryAnnotation[] annotations, long annotationTagBits, char elementKind, char[] elementName, char[] declaringQualification, char[] packageName) {
+		if (annotations != null) {
+			for (int a = 0, length = annotations.length; a < length; a++) {
+				char[] annotationName = replace('/', '.', Signature.toCharArray(annotations[a].getTypeName()));
+				addAnnotatedDeclaration(replace('$', '.', annotationName), elementKind, elementName, declaringQualification, packageName);
+			}
+		}
+		if (annotationTagBits != 0) {
+			for (int i = 0, length = STANDARD_ANNOTATION_TAG_BITS.length; i < length; i++) {
+				if ((annotationTagBits & STANDARD_ANNOTATION_TAG_BITS[i]) != 0) {
+					addAnnotatedDeclaration(STANDARD_ANNOTATION_NAMES[i], elementKind, elementName, declaringQualification, packageName);
+				}
+			}
+		}
+	}
 	private void addPairValue(Object pairValue) {
 		if (pairValue instanceof EnumConstantSignature) {
 			EnumConstantSignature enumConstant = (EnumConstantSignature) pairValue;
@@ -735,6 +771,13 @@ public class BinaryIndexer extends AbstractIndexer implements SuffixConstants {
 			if (tagBits != 0) {
 				addBinaryStandardAnnotations(tagBits);
 			}
+			// the annotated declarations of local and anonymous types are not recorded
+			char[] declaringQualification = null;
+			if (enclosingTypeName != ONE_ZERO) {
+				char[] typeQualification = enclosingTypeName == null ? CharOperation.NO_CHAR : CharOperation.replaceOnCopy(enclosingTypeName, '$', '.');
+				addBinaryAnnotatedDeclarations(annotations, tagBits, AnnotatedDeclarationPattern.TYPE_KIND, name, typeQualification, packageName);
+				declaringQualification = typeQualification.length == 0 ? name : CharOperation.concat(typeQualification, name, '.');
+			}
 			
 			int extraFlags = ExtraFlags.getExtraFlags(reader);
 
@@ -808,6 +851,9 @@ public class BinaryIndexer extends AbstractIndexer implements SuffixConstants {
 					if (tagBits != 0) {
 						addBinaryStandardAnnotations(tagBits);
 					}
+					if (declaringQualification != null && !method.isClinit()) {
+						addBinaryAnnotatedDeclarations(annotations, tagBits, AnnotatedDeclarationPattern.METHOD_KIND, isConstructor ? name : method.getSelector(), declaringQualification, packageName);
+					}
 				}
 			}
 			if (noConstructor) {
@@ -832,6 +878,9 @@ public class BinaryIndexer extends AbstractIndexer implements SuffixConstants {
 					if (tagBits != 0) {
 						addBinaryStandardAnnotations(tagBits);
 					}
+					if (declaringQualification != null) {
+						addBinaryAnnotatedDeclarations(annotations, tagBits, AnnotatedDeclarationPattern.FIELD_KIND, fieldName, declaringQualification, packageName);
+					}
 				}
 			}
 			// record all references found inside the .class file
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -30,6 +30,7 @@ public interface IIndexConstants {
 	char[] FIELD_DECL= "fieldDecl".toCharArray(); //$NON-NLS-1$
 	char[] MODULE_DECL= "moduleDecl".toCharArray(); //$NON-NLS-1$
 	char[] MODULE_REF= "moduleRef".toCharArray(); //$NON-NLS-1$
+	char[] ANNOTATED_DECL= "annotatedDecl".toCharArray(); //$NON-NLS-1$
 	char[] OBJECT = "Object".toCharArray(); //$NON-NLS-1$
 	char[] MODULE_INFO = "module-info".toCharArray(); ////$NON-NLS-1$
 	char[][] COUNTS=
@@ -71,4 +72,5 @@ public interface IIndexConstants {
 	int AND_PATTERN = 0x0800;
 	int ANNOT_REF_PATTERN = 0x1000;
 	int MODULE_PATTERN = 0x2000;
+	int ANNOTATED_DECL_PATTERN = 0x4000;
 }
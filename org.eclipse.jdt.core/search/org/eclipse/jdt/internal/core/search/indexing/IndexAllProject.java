@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,7 +15,16 @@ package org.eclipse.jdt.internal.core.search.indexing;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.filesystem.EFS;
 import org.eclipse.core.resources.IFile;
@@ -29,9 +38,13 @@ import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jdt.core.IClasspathEntry;
 import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.search.SearchDocument;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchParticipant;
 import org.eclipse.jdt.internal.compiler.SourceElementParser;
 import org.eclipse.jdt.internal.compiler.util.SimpleLookupTable;
 import org.eclipse.jdt.internal.core.ClasspathEntry;
+import org.eclipse.jdt.internal.core.JavaModelManager;
 import org.eclipse.jdt.internal.core.JavaProject;
 import org.eclipse.jdt.internal.core.index.Index;
 import org.eclipse.jdt.internal.core.search.processing.JobManager;
@@ -39,6 +52,19 @@ import org.eclipse.jdt.internal.core.util.Util;
 
 @SuppressWarnings({"rawtypes", "unchecked"})
 public class IndexAllProject extends IndexRequest {
+	/**
+	 * How many source files of a project are indexed at the same time, see
+	 * {@link JavaModelManager#MAX_PARALLEL_SOURCE_INDEXERS}. With the default of 1, the source files are indexed one
+	 * after the other as they always were: the parallel indexing is not used, and its speedup has not been measured.
+	 */
+	public static int MAX_PARALLEL_INDEXERS = Integer.getInteger(JavaModelManager.MAX_PARALLEL_SOURCE_INDEXERS, 1).intValue();
+	/**
+	 * How many source files are indexed in parallel before their entries are added to the index, which bounds the
+	 * documents and entries kept in memory.
+	 */
+	static final int SOURCES_PER_MERGE = 256;
+	private static ExecutorService indexerExecutor;
+
 	IProject project;
 
 	public IndexAllProject(IProject project, IndexManager manager) {
@@ -208,7 +234,8 @@ public class IndexAllProject extends IndexRequest {
 				}
 			}
 
-			SourceElementParser parser = this.manager.getSourceElementParser(javaProject, null/*requestor will be set by indexer*/);
+			ArrayList<IFile> sources = MAX_PARALLEL_INDEXERS > 1 ? new ArrayList<>() : null;
+			SourceElementParser parser = sources == null ? this.manager.getSourceElementParser(javaProject, null/*requestor will be set by indexer*/) : null;
 			Object[] names = indexedFileNames.keyTable;
 			Object[] values = indexedFileNames.valueTable;
 			for (int i = 0, namesLength = names.length; i < namesLength; i++) {
@@ -220,11 +247,19 @@ public class IndexAllProject extends IndexRequest {
 					if (value != OK) {
 						if (value == DELETED)
 							this.manager.remove(name, this.containerPath);
+						else if (sources != null)
+							sources.add((IFile) value);
 						else
 							this.manager.addSource((IFile) value, this.containerPath, parser);
 					}
 				}
 			}
+			if (sources != null && !sources.isEmpty()) {
+				// the sources are parsed without lock, then added to the index at once
+				monitor.exitRead();
+				monitor = null;
+				if (!indexSources(javaProject, index, sources)) return false;
+			}
 
 			// request to save index when all cus have been indexed... also sets state to SAVED_STATE
 			this.manager.request(new SaveIndex(this.containerPath, this.manager));
@@ -241,6 +276,134 @@ public class IndexAllProject extends IndexRequest {
 		}
 		return true;
 	}
+	private static synchronized ExecutorService getIndexerExecutor() {
+		if (indexerExecutor == null) {
+			int threads = Math.max(1, MAX_PARALLEL_INDEXERS - 1);
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+				Thread thread = new Thread(runnable, "Java source indexer"); //$NON-NLS-1$
+				thread.setDaemon(true);
+				return thread;
+			});
+			executor.allowCoreThreadTimeOut(true); // don't keep idle threads between projects
+			indexerExecutor = executor;
+		}
+		return indexerExecutor;
+	}
+	/**
+	 * Indexes the given source files with the current thread and with up to MAX_PARALLEL_INDEXERS - 1 threads of a
+	 * shared pool, each thread having its own parser. The sources are indexed by batches of SOURCES_PER_MERGE: the
+	 * entries of the documents of a batch are kept in memory until the current thread adds all of them to the index
+	 * with one write lock, then the documents of the batch are released. Answers false if the request was cancelled.
+	 */
+	private boolean indexSources(JavaProject javaProject, Index index, ArrayList<IFile> sources) {
+		long initialTime = System.currentTimeMillis();
+		int size = sources.size();
+		int threads = Math.min(MAX_PARALLEL_INDEXERS, size);
+		SourceElementParser[] parsers = new SourceElementParser[threads];
+		for (int i = 0; i < threads; i++)
+			parsers[i] = this.manager.getSourceElementParser(javaProject, null/*requestor will be set by indexer*/);
+		long mergeTime = 0;
+		for (int start = 0; start < size; start += SOURCES_PER_MERGE) {
+			SourceIndexer[] indexers = indexBatch(sources, start, Math.min(start + SOURCES_PER_MERGE, size), parsers);
+			if (indexers == null) return false;
+			long parsedTime = System.currentTimeMillis();
+
+			ReadWriteMonitor monitor = index.monitor;
+			if (monitor == null) return true; // index got deleted since acquired
+			try {
+				monitor.enterWrite(); // ask permission to write
+				for (int i = 0, length = indexers.length; i < length; i++) {
+					SearchDocument document = indexers[i].document;
+					try {
+						document.setIndex(index);
+						document.removeAllIndexEntries(); // in case the document was already indexed
+						indexers[i].flushIndexEntries();
+					} finally {
+						document.setIndex(null);
+					}
+				}
+			} finally {
+				monitor.exitWrite(); // free write lock
+			}
+			mergeTime += System.currentTimeMillis() - parsedTime;
+
+			// the documents with functional types are resolved one after the other, as by the indexing of a single document
+			for (int i = 0, length = indexers.length; i < length; i++) {
+				if (this.isCancelled) return false;
+				SearchDocument document = indexers[i].document;
+				if (document.shouldIndexResolvedDocument()) {
+					indexers[i].resolveDocument();
+					try {
+						monitor.enterWrite(); // ask permission to write
+						document.setIndex(index);
+						indexers[i].indexResolvedDocument();
+					} finally {
+						document.setIndex(null);
+						monitor.exitWrite(); // free write lock
+					}
+				}
+			}
+		}
+		if (JobManager.VERBOSE) {
+			long time = System.currentTimeMillis() - initialTime;
+			Util.verbose("-> indexed " + size + " source files of " + this.project.getName() + " with " + threads + " threads in " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+					+ time + "ms (" + (size * 1000L / Math.max(1, time)) + " files/s, " + mergeTime + "ms to add the entries)"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		return true;
+	}
+	/**
+	 * Indexes the source files from start to end, with buffered entries, using one thread for each parser.
+	 * Answers their indexers, or null if the request was cancelled.
+	 */
+	private SourceIndexer[] indexBatch(ArrayList<IFile> sources, final int start, final int end, SourceElementParser[] parsers) {
+		final SourceIndexer[] indexers = new SourceIndexer[end - start];
+		final SearchParticipant participant = SearchEngine.getDefaultSearchParticipant();
+		final AtomicInteger nextSource = new AtomicInteger(start);
+		final AtomicBoolean stopped = new AtomicBoolean();
+		int threads = Math.min(parsers.length, end - start);
+		ArrayList<FutureTask<Void>> tasks = new ArrayList<>(threads);
+		ExecutorService executor = getIndexerExecutor();
+		for (int i = 0; i < threads; i++) {
+			final SourceElementParser parser = parsers[i];
+			FutureTask<Void> task = new FutureTask<>(() -> {
+				for (int j = nextSource.getAndIncrement(); j < end && !stopped.get() && !this.isCancelled; j = nextSource.getAndIncrement()) {
+					SearchDocument document = participant.getDocument(sources.get(j).getFullPath().toString());
+					document.setParser(parser);
+					SourceIndexer indexer = new SourceIndexer(document);
+					indexer.bufferIndexEntries();
+					indexer.indexDocument();
+					indexers[j - start] = indexer;
+				}
+				return null;
+			});
+			tasks.add(task);
+			if (i > 0) // the current thread starts with the first task
+				executor.execute(task);
+		}
+		try {
+			for (int i = 0; i < threads; i++) {
+				FutureTask<Void> task = tasks.get(i);
+				task.run(); // index the remaining sources unless a thread of the pool already did or does
+				task.get();
+			}
+		} catch (InterruptedException e) {
+			stopped.set(true);
+		} catch (ExecutionException e) {
+			stopped.set(true);
+			Throwable cause = e.getCause();
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw (RuntimeException) cause;
+		} finally {
+			if (stopped.get() || this.isCancelled) {
+				// the sources which are not indexed yet are not needed any longer
+				stopped.set(true);
+				for (int i = 0; i < threads; i++)
+					tasks.get(i).cancel(false);
+			}
+		}
+		return stopped.get() ? null : indexers;
+	}
 	@Override
 	public int hashCode() {
 		return this.project.hashCode();
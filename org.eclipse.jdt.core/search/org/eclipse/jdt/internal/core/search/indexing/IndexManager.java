@@ -103,6 +103,15 @@ public class IndexManager extends JobManager implements IIndexConstants {
 	public static final String MANAGE_PRODUCT_INDEXES_PROPERTY = "jdt.core.manageProductIndexes"; //$NON-NLS-1$
 	private static final boolean IS_MANAGING_PRODUCT_INDEXES_PROPERTY = Boolean.getBoolean(MANAGE_PRODUCT_INDEXES_PROPERTY);
 
+	// how many index requests for different containers can run at the same time
+	public static int MAX_CONCURRENT_JOBS = Integer.getInteger(JavaModelManager.MAX_CONCURRENT_INDEXING_JOBS, 1).intValue();
+
+	// the indexes of the libraries shared by the processes of the machine, null unless enabled by SharedIndexCache.DIRECTORY_PROPERTY
+	public SharedIndexCache sharedIndexCache = SharedIndexCache.create();
+
+	// the type declarations of the indexes kept in memory, null if disabled by TypeNameCache.SIZE_PROPERTY
+	public TypeNameCache typeNameCache = TypeNameCache.create();
+
 	// Debug
 	public static boolean DEBUG = false;
 
@@ -694,14 +703,25 @@ public synchronized void jobWasCancelled(IPath containerPath) {
 	updateIndexState(indexLocation, UNKNOWN_STATE);
 }
 /**
- * Advance to the next available job, once the current one has been completed.
+ * Index requests for different containers update different indexes, so they can run at the same time.
+ */
+@Override
+protected Object jobIndexKey(IJob job) {
+	return job instanceof IndexRequest ? ((IndexRequest) job).containerPath : null;
+}
+@Override
+protected int maxConcurrentJobs() {
+	return Math.max(1, MAX_CONCURRENT_JOBS);
+}
+/**
+ * Remove the given job from the queue, once it has been completed.
  * Note: clients awaiting until the job count is zero are still waiting at this point.
  */
 @Override
-protected synchronized void moveToNextJob() {
+protected synchronized void moveToNextJob(IJob job) {
 	// remember that one job was executed, and we will need to save indexes at some point
 	this.needToSave = true;
-	super.moveToNextJob();
+	super.moveToNextJob(job);
 }
 /**
  * No more job awaiting.
@@ -829,6 +849,8 @@ public synchronized void removeIndex(IPath containerPath) {
 		indexFile.delete();
 	}
 	this.indexes.removeKey(indexLocation);
+	if (this.typeNameCache != null)
+		this.typeNameCache.remove(indexLocation);
 	if (IS_MANAGING_PRODUCT_INDEXES_PROPERTY) {
 		this.indexLocations.removeKey(containerPath);
 	}
@@ -869,8 +891,11 @@ public synchronized void removeIndexPath(IPath path) {
 		}
 	}
 	if (locations != null) {
-		for (int i = 0; i < count; i++)
+		for (int i = 0; i < count; i++) {
 			this.indexes.removeKey(locations[i]);
+			if (this.typeNameCache != null)
+				this.typeNameCache.remove(locations[i]);
+		}
 		removeIndexesState(locations);
 		if (this.participantsContainers != null) {
 			boolean update = false;
@@ -934,6 +959,8 @@ public void reset() {
 		}
 		this.indexLocations = new SimpleLookupTable();
 		this.javaPluginLocation = null;
+		if (this.typeNameCache != null)
+			this.typeNameCache.reset();
 	}
 }
 /**
@@ -991,12 +1018,10 @@ public void saveIndex(Index index) throws IOException {
 	}
 	synchronized (this) {
 		IPath containerPath = new Path(index.containerPath);
-		if (this.jobEnd > this.jobStart) {
-			for (int i = this.jobEnd; i > this.jobStart; i--) { // skip the current job
-				IJob job = this.awaitingJobs[i];
-				if (job instanceof IndexRequest)
-					if (((IndexRequest) job).containerPath.equals(containerPath)) return;
-			}
+		for (int i = this.jobEnd; i >= this.jobStart; i--) {
+			IJob job = this.awaitingJobs[i];
+			if (job instanceof IndexRequest && !isRunning(job)) // skip the running jobs, including the current one
+				if (((IndexRequest) job).containerPath.equals(containerPath)) return;
 		}
 		IndexLocation indexLocation = computeIndexLocation(containerPath);
 		updateIndexState(indexLocation, SAVED_STATE);
@@ -1113,8 +1138,7 @@ private void readIndexMap() {
 		char[][] names = CharOperation.splitOn('\n', indexMaps);
 		if (names.length >= 3) {
 			// First line is DiskIndex signature (see writeIndexMapFile())
-			String savedSignature = DiskIndex.SIGNATURE;
-			if (savedSignature.equals(new String(names[0]))) {
+			if (DiskIndex.isCompatibleSignature(new String(names[0]))) {
 				for (int i = 1, l = names.length-1 ; i < l ; i+=2) {
 					IndexLocation indexPath = IndexLocation.createIndexLocation(new URL(new String(names[i])));
 					if (indexPath == null) continue;
@@ -1137,7 +1161,7 @@ private void readParticipantsIndexNamesFile() {
 			char[][] names = CharOperation.splitOn('\n', participantIndexNames);
 			if (names.length >= 3) {
 				// First line is DiskIndex signature  (see writeParticipantsIndexNamesFile())
-				if (DiskIndex.SIGNATURE.equals(new String(names[0]))) {					
+				if (DiskIndex.isCompatibleSignature(new String(names[0]))) {					
 					for (int i = 1, l = names.length-1 ; i < l ; i+=2) {
 						IndexLocation indexLocation = new FileIndexLocation(new File(new String(names[i])), true);
 						containers.put(indexLocation, new Path(new String(names[i+1])));
@@ -76,8 +76,10 @@ public class IndexNamesRegistry {
 				char[][] names = CharOperation.splitOn('\n', savedIndexNames);
 				if (names.length > 1) {
 					// First line is DiskIndex signature + saved plugin working location (see writeSavedIndexNamesFile())
-					String savedSignature = DiskIndex.SIGNATURE + "+" + this.javaPluginWorkingLocation.toOSString(); //$NON-NLS-1$
-					if (savedSignature.equals(new String(names[0])))
+					String savedSignature = new String(names[0]);
+					String savedLocation = "+" + this.javaPluginWorkingLocation.toOSString(); //$NON-NLS-1$
+					if (savedSignature.endsWith(savedLocation)
+							&& DiskIndex.isCompatibleSignature(savedSignature.substring(0, savedSignature.length() - savedLocation.length())))
 						return names;
 				}
 			}
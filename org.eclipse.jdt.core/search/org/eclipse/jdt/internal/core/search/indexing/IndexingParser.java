@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,26 +14,364 @@
 package org.eclipse.jdt.internal.core.search.indexing;
 
 import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.core.compiler.InvalidInputException;
 import org.eclipse.jdt.internal.compiler.IProblemFactory;
 import org.eclipse.jdt.internal.compiler.ISourceElementRequestor;
 import org.eclipse.jdt.internal.compiler.SourceElementParser;
 import org.eclipse.jdt.internal.compiler.ast.ASTNode;
+import org.eclipse.jdt.internal.compiler.ast.CompilationUnitDeclaration;
+import org.eclipse.jdt.internal.compiler.ast.ConstructorDeclaration;
+import org.eclipse.jdt.internal.compiler.ast.ExplicitConstructorCall;
 import org.eclipse.jdt.internal.compiler.ast.ImportReference;
+import org.eclipse.jdt.internal.compiler.ast.Initializer;
+import org.eclipse.jdt.internal.compiler.ast.MethodDeclaration;
 import org.eclipse.jdt.internal.compiler.ast.QualifiedNameReference;
 import org.eclipse.jdt.internal.compiler.ast.SingleNameReference;
+import org.eclipse.jdt.internal.compiler.ast.SuperReference;
+import org.eclipse.jdt.internal.compiler.ast.TypeDeclaration;
 import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
+import org.eclipse.jdt.internal.compiler.lookup.ExtraCompilerModifiers;
+import org.eclipse.jdt.internal.compiler.parser.Scanner;
 
 /*
  * A source element parser that avoids creating unnecessary nodes.
+ *
+ * The bodies of the methods, constructors and initializers are not parsed into statements but scanned for the
+ * references the indexer needs: each identifier is reported as a name reference, each method invocation as a method
+ * reference with its number of arguments, and each class instance creation as a constructor reference. A body which
+ * declares a local or anonymous type, or contains a lambda expression, a method reference, an annotation or an
+ * explicit constructor call, is parsed as before, since the indexer needs the declarations and the functional types
+ * found by the parser. The scan may report more name references than the parser, never less.
  */
 public class IndexingParser extends SourceElementParser {
+
+	// should the bodies be scanned rather than parsed?
+	public static final String SCAN_BODIES_PROPERTY = "jdt.core.indexing.scanBodies"; //$NON-NLS-1$
+	static boolean SCAN_BODIES = Boolean.parseBoolean(System.getProperty(SCAN_BODIES_PROPERTY, "true")); //$NON-NLS-1$
+
+	// the kinds of the parenthesized, bracketed and braced scopes of a scanned body
+	private static final int PARENTHESES = 0;
+	private static final int METHOD_INVOCATION = 1;
+	private static final int ALLOCATION = 2;
+	private static final int BRACKETS = 3;
+	private static final int BRACES = 4;
+
 	SingleNameReference singleNameReference = new SingleNameReference(CharOperation.NO_CHAR, 0);
 	QualifiedNameReference qualifiedNameReference = new QualifiedNameReference(CharOperation.NO_CHAR_CHAR, new long[0], 0, 0);
 	ImportReference importReference = new ImportReference(CharOperation.NO_CHAR_CHAR, new long[1], false, 0);
 
+	ISourceElementRequestor referenceRequestor;
+
+	// the scopes opened and not yet closed in the scanned body
+	private int scopePtr = -1;
+	private int[] scopeKinds = new int[16];
+	private char[][] scopeNames = new char[16][]; // the selector or type name of an invocation or allocation
+	private int[] scopeArguments = new int[16];
+	private int[] scopePositions = new int[16];
+
+	// the simple names of the type of the allocation being scanned
+	private int allocationNamePtr = -1;
+	private char[][] allocationNames = new char[4][];
+
 	public IndexingParser(ISourceElementRequestor requestor, IProblemFactory problemFactory, CompilerOptions options, boolean reportLocalDeclarations, boolean optimizeStringLiterals, boolean useSourceJavadocParser) {
 		super(requestor, problemFactory, options, reportLocalDeclarations,
 				optimizeStringLiterals, useSourceJavadocParser);
+		this.referenceRequestor = requestor;
+	}
+
+	@Override
+	public void setRequestor(ISourceElementRequestor requestor) {
+		super.setRequestor(requestor);
+		this.referenceRequestor = requestor;
+	}
+
+	@Override
+	public void parse(MethodDeclaration md, CompilationUnitDeclaration unit) {
+		if (SCAN_BODIES && !md.isAbstract() && !md.isNative() && (md.modifiers & ExtraCompilerModifiers.AccSemicolonBody) == 0
+				&& scanBody(md.bodyStart, md.bodyEnd)) {
+			return;
+		}
+		super.parse(md, unit);
+	}
+
+	@Override
+	public void parse(ConstructorDeclaration cd, CompilationUnitDeclaration unit, boolean recordLineSeparator) {
+		if (SCAN_BODIES && scanBody(cd.bodyStart, cd.bodyEnd)) {
+			// a body with an explicit constructor call is parsed, so a scanned one calls the implicit one
+			ExplicitConstructorCall constructorCall = SuperReference.implicitSuperConstructorCall();
+			constructorCall.sourceStart = cd.sourceStart;
+			constructorCall.sourceEnd = cd.sourceEnd;
+			cd.constructorCall = constructorCall;
+			return;
+		}
+		super.parse(cd, unit, recordLineSeparator);
+	}
+
+	@Override
+	public void parse(Initializer initializer, TypeDeclaration type, CompilationUnitDeclaration unit) {
+		if (SCAN_BODIES && scanBody(initializer.bodyStart, initializer.bodyEnd)) {
+			return;
+		}
+		super.parse(initializer, type, unit);
+	}
+
+	/*
+	 * Reports the references of the given body to the requestor, and answers whether it was scanned completely.
+	 * If not, the body needs to be parsed, which reports again the references found so far: the index ignores them.
+	 */
+	private boolean scanBody(int start, int end) {
+		if (this.referenceRequestor == null) {
+			return false;
+		}
+		Scanner bodyScanner = this.scanner;
+		bodyScanner.resetTo(start, end);
+		this.scopePtr = -1;
+		boolean inAllocation = false; // between 'new' and the arguments or the dimensions of the allocation
+		int typeArgumentsDepth = 0;
+		char[] identifier = null; // the previous token, if it was an identifier
+		int identifierPosition = 0;
+		char[] baseType = null; // a base type, followed by the dimensions scanned so far
+		int baseTypeDimensions = 0;
+		int baseTypePosition = 0;
+		int previousToken = TokenNameNotAToken;
+		int closedKind = PARENTHESES; // the kind of the last closed scope
+		try {
+			while (true) {
+				int token = bodyScanner.getNextToken();
+				if (token == TokenNameEOF) {
+					break;
+				}
+				if (inAllocation && !isAllocationTypeToken(token)) {
+					return false;
+				}
+				if (this.scopePtr >= 0 && this.scopeArguments[this.scopePtr] == 0
+						&& token != TokenNameRPAREN && token != TokenNameRBRACKET && token != TokenNameRBRACE) {
+					this.scopeArguments[this.scopePtr] = 1;
+				}
+				if (baseType != null) {
+					if (token == TokenNameRBRACKET && previousToken == TokenNameLBRACKET) {
+						baseTypeDimensions++;
+					} else if (token != TokenNameLBRACKET) {
+						this.referenceRequestor.acceptUnknownReference(getBaseTypeName(baseType, baseTypeDimensions), baseTypePosition);
+						baseType = null;
+					}
+				}
+				char[] selector = null;
+				if (identifier != null) {
+					if (token == TokenNameLPAREN && !inAllocation) {
+						selector = identifier;
+					} else {
+						this.referenceRequestor.acceptUnknownReference(identifier, identifierPosition);
+					}
+					identifier = null;
+				}
+				switch (token) {
+					case TokenNameIdentifier :
+						identifier = bodyScanner.getCurrentIdentifierSource();
+						identifierPosition = bodyScanner.startPosition;
+						if (inAllocation && typeArgumentsDepth == 0) {
+							int length = this.allocationNames.length;
+							if (++this.allocationNamePtr == length) {
+								System.arraycopy(this.allocationNames, 0, this.allocationNames = new char[length * 2][], 0, length);
+							}
+							this.allocationNames[this.allocationNamePtr] = identifier;
+						}
+						break;
+					case TokenNamenew :
+						inAllocation = true;
+						this.allocationNamePtr = -1;
+						break;
+					case TokenNameLPAREN :
+						if (typeArgumentsDepth > 0) {
+							return false;
+						}
+						if (inAllocation) {
+							inAllocation = false;
+							if (this.allocationNamePtr < 0) {
+								return false;
+							}
+							char[] typeName = this.allocationNamePtr == 0
+									? this.allocationNames[0]
+									: CharOperation.concatWith(CharOperation.subarray(this.allocationNames, 0, this.allocationNamePtr + 1), '.');
+							pushScope(ALLOCATION, typeName, bodyScanner.startPosition);
+						} else if (selector != null) {
+							pushScope(METHOD_INVOCATION, selector, identifierPosition);
+						} else if (previousToken == TokenNamethis || previousToken == TokenNamesuper) {
+							return false; // explicit constructor call
+						} else {
+							pushScope(PARENTHESES, null, 0);
+						}
+						break;
+					case TokenNameRPAREN :
+						if (typeArgumentsDepth > 0 || this.scopePtr < 0 || this.scopeKinds[this.scopePtr] >= BRACKETS) {
+							return false;
+						}
+						closedKind = this.scopeKinds[this.scopePtr];
+						if (closedKind == METHOD_INVOCATION) {
+							this.referenceRequestor.acceptMethodReference(this.scopeNames[this.scopePtr], this.scopeArguments[this.scopePtr], this.scopePositions[this.scopePtr]);
+						} else if (closedKind == ALLOCATION) {
+							this.referenceRequestor.acceptConstructorReference(this.scopeNames[this.scopePtr], this.scopeArguments[this.scopePtr], this.scopePositions[this.scopePtr]);
+						}
+						this.scopeNames[this.scopePtr--] = null;
+						break;
+					case TokenNameLBRACKET :
+						if (typeArgumentsDepth == 0) {
+							inAllocation = false; // an array creation
+						}
+						pushScope(BRACKETS, null, 0);
+						break;
+					case TokenNameRBRACKET :
+						if (this.scopePtr < 0 || this.scopeKinds[this.scopePtr] != BRACKETS) {
+							return false;
+						}
+						this.scopePtr--;
+						break;
+					case TokenNameLBRACE :
+						if (typeArgumentsDepth > 0 || (previousToken == TokenNameRPAREN && closedKind == ALLOCATION)) {
+							return false; // anonymous type
+						}
+						pushScope(BRACES, null, 0);
+						break;
+					case TokenNameRBRACE :
+						if (typeArgumentsDepth > 0 || this.scopePtr < 0 || this.scopeKinds[this.scopePtr] != BRACES) {
+							return false;
+						}
+						this.scopePtr--;
+						break;
+					case TokenNameSEMICOLON :
+						if (typeArgumentsDepth > 0) {
+							return false;
+						}
+						break;
+					case TokenNameCOMMA :
+						if (typeArgumentsDepth == 0 && this.scopePtr >= 0) {
+							this.scopeArguments[this.scopePtr]++;
+						}
+						break;
+					case TokenNameLESS :
+						// the type arguments of an allocation or a method invocation, otherwise a comparison
+						if (typeArgumentsDepth > 0 || inAllocation || previousToken == TokenNameDOT) {
+							typeArgumentsDepth++;
+						}
+						break;
+					case TokenNameQUESTION :
+						// a wildcard, e.g. 'o instanceof List<?>'
+						if (previousToken == TokenNameLESS && typeArgumentsDepth == 0) {
+							typeArgumentsDepth = 1;
+						}
+						break;
+					case TokenNameGREATER :
+						typeArgumentsDepth = Math.max(0, typeArgumentsDepth - 1);
+						break;
+					case TokenNameRIGHT_SHIFT :
+						typeArgumentsDepth = Math.max(0, typeArgumentsDepth - 2);
+						break;
+					case TokenNameUNSIGNED_RIGHT_SHIFT :
+						typeArgumentsDepth = Math.max(0, typeArgumentsDepth - 3);
+						break;
+					case TokenNameboolean :
+					case TokenNamebyte :
+					case TokenNamechar :
+					case TokenNameshort :
+					case TokenNameint :
+					case TokenNamelong :
+					case TokenNamefloat :
+					case TokenNamedouble :
+					case TokenNamevoid :
+						// the parser reports the base types and their array types as type references, but the
+						// dimensions of an array creation are not part of its type
+						if (previousToken == TokenNamenew) {
+							this.referenceRequestor.acceptUnknownReference(bodyScanner.getCurrentIdentifierSource(), bodyScanner.startPosition);
+						} else {
+							baseType = bodyScanner.getCurrentIdentifierSource();
+							baseTypeDimensions = 0;
+							baseTypePosition = bodyScanner.startPosition;
+						}
+						break;
+					case TokenNameclass :
+						if (previousToken != TokenNameDOT) {
+							return false; // local type
+						}
+						break;
+					case TokenNameinterface :
+					case TokenNameenum :
+					case TokenNameAT :
+					case TokenNameAT308 :
+					case TokenNameAT308DOTDOTDOT :
+					case TokenNameARROW :
+					case TokenNameCOLON_COLON :
+						return false;
+				}
+				previousToken = token;
+			}
+		} catch (InvalidInputException e) {
+			return false;
+		}
+		if (identifier != null) {
+			this.referenceRequestor.acceptUnknownReference(identifier, identifierPosition);
+		}
+		if (baseType != null) {
+			this.referenceRequestor.acceptUnknownReference(getBaseTypeName(baseType, baseTypeDimensions), baseTypePosition);
+		}
+		return this.scopePtr < 0 && !inAllocation;
+	}
+
+	private char[] getBaseTypeName(char[] baseType, int dimensionCount) {
+		if (dimensionCount == 0) {
+			return baseType;
+		}
+		int length = baseType.length;
+		char[] typeName = new char[length + dimensionCount * 2];
+		System.arraycopy(baseType, 0, typeName, 0, length);
+		for (int i = length; i < typeName.length; i += 2) {
+			typeName[i] = '[';
+			typeName[i + 1] = ']';
+		}
+		return typeName;
+	}
+
+	private boolean isAllocationTypeToken(int token) {
+		switch (token) {
+			case TokenNameIdentifier :
+			case TokenNameDOT :
+			case TokenNameLESS :
+			case TokenNameGREATER :
+			case TokenNameRIGHT_SHIFT :
+			case TokenNameUNSIGNED_RIGHT_SHIFT :
+			case TokenNameQUESTION :
+			case TokenNameCOMMA :
+			case TokenNameextends :
+			case TokenNamesuper :
+			case TokenNameAND :
+			case TokenNameLBRACKET :
+			case TokenNameRBRACKET :
+			case TokenNameLPAREN :
+			case TokenNameboolean :
+			case TokenNamebyte :
+			case TokenNamechar :
+			case TokenNameshort :
+			case TokenNameint :
+			case TokenNamelong :
+			case TokenNamefloat :
+			case TokenNamedouble :
+				return true;
+			default :
+				return false;
+		}
+	}
+
+	private void pushScope(int kind, char[] scopeName, int position) {
+		int length = this.scopeKinds.length;
+		if (++this.scopePtr == length) {
+			System.arraycopy(this.scopeKinds, 0, this.scopeKinds = new int[length * 2], 0, length);
+			System.arraycopy(this.scopeNames, 0, this.scopeNames = new char[length * 2][], 0, length);
+			System.arraycopy(this.scopeArguments, 0, this.scopeArguments = new int[length * 2], 0, length);
+			System.arraycopy(this.scopePositions, 0, this.scopePositions = new int[length * 2], 0, length);
+		}
+		this.scopeKinds[this.scopePtr] = kind;
+		this.scopeNames[this.scopePtr] = scopeName;
+		this.scopeArguments[this.scopePtr] = 0;
+		this.scopePositions[this.scopePtr] = position;
 	}
 
 	@Override
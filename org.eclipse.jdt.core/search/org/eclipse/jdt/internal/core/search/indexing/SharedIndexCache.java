@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.search.indexing;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.eclipse.jdt.internal.core.index.DiskIndex;
+import org.eclipse.jdt.internal.core.search.processing.JobManager;
+import org.eclipse.jdt.internal.core.util.Util;
+
+/**
+ * A directory of library indexes which is shared by the workspaces and the headless applications of a machine.
+ * <p>
+ * An index is stored under the hash of the content of its library, so a library which is indexed once is not indexed again
+ * by another workspace, or after its index was deleted. Indexes are published by renaming a complete file, hence a process
+ * never reads an index which another process is writing. The least recently used indexes are deleted when the size of
+ * the directory exceeds its limit.
+ * </p>
+ * The cache is disabled unless the {@link #DIRECTORY_PROPERTY} system property names its directory.
+ */
+public class SharedIndexCache {
+
+	public static final String DIRECTORY_PROPERTY = "jdt.core.sharedIndexCache"; //$NON-NLS-1$
+	public static final String SIZE_PROPERTY = "jdt.core.sharedIndexCacheSize"; //$NON-NLS-1$ // in MB
+	static final long DEFAULT_SIZE = 1024; // MB
+	static final String INDEX_SUFFIX = ".index"; //$NON-NLS-1$
+	static final String TEMP_SUFFIX = ".tmp"; //$NON-NLS-1$
+	static final String LOCK_FILE_NAME = "cache.lock"; //$NON-NLS-1$
+	static final long STALE_TEMP_FILE_AGE = 60 * 60 * 1000; // the temporary files left by a process which died while publishing
+
+	final File directory;
+	final long maxSize; // in bytes
+
+	static SharedIndexCache create() {
+		String directory = System.getProperty(DIRECTORY_PROPERTY);
+		if (directory == null || directory.length() == 0)
+			return null;
+		return new SharedIndexCache(new File(directory), Long.getLong(SIZE_PROPERTY, DEFAULT_SIZE).longValue() * 1024 * 1024);
+	}
+
+	public SharedIndexCache(File directory, long maxSize) {
+		this.directory = directory;
+		this.maxSize = maxSize;
+	}
+	/**
+	 * Answers the key of the index of the given library, which depends on its content, on its name since the name
+	 * of an automatic module is computed from it, and on the format of the index files.
+	 */
+	public static String computeKey(File library) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256"); //$NON-NLS-1$
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		digest.update(DiskIndex.SIGNATURE.getBytes(StandardCharsets.UTF_8));
+		digest.update(library.getName().getBytes(StandardCharsets.UTF_8));
+		byte[] buffer = new byte[8192];
+		try (InputStream stream = new FileInputStream(library)) {
+			int read;
+			while ((read = stream.read(buffer)) != -1)
+				digest.update(buffer, 0, read);
+		}
+		byte[] hash = digest.digest();
+		StringBuilder key = new StringBuilder(hash.length * 2);
+		for (int i = 0, l = hash.length; i < l; i++) {
+			key.append(Character.forDigit((hash[i] >> 4) & 0xF, 16));
+			key.append(Character.forDigit(hash[i] & 0xF, 16));
+		}
+		return key.toString();
+	}
+	/**
+	 * Copies the shared index with the given key to the given file, and answers whether it was found.
+	 */
+	public boolean copyTo(String key, File indexFile) {
+		File sharedFile = new File(this.directory, key + INDEX_SUFFIX);
+		if (!sharedFile.exists())
+			return false;
+		try {
+			Files.copy(sharedFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			// the index was evicted by another process while being copied
+			indexFile.delete();
+			return false;
+		}
+		sharedFile.setLastModified(System.currentTimeMillis()); // recently used
+		return true;
+	}
+	/**
+	 * Shares the given index file under the given key, then evicts the least recently used indexes if the cache is too large.
+	 */
+	public void publish(String key, File indexFile) {
+		File sharedFile = new File(this.directory, key + INDEX_SUFFIX);
+		if (sharedFile.exists()) {
+			sharedFile.setLastModified(System.currentTimeMillis());
+			return; // shared by another process in the meantime
+		}
+		File tempFile = null;
+		try {
+			if (!this.directory.exists())
+				this.directory.mkdirs();
+			tempFile = File.createTempFile(key, TEMP_SUFFIX, this.directory);
+			Files.copy(indexFile.toPath(), tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			try {
+				Files.move(tempFile.toPath(), sharedFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile.toPath(), sharedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			if (JobManager.VERBOSE) {
+				Util.verbose("-> failed to share index " + indexFile + " because of the following exception:"); //$NON-NLS-1$ //$NON-NLS-2$
+				e.printStackTrace();
+			}
+			return;
+		} finally {
+			if (tempFile != null && tempFile.exists())
+				tempFile.delete();
+		}
+		evict();
+	}
+	void evict() {
+		// a single process evicts at a time, the others let it do
+		try (FileChannel channel = FileChannel.open(new File(this.directory, LOCK_FILE_NAME).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+				FileLock lock = channel.tryLock()) {
+			if (lock == null)
+				return;
+			File[] files = this.directory.listFiles();
+			if (files == null)
+				return;
+			long now = System.currentTimeMillis();
+			long size = 0;
+			int count = 0;
+			for (int i = 0, l = files.length; i < l; i++) {
+				File file = files[i];
+				String name = file.getName();
+				if (name.endsWith(INDEX_SUFFIX)) {
+					size += file.length();
+					files[count++] = file;
+				} else if (name.endsWith(TEMP_SUFFIX) && now - file.lastModified() > STALE_TEMP_FILE_AGE) {
+					file.delete();
+				}
+			}
+			if (size <= this.maxSize)
+				return;
+			File[] indexFiles = Arrays.copyOf(files, count);
+			long[] lastModified = new long[count]; // sort on a snapshot, the other processes keep touching the files
+			for (int i = 0; i < count; i++)
+				lastModified[i] = indexFiles[i].lastModified();
+			Integer[] order = new Integer[count];
+			for (int i = 0; i < count; i++)
+				order[i] = Integer.valueOf(i);
+			Arrays.sort(order, Comparator.comparingLong(i -> lastModified[i.intValue()]));
+			for (int i = 0; i < count && size > this.maxSize; i++) {
+				File file = indexFiles[order[i].intValue()];
+				long length = file.length();
+				if (file.delete()) {
+					size -= length;
+					if (JobManager.VERBOSE)
+						Util.verbose("-> evicted shared index " + file); //$NON-NLS-1$
+				}
+			}
+		} catch (IOException | OverlappingFileLockException e) {
+			// another thread of this process is evicting, or the cache is evicted when the next index is published
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -20,10 +20,14 @@ import org.eclipse.jdt.core.compiler.*;
 import org.eclipse.jdt.internal.compiler.ExtraFlags;
 import org.eclipse.jdt.internal.compiler.ISourceElementRequestor;
 import org.eclipse.jdt.internal.compiler.ast.AbstractMethodDeclaration;
+import org.eclipse.jdt.internal.compiler.ast.Annotation;
 import org.eclipse.jdt.internal.compiler.ast.Expression;
 import org.eclipse.jdt.internal.compiler.ast.ImportReference;
 import org.eclipse.jdt.internal.compiler.ast.TypeDeclaration;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
 import org.eclipse.jdt.internal.compiler.lookup.TypeConstants;
+import org.eclipse.jdt.internal.compiler.util.HashtableOfObject;
+import org.eclipse.jdt.internal.core.search.matching.AnnotatedDeclarationPattern;
 import org.eclipse.jdt.internal.core.search.processing.JobManager;
 
 /**
@@ -37,6 +41,7 @@ public class SourceIndexerRequestor implements ISourceElementRequestor, IIndexCo
 	char[][] enclosingTypeNames = new char[5][];
 	int depth = 0;
 	int methodDepth = 0;
+	HashtableOfObject importedTypes; // the qualifications of the types imported on their own, by simple name
 
 public SourceIndexerRequestor(SourceIndexer indexer) {
 	this.indexer = indexer;
@@ -88,6 +93,12 @@ public void acceptFieldReference(char[] fieldName, int sourcePosition) {
 @Override
 public void acceptImport(int declarationStart, int declarationEnd, int nameStart, int nameEnd, char[][] tokens, boolean onDemand, int modifiers) {
 	// imports have already been reported while creating the ImportRef node (see SourceElementParser#comsume*ImportDeclarationName() methods)
+	// but the single type ones are remembered to qualify the annotations of the declarations
+	int length = tokens.length;
+	if (onDemand || length < 2 || (modifiers & ClassFileConstants.AccStatic) != 0) return;
+	if (this.importedTypes == null)
+		this.importedTypes = new HashtableOfObject(5);
+	this.importedTypes.put(tokens[length - 1], CharOperation.concatWith(CharOperation.subarray(tokens, 0, length - 1), '.'));
 }
 /**
  * @see ISourceElementRequestor#acceptLineSeparatorPositions(int[])
@@ -151,6 +162,18 @@ public void acceptUnknownReference(char[] name, int sourcePosition) {
 	this.indexer.addNameReference(name);
 }
 
+private void addAnnotatedDeclarations(Annotation[] annotations, char elementKind, char[] elementName, char[] declaringQualification) {
+	for (int i = 0, length = annotations.length; i < length; i++) {
+		char[][] typeName = annotations[i].type.getTypeName();
+		char[] annotationName = CharOperation.concatWith(typeName, '.');
+		if (this.importedTypes != null) {
+			char[] qualification = (char[]) this.importedTypes.get(typeName[0]);
+			if (qualification != null)
+				annotationName = CharOperation.concat(qualification, annotationName, '.');
+		}
+		this.indexer.addAnnotatedDeclaration(annotationName, elementKind, elementName, declaringQualification, this.packageName);
+	}
+}
 private void addDefaultConstructorIfNecessary(TypeInfo typeInfo) {
 	boolean hasConstructor = false;
 	
@@ -246,6 +269,9 @@ public void enterCompilationUnit() {
  */
 @Override
 public void enterConstructor(MethodInfo methodInfo) {
+	if (methodInfo.annotations != null && this.methodDepth == 0) {
+		addAnnotatedDeclarations(methodInfo.annotations, AnnotatedDeclarationPattern.METHOD_KIND, methodInfo.name, CharOperation.concatWith(enclosingTypeNames(), '.'));
+	}
 	int argCount = methodInfo.parameterTypes == null ? 0 : methodInfo.parameterTypes.length;
 	this.indexer.addConstructorDeclaration(
 			methodInfo.name,
@@ -284,6 +310,9 @@ private void enterEnum(TypeInfo typeInfo) {
 @Override
 public void enterField(FieldInfo fieldInfo) {
 	this.indexer.addFieldDeclaration(fieldInfo.type, fieldInfo.name);
+	if (fieldInfo.annotations != null && this.methodDepth == 0) {
+		addAnnotatedDeclarations(fieldInfo.annotations, AnnotatedDeclarationPattern.FIELD_KIND, fieldInfo.name, CharOperation.concatWith(enclosingTypeNames(), '.'));
+	}
 	this.methodDepth++;
 }
 /**
@@ -353,6 +382,9 @@ private void enterPackageVisibilityInfo(ISourceElementRequestor.PackageExportInf
 @Override
 public void enterMethod(MethodInfo methodInfo) {
 	this.indexer.addMethodDeclaration(methodInfo.name, methodInfo.parameterTypes, methodInfo.returnType, methodInfo.exceptionTypes);
+	if (methodInfo.annotations != null && this.methodDepth == 0) {
+		addAnnotatedDeclarations(methodInfo.annotations, AnnotatedDeclarationPattern.METHOD_KIND, methodInfo.name, CharOperation.concatWith(enclosingTypeNames(), '.'));
+	}
 	int argCount = methodInfo.parameterTypes == null ? 0 : methodInfo.parameterTypes.length;
 	char[] typeName = methodInfo.enclosingType != null ? methodInfo.enclosingType.name : null;
 	if (typeName == null || typeName.length == 0)  {
@@ -410,6 +442,9 @@ private static char[] getDeclaringQualification(TypeDeclaration typeDecl) {
  */
 @Override
 public void enterType(TypeInfo typeInfo) {
+	if (typeInfo.annotations != null && this.methodDepth == 0) {
+		addAnnotatedDeclarations(typeInfo.annotations, AnnotatedDeclarationPattern.TYPE_KIND, typeInfo.name, CharOperation.concatWith(enclosingTypeNames(), '.'));
+	}
 	// TODO (jerome) might want to merge the 4 methods
 	switch (TypeDeclaration.kind(typeInfo.modifiers)) {
 		case TypeDeclaration.CLASS_DECL:
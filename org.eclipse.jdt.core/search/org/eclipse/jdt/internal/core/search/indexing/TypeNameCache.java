@@ -0,0 +1,380 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.search.indexing;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchParticipant;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.internal.core.index.EntryResult;
+import org.eclipse.jdt.internal.core.index.Index;
+import org.eclipse.jdt.internal.core.index.IndexLocation;
+import org.eclipse.jdt.internal.core.search.IndexQueryRequestor;
+import org.eclipse.jdt.internal.core.search.matching.JavaSearchPattern;
+import org.eclipse.jdt.internal.core.search.matching.TypeDeclarationPattern;
+import org.eclipse.jdt.internal.core.search.processing.JobManager;
+import org.eclipse.jdt.internal.core.util.Util;
+
+/**
+ * The type declarations of the indexes kept in memory, which answer the queries of all type names without reading
+ * the index files again.
+ * <p>
+ * The saved type declarations of an index are sorted by their lower case simple names, so exact, prefix and pattern
+ * queries only decode the declarations starting with their prefix, and camel case queries the ones starting with their
+ * first character. Once the changed documents of the index are appended to its file, only the declarations of the new
+ * segment are read, and replace the ones of these documents; they are all read again once the file is rewritten. The
+ * declarations of the documents changed since the index was saved are taken from the memory index. The least recently
+ * used indexes are dropped when the estimated memory of the cache exceeds its limit. The indexes whose declarations
+ * alone exceed the limit are queried directly until they are saved again.
+ * </p>
+ * The cache is disabled when the {@link #SIZE_PROPERTY} system property is 0.
+ */
+public class TypeNameCache {
+
+	public static final String SIZE_PROPERTY = "jdt.core.typeNameCacheSize"; //$NON-NLS-1$ // in MB
+	static final long DEFAULT_SIZE = 64; // MB
+	static final char[][] CATEGORIES = { IIndexConstants.TYPE_DECL };
+
+	final long maxSize; // in bytes
+	private final LinkedHashMap<IndexLocation, TypeNames> typeNames = new LinkedHashMap<>(16, 0.75f, true); // least recently used first
+	private final Map<IndexLocation, Long> tooLargeStamps = new HashMap<>(); // the saved stamps of the indexes whose declarations exceed the limit
+	private long size;
+
+	/**
+	 * The saved type declarations of an index.
+	 */
+	static class TypeNames {
+		static final TypeNames EMPTY = new TypeNames(0, new char[0][], new String[0][], 32 + 2 * 16);
+
+		final long savedStamp;
+		final char[][] keys; // the index keys sorted by lower case simple names
+		final String[][] documentNames; // the documents declaring each key
+		final long size; // the estimated memory, in bytes
+
+		TypeNames(long savedStamp, char[][] keys, String[][] documentNames, long size) {
+			this.savedStamp = savedStamp;
+			this.keys = keys;
+			this.documentNames = documentNames;
+			this.size = size;
+		}
+		/**
+		 * Answers the declarations of the given saved stamp, which replace the ones of the given changed documents by
+		 * the given sorted entries.
+		 */
+		TypeNames update(long stamp, EntryResult[] entries, String[][] entryDocumentNames, Set<String> changedDocuments) {
+			int length = this.keys.length;
+			char[][] keptKeys = this.keys;
+			String[][] keptDocumentNames = this.documentNames;
+			int keptLength = length;
+			long newSize = this.size;
+			if (changedDocuments != null && !changedDocuments.isEmpty()) {
+				keptKeys = new char[length][];
+				keptDocumentNames = new String[length][];
+				keptLength = 0;
+				Set<String> removedNames = new HashSet<>();
+				for (int i = 0; i < length; i++) {
+					String[] names = this.documentNames[i];
+					int visible = 0;
+					for (int j = 0, l = names.length; j < l; j++)
+						if (!changedDocuments.contains(names[j]))
+							visible++;
+					if (visible < names.length) {
+						newSize -= 4L * (names.length - visible);
+						String[] visibleNames = new String[visible];
+						for (int j = 0, k = 0, l = names.length; j < l; j++) {
+							if (!changedDocuments.contains(names[j]))
+								visibleNames[k++] = names[j];
+							else if (removedNames.add(names[j]))
+								newSize -= 40 + 2L * names[j].length();
+						}
+						if (visible == 0) {
+							newSize -= 16 + 2L * this.keys[i].length + 16;
+							continue;
+						}
+						names = visibleNames;
+					}
+					keptKeys[keptLength] = this.keys[i];
+					keptDocumentNames[keptLength++] = names;
+				}
+			}
+
+			// share the document names, a document usually declares several types, and estimate the memory of the new declarations
+			int newLength = entries == null ? 0 : entries.length;
+			Map<String, String> sharedNames = new HashMap<>();
+			for (int i = 0; i < newLength; i++) {
+				newSize += 16 + 2L * entries[i].getWord().length;
+				String[] names = entryDocumentNames[i];
+				newSize += 16 + 4L * names.length;
+				for (int j = 0, l = names.length; j < l; j++) {
+					String sharedName = sharedNames.putIfAbsent(names[j], names[j]);
+					if (sharedName == null)
+						newSize += 40 + 2L * names[j].length();
+					else
+						names[j] = sharedName;
+				}
+			}
+
+			// merge the kept and the new declarations, which are both sorted, a key of both is kept twice until the file is rewritten
+			int mergedLength = keptLength + newLength;
+			char[][] mergedKeys = new char[mergedLength][];
+			String[][] mergedDocumentNames = new String[mergedLength][];
+			for (int i = 0, kept = 0, added = 0; i < mergedLength; i++) {
+				if (added == newLength || (kept < keptLength && compareNames(keptKeys[kept], entries[added].getWord()) <= 0)) {
+					mergedKeys[i] = keptKeys[kept];
+					mergedDocumentNames[i] = keptDocumentNames[kept++];
+				} else {
+					mergedKeys[i] = entries[added].getWord();
+					mergedDocumentNames[i] = entryDocumentNames[added++];
+				}
+			}
+			newSize += 2 * 4L * (mergedLength - length);
+			return new TypeNames(stamp, mergedKeys, mergedDocumentNames, newSize);
+		}
+		/**
+		 * Answers the first key whose lower case simple name starts with the given lower case prefix, or follows it.
+		 */
+		int lowerBound(char[] prefix, int prefixLength) {
+			int low = 0, high = this.keys.length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (compare(this.keys[middle], prefix, prefixLength) < 0)
+					low = middle + 1;
+				else
+					high = middle;
+			}
+			return low;
+		}
+		/**
+		 * Answers the first key whose lower case simple name follows the names starting with the given lower case prefix.
+		 */
+		int upperBound(char[] prefix, int prefixLength) {
+			int low = 0, high = this.keys.length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (compare(this.keys[middle], prefix, prefixLength) <= 0)
+					low = middle + 1;
+				else
+					high = middle;
+			}
+			return low;
+		}
+	}
+
+	static TypeNameCache create() {
+		long maxSize = Long.getLong(SIZE_PROPERTY, DEFAULT_SIZE).longValue() * 1024 * 1024;
+		return maxSize > 0 ? new TypeNameCache(maxSize) : null;
+	}
+
+	public TypeNameCache(long maxSize) {
+		this.maxSize = maxSize;
+	}
+	/**
+	 * Compares the lower case simple name of the given index key with the given lower case prefix, answers 0 if the name
+	 * starts with the prefix.
+	 */
+	static int compare(char[] key, char[] prefix, int prefixLength) {
+		for (int i = 0; i < prefixLength; i++) {
+			char c = key[i];
+			if (c == IIndexConstants.SEPARATOR)
+				return -1; // the name is a prefix of the prefix
+			int difference = Character.toLowerCase(c) - prefix[i];
+			if (difference != 0)
+				return difference;
+		}
+		return 0;
+	}
+	static int compareNames(char[] key1, char[] key2) {
+		for (int i = 0;; i++) {
+			char c1 = key1[i], c2 = key2[i];
+			if (c1 == IIndexConstants.SEPARATOR)
+				return c2 == IIndexConstants.SEPARATOR ? 0 : -1;
+			if (c2 == IIndexConstants.SEPARATOR)
+				return 1;
+			int difference = Character.toLowerCase(c1) - Character.toLowerCase(c2);
+			if (difference != 0)
+				return difference;
+		}
+	}
+	/**
+	 * Answers the estimated memory of the type declarations in the cache, in bytes.
+	 */
+	public synchronized long getMemoryUsage() {
+		return this.size;
+	}
+	/**
+	 * Drops the type declarations of the given index.
+	 */
+	public synchronized void remove(IndexLocation indexLocation) {
+		TypeNames names = this.typeNames.remove(indexLocation);
+		if (names != null)
+			this.size -= names.size;
+		this.tooLargeStamps.remove(indexLocation);
+	}
+	public synchronized void reset() {
+		this.typeNames.clear();
+		this.tooLargeStamps.clear();
+		this.size = 0;
+	}
+	/**
+	 * Reports the type declarations of the given index which match the given pattern, as
+	 * {@link SearchPattern#findIndexMatches(Index, IndexQueryRequestor, SearchParticipant, IJavaSearchScope, IProgressMonitor)}
+	 * does. The sender owns the read lock of the index.
+	 */
+	public void findIndexMatches(TypeDeclarationPattern pattern, Index index, IndexQueryRequestor requestor, SearchParticipant participant, IJavaSearchScope scope, IProgressMonitor monitor) throws IOException {
+		TypeNames names = getTypeNames(index);
+		if (names == null) {
+			// not an index file, or too large to be cached
+			pattern.findIndexMatches(index, requestor, participant, scope, monitor);
+			return;
+		}
+		String containerPath = index.containerPath;
+		char separator = index.separator;
+		SearchPattern decodedResult = pattern.getBlankPattern();
+		int start = 0, end = names.keys.length;
+		char[] prefix = prefix(pattern);
+		if (prefix != null) {
+			start = names.lowerBound(prefix, prefix.length);
+			end = names.upperBound(prefix, prefix.length);
+		}
+		for (int i = start; i < end; i++) {
+			if (monitor != null && monitor.isCanceled()) throw new OperationCanceledException();
+
+			decodedResult.decodeIndexKey(names.keys[i]);
+			if (pattern.matchesDecodedKey(decodedResult)) {
+				String[] documentNames = names.documentNames[i];
+				for (int j = 0, l = documentNames.length; j < l; j++)
+					if (!index.isChanged(documentNames[j]))
+						pattern.acceptMatch(documentNames[j], containerPath, separator, decodedResult, requestor, participant, scope, monitor);
+			}
+		}
+
+		// the changed documents, there are a few of them since the memory index is saved once it has enough changes
+		EntryResult[] entries = index.queryChanges(CATEGORIES, null, SearchPattern.R_PATTERN_MATCH);
+		if (entries == null) return;
+		for (int i = 0, l = entries.length; i < l; i++) {
+			if (monitor != null && monitor.isCanceled()) throw new OperationCanceledException();
+
+			decodedResult.decodeIndexKey(entries[i].getWord());
+			if (pattern.matchesDecodedKey(decodedResult)) {
+				String[] documentNames = entries[i].getDocumentNames(index);
+				for (int j = 0, n = documentNames.length; j < n; j++)
+					pattern.acceptMatch(documentNames[j], containerPath, separator, decodedResult, requestor, participant, scope, monitor);
+			}
+		}
+	}
+	/**
+	 * Answers the lower case prefix of the simple names which can match the given pattern, or null if any name can.
+	 */
+	static char[] prefix(TypeDeclarationPattern pattern) {
+		char[] simpleName = pattern.simpleName;
+		if (simpleName == null || simpleName.length == 0)
+			return null;
+		int length;
+		switch (pattern.getMatchRule() & JavaSearchPattern.MATCH_MODE_MASK) {
+			case SearchPattern.R_EXACT_MATCH:
+			case SearchPattern.R_PREFIX_MATCH:
+				length = simpleName.length;
+				break;
+			case SearchPattern.R_PATTERN_MATCH:
+				for (length = 0; length < simpleName.length; length++)
+					if (simpleName[length] == '*' || simpleName[length] == '?')
+						break;
+				if (length == 0)
+					return null;
+				break;
+			case SearchPattern.R_CAMELCASE_MATCH:
+			case SearchPattern.R_CAMELCASE_SAME_PART_COUNT_MATCH:
+				length = 1; // the first characters must match
+				break;
+			default:
+				return null;
+		}
+		char[] prefix = new char[length];
+		for (int i = 0; i < length; i++)
+			prefix[i] = Character.toLowerCase(simpleName[i]);
+		return prefix;
+	}
+	private TypeNames getTypeNames(Index index) throws IOException {
+		IndexLocation indexLocation = index.getIndexLocation();
+		if (indexLocation == null)
+			return null;
+		long savedStamp = index.getSavedStamp();
+		TypeNames previous;
+		synchronized (this) {
+			previous = this.typeNames.get(indexLocation);
+			if (previous != null && previous.savedStamp == savedStamp)
+				return previous;
+			Long tooLargeStamp = this.tooLargeStamps.get(indexLocation);
+			if (tooLargeStamp != null && tooLargeStamp.longValue() == savedStamp)
+				return null; // don't read the declarations again only to drop them
+		}
+		// read outside of the lock, several threads may read the same index but then keep the same declarations
+		TypeNames names = readTypeNames(index, savedStamp, previous);
+		synchronized (this) {
+			previous = this.typeNames.remove(indexLocation);
+			if (previous != null)
+				this.size -= previous.size;
+			if (names.size > this.maxSize) {
+				this.tooLargeStamps.put(indexLocation, Long.valueOf(savedStamp));
+				return null;
+			}
+			this.tooLargeStamps.remove(indexLocation);
+			this.typeNames.put(indexLocation, names);
+			this.size += names.size;
+			for (Iterator<TypeNames> iterator = this.typeNames.values().iterator(); this.size > this.maxSize && iterator.hasNext();) {
+				TypeNames leastRecentlyUsed = iterator.next();
+				if (leastRecentlyUsed == names) break;
+				this.size -= leastRecentlyUsed.size;
+				iterator.remove();
+			}
+		}
+		return names;
+	}
+	private static TypeNames readTypeNames(Index index, long savedStamp, TypeNames previous) throws IOException {
+		long start = JobManager.VERBOSE ? System.currentTimeMillis() : 0;
+		// only read the declarations of the segment appended to the index file since the previous ones were read
+		boolean appended = previous != null && previous.savedStamp == index.getAppendedStamp();
+		TypeNames names;
+		try {
+			index.startQuery();
+			EntryResult[] entries = appended ? index.queryAppended(CATEGORIES) : index.querySaved(CATEGORIES);
+			String[][] documentNames = null;
+			if (entries != null) {
+				Arrays.sort(entries, (entry1, entry2) -> compareNames(entry1.getWord(), entry2.getWord()));
+				documentNames = new String[entries.length][];
+				for (int i = 0, l = entries.length; i < l; i++)
+					documentNames[i] = entries[i].getDocumentNames(index);
+			}
+			if (appended)
+				names = previous.update(savedStamp, entries, documentNames, new HashSet<>(Arrays.asList(index.queryAppendedDocumentNames())));
+			else
+				names = TypeNames.EMPTY.update(savedStamp, entries, documentNames, null);
+		} finally {
+			index.stopQuery();
+		}
+		if (JobManager.VERBOSE)
+			Util.verbose("-> read " + (appended ? "appended" : "all") + " type names of " + index + " in " + (System.currentTimeMillis() - start) + "ms, " + names.keys.length + " names, " + names.size + " bytes"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$
+		return names;
+	}
+}
@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.search.matching;
+
+import java.io.IOException;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchParticipant;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.internal.compiler.util.Util;
+import org.eclipse.jdt.internal.core.index.EntryResult;
+import org.eclipse.jdt.internal.core.index.Index;
+import org.eclipse.jdt.internal.core.search.IndexQueryRequestor;
+
+/**
+ * A pattern answered from the index alone, which finds the types, methods and fields annotated with a given
+ * annotation type.
+ */
+public class AnnotatedDeclarationPattern extends JavaSearchPattern {
+
+	public static final char TYPE_KIND = 'T';
+	public static final char METHOD_KIND = 'M';
+	public static final char FIELD_KIND = 'F';
+
+	protected static char[][] CATEGORIES = { ANNOTATED_DECL };
+
+	public char[] annotationSimpleName;
+	public char[] annotationQualification; // empty when the annotation is not qualified nor imported by its source reference
+	public char elementKind;
+	public char[] elementName;
+	public char[] declaringQualification; // the enclosing types of a type, or the qualified name of the declaring type of a member
+	public char[] packageName;
+
+	/**
+	 * Annotated declaration entries are encoded as
+	 * AnnotationSimpleName '/' AnnotationQualification '/' ElementKind '/' ElementName '/' DeclaringQualification '/' PackageName
+	 * where the annotation name is qualified as far as it is known while indexing, that is always for binary types
+	 * but for source types only when the reference is qualified or its type is imported on its own.
+	 */
+	public static char[] createIndexKey(char[] annotationName, char elementKind, char[] elementName, char[] declaringQualification, char[] packageName) {
+		int lastDot = CharOperation.lastIndexOf('.', annotationName);
+		char[] simpleName = lastDot == -1 ? annotationName : CharOperation.subarray(annotationName, lastDot + 1, annotationName.length);
+		char[] qualification = lastDot == -1 ? CharOperation.NO_CHAR : CharOperation.subarray(annotationName, 0, lastDot);
+		char[][] tmp = new char[][] {
+			simpleName,
+			qualification,
+			new char[] {elementKind},
+			elementName != null ? elementName : CharOperation.NO_CHAR,
+			declaringQualification != null ? declaringQualification : CharOperation.NO_CHAR,
+			packageName != null ? packageName : CharOperation.NO_CHAR
+		};
+		return CharOperation.concatWithAll(tmp, SEPARATOR);
+	}
+
+	public AnnotatedDeclarationPattern(char[] annotationName, int matchRule) {
+		this(matchRule);
+		if (annotationName != null) {
+			int lastDot = CharOperation.lastIndexOf('.', annotationName);
+			char[] simpleName = annotationName;
+			if (lastDot != -1) {
+				simpleName = CharOperation.subarray(annotationName, lastDot + 1, annotationName.length);
+				this.annotationQualification = CharOperation.subarray(annotationName, 0, lastDot);
+			}
+			this.annotationSimpleName = (this.isCaseSensitive || this.isCamelCase) ? simpleName : CharOperation.toLowerCase(simpleName);
+		}
+	}
+	AnnotatedDeclarationPattern(int matchRule) {
+		super(ANNOTATED_DECL_PATTERN, matchRule);
+	}
+	@Override
+	public void decodeIndexKey(char[] key) {
+		int slash = CharOperation.indexOf(SEPARATOR, key, 0);
+		this.annotationSimpleName = CharOperation.subarray(key, 0, slash);
+
+		int start = slash + 1;
+		slash = CharOperation.indexOf(SEPARATOR, key, start);
+		this.annotationQualification = CharOperation.subarray(key, start, slash);
+
+		this.elementKind = key[slash + 1];
+
+		start = slash + 3;
+		slash = CharOperation.indexOf(SEPARATOR, key, start);
+		this.elementName = CharOperation.subarray(key, start, slash);
+
+		start = slash + 1;
+		slash = CharOperation.indexOf(SEPARATOR, key, start);
+		this.declaringQualification = CharOperation.subarray(key, start, slash);
+
+		this.packageName = CharOperation.subarray(key, slash + 1, key.length);
+	}
+	@Override
+	public SearchPattern getBlankPattern() {
+		return new AnnotatedDeclarationPattern(R_EXACT_MATCH | R_CASE_SENSITIVE);
+	}
+	@Override
+	public char[][] getIndexCategories() {
+		return CATEGORIES;
+	}
+	/**
+	 * Answers the name of the annotation type of a decoded entry, qualified as far as it was known while indexing.
+	 */
+	public char[] getAnnotationName() {
+		if (this.annotationQualification.length == 0) return this.annotationSimpleName;
+		return CharOperation.concat(this.annotationQualification, this.annotationSimpleName, '.');
+	}
+	/**
+	 * Answers the kind of the annotated element of a decoded entry, one of {@link IJavaElement#TYPE},
+	 * {@link IJavaElement#METHOD} or {@link IJavaElement#FIELD}.
+	 */
+	public int getElementType() {
+		switch (this.elementKind) {
+			case METHOD_KIND :
+				return IJavaElement.METHOD;
+			case FIELD_KIND :
+				return IJavaElement.FIELD;
+			default :
+				return IJavaElement.TYPE;
+		}
+	}
+	/**
+	 * Reports the match unless the document is a class file whose annotation name is not qualified exactly as
+	 * the searched one, see {@link #matchesQualification(char[], boolean)}.
+	 */
+	@Override
+	public void acceptMatch(String relativePath, String containerPath, char separator, SearchPattern pattern, IndexQueryRequestor requestor, SearchParticipant participant, IJavaSearchScope scope, IProgressMonitor monitor) {
+		if (Util.isClassFileName(relativePath) && !matchesQualification(((AnnotatedDeclarationPattern) pattern).annotationQualification, true))
+			return;
+		super.acceptMatch(relativePath, containerPath, separator, pattern, requestor, participant, scope, monitor);
+	}
+	/**
+	 * Answers whether the qualification of an annotation name in an index entry matches the qualification of the
+	 * searched annotation. The names of the binary entries are fully qualified so they must be equal, but the
+	 * source references may only be qualified by their enclosing types.
+	 */
+	boolean matchesQualification(char[] qualification, boolean isBinary) {
+		if (this.annotationQualification == null) return true;
+		if (isBinary) return CharOperation.equals(this.annotationQualification, qualification);
+		if (qualification.length == 0) return true;
+
+		int prefixLength = this.annotationQualification.length - qualification.length;
+		if (prefixLength < 0) return false;
+		if (prefixLength > 0 && this.annotationQualification[prefixLength - 1] != '.') return false;
+		return CharOperation.endsWith(this.annotationQualification, qualification);
+	}
+	@Override
+	public boolean matchesDecodedKey(SearchPattern decodedPattern) {
+		AnnotatedDeclarationPattern pattern = (AnnotatedDeclarationPattern) decodedPattern;
+		if (!matchesName(this.annotationSimpleName, pattern.annotationSimpleName)) return false;
+		// the document of the entry is not known yet, acceptMatch checks the qualification of the binary entries
+		return matchesQualification(pattern.annotationQualification, false);
+	}
+	@Override
+	public EntryResult[] queryIn(Index index) throws IOException {
+		char[] key = this.annotationSimpleName; // can be null
+		int matchRule = getMatchRule();
+
+		switch(getMatchMode()) {
+			case R_EXACT_MATCH :
+				if (this.annotationSimpleName != null) {
+					// do a prefix query with the simple name and its separator
+					matchRule &= ~R_EXACT_MATCH;
+					matchRule |= R_PREFIX_MATCH;
+					key = CharOperation.append(this.annotationSimpleName, SEPARATOR);
+				}
+				break;
+			case R_PREFIX_MATCH :
+				// do a prefix query with the simple name
+				break;
+			case R_PATTERN_MATCH :
+				if (this.annotationSimpleName != null && this.annotationSimpleName[this.annotationSimpleName.length - 1] != '*') {
+					key = CharOperation.concat(this.annotationSimpleName, ONE_STAR, SEPARATOR);
+				}
+				break;
+			default :
+				// decode all the entries, the simple name is checked by matchesDecodedKey(SearchPattern)
+				key = null;
+				break;
+		}
+
+		return index.query(getIndexCategories(), key, matchRule); // match rule is irrelevant when the key is null
+	}
+	@Override
+	protected StringBuffer print(StringBuffer output) {
+		output.append("AnnotatedDeclarationPattern: @"); //$NON-NLS-1$
+		if (this.annotationQualification != null) {
+			output.append(this.annotationQualification).append('.');
+		}
+		output.append(this.annotationSimpleName == null ? ONE_STAR : this.annotationSimpleName);
+		return super.print(output);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -41,6 +41,7 @@ public void findIndexMatches(Index index, IndexQueryRequestor requestor, SearchP
 		do {
 			SearchPattern pattern = currentPattern();
 			EntryResult[] entries = pattern.queryIn(index);
+			requestor.acceptIndexQuery(entries == Index.FILTERED_ENTRIES);
 			if (entries == null) return;
 
 			SearchPattern decodedResult = pattern.getBlankPattern();
@@ -81,6 +82,13 @@ public void findIndexMatches(Index index, IndexQueryRequestor requestor, SearchP
  * Returns whether another query must be done.
  */
 protected abstract boolean hasNextQuery();
+/**
+ * Returns whether the index is queried only once, in which case querying does not change this pattern
+ * and several indexes can be queried at the same time.
+ */
+protected boolean isSingleQuery() {
+	return false;
+}
 /**
  * Resets the query and prepares this pattern to be queried.
  */
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -17,6 +17,7 @@ package org.eclipse.jdt.internal.core.search.matching;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -25,6 +26,13 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Pattern;
 import java.util.zip.ZipFile;
 
@@ -121,6 +129,12 @@ static {
 	}
 }
 
+/**
+ * How many projects one search can locate matches in at the same time, see {@link JavaModelManager#MAX_PARALLEL_MATCH_LOCATORS}.
+ */
+public static int MAX_PARALLEL_LOCATORS = Integer.getInteger(JavaModelManager.MAX_PARALLEL_MATCH_LOCATORS, 1).intValue();
+private static ExecutorService locatorExecutor;
+
 // permanent state
 public SearchPattern pattern;
 public PatternLocator patternLocator;
@@ -171,6 +185,7 @@ HashSet methodHandles;
 private TypeBinding unitScopeTypeBinding = null; // cached
 
 private final boolean searchPackageDeclaration;
+boolean cheapestMatchesFirst; // the search stops once the requestor has enough matches, see LimitedSearchRequestor
 private int sourceStartOfMethodToRetain;
 private int sourceEndOfMethodToRetain;
 
@@ -187,6 +202,40 @@ public static class WorkingCopyDocument extends JavaSearchDocument {
 	}
 }
 
+/*
+ * The possible matches of a project, which are located by a locator of their own in parallel mode.
+ */
+static class ProjectMatches {
+	final JavaProject project;
+	final PossibleMatchSet matchSet;
+	final int expected;
+	FutureTask<List<SearchMatch>> task;
+	ProjectMatches(JavaProject project, PossibleMatchSet matchSet, int expected) {
+		this.project = project;
+		this.matchSet = matchSet;
+		this.expected = expected;
+	}
+}
+
+/*
+ * The projects whose matches are located in parallel, see locateMatchesInParallel(ParallelLocation, ProjectMatches).
+ */
+static class ParallelLocation {
+	final ArrayDeque<ProjectMatches> scheduled = new ArrayDeque<>();
+	final AtomicBoolean stopped = new AtomicBoolean();
+	final IProgressMonitor locatorMonitor;
+	ProjectMatches first; // not scheduled as long as it is the only project
+	ParallelLocation(IProgressMonitor monitor) {
+		AtomicBoolean isStopped = this.stopped;
+		this.locatorMonitor = new NullProgressMonitor() {
+			@Override
+			public boolean isCanceled() {
+				return isStopped.get() || monitor != null && monitor.isCanceled();
+			}
+		};
+	}
+}
+
 public static class WrappedCoreException extends RuntimeException {
 	private static final long serialVersionUID = 8354329870126121212L; // backward compatible
 	public CoreException coreException;
@@ -295,6 +344,22 @@ public static IBinaryType classFileReader(IType type) {
 public static void findIndexMatches(SearchPattern pattern, Index index, IndexQueryRequestor requestor, SearchParticipant participant, IJavaSearchScope scope, IProgressMonitor monitor) throws IOException {
 	pattern.findIndexMatches(index, requestor, participant, scope, monitor);
 }
+/**
+ * Returns whether the index matches of the given pattern can be found in several indexes at the same time,
+ * i.e. whether querying an index does not change the pattern.
+ */
+public static boolean canFindIndexMatchesConcurrently(SearchPattern pattern) {
+	if (pattern instanceof IntersectingPattern)
+		return ((IntersectingPattern) pattern).isSingleQuery();
+	if (pattern instanceof OrPattern) {
+		SearchPattern[] patterns = ((OrPattern) pattern).patterns;
+		for (int i = 0, length = patterns.length; i < length; i++)
+			if (!canFindIndexMatchesConcurrently(patterns[i]))
+				return false;
+		return true;
+	}
+	return pattern instanceof JavaSearchPattern;
+}
 
 public static IJavaElement getProjectOrJar(IJavaElement element) {
 	while (!(element instanceof IJavaProject) && !(element instanceof JarPackageFragmentRoot)) {
@@ -319,6 +384,7 @@ public MatchLocator(
 	this.requestor = requestor;
 	this.scope = scope;
 	this.progressMonitor = progressMonitor;
+	this.cheapestMatchesFirst = requestor instanceof LimitedSearchRequestor;
 	if (pattern instanceof PackageDeclarationPattern) {
 		this.searchPackageDeclaration = true;
 	} else if (pattern instanceof OrPattern) {
@@ -1266,6 +1332,7 @@ protected void locateMatches(JavaProject javaProject, PossibleMatch[] possibleMa
 	boolean bindingsWereCreated = mustResolve;
 	try {
 		for (int i = start, maxUnits = start + length; i < maxUnits; i++) {
+			if (this.requestor.hasEnoughMatches()) return;
 			PossibleMatch possibleMatch = possibleMatches[i];
 			if (skipMatch(javaProject, possibleMatch)) continue;
 			try {
@@ -1330,6 +1397,7 @@ protected void locateMatches(JavaProject javaProject, PossibleMatch[] possibleMa
 	for (int i = 0; i < this.numberOfMatches; i++) {
 		if (this.progressMonitor != null && this.progressMonitor.isCanceled())
 			throw new OperationCanceledException();
+		if (this.requestor.hasEnoughMatches()) break;
 		PossibleMatch possibleMatch = this.matchesToProcess[i];
 		this.matchesToProcess[i] = null; // release reference to processed possible match
 		try {
@@ -1356,6 +1424,32 @@ protected void locateMatches(JavaProject javaProject, PossibleMatch[] possibleMa
 		}
 	}
 }
+/*
+ * Orders the possible matches so that the cheapest ones are located first: the working copies, whose contents
+ * are in memory, then the class files, which are not parsed, then the compilation units from the smallest one.
+ */
+private static void orderCheapestFirst(PossibleMatch[] possibleMatches) {
+	int length = possibleMatches.length;
+	final long[] costs = new long[length];
+	Integer[] order = new Integer[length];
+	for (int i = 0; i < length; i++) {
+		PossibleMatch possibleMatch = possibleMatches[i];
+		order[i] = Integer.valueOf(i);
+		if (possibleMatch.document instanceof WorkingCopyDocument) {
+			costs[i] = 0;
+		} else if (possibleMatch.openable instanceof ClassFile) {
+			costs[i] = 1;
+		} else {
+			IPath location = possibleMatch.resource == null ? null : possibleMatch.resource.getLocation();
+			costs[i] = 2 + (location == null ? 0 : location.toFile().length());
+		}
+	}
+	Arrays.sort(order, (i, j) -> Long.compare(costs[i.intValue()], costs[j.intValue()]));
+	PossibleMatch[] ordered = new PossibleMatch[length];
+	for (int i = 0; i < length; i++)
+		ordered[i] = possibleMatches[order[i].intValue()];
+	System.arraycopy(ordered, 0, possibleMatches, 0, length);
+}
 /**
  * Locate the matches amongst the possible matches.
  */
@@ -1367,14 +1461,170 @@ protected void locateMatches(JavaProject javaProject, PossibleMatchSet matchSet,
 		this.progressWorked += expected-length;
 		this.progressMonitor.worked( expected-length);
 	}
+	if (this.cheapestMatchesFirst)
+		orderCheapestFirst(possibleMatches);
 	// locate matches (processed matches are limited to avoid problem while using VM default memory heap size)
-	for (int index = 0; index < length;) {
+	for (int index = 0; index < length && !this.requestor.hasEnoughMatches();) {
 		int max = Math.min(MAX_AT_ONCE, length - index);
 		locateMatches(javaProject, possibleMatches, index, max);
 		index += max;
 	}
 	this.patternLocator.clear();
 }
+/*
+ * Returns whether the matches of the projects can be located by several locators at the same time:
+ * the scope and the pattern must not change while matches are located.
+ */
+private boolean canLocateMatchesInParallel() {
+	return MAX_PARALLEL_LOCATORS > 1
+		&& (this.scope instanceof JavaSearchScope || this.scope instanceof JavaWorkspaceScope)
+		&& isReadOnlyWhileLocating(this.pattern);
+}
+private static boolean isReadOnlyWhileLocating(SearchPattern searchPattern) {
+	if (searchPattern instanceof OrPattern) {
+		SearchPattern[] patterns = ((OrPattern) searchPattern).patterns;
+		for (int i = 0, length = patterns.length; i < length; i++)
+			if (!isReadOnlyWhileLocating(patterns[i]))
+				return false;
+		return true;
+	}
+	if (searchPattern instanceof TypeDeclarationPattern)
+		return !((TypeDeclarationPattern) searchPattern).moduleGraph; // the module graph is computed by the first match
+	return searchPattern instanceof JavaSearchPattern;
+}
+private static synchronized ExecutorService getLocatorExecutor() {
+	if (locatorExecutor == null) {
+		int threads = Math.max(1, MAX_PARALLEL_LOCATORS - 1);
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+			Thread thread = new Thread(runnable, "Java search match locator"); //$NON-NLS-1$
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.allowCoreThreadTimeOut(true); // don't keep idle threads between searches
+		locatorExecutor = executor;
+	}
+	return locatorExecutor;
+}
+/**
+ * Adds the given project to those whose matches are located in parallel, by the current thread and by up to
+ * MAX_PARALLEL_LOCATORS - 1 threads of a shared pool. Each project has its own locator and lookup environment, and
+ * at most MAX_PARALLEL_LOCATORS projects are scheduled at once: the matches of the oldest one are reported first
+ * if needed, so the requestor gets the same matches in the same order as in sequential mode.
+ */
+protected void locateMatchesInParallel(ParallelLocation location, ProjectMatches matches) throws CoreException {
+	if (location.stopped.get())
+		return;
+	if (location.first == null && location.scheduled.isEmpty()) {
+		location.first = matches; // located by this locator if it is the only project
+		return;
+	}
+	if (location.first != null) {
+		schedule(location, location.first);
+		location.first = null;
+	}
+	while (location.scheduled.size() >= MAX_PARALLEL_LOCATORS && !location.stopped.get())
+		reportMatches(location);
+	if (!location.stopped.get())
+		schedule(location, matches);
+}
+/**
+ * Reports the matches of all the projects added to the given parallel location.
+ */
+protected void finishParallelLocation(ParallelLocation location) throws CoreException {
+	try {
+		if (location.first != null) {
+			ProjectMatches matches = location.first;
+			location.first = null;
+			try {
+				locateMatches(matches.project, matches.matchSet, matches.expected);
+			} catch (JavaModelException e) {
+				// problem with classpath in this project -> skip it
+			}
+			return;
+		}
+		while (!location.scheduled.isEmpty() && !location.stopped.get())
+			reportMatches(location);
+	} finally {
+		stopParallelLocation(location);
+	}
+}
+/*
+ * Cancels the projects of the given parallel location which are not located yet, since they are not needed any longer.
+ */
+private void stopParallelLocation(ParallelLocation location) {
+	location.stopped.set(true);
+	for (ProjectMatches matches : location.scheduled)
+		matches.task.cancel(false);
+	location.scheduled.clear();
+}
+private void schedule(ParallelLocation location, ProjectMatches matches) {
+	IProgressMonitor monitor = location.locatorMonitor;
+	matches.task = new FutureTask<>(() -> locateMatchesWithNewLocator(matches, monitor));
+	location.scheduled.add(matches);
+	getLocatorExecutor().execute(matches.task);
+}
+/*
+ * Reports the matches of the oldest scheduled project of the given parallel location.
+ */
+private void reportMatches(ParallelLocation location) throws CoreException {
+	ProjectMatches matches = location.scheduled.poll();
+	matches.task.run(); // locate the matches of the project unless a thread of the pool already did or does
+	List<SearchMatch> found;
+	try {
+		found = matches.task.get();
+	} catch (ExecutionException e) {
+		Throwable failure = e.getCause();
+		if (failure instanceof CoreException)
+			throw (CoreException) failure;
+		if (failure instanceof RuntimeException)
+			throw (RuntimeException) failure;
+		if (failure instanceof Error)
+			throw (Error) failure;
+		throw new RuntimeException(failure);
+	} catch (InterruptedException e) {
+		throw new OperationCanceledException();
+	}
+	for (int i = 0, l = found.size(); i < l; i++) {
+		if (this.requestor.hasEnoughMatches()) {
+			stopParallelLocation(location);
+			return;
+		}
+		this.requestor.acceptSearchMatch(found.get(i));
+	}
+	if (this.progressMonitor != null) {
+		this.progressWorked += matches.expected;
+		this.progressMonitor.worked(matches.expected);
+	}
+}
+List<SearchMatch> locateMatchesWithNewLocator(ProjectMatches matches, IProgressMonitor monitor) throws CoreException {
+	final List<SearchMatch> found = new ArrayList<>();
+	SearchRequestor collector = new SearchRequestor() {
+		@Override
+		public void acceptSearchMatch(SearchMatch match) {
+			found.add(match);
+		}
+	};
+	MatchLocator locator = new MatchLocator(this.pattern, collector, this.scope, monitor);
+	locator.workingCopies = this.workingCopies;
+	locator.handleFactory = new HandleFactory();
+	locator.bindings = new SimpleLookupTable();
+	locator.progressStep = this.progressStep;
+	locator.cheapestMatchesFirst = this.cheapestMatchesFirst;
+	JavaModelManager manager = JavaModelManager.getJavaModelManager();
+	try {
+		manager.cacheZipFiles(locator); // unless the current thread already caches them for this locator
+		locator.patternLocator.initializePolymorphicSearch(locator, this.patternLocator);
+		locator.locateMatches(matches.project, matches.matchSet, matches.expected);
+	} catch (JavaModelException e) {
+		// problem with classpath in this project -> skip it
+	} finally {
+		if (locator.nameEnvironment != null)
+			locator.nameEnvironment.cleanup();
+		locator.unitScope = null;
+		manager.flushZipFiles(locator);
+	}
+	return found;
+}
 /**
  * Locate the matches in the given files and report them using the search requestor.
  */
@@ -1413,6 +1663,7 @@ public void locateMatches(SearchDocument[] searchDocuments) throws CoreException
 
 	JavaModelManager manager = JavaModelManager.getJavaModelManager();
 	this.bindings = new SimpleLookupTable();
+	ParallelLocation parallelLocation = null;
 	try {
 		// optimize access to zip files during search operation
 		manager.cacheZipFiles(this);
@@ -1430,6 +1681,7 @@ public void locateMatches(SearchDocument[] searchDocuments) throws CoreException
 
 		JavaProject previousJavaProject = null;
 		PossibleMatchSet matchSet = new PossibleMatchSet();
+		parallelLocation = canLocateMatchesInParallel() ? new ParallelLocation(this.progressMonitor) : null;
 		Util.sort(searchDocuments, new Util.Comparer() {
 			@Override
 			public int compare(Object a, Object b) {
@@ -1488,13 +1740,19 @@ public void locateMatches(SearchDocument[] searchDocuments) throws CoreException
 			if (!javaProject.equals(previousJavaProject)) {
 				// locate matches in previous project
 				if (previousJavaProject != null) {
-					try {
-						locateMatches(previousJavaProject, matchSet, i-displayed);
+					if (parallelLocation != null) {
+						locateMatchesInParallel(parallelLocation, new ProjectMatches(previousJavaProject, matchSet, i-displayed));
+						matchSet = new PossibleMatchSet();
 						displayed = i;
-					} catch (JavaModelException e) {
-						// problem with classpath in this project -> skip it
+					} else {
+						try {
+							locateMatches(previousJavaProject, matchSet, i-displayed);
+							displayed = i;
+						} catch (JavaModelException e) {
+							// problem with classpath in this project -> skip it
+						}
+						matchSet.reset();
 					}
-					matchSet.reset();
 				}
 				previousJavaProject = javaProject;
 			}
@@ -1511,18 +1769,25 @@ public void locateMatches(SearchDocument[] searchDocuments) throws CoreException
 
 		// last project
 		if (previousJavaProject != null) {
-			try {
-				locateMatches(previousJavaProject, matchSet, docsLength-displayed);
-			} catch (JavaModelException e) {
-				// problem with classpath in last project -> ignore
+			if (parallelLocation != null) {
+				locateMatchesInParallel(parallelLocation, new ProjectMatches(previousJavaProject, matchSet, docsLength-displayed));
+				finishParallelLocation(parallelLocation);
+			} else {
+				try {
+					locateMatches(previousJavaProject, matchSet, docsLength-displayed);
+				} catch (JavaModelException e) {
+					// problem with classpath in last project -> ignore
+				}
 			}
 		}
 
-		if (this.searchPackageDeclaration) {
+		if (this.searchPackageDeclaration && !this.requestor.hasEnoughMatches()) {
 			locatePackageDeclarations(searchParticipant, javaModelProjects);
 		}
 
 	} finally {
+		if (parallelLocation != null)
+			stopParallelLocation(parallelLocation);
 		if (this.progressMonitor != null)
 			this.progressMonitor.done();
 		if (this.nameEnvironment != null)
@@ -2083,6 +2348,8 @@ protected void report(SearchMatch match) throws CoreException {
 		}
 		return;
 	}
+	if (this.requestor.hasEnoughMatches()) // the search stops
+		return;
 	if (filterEnum(match)){
 		if (BasicSearchEngine.VERBOSE) {
 			System.out.println("Filtered package with name enum"); //$NON-NLS-1$
@@ -148,6 +148,10 @@ public class TypeReferencePattern extends IntersectingPattern {
 		return true; // index key is not encoded so query results all match
 	}
 
+	@Override
+	protected boolean isSingleQuery() {
+		return this.segments == null;
+	}
 	@Override
 	protected void resetQuery() {
 		/* walk the segments from end to start as it will find less potential references using 'lang' than 'java' */
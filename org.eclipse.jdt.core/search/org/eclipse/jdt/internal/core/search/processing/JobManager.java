@@ -13,6 +13,10 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.core.search.processing;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.eclipse.core.runtime.*;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.internal.core.util.Messages;
@@ -24,10 +28,12 @@ public abstract class JobManager implements Runnable {
 	protected IJob[] awaitingJobs = new IJob[10];
 	protected int jobStart = 0;
 	protected int jobEnd = -1;
-	protected boolean executing = false;
+	/* jobs of the queue which have been started and have not completed yet */
+	protected ArrayList<IJob> runningJobs = new ArrayList<>();
 
 	/* background processing */
 	protected Thread processingThread;
+	protected ArrayList<Thread> helperThreads = new ArrayList<>(); // help the processing thread when more than one job can run at once
 	protected Job progressJob;
 
 	/* counter indicating whether job execution is enabled or not, disabled if <= 0
@@ -40,6 +46,30 @@ public abstract class JobManager implements Runnable {
 
 	private int awaitingClients = 0;
 
+	class ProgressJob extends Job {
+		ProgressJob(String name) {
+			super(name);
+		}
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			IJob job = currentJob();
+			while (!monitor.isCanceled() && job != null) {
+				 String taskName = new StringBuffer(Messages.jobmanager_indexing)
+					.append(Messages.bind(Messages.jobmanager_filesToIndex, job.getJobFamily(), Integer.toString(awaitingJobsCount())))
+					.toString();
+				monitor.subTask(taskName);
+				setName(taskName);
+				try {
+					Thread.sleep(500);
+				} catch (InterruptedException e) {
+					// ignore
+				}
+				job = currentJob();
+			}
+			return Status.OK_STATUS;
+		}
+	}
+
 	/**
 	 * Invoked exactly once, in background, before starting processing any job
 	 */
@@ -47,7 +77,7 @@ public abstract class JobManager implements Runnable {
 		this.activated = true;
 	}
 	/**
-	 * Answer the amount of awaiting jobs.
+	 * Answer the amount of awaiting jobs, including the ones which are running.
 	 */
 	public synchronized int awaitingJobsCount() {
 		// pretend busy in case concurrent job attempts performing before activated
@@ -78,19 +108,22 @@ public abstract class JobManager implements Runnable {
 
 		try {
 			IJob currentJob;
-			// cancel current job if it belongs to the given family
+			ArrayList<IJob> cancelledJobs = new ArrayList<>();
+			// cancel running jobs if they belong to the given family
 			synchronized(this){
-				currentJob = currentJob();
 				disable();
+				for (IJob job : this.runningJobs)
+					if (jobFamily == null || job.belongsTo(jobFamily))
+						cancelledJobs.add(job);
 			}
-			if (currentJob != null && (jobFamily == null || currentJob.belongsTo(jobFamily))) {
-				currentJob.cancel();
+			for (IJob job : cancelledJobs) {
+				job.cancel();
 
-				// wait until current active job has finished
-				while (this.processingThread != null && this.executing){
+				// wait until the active job has finished
+				while (this.processingThread != null && isRunning(job)){
 					try {
 						if (VERBOSE)
-							Util.verbose("-> waiting end of current background job - " + currentJob); //$NON-NLS-1$
+							Util.verbose("-> waiting end of current background job - " + job); //$NON-NLS-1$
 						Thread.sleep(50);
 					} catch(InterruptedException e){
 						// ignore
@@ -130,22 +163,157 @@ public abstract class JobManager implements Runnable {
 		notifyAll(); // wake up the background thread if it is waiting (context must be synchronized)
 	}
 	protected synchronized boolean isJobWaiting(IJob request) {
-		for (int i = this.jobEnd; i > this.jobStart; i--) // don't check job at jobStart, as it may have already started
-			if (request.equals(this.awaitingJobs[i])) return true;
+		for (int i = this.jobEnd; i >= this.jobStart; i--) {
+			IJob job = this.awaitingJobs[i];
+			if (request.equals(job) && !isRunning(job)) return true; // don't check jobs which have already started
+		}
 		return false;
 	}
 	/**
-	 * Advance to the next available job, once the current one has been completed.
+	 * Answers whether the given job has been started and has not completed yet.
+	 */
+	protected synchronized boolean isRunning(IJob job) {
+		for (int i = this.runningJobs.size(); --i >= 0;)
+			if (this.runningJobs.get(i) == job) return true;
+		return false;
+	}
+	/**
+	 * Answers the key of the index updated by the given job, or null if the job must run alone.
+	 * Jobs with different keys can run at the same time, see {@link #maxConcurrentJobs()}, while the jobs
+	 * with the same key are run in the order of the queue.
+	 */
+	protected Object jobIndexKey(IJob job) {
+		return null;
+	}
+	/**
+	 * Answers how many jobs can run at the same time. Only jobs for different indexes run together.
+	 */
+	protected int maxConcurrentJobs() {
+		return 1;
+	}
+	/**
+	 * Remove the given job from the queue, once it has been completed.
 	 * Note: clients awaiting until the job count is zero are still waiting at this point.
 	 */
-	protected synchronized void moveToNextJob() {
-		//if (!enabled) return;
+	protected synchronized void moveToNextJob(IJob job) {
+		for (int i = this.runningJobs.size(); --i >= 0;) {
+			if (this.runningJobs.get(i) == job) {
+				this.runningJobs.remove(i);
+				break;
+			}
+		}
+		for (int i = this.jobStart; i <= this.jobEnd; i++) {
+			if (this.awaitingJobs[i] == job) {
+				if (i == this.jobStart) {
+					this.awaitingJobs[this.jobStart++] = null;
+				} else {
+					System.arraycopy(this.awaitingJobs, i + 1, this.awaitingJobs, i, this.jobEnd - i);
+					this.awaitingJobs[this.jobEnd--] = null;
+				}
+				if (this.jobStart > this.jobEnd) {
+					this.jobStart = 0;
+					this.jobEnd = -1;
+				}
+				break;
+			}
+		}
+		notifyAll(); // wake up the threads waiting for an index to be free
+	}
+	/**
+	 * Answers the first job of the queue which can be started, or null if there is none.
+	 * A job cannot start while a job ahead of it in the queue updates the same index, and a job
+	 * without index key starts only once the jobs ahead of it have completed, then blocks the following ones.
+	 */
+	protected synchronized IJob nextJob() {
+		if (this.enableCount <= 0 || this.runningJobs.size() >= maxConcurrentJobs())
+			return null;
+		Set<Object> busyKeys = null;
+		for (int i = this.jobStart; i <= this.jobEnd; i++) {
+			IJob job = this.awaitingJobs[i];
+			Object key = jobIndexKey(job);
+			if (key == null)
+				return i == this.jobStart && this.runningJobs.isEmpty() ? job : null;
+			if (busyKeys != null && busyKeys.contains(key))
+				continue; // a job ahead of it updates the same index
+			if (!isRunning(job))
+				return job;
+			if (busyKeys == null)
+				busyKeys = new HashSet<>();
+			busyKeys.add(key);
+		}
+		return null;
+	}
+	/**
+	 * Record that the given job is running, and start the processing threads needed to run the next jobs.
+	 * Must be called from a synchronized context.
+	 */
+	private void jobStarted(IJob job) {
+		this.runningJobs.add(job);
+		if (this.progressJob == null) {
+			this.progressJob = new ProgressJob(Messages.bind(Messages.jobmanager_indexing, "", "")); //$NON-NLS-1$ //$NON-NLS-2$
+			this.progressJob.setPriority(Job.LONG);
+			this.progressJob.setSystem(true);
+			this.progressJob.schedule();
+		}
+		for (int i = this.helperThreads.size(), max = maxConcurrentJobs() - 1; i < max; i++) {
+			final Thread owner = this.processingThread;
+			Thread helper = new Thread(() -> helpProcessing(owner), processName() + " #" + (i + 1)); //$NON-NLS-1$
+			helper.setDaemon(true);
+			helper.setPriority(Thread.NORM_PRIORITY-1);
+			helper.setContextClassLoader(this.getClass().getClassLoader());
+			this.helperThreads.add(helper);
+			helper.start();
+		}
+	}
+	/**
+	 * Execute the given job, which has been marked as running.
+	 */
+	void executeJob(IJob job) throws InterruptedException {
+		if (VERBOSE) {
+			Util.verbose(awaitingJobsCount() + " awaiting jobs"); //$NON-NLS-1$
+			Util.verbose("STARTING background job - " + job); //$NON-NLS-1$
+		}
+		try {
+			/*boolean status = */job.execute(null);
+			//if (status == FAILED) request(job);
+		} finally {
+			if (VERBOSE)
+				Util.verbose("FINISHED background job - " + job); //$NON-NLS-1$
+			moveToNextJob(job);
+			if (this.awaitingClients == 0 && job.waitNeeded()) {
+				if (VERBOSE) {
+					Util.verbose("WAITING after job - " + job); //$NON-NLS-1$
+				}
+				Thread.sleep(5);
+			}
+		}
+	}
+	/**
+	 * Loop of the helper threads, running the jobs which can start while the processing thread is busy,
+	 * until the given processing thread is stopped or replaced.
+	 */
+	void helpProcessing(Thread owner) {
+		while (this.processingThread == owner) {
+			try {
+				IJob job;
+				synchronized (this) {
+					if (this.processingThread != owner) break;
+					if ((job = nextJob()) == null) {
+						this.wait(); // wait until a new job is posted or a running job has completed
+						continue;
+					}
+					jobStarted(job);
+				}
+				executeJob(job);
+			} catch (InterruptedException e) {
+				// ignore
+			} catch (RuntimeException | Error e) {
+				if (e instanceof ThreadDeath || this.processingThread != owner) throw e;
+				// log exception
+				Util.log(e, "Background Indexer Crash Recovery"); //$NON-NLS-1$
 
-		if (this.jobStart <= this.jobEnd) {
-			this.awaitingJobs[this.jobStart++] = null;
-			if (this.jobStart > this.jobEnd) {
-				this.jobStart = 0;
-				this.jobEnd = -1;
+				// keep job manager alive
+				discardJobs(null); // some indexes will be inconsistent
 			}
 		}
 	}
@@ -314,6 +482,7 @@ public abstract class JobManager implements Runnable {
 		} else {
 			synchronized (this) {
 				/* initiate background processing */
+				this.helperThreads.clear(); // helpers of a crashed processing thread stop by themselves
 				this.processingThread = new Thread(this, processName());
 				this.processingThread.setDaemon(true);
 				// less prioritary by default, priority is raised if clients are actively waiting on it
@@ -334,39 +503,21 @@ public abstract class JobManager implements Runnable {
 		long idlingStart = -1;
 		activateProcessing();
 		try {
-			class ProgressJob extends Job {
-				ProgressJob(String name) {
-					super(name);
-				}
-				@Override
-				protected IStatus run(IProgressMonitor monitor) {
-					IJob job = currentJob();
-					while (!monitor.isCanceled() && job != null) {
-						 String taskName = new StringBuffer(Messages.jobmanager_indexing)
-							.append(Messages.bind(Messages.jobmanager_filesToIndex, job.getJobFamily(), Integer.toString(awaitingJobsCount())))
-							.toString();
-						monitor.subTask(taskName);
-						setName(taskName);
-						try {
-							Thread.sleep(500);
-						} catch (InterruptedException e) {
-							// ignore
-						}
-						job = currentJob();
-					}
-					return Status.OK_STATUS;
-				}
-			}
 			this.progressJob = null;
 			while (this.processingThread != null) {
 				try {
 					IJob job;
+					boolean idle = false;
 					synchronized (this) {
 						// handle shutdown case when notifyAll came before the wait but after the while loop was entered
 						if (this.processingThread == null) continue;
 
 						// must check for new job inside this sync block to avoid timing hole
-						if ((job = currentJob()) == null) {
+						if ((job = nextJob()) != null) {
+							idlingStart = -1;
+							jobStarted(job);
+						} else if (this.runningJobs.isEmpty() && currentJob() == null) {
+							idle = true;
 							if (this.progressJob != null) {
 								this.progressJob.cancel();
 								this.progressJob = null;
@@ -377,41 +528,18 @@ public abstract class JobManager implements Runnable {
 								notifyIdle(System.currentTimeMillis() - idlingStart);
 							this.wait(); // wait until a new job is posted (or reenabled:38901)
 						} else {
-							idlingStart = -1;
+							this.wait(); // wait until a running job has completed
 						}
 					}
 					if (job == null) {
-						notifyIdle(System.currentTimeMillis() - idlingStart);
-						// just woke up, delay before processing any new jobs, allow some time for the active thread to finish
-						Thread.sleep(500);
-						continue;
-					}
-					if (VERBOSE) {
-						Util.verbose(awaitingJobsCount() + " awaiting jobs"); //$NON-NLS-1$
-						Util.verbose("STARTING background job - " + job); //$NON-NLS-1$
-					}
-					try {
-						this.executing = true;
-						if (this.progressJob == null) {
-							this.progressJob = new ProgressJob(Messages.bind(Messages.jobmanager_indexing, "", "")); //$NON-NLS-1$ //$NON-NLS-2$
-							this.progressJob.setPriority(Job.LONG);
-							this.progressJob.setSystem(true);
-							this.progressJob.schedule();
-						}
-						/*boolean status = */job.execute(null);
-						//if (status == FAILED) request(job);
-					} finally {
-						this.executing = false;
-						if (VERBOSE)
-							Util.verbose("FINISHED background job - " + job); //$NON-NLS-1$
-						moveToNextJob();
-						if (this.awaitingClients == 0 && job.waitNeeded()) {
-							if (VERBOSE) {
-								Util.verbose("WAITING after job - " + job); //$NON-NLS-1$
-							}
-							Thread.sleep(5);
+						if (idle) {
+							notifyIdle(System.currentTimeMillis() - idlingStart);
+							// just woke up, delay before processing any new jobs, allow some time for the active thread to finish
+							Thread.sleep(500);
 						}
+						continue;
 					}
+					executeJob(job);
 				} catch (InterruptedException e) { // background indexing was interrupted
 				}
 			}
@@ -452,12 +580,17 @@ public abstract class JobManager implements Runnable {
 		Thread thread = this.processingThread;
 		try {
 			if (thread != null) { // see http://bugs.eclipse.org/bugs/show_bug.cgi?id=31858
+				Thread[] helpers;
 				synchronized (this) {
 					this.processingThread = null; // mark the job manager as shutting down so that the thread will stop by itself
+					helpers = this.helperThreads.toArray(new Thread[this.helperThreads.size()]);
+					this.helperThreads.clear();
 					notifyAll(); // ensure its awake so it can be shutdown
 				}
 				// in case processing thread is handling a job
 				thread.join();
+				for (Thread helper : helpers)
+					helper.join();
 			}
 			Job job = this.progressJob;
 			if (job != null) {
@@ -474,6 +607,7 @@ public abstract class JobManager implements Runnable {
 		buffer.append("Enable count:").append(this.enableCount).append('\n'); //$NON-NLS-1$
 		int numJobs = this.jobEnd - this.jobStart + 1;
 		buffer.append("Jobs in queue:").append(numJobs).append('\n'); //$NON-NLS-1$
+		buffer.append("Running jobs:").append(this.runningJobs.size()).append('\n'); //$NON-NLS-1$
 		for (int i = 0; i < numJobs && i < 15; i++) {
 			buffer.append(i).append(" - job["+i+"]: ").append(this.awaitingJobs[this.jobStart+i]).append('\n'); //$NON-NLS-1$ //$NON-NLS-2$
 		}